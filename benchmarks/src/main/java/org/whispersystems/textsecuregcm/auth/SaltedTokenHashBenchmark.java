@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaltedTokenHashBenchmark {
+
+  private static final String TOKEN = "8c6e2df8a3bc4b55a8bdbf50c3a0c3d1";
+
+  private SaltedTokenHash saltedTokenHash;
+
+  @Setup
+  public void setUp() {
+    saltedTokenHash = SaltedTokenHash.generateFor(TOKEN);
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return saltedTokenHash.verify(TOKEN);
+  }
+
+  @Benchmark
+  public boolean verifyIncorrectToken() {
+    return saltedTokenHash.verify("incorrect");
+  }
+}
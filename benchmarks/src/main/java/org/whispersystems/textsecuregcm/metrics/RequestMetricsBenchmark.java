@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of incrementing a per-request counter by looking it up in a meter registry (building and sorting
+ * its tags each time) with the cost of looking it up in a {@link MeterCache}. Like the global registry, the registry
+ * here is a composite registry with a single child.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RequestMetricsBenchmark {
+
+  private static final String COUNTER_NAME = "request";
+
+  private static final String[] PATHS = {"/v1/messages/{destination}", "/v2/keys", "/v1/accounts/whoami", "/v1/profile"};
+  private static final String[] METHODS = {"PUT", "GET", "GET", "GET"};
+  private static final int[] STATUSES = {200, 200, 200, 404, 409, 200, 428};
+  private static final String[] USER_AGENTS = {"Signal-Android/6.30.1 Android/33", "Signal-iOS/6.39.0.21 iOS/16.6",
+      "Signal-Desktop/6.29.1 macOS/22.6.0", "curl/8.1.2"};
+
+  private MeterRegistry meterRegistry;
+  private MeterCache<RequestKey, Counter> requestCounters;
+
+  private record RequestKey(String path, String method, int status, Tag platformTag) {
+  }
+
+  @State(Scope.Thread)
+  public static class RequestState {
+
+    private int request;
+
+    int next() {
+      return request++;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    final CompositeMeterRegistry compositeMeterRegistry = new CompositeMeterRegistry();
+    compositeMeterRegistry.add(new SimpleMeterRegistry());
+
+    meterRegistry = compositeMeterRegistry;
+    requestCounters = MeterCache.counters(meterRegistry, COUNTER_NAME, key -> List.of(
+        Tag.of("path", key.path()),
+        Tag.of("method", key.method()),
+        Tag.of("status", String.valueOf(key.status())),
+        Tag.of("trafficSource", "http"),
+        key.platformTag()));
+  }
+
+  @Benchmark
+  public void registryLookup(final RequestState requestState) {
+    final int request = requestState.next();
+
+    final List<Tag> tags = new ArrayList<>(5);
+    tags.add(Tag.of("path", PATHS[request % PATHS.length]));
+    tags.add(Tag.of("method", METHODS[request % METHODS.length]));
+    tags.add(Tag.of("status", String.valueOf(STATUSES[request % STATUSES.length])));
+    tags.add(Tag.of("trafficSource", "http"));
+    tags.add(UserAgentTagUtil.getPlatformTag(USER_AGENTS[request % USER_AGENTS.length]));
+
+    meterRegistry.counter(COUNTER_NAME, tags).increment();
+  }
+
+  @Benchmark
+  public void meterCacheLookup(final RequestState requestState) {
+    final int request = requestState.next();
+
+    requestCounters.get(new RequestKey(PATHS[request % PATHS.length],
+            METHODS[request % METHODS.length],
+            STATUSES[request % STATUSES.length],
+            UserAgentTagUtil.getPlatformTag(USER_AGENTS[request % USER_AGENTS.length])))
+        .increment();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.providers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.whispersystems.textsecuregcm.entities.IncomingMessage;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageList;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageProtos;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Compares reading a single-recipient message send from a JSON body with reading it from a protobuf body. Each
+ * benchmark reads the request body and then decodes every message's content, as the controller does when building
+ * envelopes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncomingMessageListBenchmark {
+
+  @Param({"1", "3"})
+  public int deviceCount;
+
+  @Param({"256", "4096", "65536"})
+  public int contentLength;
+
+  private final ObjectMapper objectMapper = SystemMapper.jsonMapper();
+
+  private final ProtobufIncomingMessageListProvider provider = new ProtobufIncomingMessageListProvider();
+  private final MediaType mediaType = MediaType.valueOf(ProtobufIncomingMessageListProvider.MEDIA_TYPE);
+
+  private byte[] jsonPayload;
+  private byte[] protobufPayload;
+
+  @Setup
+  public void setUp() throws IOException {
+    final List<IncomingMessage> messages = new ArrayList<>(deviceCount);
+    final IncomingMessageProtos.IncomingMessageList.Builder protobufBuilder =
+        IncomingMessageProtos.IncomingMessageList.newBuilder()
+            .setTimestamp(System.currentTimeMillis());
+
+    for (int deviceId = 1; deviceId <= deviceCount; deviceId++) {
+      final byte[] content = new byte[contentLength];
+      ThreadLocalRandom.current().nextBytes(content);
+
+      final int registrationId = ThreadLocalRandom.current().nextInt(0x4000);
+
+      messages.add(new IncomingMessage(1, deviceId, registrationId, Base64.getEncoder().encodeToString(content)));
+      protobufBuilder.addMessages(IncomingMessageProtos.IncomingMessage.newBuilder()
+          .setType(1)
+          .setDestinationDeviceId(deviceId)
+          .setDestinationRegistrationId(registrationId)
+          .setContent(ByteString.copyFrom(content)));
+    }
+
+    jsonPayload = objectMapper.writeValueAsBytes(
+        new IncomingMessageList(messages, false, true, protobufBuilder.getTimestamp()));
+
+    protobufPayload = protobufBuilder.build().toByteArray();
+  }
+
+  @Benchmark
+  public void readJson(final Blackhole blackhole) throws IOException {
+    decodeContent(objectMapper.readValue(new ByteArrayInputStream(jsonPayload), IncomingMessageList.class), blackhole);
+  }
+
+  @Benchmark
+  public void readProtobuf(final Blackhole blackhole) throws IOException {
+    decodeContent(provider.readFrom(IncomingMessageList.class, IncomingMessageList.class, null, mediaType, null,
+        new ByteArrayInputStream(protobufPayload)), blackhole);
+  }
+
+  private static void decodeContent(final IncomingMessageList messageList, final Blackhole blackhole) {
+    for (final IncomingMessage message : messageList.messages()) {
+      blackhole.consume(message.decodedContent());
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.providers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.entities.MultiRecipientMessage;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiRecipientMessageProviderBenchmark {
+
+  @Param({"1", "100", "1000"})
+  public int recipientCount;
+
+  private final MultiRecipientMessageProvider provider = new MultiRecipientMessageProvider();
+  private final MediaType mediaType = MediaType.valueOf(MultiRecipientMessageProvider.MEDIA_TYPE);
+
+  private byte[] payload;
+
+  @Setup
+  public void setUp() throws IOException {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    outputStream.write(MultiRecipientMessageProvider.EXPLICIT_ID_VERSION_IDENTIFIER);
+    writeVarint(outputStream, recipientCount);
+
+    for (int i = 0; i < recipientCount; i++) {
+      outputStream.write(new AciServiceIdentifier(UUID.randomUUID()).toFixedWidthByteArray());
+      writeVarint(outputStream, 1);
+
+      final int registrationId = ThreadLocalRandom.current().nextInt(0x4000);
+      outputStream.write(registrationId >> 8);
+      outputStream.write(registrationId & 0xff);
+
+      outputStream.write(randomBytes(48));
+    }
+
+    outputStream.write(randomBytes(1024));
+
+    payload = outputStream.toByteArray();
+  }
+
+  @Benchmark
+  public MultiRecipientMessage readFrom() throws IOException {
+    return provider.readFrom(MultiRecipientMessage.class, MultiRecipientMessage.class, null, mediaType, null,
+        new ByteArrayInputStream(payload));
+  }
+
+  private static void writeVarint(final ByteArrayOutputStream outputStream, final long value) {
+    long remaining = value;
+
+    do {
+      long b = remaining & 0x7f;
+      remaining >>>= 7;
+
+      if (remaining != 0) {
+        b |= 0x80;
+      }
+
+      outputStream.write((int) b);
+    } while (remaining != 0);
+  }
+
+  private static byte[] randomBytes(final int length) {
+    final byte[] bytes = new byte[length];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    return bytes;
+  }
+}
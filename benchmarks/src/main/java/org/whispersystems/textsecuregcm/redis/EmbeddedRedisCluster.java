@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.redis;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.resource.ClientResources;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.stream.IntStream;
+import org.whispersystems.textsecuregcm.configuration.RedisClusterConfiguration;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+import redis.embedded.RedisServer;
+
+/**
+ * A single-node Redis cluster started locally with embedded Redis for benchmarks that need a real cluster.
+ */
+public class EmbeddedRedisCluster implements AutoCloseable {
+
+  private final RedisServer redisServer;
+  private final ClientResources clientResources;
+  private final FaultTolerantRedisCluster redisCluster;
+
+  private EmbeddedRedisCluster(final RedisServer redisServer,
+      final ClientResources clientResources,
+      final FaultTolerantRedisCluster redisCluster) {
+
+    this.redisServer = redisServer;
+    this.clientResources = clientResources;
+    this.redisCluster = redisCluster;
+  }
+
+  /**
+   * Starts a Redis server on a free local port, assigns every slot to it, and waits for the cluster to become ready.
+   *
+   * @param name the name of the returned cluster client
+   */
+  public static EmbeddedRedisCluster start(final String name) throws IOException, InterruptedException {
+    final int port;
+
+    try (final ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    final File clusterConfigFile = File.createTempFile("redis", ".conf");
+    clusterConfigFile.deleteOnExit();
+
+    final RedisServer redisServer = RedisServer.builder()
+        .setting("cluster-enabled yes")
+        .setting("cluster-config-file " + clusterConfigFile.getAbsolutePath())
+        .setting("appendonly no")
+        .setting("save \"\"")
+        .setting("dir " + System.getProperty("java.io.tmpdir"))
+        .port(port)
+        .build();
+
+    redisServer.start();
+
+    try (final RedisClient redisClient = RedisClient.create(RedisURI.create("127.0.0.1", port));
+        final StatefulRedisConnection<String, String> connection = redisClient.connect()) {
+
+      connection.sync().clusterAddSlots(IntStream.range(0, SlotHash.SLOT_COUNT).toArray());
+
+      while (!connection.sync().clusterInfo().contains("cluster_state:ok")) {
+        Thread.sleep(100);
+      }
+    }
+
+    final ClientResources clientResources = ClientResources.builder().build();
+
+    final RedisClusterConfiguration clusterConfiguration = SystemMapper.yamlMapper()
+        .readValue("configurationUri: redis://127.0.0.1:" + port, RedisClusterConfiguration.class);
+
+    return new EmbeddedRedisCluster(redisServer, clientResources,
+        new FaultTolerantRedisCluster(name, clusterConfiguration, clientResources));
+  }
+
+  public FaultTolerantRedisCluster getCluster() {
+    return redisCluster;
+  }
+
+  @Override
+  public void close() {
+    redisCluster.shutdown();
+    clientResources.shutdown();
+    redisServer.stop();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Compares the structural copy {@link AccountsManager} uses to snapshot accounts during updates with the JSON round
+ * trip it replaced. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountCopyBenchmark {
+
+  @Param({"1", "2", "3", "4", "5", "6"})
+  public int deviceCount;
+
+  private Account account;
+
+  @Setup
+  public void setUp() {
+    account = BenchmarkAccounts.generateAccount(deviceCount);
+  }
+
+  @Benchmark
+  public Account copyAsNotStale() {
+    return account.copyAsNotStale();
+  }
+
+  @Benchmark
+  public Account jsonRoundTrip() throws IOException {
+    return SystemMapper.jsonMapper().readValue(SystemMapper.jsonMapper().writeValueAsBytes(account), Account.class);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+
+/**
+ * Measures the cost of writing accounts to and reading accounts from the JSON representation {@link AccountsManager}
+ * stores in Redis. Key material is decoded lazily, so reading an account is measured both for the fields an
+ * authenticated request touches and for a caller that needs every key; run with {@code -prof gc} to compare allocation
+ * as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountsManagerJsonBenchmark {
+
+  @Param({"1", "5"})
+  public int deviceCount;
+
+  private Account account;
+  private String accountJson;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    account = BenchmarkAccounts.generateAccount(deviceCount);
+
+    accountJson = AccountsManager.writeRedisAccountJson(account);
+  }
+
+  @Benchmark
+  public String writeRedisAccountJson() throws JsonProcessingException {
+    return AccountsManager.writeRedisAccountJson(account);
+  }
+
+  @Benchmark
+  public Optional<Account> parseAccountJson() {
+    return AccountsManager.parseAccountJson(accountJson, account.getUuid());
+  }
+
+  @Benchmark
+  public void parseAccountJsonAndAuthenticate(final Blackhole blackhole) {
+    final Account parsedAccount = AccountsManager.parseAccountJson(accountJson, account.getUuid()).orElseThrow();
+    final Device device = parsedAccount.getDevice(Device.MASTER_ID).orElseThrow();
+
+    blackhole.consume(device.getAuthTokenHash());
+    blackhole.consume(device.isEnabled());
+    blackhole.consume(parsedAccount.getUnidentifiedAccessKey());
+  }
+
+  @Benchmark
+  public void parseAccountJsonAndDecodeKeys(final Blackhole blackhole) {
+    final Account parsedAccount = AccountsManager.parseAccountJson(accountJson, account.getUuid()).orElseThrow();
+
+    for (final IdentityType identityType : IdentityType.values()) {
+      blackhole.consume(parsedAccount.getIdentityKey(identityType));
+
+      for (final Device device : parsedAccount.getDevices()) {
+        blackhole.consume(device.getSignedPreKey(identityType));
+      }
+    }
+  }
+}
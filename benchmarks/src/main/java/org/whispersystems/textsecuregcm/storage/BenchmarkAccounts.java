@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.signal.libsignal.protocol.ecc.ECPublicKey;
+import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
+
+/**
+ * Generates fully-populated accounts for benchmarks that operate on accounts.
+ */
+class BenchmarkAccounts {
+
+  private BenchmarkAccounts() {
+  }
+
+  static Account generateAccount(final int deviceCount) {
+    final ECKeyPair aciIdentityKeyPair = Curve.generateKeyPair();
+    final ECKeyPair pniIdentityKeyPair = Curve.generateKeyPair();
+
+    final Account account = new Account();
+    account.setUuid(UUID.randomUUID());
+    account.setNumber("+18005551234", UUID.randomUUID());
+    account.setIdentityKey(new IdentityKey(aciIdentityKeyPair.getPublicKey()));
+    account.setPhoneNumberIdentityKey(new IdentityKey(pniIdentityKeyPair.getPublicKey()));
+    account.setUnidentifiedAccessKey(randomBytes(16));
+    account.setUsernameHash(randomBytes(32));
+    account.setUsernameLinkDetails(UUID.randomUUID(), randomBytes(48));
+    account.setCurrentProfileVersion("version");
+    account.setBadges(Clock.systemUTC(),
+        List.of(new AccountBadge("badge", Instant.now().plusSeconds(86_400), true)));
+
+    for (int deviceId = 1; deviceId <= deviceCount; deviceId++) {
+      final Device device = new Device();
+      device.setId(deviceId);
+      device.setName("device-" + deviceId);
+      device.setAuthTokenHash(SaltedTokenHash.generateFor("token-" + deviceId));
+      device.setRegistrationId(ThreadLocalRandom.current().nextInt(Device.MAX_REGISTRATION_ID));
+      device.setPhoneNumberIdentityRegistrationId(ThreadLocalRandom.current().nextInt(Device.MAX_REGISTRATION_ID));
+      device.setSignedPreKey(signedPreKey(deviceId, aciIdentityKeyPair));
+      device.setPhoneNumberIdentitySignedPreKey(signedPreKey(deviceId, pniIdentityKeyPair));
+      device.setCapabilities(new Device.DeviceCapabilities(true, true, true, true));
+      device.setFetchesMessages(true);
+      device.setCreated(Clock.systemUTC().millis());
+      device.setLastSeen(Clock.systemUTC().millis());
+      device.setUserAgent("Signal-Android/6.32.3 Android/33");
+
+      account.addDevice(device);
+    }
+
+    return account;
+  }
+
+  private static ECSignedPreKey signedPreKey(final long id, final ECKeyPair identityKeyPair) {
+    final ECPublicKey publicKey = Curve.generateKeyPair().getPublicKey();
+    return new ECSignedPreKey(id, publicKey, identityKeyPair.getPrivateKey().calculateSignature(publicKey.serialize()));
+  }
+
+  private static byte[] randomBytes(final int length) {
+    final byte[] bytes = new byte[length];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    return bytes;
+  }
+}
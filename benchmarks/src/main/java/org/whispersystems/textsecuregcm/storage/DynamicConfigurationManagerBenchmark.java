@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+
+/**
+ * Measures read throughput of {@link DynamicConfigurationManager#getConfiguration()} when many request threads read
+ * the configuration at once, compared against a monitor-guarded read like the one the manager previously used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicConfigurationManagerBenchmark {
+
+  private DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+
+  private final Object monitor = new Object();
+  private DynamicConfiguration synchronizedConfiguration;
+
+  @Setup
+  public void setUp() {
+    // The AppConfig client is never used because the poller is never started
+    dynamicConfigurationManager =
+        new DynamicConfigurationManager<>(null, "benchmark", "benchmark", "benchmark", DynamicConfiguration.class);
+
+    dynamicConfigurationManager.publish(new DynamicConfiguration());
+    synchronizedConfiguration = new DynamicConfiguration();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public DynamicConfiguration getConfiguration() {
+    return dynamicConfigurationManager.getConfiguration();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public DynamicConfiguration getConfigurationSynchronized() {
+    synchronized (monitor) {
+      return synchronizedConfiguration;
+    }
+  }
+
+  @Benchmark
+  @Group("readDuringUpdates")
+  @GroupThreads(64)
+  public DynamicConfiguration getConfigurationDuringUpdates() {
+    return dynamicConfigurationManager.getConfiguration();
+  }
+
+  @Benchmark
+  @Group("readDuringUpdates")
+  @GroupThreads(1)
+  public void publishConfiguration() {
+    dynamicConfigurationManager.publish(new DynamicConfiguration());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.redis.EmbeddedRedisCluster;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Measures how long a burst of connecting devices (as after a deploy) takes to become ready to receive message
+ * availability notifications, i.e. how long it takes for every device's keyspace notification subscriptions to become
+ * active. Runs against a single-node Redis cluster started locally with embedded Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MessagesCacheSubscriptionBenchmark {
+
+  @Param({"1", "4"})
+  public int pubSubConnections;
+
+  @Param({"10000"})
+  public int deviceCount;
+
+  private EmbeddedRedisCluster embeddedRedisCluster;
+  private FaultTolerantRedisCluster redisCluster;
+  private ExecutorService executorService;
+
+  private MessagesCache messagesCache;
+  private List<UUID> accountIdentifiers;
+  private List<MessageAvailabilityListener> listeners;
+
+  @Setup(Level.Trial)
+  public void setUpCluster() throws Exception {
+    embeddedRedisCluster = EmbeddedRedisCluster.start("benchmark");
+    redisCluster = embeddedRedisCluster.getCluster();
+    executorService = Executors.newSingleThreadExecutor();
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpMessagesCache() throws Exception {
+    messagesCache = new MessagesCache(redisCluster, redisCluster, executorService, Schedulers.immediate(),
+        executorService, Clock.systemUTC(), MessagesCache.DEFAULT_EARLY_PERSISTENCE_QUEUE_SIZE, pubSubConnections);
+
+    messagesCache.start();
+
+    accountIdentifiers = IntStream.range(0, deviceCount).mapToObj(ignored -> UUID.randomUUID()).toList();
+    listeners = IntStream.range(0, deviceCount).mapToObj(ignored -> new NoopMessageAvailabilityListener())
+        .map(MessageAvailabilityListener.class::cast)
+        .toList();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownMessagesCache() {
+    messagesCache.stop();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownCluster() {
+    executorService.shutdown();
+    embeddedRedisCluster.close();
+  }
+
+  @Benchmark
+  public void connectStorm() {
+    final CompletableFuture<?>[] subscribeFutures = new CompletableFuture[deviceCount];
+
+    for (int i = 0; i < deviceCount; i++) {
+      subscribeFutures[i] = messagesCache.addMessageAvailabilityListener(accountIdentifiers.get(i), 1, listeners.get(i));
+    }
+
+    CompletableFuture.allOf(subscribeFutures).join();
+  }
+
+  private static class NoopMessageAvailabilityListener implements MessageAvailabilityListener {
+
+    @Override
+    public boolean handleNewMessagesAvailable() {
+      return true;
+    }
+
+    @Override
+    public boolean handleMessagesPersisted() {
+      return true;
+    }
+  }
+}
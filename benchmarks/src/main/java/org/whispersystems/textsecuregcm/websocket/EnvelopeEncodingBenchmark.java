@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.websocket;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+import org.whispersystems.textsecuregcm.util.HeaderUtils;
+import org.whispersystems.websocket.messages.WebSocketMessageFactory;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+
+/**
+ * Measures the cost of encoding a stored envelope into the websocket request frame {@link WebSocketConnection} sends
+ * to a client. {@code encodeEnvelope} follows the same steps as {@code WebSocketConnection#sendMessage}, and
+ * {@code parseAndEncodeEnvelope} adds parsing the envelope from the bytes stored in the message cache, which makes it
+ * the full CPU cost of delivering a cached message. {@code encodeEnvelopeCopyingBody} follows the steps the connection
+ * took before it stopped rebuilding envelopes without an ephemeral flag and copying request bodies into the frame.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the bytes allocated per delivered message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvelopeEncodingBenchmark {
+
+  @Param({"256", "4096", "65536"})
+  public int contentLength;
+
+  private final WebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+
+  private Envelope envelope;
+  private byte[] storedEnvelope;
+
+  @Setup
+  public void setUp() {
+    final byte[] content = new byte[contentLength];
+    ThreadLocalRandom.current().nextBytes(content);
+
+    envelope = Envelope.newBuilder()
+        .setType(Envelope.Type.UNIDENTIFIED_SENDER)
+        .setTimestamp(System.currentTimeMillis())
+        .setServerTimestamp(System.currentTimeMillis())
+        .setServerGuid(UUID.randomUUID().toString())
+        .setDestinationUuid(UUID.randomUUID().toString())
+        .setContent(ByteString.copyFrom(content))
+        .setUrgent(true)
+        .build();
+
+    storedEnvelope = envelope.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] encodeEnvelope() {
+    return encode(envelope);
+  }
+
+  @Benchmark
+  public byte[] parseAndEncodeEnvelope() throws InvalidProtocolBufferException {
+    return encode(Envelope.parseFrom(storedEnvelope));
+  }
+
+  @Benchmark
+  public byte[] encodeEnvelopeCopyingBody() {
+    final Optional<byte[]> body = Optional.of(envelope.toBuilder().clearEphemeral().build().toByteArray());
+
+    return messageFactory.createRequest(Optional.of(ThreadLocalRandom.current().nextLong()), "PUT", "/api/v1/message",
+            List.of(HeaderUtils.X_SIGNAL_KEY + ": false", HeaderUtils.getTimestampHeader()), body)
+        .toByteArray();
+  }
+
+  private byte[] encode(final Envelope envelope) {
+    final byte[] body = envelope.hasEphemeral()
+        ? envelope.toBuilder().clearEphemeral().build().toByteArray()
+        : envelope.toByteArray();
+
+    // WebSocketClient wraps request bodies rather than copying them into the frame
+    return messageFactory.createRequest(Optional.of(ThreadLocalRandom.current().nextLong()), "PUT", "/api/v1/message",
+            List.of(HeaderUtils.X_SIGNAL_KEY + ": false", HeaderUtils.getTimestampHeader()), body, 0, body.length)
+        .toByteArray();
+  }
+}
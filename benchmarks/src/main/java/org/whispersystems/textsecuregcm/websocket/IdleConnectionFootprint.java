@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.websocket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
+import org.whispersystems.textsecuregcm.push.ClientPresenceManager;
+import org.whispersystems.textsecuregcm.push.PushNotificationManager;
+import org.whispersystems.textsecuregcm.push.ReceiptSender;
+import org.whispersystems.textsecuregcm.redis.EmbeddedRedisCluster;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.MessagesCache;
+import org.whispersystems.textsecuregcm.storage.MessagesDynamoDb;
+import org.whispersystems.textsecuregcm.storage.MessagesManager;
+import org.whispersystems.textsecuregcm.storage.ReportMessageManager;
+import org.whispersystems.textsecuregcm.util.Pair;
+import org.whispersystems.websocket.WebSocketClient;
+import org.whispersystems.websocket.session.WebSocketSessionContext;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reports the heap retained by each idle, authenticated websocket connection. The harness connects the requested
+ * number of devices through {@link AuthenticatedConnectListener} with real presence and message cache components
+ * (backed by a local single-node Redis cluster started with embedded Redis), lets their empty queues drain, and
+ * compares heap usage after a full GC with heap usage before the devices connected.
+ * <p>
+ * Retained heap isn't something JMH measures, so this is a standalone program rather than a benchmark:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.whispersystems.textsecuregcm.websocket.IdleConnectionFootprint 10000
+ * </pre>
+ * <p>
+ * Jetty's own per-session state is outside the scope of this harness; clients are shared stubs, and the figure reported
+ * covers what the service allocates and retains for each connection.
+ */
+public class IdleConnectionFootprint {
+
+  private static final int DEFAULT_CONNECTION_COUNT = 10_000;
+  private static final long SETTLE_MILLIS = 5_000;
+
+  private static final String USER_AGENT = "Signal-Android/6.32.3 Android/33";
+
+  public static void main(final String... args) throws Exception {
+    final int connectionCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONNECTION_COUNT;
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    try (final EmbeddedRedisCluster embeddedRedisCluster = EmbeddedRedisCluster.start("footprint")) {
+      final FaultTolerantRedisCluster redisCluster = embeddedRedisCluster.getCluster();
+
+      final ClientPresenceManager clientPresenceManager =
+          new ClientPresenceManager(redisCluster, scheduledExecutor, executor);
+
+      final MessagesCache messagesCache = new MessagesCache(redisCluster, redisCluster, executor,
+          Schedulers.immediate(), executor, Clock.systemUTC());
+
+      final MessagesDynamoDb messagesDynamoDb = mock(MessagesDynamoDb.class, withSettings().stubOnly());
+      when(messagesDynamoDb.load(any(), anyLong(), any())).thenReturn(Flux.empty());
+
+      final MessagesManager messagesManager = new MessagesManager(messagesDynamoDb, messagesCache,
+          mock(ReportMessageManager.class, withSettings().stubOnly()), executor);
+
+      final WebSocketClient client = mock(WebSocketClient.class, withSettings().stubOnly());
+      when(client.getUserAgent()).thenReturn(USER_AGENT);
+      when(client.isOpen()).thenReturn(true);
+
+      final AuthenticatedConnectListener connectListener = new AuthenticatedConnectListener(
+          mock(ReceiptSender.class, withSettings().stubOnly()),
+          messagesManager,
+          mock(PushNotificationManager.class, withSettings().stubOnly()),
+          clientPresenceManager,
+          scheduledExecutor,
+          Schedulers.immediate(),
+          mock(ClientReleaseManager.class, withSettings().stubOnly()));
+
+      clientPresenceManager.start();
+      messagesCache.start();
+
+      // Everything that would exist before a device connects (the session context and the authenticated account and
+      // device) is created before taking the baseline measurement
+      final List<WebSocketSessionContext> contexts = new ArrayList<>(connectionCount);
+
+      for (int i = 0; i < connectionCount; i++) {
+        contexts.add(authenticatedContext(client));
+      }
+
+      // Connect one device ahead of the baseline so that classes and shared state are already loaded
+      connectListener.onWebSocketConnect(authenticatedContext(client));
+
+      final long heapBefore = usedHeapAfterGc();
+
+      for (final WebSocketSessionContext context : contexts) {
+        connectListener.onWebSocketConnect(context);
+      }
+
+      // Let queue drains and keyspace notification subscriptions finish so we measure connections at rest
+      Thread.sleep(SETTLE_MILLIS);
+
+      final long heapAfter = usedHeapAfterGc();
+
+      System.out.printf("connections: %d%n", connectionCount);
+      System.out.printf("retained heap: %d bytes%n", heapAfter - heapBefore);
+      System.out.printf("retained heap per connection: %d bytes%n", (heapAfter - heapBefore) / connectionCount);
+
+      Reference.reachabilityFence(contexts);
+
+      messagesCache.stop();
+      clientPresenceManager.stop();
+    } finally {
+      scheduledExecutor.shutdownNow();
+      executor.shutdownNow();
+    }
+  }
+
+  private static WebSocketSessionContext authenticatedContext(final WebSocketClient client) {
+    final Account account = new Account();
+    account.setUuid(UUID.randomUUID());
+
+    final Device device = new Device();
+    device.setId(Device.MASTER_ID);
+    device.setUserAgent(USER_AGENT);
+    account.addDevice(device);
+
+    final Pair<Account, Device> accountAndDevice = new Pair<>(account, device);
+
+    final WebSocketSessionContext context = new WebSocketSessionContext(client);
+    context.setAuthenticated(new AuthenticatedAccount(() -> accountAndDevice));
+
+    return context;
+  }
+
+  private static long usedHeapAfterGc() throws InterruptedException {
+    final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    // A single GC request isn't guaranteed to collect everything; repeat until heap usage stops shrinking
+    long used = Long.MAX_VALUE;
+
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(100);
+
+      final long current = memoryMXBean.getHeapMemoryUsage().getUsed();
+
+      if (current >= used) {
+        break;
+      }
+
+      used = current;
+    }
+
+    return used;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.dropwizard.jersey.DropwizardResourceConfig;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.websocket.logging.WebsocketRequestLog;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+
+/**
+ * Measures the time and allocation cost of carrying request and response bodies of various sizes through a websocket
+ * connection. The resource echoes the request body back, so each invocation moves the payload in both directions. Run
+ * with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketPayloadBenchmark {
+
+  @Param({"1024", "16384", "262144"})
+  public int payloadSize;
+
+  private WebSocketResourceProvider<BenchmarkPrincipal> provider;
+  private byte[] requestFrame;
+
+  public record BenchmarkPrincipal(String name) implements Principal {
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Path("/v1/benchmark")
+  public static class EchoResource {
+
+    @PUT
+    @Path("/echo")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public byte[] echo(final byte[] body) {
+      return body;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    final ResourceConfig resourceConfig = new DropwizardResourceConfig();
+    resourceConfig.register(new EchoResource());
+
+    final ProtobufWebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+
+    provider = new WebSocketResourceProvider<>("127.0.0.1", new ApplicationHandler(resourceConfig),
+        new WebsocketRequestLog(), new BenchmarkPrincipal("benchmark"), messageFactory, Optional.empty(), 30_000);
+
+    // Stub-only mocks don't record invocations, so they don't accumulate state over millions of iterations
+    final Session session = mock(Session.class, withSettings().stubOnly());
+    final RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class, withSettings().stubOnly());
+    final UpgradeRequest upgradeRequest = mock(UpgradeRequest.class, withSettings().stubOnly());
+
+    when(session.getRemote()).thenReturn(remoteEndpoint);
+    when(session.getUpgradeRequest()).thenReturn(upgradeRequest);
+    when(upgradeRequest.getHeaders()).thenReturn(Map.of(
+        "User-Agent", List.of("Signal-Android/6.32.3 Android/33"),
+        "X-Forwarded-For", List.of("127.0.0.1"),
+        "Connection", List.of("Upgrade"),
+        "Upgrade", List.of("websocket"),
+        "Sec-WebSocket-Key", List.of("dGhlIHNhbXBsZSBub25jZQ=="),
+        "Sec-WebSocket-Version", List.of("13")));
+
+    provider.onWebSocketConnect(session);
+
+    final byte[] payload = new byte[payloadSize];
+    new Random().nextBytes(payload);
+
+    requestFrame = messageFactory.createRequest(Optional.of(1L), "PUT", "/v1/benchmark/echo",
+        List.of("Content-Type: application/octet-stream", "Accept: application/octet-stream"),
+        Optional.of(payload)).toByteArray();
+  }
+
+  @Benchmark
+  public void echo() {
+    provider.onWebSocketBinary(requestFrame, 0, requestFrame.length);
+  }
+}
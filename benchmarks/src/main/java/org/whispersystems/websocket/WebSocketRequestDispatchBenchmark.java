@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jersey.DropwizardResourceConfig;
+import io.dropwizard.jersey.jackson.JacksonMessageBodyProvider;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.websocket.logging.WebsocketRequestLog;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+
+/**
+ * Simulates several connections, each read by its own thread, sending requests to a resource that blocks for a
+ * millisecond. Each benchmark invocation is one frame read from a connection; its sampled time is the time the reading
+ * thread is occupied, including any time the connection spends suspended because it has reached its limit of in-flight
+ * requests. Compare the {@code inline} and {@code executor} dispatch modes to see how much blocking resources stall
+ * connection reads; the {@code suspensions} counter shows how often connections were held back by backpressure.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class WebSocketRequestDispatchBenchmark {
+
+  private static final int MAX_CONCURRENT_REQUESTS = 16;
+
+  public record BenchmarkPrincipal(String name) implements Principal {
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Path("/v1/benchmark")
+  public static class BlockingResource {
+
+    @GET
+    @Path("/blocking")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, String> blocking() throws InterruptedException {
+      Thread.sleep(1);
+      return Map.of("hello", "world");
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Dispatcher {
+
+    @Param({"inline", "executor"})
+    public String dispatch;
+
+    @Param({"64"})
+    public int dispatchThreads;
+
+    ApplicationHandler applicationHandler;
+    ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+      final ResourceConfig resourceConfig = new DropwizardResourceConfig();
+      resourceConfig.register(new BlockingResource());
+      resourceConfig.register(new JacksonMessageBodyProvider(new ObjectMapper()));
+
+      applicationHandler = new ApplicationHandler(resourceConfig);
+      executor = "executor".equals(dispatch) ? Executors.newFixedThreadPool(dispatchThreads) : null;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+      if (executor != null) {
+        executor.shutdown();
+
+        //noinspection ResultOfMethodCallIgnored
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Connection {
+
+    private final AtomicBoolean suspended = new AtomicBoolean(false);
+
+    WebSocketResourceProvider<BenchmarkPrincipal> provider;
+    byte[] requestFrame;
+
+    public long suspensions;
+
+    @Setup(Level.Trial)
+    public void setUp(final Dispatcher dispatcher) {
+      final ProtobufWebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+
+      provider = new WebSocketResourceProvider<>("127.0.0.1", dispatcher.applicationHandler,
+          new WebsocketRequestLog(), new BenchmarkPrincipal("benchmark"), messageFactory, Optional.empty(), 30_000,
+          dispatcher.executor != null ? dispatcher.executor : Runnable::run, MAX_CONCURRENT_REQUESTS);
+
+      final Session session = mock(Session.class, withSettings().stubOnly());
+      final RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class, withSettings().stubOnly());
+      final UpgradeRequest upgradeRequest = mock(UpgradeRequest.class, withSettings().stubOnly());
+      final SuspendToken suspendToken = () -> suspended.set(false);
+
+      when(session.getRemote()).thenReturn(remoteEndpoint);
+      when(session.getUpgradeRequest()).thenReturn(upgradeRequest);
+      when(upgradeRequest.getHeaders()).thenReturn(Map.of("User-Agent", List.of("Signal-Android/6.32.3 Android/33")));
+      when(session.suspend()).thenAnswer(invocation -> {
+        suspended.set(true);
+        suspensions++;
+
+        return suspendToken;
+      });
+
+      provider.onWebSocketConnect(session);
+
+      requestFrame = messageFactory.createRequest(Optional.of(1L), "GET", "/v1/benchmark/blocking",
+          List.of("Accept: application/json"), Optional.empty()).toByteArray();
+    }
+
+    void awaitResume() {
+      // Like Jetty, don't deliver another frame while reads from the connection are suspended
+      while (suspended.get()) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  @Benchmark
+  public void readFrame(final Connection connection) {
+    connection.awaitResume();
+    connection.provider.onWebSocketBinary(connection.requestFrame, 0, connection.requestFrame.length);
+  }
+}
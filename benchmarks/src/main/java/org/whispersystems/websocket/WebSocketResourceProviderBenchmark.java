@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jersey.DropwizardResourceConfig;
+import io.dropwizard.jersey.jackson.JacksonMessageBodyProvider;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.websocket.logging.WebsocketRequestLog;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+
+/**
+ * Measures the cost of dispatching a websocket request frame through Jersey and writing the response frame, excluding
+ * any network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketResourceProviderBenchmark {
+
+  private WebSocketResourceProvider<BenchmarkPrincipal> provider;
+  private byte[] requestFrame;
+
+  public record BenchmarkPrincipal(String name) implements Principal {
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Path("/v1/benchmark")
+  public static class BenchmarkResource {
+
+    @GET
+    @Path("/hello")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, String> hello() {
+      return Map.of("hello", "world");
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    final ResourceConfig resourceConfig = new DropwizardResourceConfig();
+    resourceConfig.register(new BenchmarkResource());
+    resourceConfig.register(new JacksonMessageBodyProvider(new ObjectMapper()));
+
+    final ProtobufWebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+
+    provider = new WebSocketResourceProvider<>("127.0.0.1", new ApplicationHandler(resourceConfig),
+        new WebsocketRequestLog(), new BenchmarkPrincipal("benchmark"), messageFactory, Optional.empty(), 30_000);
+
+    // Stub-only mocks don't record invocations, so they don't accumulate state over millions of iterations
+    final Session session = mock(Session.class, withSettings().stubOnly());
+    final RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class, withSettings().stubOnly());
+    final UpgradeRequest upgradeRequest = mock(UpgradeRequest.class, withSettings().stubOnly());
+
+    when(session.getRemote()).thenReturn(remoteEndpoint);
+    when(session.getUpgradeRequest()).thenReturn(upgradeRequest);
+    when(upgradeRequest.getHeaders()).thenReturn(Map.of(
+        "User-Agent", List.of("Signal-Android/6.32.3 Android/33"),
+        "X-Forwarded-For", List.of("127.0.0.1"),
+        "Connection", List.of("Upgrade"),
+        "Upgrade", List.of("websocket")));
+
+    provider.onWebSocketConnect(session);
+
+    requestFrame = messageFactory.createRequest(Optional.of(1L), "GET", "/v1/benchmark/hello",
+        List.of("Accept: application/json"), Optional.empty()).toByteArray();
+  }
+
+  @Benchmark
+  public void dispatchRequest() {
+    provider.onWebSocketBinary(requestFrame, 0, requestFrame.length);
+  }
+}
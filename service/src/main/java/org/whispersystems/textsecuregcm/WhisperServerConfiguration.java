@@ -17,6 +17,7 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.whispersystems.textsecuregcm.attachments.TusConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AccountDatabaseCrawlerConfiguration;
+import org.whispersystems.textsecuregcm.configuration.AccountPurgeWorkerConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AdminEventLoggingConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ApnConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AppConfigConfiguration;
@@ -56,6 +57,7 @@ import org.whispersystems.textsecuregcm.configuration.StripeConfiguration;
 import org.whispersystems.textsecuregcm.configuration.SubscriptionConfiguration;
 import org.whispersystems.textsecuregcm.configuration.TurnSecretConfiguration;
 import org.whispersystems.textsecuregcm.configuration.UnidentifiedDeliveryConfiguration;
+import org.whispersystems.textsecuregcm.configuration.VerificationSessionCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ZkConfig;
 import org.whispersystems.textsecuregcm.limits.RateLimiterConfig;
 import org.whispersystems.websocket.configuration.WebSocketConfiguration;
@@ -143,6 +145,11 @@ public class WhisperServerConfiguration extends Configuration {
   @JsonProperty
   private RedisClusterConfiguration pushSchedulerCluster;
 
+  @NotNull
+  @Valid
+  @JsonProperty
+  private RedisClusterConfiguration accountDeletionQueueCluster;
+
   @NotNull
   @Valid
   @JsonProperty
@@ -302,6 +309,16 @@ public class WhisperServerConfiguration extends Configuration {
   @JsonProperty
   private MessageByteLimitCardinalityEstimatorConfiguration messageByteLimitCardinalityEstimator = new MessageByteLimitCardinalityEstimatorConfiguration(Duration.ofDays(1));
 
+  @Valid
+  @NotNull
+  @JsonProperty
+  private VerificationSessionCacheConfiguration verificationSessionCache = new VerificationSessionCacheConfiguration(false);
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private AccountPurgeWorkerConfiguration accountPurgeWorker = new AccountPurgeWorkerConfiguration();
+
   @Valid
   @NotNull
   @JsonProperty
@@ -396,6 +413,10 @@ public class WhisperServerConfiguration extends Configuration {
     return pushSchedulerCluster;
   }
 
+  public RedisClusterConfiguration getAccountDeletionQueueClusterConfiguration() {
+    return accountDeletionQueueCluster;
+  }
+
   public RedisClusterConfiguration getRateLimitersCluster() {
     return rateLimitersCluster;
   }
@@ -511,6 +532,14 @@ public class WhisperServerConfiguration extends Configuration {
     return messageByteLimitCardinalityEstimator;
   }
 
+  public VerificationSessionCacheConfiguration getVerificationSessionCacheConfiguration() {
+    return verificationSessionCache;
+  }
+
+  public AccountPurgeWorkerConfiguration getAccountPurgeWorkerConfiguration() {
+    return accountPurgeWorker;
+  }
+
   public CommandStopListenerConfiguration getCommandStopListener() {
     return commandStopListener;
   }
@@ -11,4 +11,10 @@ import org.whispersystems.textsecuregcm.entities.Badge;
 
 public interface BadgeTranslator {
   Badge translate(List<Locale> acceptableLanguages, String badgeId);
+
+  /**
+   * Returns the locale of the translations that {@link #translate(List, String)} would use for the given acceptable
+   * languages. Lists of acceptable languages that resolve to the same locale produce identical translations.
+   */
+  Locale resolveLocale(List<Locale> acceptableLanguages);
 }
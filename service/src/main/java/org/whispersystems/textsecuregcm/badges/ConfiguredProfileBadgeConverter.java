@@ -63,6 +63,11 @@ public class ConfiguredProfileBadgeConverter implements ProfileBadgeConverter, B
         false);
   }
 
+  @Override
+  public Locale resolveLocale(final List<Locale> acceptableLanguages) {
+    return headerControlledResourceBundleLookup.getResourceBundle(BASE_NAME, acceptableLanguages).getLocale();
+  }
+
   @Override
   public List<Badge> convert(
       final List<Locale> acceptableLanguages,
@@ -29,4 +29,9 @@ public class ResourceBundleLevelTranslator implements LevelTranslator {
         acceptableLanguages);
     return resourceBundle.getString(badgeId);
   }
+
+  @Override
+  public Locale resolveLocale(final List<Locale> acceptableLanguages) {
+    return headerControlledResourceBundleLookup.getResourceBundle(BASE_NAME, acceptableLanguages).getLocale();
+  }
 }
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import javax.validation.constraints.Positive;
+
+/**
+ * @param workerThreads the number of threads on each host that purge deleted accounts' data
+ * @param maxAttempts   the number of times to attempt a purge before abandoning it
+ */
+public record AccountPurgeWorkerConfiguration(@Positive int workerThreads, @Positive int maxAttempts) {
+
+  public AccountPurgeWorkerConfiguration() {
+    this(4, 10);
+  }
+}
@@ -8,4 +8,20 @@ package org.whispersystems.textsecuregcm.configuration;
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
 
-public record MessageByteLimitCardinalityEstimatorConfiguration(@NotNull Duration period) {}
+/**
+ * @param period        the period over which unique elements are counted
+ * @param flushInterval how often each host merges the elements it has seen locally into the shared estimate
+ */
+public record MessageByteLimitCardinalityEstimatorConfiguration(@NotNull Duration period,
+                                                                @NotNull Duration flushInterval) {
+
+  public MessageByteLimitCardinalityEstimatorConfiguration {
+    if (flushInterval == null) {
+      flushInterval = Duration.ofSeconds(10);
+    }
+  }
+
+  public MessageByteLimitCardinalityEstimatorConfiguration(final Duration period) {
+    this(period, null);
+  }
+}
@@ -6,12 +6,14 @@
 package org.whispersystems.textsecuregcm.configuration;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-
+import io.dropwizard.util.DataSize;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 public class MessageCacheConfiguration {
 
+  public static final DataSize DEFAULT_EARLY_PERSISTENCE_QUEUE_SIZE = DataSize.mebibytes(1);
+
   @JsonProperty
   @NotNull
   @Valid
@@ -20,6 +22,13 @@ public class MessageCacheConfiguration {
   @JsonProperty
   private int persistDelayMinutes = 10;
 
+  /**
+   * Queues that grow beyond this size are persisted right away instead of after {@link #persistDelayMinutes}.
+   */
+  @JsonProperty
+  @NotNull
+  private DataSize earlyPersistenceQueueSize = DEFAULT_EARLY_PERSISTENCE_QUEUE_SIZE;
+
   public RedisClusterConfiguration getRedisClusterConfiguration() {
     return cluster;
   }
@@ -28,4 +37,8 @@ public class MessageCacheConfiguration {
     return persistDelayMinutes;
   }
 
+  public DataSize getEarlyPersistenceQueueSize() {
+    return earlyPersistenceQueueSize;
+  }
+
 }
@@ -0,0 +1,12 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+/**
+ * @param enabled whether verification sessions should be cached in Redis in front of DynamoDB
+ */
+public record VerificationSessionCacheConfiguration(boolean enabled) {
+}
@@ -13,6 +13,7 @@ import com.google.protobuf.ByteString;
 import io.dropwizard.auth.Auth;
 import io.dropwizard.util.DataSize;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
@@ -25,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -88,8 +90,10 @@ import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.limits.CardinalityEstimator;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
+import org.whispersystems.textsecuregcm.metrics.MeterCache;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
 import org.whispersystems.textsecuregcm.providers.MultiRecipientMessageProvider;
+import org.whispersystems.textsecuregcm.providers.ProtobufIncomingMessageListProvider;
 import org.whispersystems.textsecuregcm.push.MessageSender;
 import org.whispersystems.textsecuregcm.push.NotPushRegisteredException;
 import org.whispersystems.textsecuregcm.push.PushNotificationManager;
@@ -150,6 +154,18 @@ public class MessageController {
   private static final String SENDER_TYPE_UNIDENTIFIED = "unidentified";
   private static final String SENDER_TYPE_SELF = "self";
 
+  private record SentMessageCounterKey(Tag platformTag, boolean ephemeral, String senderType) {
+  }
+
+  private static final MeterCache<SentMessageCounterKey, Counter> SENT_MESSAGE_COUNTERS =
+      MeterCache.counters(Metrics.globalRegistry, SENT_MESSAGE_COUNTER_NAME, 64, key -> Tags.of(
+          key.platformTag(),
+          Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(key.ephemeral())),
+          Tag.of(SENDER_TYPE_TAG_NAME, key.senderType())));
+
+  private static final MeterCache<Tag, DistributionSummary> CONTENT_SIZE_DISTRIBUTIONS =
+      new MeterCache<>(16, platformTag -> Metrics.summary(CONTENT_SIZE_DISTRIBUTION_NAME, Tags.of(platformTag)));
+
   @VisibleForTesting
   static final long MAX_MESSAGE_SIZE = DataSize.kibibytes(256).toBytes();
 
@@ -187,7 +203,7 @@ public class MessageController {
   @Timed
   @Path("/{destination}")
   @PUT
-  @Consumes(MediaType.APPLICATION_JSON)
+  @Consumes({MediaType.APPLICATION_JSON, ProtobufIncomingMessageListProvider.MEDIA_TYPE})
   @Produces(MediaType.APPLICATION_JSON)
   @FilterSpam
   public Response sendMessage(@Auth Optional<AuthenticatedAccount> source,
@@ -225,11 +241,7 @@ public class MessageController {
     int totalContentLength = 0;
 
     for (final IncomingMessage message : messages.messages()) {
-      int contentLength = 0;
-
-      if (!Util.isEmpty(message.content())) {
-        contentLength += message.content().length();
-      }
+      final int contentLength = message.encodedContentLength();
 
       validateContentLength(contentLength, userAgent);
       validateEnvelopeType(message.type(), userAgent);
@@ -301,27 +313,37 @@ public class MessageController {
           IncomingMessage::destinationRegistrationId,
           destination.get().getPhoneNumberIdentifier().equals(destinationIdentifier.uuid()));
 
-      final List<Tag> tags = List.of(UserAgentTagUtil.getPlatformTag(userAgent),
-          Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(messages.online())),
-          Tag.of(SENDER_TYPE_TAG_NAME, senderType));
+      final Counter sentMessageCounter = SENT_MESSAGE_COUNTERS.get(
+          new SentMessageCounterKey(UserAgentTagUtil.getPlatformTag(userAgent), messages.online(), senderType));
+
+      final Map<Device, Envelope> envelopesByDevice = new LinkedHashMap<>(messages.messages().size());
 
       for (IncomingMessage incomingMessage : messages.messages()) {
         Optional<Device> destinationDevice = destination.get().getDevice(incomingMessage.destinationDeviceId());
 
         if (destinationDevice.isPresent()) {
-          Metrics.counter(SENT_MESSAGE_COUNTER_NAME, tags).increment();
-          sendIndividualMessage(
+          sentMessageCounter.increment();
+          envelopesByDevice.put(destinationDevice.get(), buildIndividualEnvelope(
               source,
-              destination.get(),
-              destinationDevice.get(),
               destinationIdentifier,
               messages.timestamp(),
-              messages.online(),
               isStory,
               messages.urgent(),
               incomingMessage,
               userAgent,
-              spamReportToken);
+              spamReportToken));
+        }
+      }
+
+      // Deliver to all destination devices at once so the request's latency doesn't grow with the number of devices
+      final List<Device> notPushRegisteredDevices =
+          messageSender.sendMessages(destination.get(), envelopesByDevice, messages.online());
+
+      for (final Device notPushRegisteredDevice : notPushRegisteredDevices) {
+        if (notPushRegisteredDevice.isMaster()) {
+          throw new NoSuchUserException(new NotPushRegisteredException());
+        } else {
+          logger.debug("Not registered");
         }
       }
 
@@ -460,10 +482,8 @@ public class MessageController {
     List<ServiceIdentifier> uuids404 = Collections.synchronizedList(new ArrayList<>());
 
     try {
-      final Counter sentMessageCounter = Metrics.counter(SENT_MESSAGE_COUNTER_NAME, Tags.of(
-          UserAgentTagUtil.getPlatformTag(userAgent),
-          Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(online)),
-          Tag.of(SENDER_TYPE_TAG_NAME, SENDER_TYPE_UNIDENTIFIED)));
+      final Counter sentMessageCounter = SENT_MESSAGE_COUNTERS.get(
+          new SentMessageCounterKey(UserAgentTagUtil.getPlatformTag(userAgent), online, SENDER_TYPE_UNIDENTIFIED));
 
       multiRecipientMessageExecutor.invokeAll(Arrays.stream(multiRecipientMessage.recipients())
           .map(recipient -> (Callable<Void>) () -> {
@@ -660,42 +680,29 @@ public class MessageController {
         .build();
   }
 
-  private void sendIndividualMessage(
+  private Envelope buildIndividualEnvelope(
       Optional<AuthenticatedAccount> source,
-      Account destinationAccount,
-      Device destinationDevice,
       ServiceIdentifier destinationIdentifier,
       long timestamp,
-      boolean online,
       boolean story,
       boolean urgent,
       IncomingMessage incomingMessage,
       String userAgentString,
-      Optional<byte[]> spamReportToken)
-      throws NoSuchUserException {
+      Optional<byte[]> spamReportToken) {
     try {
-      final Envelope envelope;
-
-      try {
-        Account sourceAccount = source.map(AuthenticatedAccount::getAccount).orElse(null);
-        Long sourceDeviceId = source.map(account -> account.getAuthenticatedDevice().getId()).orElse(null);
-        envelope = incomingMessage.toEnvelope(
-            destinationIdentifier,
-            sourceAccount,
-            sourceDeviceId,
-            timestamp == 0 ? System.currentTimeMillis() : timestamp,
-            story,
-            urgent,
-            spamReportToken.orElse(null));
-      } catch (final IllegalArgumentException e) {
-        logger.warn("Received bad envelope type {} from {}", incomingMessage.type(), userAgentString);
-        throw new BadRequestException(e);
-      }
-
-      messageSender.sendMessage(destinationAccount, destinationDevice, envelope, online);
-    } catch (NotPushRegisteredException e) {
-      if (destinationDevice.isMaster()) throw new NoSuchUserException(e);
-      else                              logger.debug("Not registered", e);
+      Account sourceAccount = source.map(AuthenticatedAccount::getAccount).orElse(null);
+      Long sourceDeviceId = source.map(account -> account.getAuthenticatedDevice().getId()).orElse(null);
+      return incomingMessage.toEnvelope(
+          destinationIdentifier,
+          sourceAccount,
+          sourceDeviceId,
+          timestamp == 0 ? System.currentTimeMillis() : timestamp,
+          story,
+          urgent,
+          spamReportToken.orElse(null));
+    } catch (final IllegalArgumentException e) {
+      logger.warn("Received bad envelope type {} from {}", incomingMessage.type(), userAgentString);
+      throw new BadRequestException(e);
     }
   }
 
@@ -761,8 +768,7 @@ public class MessageController {
   }
 
   private void validateContentLength(final int contentLength, final String userAgent) {
-    Metrics.summary(CONTENT_SIZE_DISTRIBUTION_NAME, Tags.of(UserAgentTagUtil.getPlatformTag(userAgent)))
-        .record(contentLength);
+    CONTENT_SIZE_DISTRIBUTIONS.get(UserAgentTagUtil.getPlatformTag(userAgent)).record(contentLength);
 
     if (contentLength > MAX_MESSAGE_SIZE) {
       Metrics.counter(REJECT_OVERSIZE_MESSAGE_COUNTER, Tags.of(UserAgentTagUtil.getPlatformTag(userAgent)))
@@ -782,6 +788,10 @@ public class MessageController {
   }
 
   public static Optional<byte[]> getMessageContent(IncomingMessage message) {
+    if (message.binaryContent() != null) {
+      return message.binaryContent().isEmpty() ? Optional.empty() : Optional.of(message.binaryContent().toByteArray());
+    }
+
     if (Util.isEmpty(message.content())) return Optional.empty();
 
     try {
@@ -7,16 +7,21 @@ package org.whispersystems.textsecuregcm.controllers;
 
 import io.dropwizard.auth.Auth;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
 import org.whispersystems.textsecuregcm.auth.ExternalServiceCredentials;
 import org.whispersystems.textsecuregcm.auth.ExternalServiceCredentialsGenerator;
 import org.whispersystems.textsecuregcm.configuration.PaymentsServiceConfiguration;
 import org.whispersystems.textsecuregcm.currency.CurrencyConversionManager;
 import org.whispersystems.textsecuregcm.entities.CurrencyConversionEntityList;
+import org.whispersystems.textsecuregcm.util.SerializedResponseCache;
 
 @Path("/v1/payments")
 @Tag(name = "Payments")
@@ -24,7 +29,7 @@ public class PaymentsController {
 
   private final ExternalServiceCredentialsGenerator paymentsServiceCredentialsGenerator;
   private final CurrencyConversionManager currencyManager;
-
+  private final SerializedResponseCache responseCache = new SerializedResponseCache("payments", 1);
 
   public static ExternalServiceCredentialsGenerator credentialsGenerator(final PaymentsServiceConfiguration cfg) {
     return ExternalServiceCredentialsGenerator
@@ -49,7 +54,14 @@ public class PaymentsController {
   @GET
   @Path("/conversions")
   @Produces(MediaType.APPLICATION_JSON)
-  public CurrencyConversionEntityList getConversions(final @Auth AuthenticatedAccount auth) {
-    return currencyManager.getCurrencyConversions().orElseThrow();
+  public Response getConversions(final @Auth AuthenticatedAccount auth,
+      @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch) {
+
+    final CurrencyConversionEntityList currencyConversions = currencyManager.getCurrencyConversions().orElseThrow();
+
+    // Conversions are the same for all accounts and are replaced wholesale on refresh, so the refresh timestamp is a
+    // sufficient version
+    return responseCache.getResponse("conversions", List.of(), currencyConversions.getTimestamp(), ifNoneMatch,
+        () -> currencyConversions);
   }
 }
@@ -135,6 +135,9 @@ public class ProfileController {
 
   private static final Counter VERSION_NOT_FOUND_COUNTER = Metrics.counter(name(ProfileController.class, "versionNotFound"));
   private static final String INVALID_ACCEPT_LANGUAGE_COUNTER_NAME = name(ProfileController.class, "invalidAcceptLanguage");
+  private static final String BATCH_IDENTITY_CHECK_ELEMENTS_COUNTER_NAME =
+      name(ProfileController.class, "batchIdentityCheckElements");
+  private static final String RESOLUTION_TAG_NAME = "resolution";
 
   public ProfileController(
       Clock clock,
@@ -327,20 +330,53 @@ public class ProfileController {
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/identity_check/batch")
   public CompletableFuture<BatchIdentityCheckResponse> runBatchIdentityCheck(@NotNull @Valid BatchIdentityCheckRequest request) {
+    final List<ServiceIdentifier> serviceIdentifiers = request.elements().stream()
+        .map(ProfileController::getServiceIdentifier)
+        .toList();
+
+    // Nearly all elements of a typical batch match; resolve fingerprints from the index first, and only resolve full
+    // accounts for elements that are missing from the index or whose fingerprints don't match (in which case we need
+    // the current identity key for the response anyway)
+    return accountsManager.getIdentityKeyFingerprints(serviceIdentifiers)
+        .thenCompose(indexedFingerprints -> {
+          final List<BatchIdentityCheckRequest.Element> unresolvedElements = request.elements().stream()
+              .filter(element -> !Optional.ofNullable(indexedFingerprints.get(getServiceIdentifier(element)))
+                  .map(fingerprint -> Arrays.equals(fingerprint, element.fingerprint()))
+                  .orElse(false))
+              .toList();
+
+          Metrics.counter(BATCH_IDENTITY_CHECK_ELEMENTS_COUNTER_NAME, RESOLUTION_TAG_NAME, "index")
+              .increment(request.elements().size() - unresolvedElements.size());
+
+          Metrics.counter(BATCH_IDENTITY_CHECK_ELEMENTS_COUNTER_NAME, RESOLUTION_TAG_NAME, "account")
+              .increment(unresolvedElements.size());
+
+          return checkFingerprintsFromAccounts(unresolvedElements);
+        })
+        .thenApply(BatchIdentityCheckResponse::new);
+  }
+
+  private CompletableFuture<List<BatchIdentityCheckResponse.Element>> checkFingerprintsFromAccounts(
+      final List<BatchIdentityCheckRequest.Element> elements) {
+
+    if (elements.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
     return CompletableFuture.supplyAsync(() -> {
           List<BatchIdentityCheckResponse.Element> responseElements = Collections.synchronizedList(new ArrayList<>());
 
           final int targetBatchCount = 10;
           // clamp the amount per batch to be in the closed range [30, 100]
-          final int batchSize = Math.min(Math.max(request.elements().size() / targetBatchCount, 30), 100);
+          final int batchSize = Math.min(Math.max(elements.size() / targetBatchCount, 30), 100);
           // add 1 extra batch if there is any remainder to consume the final non-full batch
           final int batchCount =
-              request.elements().size() / batchSize + (request.elements().size() % batchSize != 0 ? 1 : 0);
+              elements.size() / batchSize + (elements.size() % batchSize != 0 ? 1 : 0);
 
           @SuppressWarnings("rawtypes") CompletableFuture[] futures = new CompletableFuture[batchCount];
           for (int i = 0; i < batchCount; ++i) {
-            List<BatchIdentityCheckRequest.Element> batch = request.elements()
-                .subList(i * batchSize, Math.min((i + 1) * batchSize, request.elements().size()));
+            List<BatchIdentityCheckRequest.Element> batch = elements
+                .subList(i * batchSize, Math.min((i + 1) * batchSize, elements.size()));
             futures[i] = CompletableFuture.runAsync(() -> {
               MessageDigest sha256;
               try {
@@ -355,13 +391,17 @@ public class ProfileController {
           }
 
           return Tuple.of(futures, responseElements);
-        }).thenCompose(tuple2 -> CompletableFuture.allOf(tuple2._1).thenApply((ignored) -> new BatchIdentityCheckResponse(tuple2._2)));
+        }).thenCompose(tuple2 -> CompletableFuture.allOf(tuple2._1).thenApply((ignored) -> tuple2._2));
+  }
+
+  private static ServiceIdentifier getServiceIdentifier(final BatchIdentityCheckRequest.Element element) {
+    return Objects.requireNonNullElse(element.uuid(), element.aci());
   }
 
   private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element,
       Collection<BatchIdentityCheckResponse.Element> responseElements, MessageDigest md) {
 
-    final ServiceIdentifier identifier = Objects.requireNonNullElse(element.uuid(), element.aci());
+    final ServiceIdentifier identifier = getServiceIdentifier(element);
     final Optional<Account> maybeAccount = accountsManager.getByServiceIdentifier(identifier);
 
     maybeAccount.ifPresent(account -> {
@@ -372,7 +412,7 @@ public class ProfileController {
 
       md.reset();
       byte[] digest = md.digest(identityKey.serialize());
-      byte[] fingerprint = Util.truncate(digest, 4);
+      byte[] fingerprint = Util.truncate(digest, AccountsManager.IDENTITY_KEY_FINGERPRINT_LENGTH);
 
       if (!Arrays.equals(fingerprint, element.fingerprint())) {
         responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), element.aci(), identityKey));
@@ -96,6 +96,7 @@ import org.whispersystems.textsecuregcm.subscriptions.SubscriptionCurrencyUtil;
 import org.whispersystems.textsecuregcm.subscriptions.SubscriptionProcessor;
 import org.whispersystems.textsecuregcm.subscriptions.SubscriptionProcessorManager;
 import org.whispersystems.textsecuregcm.util.ExactlySize;
+import org.whispersystems.textsecuregcm.util.SerializedResponseCache;
 
 @Path("/v1/subscription")
 @io.swagger.v3.oas.annotations.tags.Tag(name = "Subscriptions")
@@ -114,6 +115,13 @@ public class SubscriptionController {
   private final BadgeTranslator badgeTranslator;
   private final LevelTranslator levelTranslator;
   private final Map<String, CurrencyConfiguration> currencyConfiguration;
+  private final SerializedResponseCache responseCache = new SerializedResponseCache("subscription",
+      RESPONSE_CACHE_MAX_ENTRIES);
+
+  // Subscription and one-time donation configuration is fixed for the life of the process, so cached responses only
+  // vary by the locales to which the request's acceptable languages resolve
+  private static final long RESPONSE_CACHE_VERSION = 0;
+  private static final int RESPONSE_CACHE_MAX_ENTRIES = 1_024;
 
   private static final String INVALID_ACCEPT_LANGUAGE_COUNTER_NAME = name(SubscriptionController.class,
       "invalidAcceptLanguage");
@@ -653,7 +661,9 @@ public class SubscriptionController {
   public CompletableFuture<Response> getConfiguration(@Context ContainerRequestContext containerRequestContext) {
     return CompletableFuture.supplyAsync(() -> {
       List<Locale> acceptableLanguages = getAcceptableLanguagesForRequest(containerRequestContext);
-      return Response.ok(buildGetSubscriptionConfigurationResponse(acceptableLanguages)).build();
+      return responseCache.getResponse("configuration", resolveLocales(acceptableLanguages), RESPONSE_CACHE_VERSION,
+          containerRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH),
+          () -> buildGetSubscriptionConfigurationResponse(acceptableLanguages));
     });
   }
 
@@ -664,15 +674,16 @@ public class SubscriptionController {
   public CompletableFuture<Response> getLevels(@Context ContainerRequestContext containerRequestContext) {
     return CompletableFuture.supplyAsync(() -> {
       List<Locale> acceptableLanguages = getAcceptableLanguagesForRequest(containerRequestContext);
-      GetLevelsResponse getLevelsResponse = new GetLevelsResponse(
-          subscriptionConfiguration.getLevels().entrySet().stream().collect(Collectors.toMap(Entry::getKey,
-              entry -> new GetLevelsResponse.Level(
-                  levelTranslator.translate(acceptableLanguages, entry.getValue().getBadge()),
-                  badgeTranslator.translate(acceptableLanguages, entry.getValue().getBadge()),
-                  entry.getValue().getPrices().entrySet().stream().collect(
-                      Collectors.toMap(levelEntry -> levelEntry.getKey().toUpperCase(Locale.ROOT),
-                          levelEntry -> levelEntry.getValue().amount()))))));
-      return Response.ok(getLevelsResponse).build();
+      return responseCache.getResponse("levels", resolveLocales(acceptableLanguages), RESPONSE_CACHE_VERSION,
+          containerRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH),
+          () -> new GetLevelsResponse(
+              subscriptionConfiguration.getLevels().entrySet().stream().collect(Collectors.toMap(Entry::getKey,
+                  entry -> new GetLevelsResponse.Level(
+                      levelTranslator.translate(acceptableLanguages, entry.getValue().getBadge()),
+                      badgeTranslator.translate(acceptableLanguages, entry.getValue().getBadge()),
+                      entry.getValue().getPrices().entrySet().stream().collect(
+                          Collectors.toMap(levelEntry -> levelEntry.getKey().toUpperCase(Locale.ROOT),
+                              levelEntry -> levelEntry.getValue().amount())))))));
     });
   }
 
@@ -715,14 +726,15 @@ public class SubscriptionController {
       long giftLevel = oneTimeDonationConfiguration.gift().level();
       String giftBadge = oneTimeDonationConfiguration.gift().badge();
       List<Locale> acceptableLanguages = getAcceptableLanguagesForRequest(containerRequestContext);
-      GetBoostBadgesResponse getBoostBadgesResponse = new GetBoostBadgesResponse(Map.of(
-          boostLevel, new GetBoostBadgesResponse.Level(
-              new PurchasableBadge(badgeTranslator.translate(acceptableLanguages, boostBadge),
-                  oneTimeDonationConfiguration.boost().expiration())),
-          giftLevel, new GetBoostBadgesResponse.Level(
-              new PurchasableBadge(badgeTranslator.translate(acceptableLanguages, giftBadge),
-                  oneTimeDonationConfiguration.gift().expiration()))));
-      return Response.ok(getBoostBadgesResponse).build();
+      return responseCache.getResponse("boostBadges", resolveLocales(acceptableLanguages), RESPONSE_CACHE_VERSION,
+          containerRequestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH),
+          () -> new GetBoostBadgesResponse(Map.of(
+              boostLevel, new GetBoostBadgesResponse.Level(
+                  new PurchasableBadge(badgeTranslator.translate(acceptableLanguages, boostBadge),
+                      oneTimeDonationConfiguration.boost().expiration())),
+              giftLevel, new GetBoostBadgesResponse.Level(
+                  new PurchasableBadge(badgeTranslator.translate(acceptableLanguages, giftBadge),
+                      oneTimeDonationConfiguration.gift().expiration())))));
     });
   }
 
@@ -1304,6 +1316,21 @@ public class SubscriptionController {
     }
   }
 
+  /**
+   * Resolves a request's acceptable languages to the locales of the translations that would actually be used to build
+   * a response, so that requests with different {@code Accept-Language} headers but identical translations share a
+   * cached response.
+   */
+  private List<Locale> resolveLocales(final List<Locale> acceptableLanguages) {
+    return List.of(levelTranslator.resolveLocale(acceptableLanguages),
+        badgeTranslator.resolveLocale(acceptableLanguages));
+  }
+
+  @VisibleForTesting
+  void invalidateResponseCache() {
+    responseCache.invalidateAll();
+  }
+
   private List<Locale> getAcceptableLanguagesForRequest(ContainerRequestContext containerRequestContext) {
     try {
       return containerRequestContext.getAcceptableLanguages();
@@ -79,6 +79,7 @@ import org.whispersystems.textsecuregcm.spam.Extract;
 import org.whispersystems.textsecuregcm.spam.FilterSpam;
 import org.whispersystems.textsecuregcm.spam.ScoreThreshold;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
+import org.whispersystems.textsecuregcm.storage.ContestedOptimisticLockException;
 import org.whispersystems.textsecuregcm.storage.RegistrationRecoveryPasswordsManager;
 import org.whispersystems.textsecuregcm.storage.VerificationSessionManager;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
@@ -203,7 +204,8 @@ public class VerificationController {
         updateVerificationSessionRequest);
 
     final RegistrationServiceSession registrationServiceSession = retrieveRegistrationServiceSession(encodedSessionId);
-    VerificationSession verificationSession = retrieveVerificationSession(registrationServiceSession);
+    final VerificationSession storedVerificationSession = retrieveVerificationSession(registrationServiceSession);
+    VerificationSession verificationSession = storedVerificationSession;
 
     try {
       // these handle* methods ordered from least likely to fail to most, so take care when considering a change
@@ -229,7 +231,9 @@ public class VerificationController {
     } finally {
       // Each of the handle* methods may update requestedInformation, submittedInformation, and allowedToRequestCode,
       // and we want to be sure to store a changes, even if a later method throws
-      updateStoredVerificationSession(registrationServiceSession, verificationSession);
+      if (verificationSession != storedVerificationSession) {
+        updateStoredVerificationSession(registrationServiceSession, storedVerificationSession, verificationSession);
+      }
     }
 
     return buildResponse(registrationServiceSession, verificationSession);
@@ -242,11 +246,36 @@ public class VerificationController {
         .join();
   }
 
+  /**
+   * Stores an updated verification session, provided the stored session hasn't changed since it was retrieved.
+   *
+   * @throws ClientErrorException with a {@code 409 Conflict} status and the current state of the session if the session
+   * was changed by a concurrent request
+   */
   private void updateStoredVerificationSession(final RegistrationServiceSession registrationServiceSession,
-      final VerificationSession verificationSession) {
-    verificationSessionManager.update(registrationServiceSession.encodedSessionId(), verificationSession)
-        .orTimeout(DYNAMODB_TIMEOUT.toSeconds(), TimeUnit.SECONDS)
-        .join();
+      final VerificationSession storedVerificationSession, final VerificationSession verificationSession) {
+    try {
+      verificationSessionManager.update(registrationServiceSession.encodedSessionId(),
+              storedVerificationSession.getVersion(), verificationSession)
+          .orTimeout(DYNAMODB_TIMEOUT.toSeconds(), TimeUnit.SECONDS)
+          .join();
+    } catch (final CompletionException e) {
+      if (ExceptionUtils.unwrap(e) instanceof ContestedOptimisticLockException) {
+        throw new ClientErrorException(Response.status(Response.Status.CONFLICT)
+            .entity(buildResponse(registrationServiceSession, retrieveVerificationSession(registrationServiceSession)))
+            .build());
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the updated timestamp for a new version of the given session. A session's updated timestamp is also its
+   * version, so it must advance even if the clock hasn't.
+   */
+  private long nextUpdatedTimestamp(final VerificationSession verificationSession) {
+    return Math.max(clock.millis(), verificationSession.updatedTimestamp() + 1);
   }
 
   /**
@@ -267,7 +296,7 @@ public class VerificationController {
 
         verificationSession = new VerificationSession(generatePushChallenge(), requestedInformation,
             verificationSession.submittedInformation(), verificationSession.allowedToRequestCode(),
-            verificationSession.createdTimestamp(), clock.millis(), verificationSession.remoteExpirationSeconds()
+            verificationSession.createdTimestamp(), nextUpdatedTimestamp(verificationSession), verificationSession.remoteExpirationSeconds()
         );
       }
 
@@ -334,7 +363,7 @@ public class VerificationController {
           && requestedInformation.isEmpty();
 
       verificationSession = new VerificationSession(verificationSession.pushChallenge(), requestedInformation,
-          submittedInformation, allowedToRequestCode, verificationSession.createdTimestamp(), clock.millis(),
+          submittedInformation, allowedToRequestCode, verificationSession.createdTimestamp(), nextUpdatedTimestamp(verificationSession),
           verificationSession.remoteExpirationSeconds());
 
     } else if (pushChallengePresent) {
@@ -399,7 +428,7 @@ public class VerificationController {
           && requestedInformation.isEmpty();
 
       verificationSession = new VerificationSession(verificationSession.pushChallenge(), requestedInformation,
-          submittedInformation, allowedToRequestCode, verificationSession.createdTimestamp(), clock.millis(),
+          submittedInformation, allowedToRequestCode, verificationSession.createdTimestamp(), nextUpdatedTimestamp(verificationSession),
           verificationSession.remoteExpirationSeconds());
     } else {
       throw new ForbiddenException();
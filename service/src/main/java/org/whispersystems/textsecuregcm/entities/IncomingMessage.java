@@ -4,6 +4,9 @@
  */
 package org.whispersystems.textsecuregcm.entities;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.protobuf.ByteString;
 import java.util.Base64;
 import javax.annotation.Nullable;
@@ -12,7 +15,62 @@ import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 
-public record IncomingMessage(int type, long destinationDeviceId, int destinationRegistrationId, String content) {
+/**
+ * A message to a single device of a single-recipient message send.
+ *
+ * @param content the base64-encoded message content, if the message was sent as JSON
+ * @param binaryContent the raw message content, if the message was sent as a protobuf; may share its bytes with the
+ *                      request body
+ */
+public record IncomingMessage(int type,
+                              long destinationDeviceId,
+                              int destinationRegistrationId,
+                              @Nullable String content,
+                              @JsonIgnore @Nullable ByteString binaryContent) {
+
+  @JsonCreator
+  public IncomingMessage(@JsonProperty("type") int type,
+      @JsonProperty("destinationDeviceId") long destinationDeviceId,
+      @JsonProperty("destinationRegistrationId") int destinationRegistrationId,
+      @JsonProperty("content") @Nullable String content) {
+
+    this(type, destinationDeviceId, destinationRegistrationId, content, null);
+  }
+
+  public static IncomingMessage fromProtobuf(final IncomingMessageProtos.IncomingMessage message) {
+    return new IncomingMessage(message.getType(),
+        message.getDestinationDeviceId(),
+        message.getDestinationRegistrationId(),
+        null,
+        message.getContent());
+  }
+
+  /**
+   * Returns the length of this message's content as base64 text, which is how content is sent in JSON request bodies.
+   * Binary content is measured as if it were encoded so that size limits are the same for both request formats.
+   */
+  public int encodedContentLength() {
+    if (binaryContent != null) {
+      return 4 * ((binaryContent.size() + 2) / 3);
+    }
+
+    return content != null ? content.length() : 0;
+  }
+
+  /**
+   * Returns this message's decoded content. Binary content is returned without copying.
+   *
+   * @throws IllegalArgumentException if this message's content is not valid base64
+   */
+  public ByteString decodedContent() {
+    if (binaryContent != null) {
+      return binaryContent;
+    }
+
+    return StringUtils.isNotEmpty(content)
+        ? ByteString.copyFrom(Base64.getDecoder().decode(content))
+        : ByteString.EMPTY;
+  }
 
   public MessageProtos.Envelope toEnvelope(final ServiceIdentifier destinationIdentifier,
       @Nullable Account sourceAccount,
@@ -47,8 +105,10 @@ public record IncomingMessage(int type, long destinationDeviceId, int destinatio
       envelopeBuilder.setReportSpamToken(ByteString.copyFrom(reportSpamToken));
     }
 
-    if (StringUtils.isNotEmpty(content())) {
-      envelopeBuilder.setContent(ByteString.copyFrom(Base64.getDecoder().decode(content())));
+    final ByteString decodedContent = decodedContent();
+
+    if (!decodedContent.isEmpty()) {
+      envelopeBuilder.setContent(decodedContent);
     }
 
     return envelopeBuilder.build();
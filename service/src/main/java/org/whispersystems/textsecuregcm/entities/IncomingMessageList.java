@@ -36,6 +36,14 @@ public record IncomingMessageList(@NotNull @Valid List<@NotNull IncomingMessage>
     this(messages, online, urgent == null || urgent, timestamp);
   }
 
+  public static IncomingMessageList fromProtobuf(final IncomingMessageProtos.IncomingMessageList messageList) {
+    return new IncomingMessageList(
+        messageList.getMessagesList().stream().map(IncomingMessage::fromProtobuf).toList(),
+        messageList.getOnline(),
+        messageList.getUrgent(),
+        messageList.getTimestamp());
+  }
+
   @AssertTrue
   public boolean hasNoDuplicateRecipients() {
     boolean valid = messages.stream().filter(m -> m != null).map(IncomingMessage::destinationDeviceId).distinct().count() == messages.size();
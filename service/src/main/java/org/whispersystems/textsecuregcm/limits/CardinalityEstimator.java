@@ -6,67 +6,138 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
+import io.lettuce.core.ScriptOutputType;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
-import org.whispersystems.textsecuregcm.util.Util;
 
 /**
- * Estimate the number of unique items seen over a configurable period and update a metric
+ * Estimate the number of unique items seen over a configurable period and update a metric.
+ * <p>
+ * Elements are added to an in-process HyperLogLog, which is periodically merged into a HyperLogLog in Redis shared by
+ * all hosts; the published estimate is refreshed from the shared HyperLogLog each time the local sketch is merged. This
+ * means each host sends one request to Redis per flush interval rather than one or more per element.
  */
-public class CardinalityEstimator {
+public class CardinalityEstimator implements Managed {
 
   private volatile double uniqueElementCount;
   private final FaultTolerantRedisCluster redisCluster;
   private final String hllName;
+  private final String scratchHllName;
   private final Duration period;
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final Duration flushInterval;
+  private final ClusterLuaScript mergeScript;
+  private final RedisHyperLogLog localHll = new RedisHyperLogLog();
+
+  private final Counter flushCounter;
+  private final Counter flushErrorCounter;
+
+  @Nullable
+  private ScheduledFuture<?> flushFuture;
+
+  private static final Logger logger = LoggerFactory.getLogger(CardinalityEstimator.class);
+
+  public CardinalityEstimator(final FaultTolerantRedisCluster redisCluster,
+      final String name,
+      final Duration period,
+      final ScheduledExecutorService scheduledExecutorService,
+      final Duration flushInterval) throws IOException {
 
-  public CardinalityEstimator(final FaultTolerantRedisCluster redisCluster, final String name, final Duration period) {
     this.redisCluster = redisCluster;
-    this.hllName = "cardinality_estimator::" + name;
+    // The shared and scratch HyperLogLogs must be in the same slot to be merged
+    this.hllName = "cardinality_estimator::{" + name + "}";
+    this.scratchHllName = hllName + "::merge";
     this.period = period;
+    this.scheduledExecutorService = scheduledExecutorService;
+    this.flushInterval = flushInterval;
+
+    this.mergeScript = ClusterLuaScript.fromResource(redisCluster, "lua/merge_cardinality_estimate.lua",
+        ScriptOutputType.INTEGER);
+
     Metrics.gauge(
         MetricsUtil.name(getClass(), "unique"),
         Tags.of("name", name),
         this,
         obj -> obj.uniqueElementCount);
+
+    this.flushCounter = Metrics.counter(MetricsUtil.name(getClass(), "flush"), "name", name);
+    this.flushErrorCounter = Metrics.counter(MetricsUtil.name(getClass(), "flushError"), "name", name);
+  }
+
+  @Override
+  public void start() {
+    flushFuture = scheduledExecutorService.scheduleWithFixedDelay(() -> {
+          try {
+            flush().join();
+          } catch (final Exception e) {
+            logger.warn("Failed to merge local cardinality estimate", e);
+          }
+        },
+        flushInterval.toMillis(),
+        flushInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (flushFuture != null) {
+      flushFuture.cancel(false);
+    }
+
+    try {
+      flush().join();
+    } catch (final Exception e) {
+      logger.warn("Failed to merge local cardinality estimate before stopping", e);
+    }
   }
 
   public void add(String element) {
-    addAsync(element).toCompletableFuture().join();
+    localHll.add(element);
   }
 
-  public CompletionStage<Void> addAsync(String element) {
-    return redisCluster.withCluster(connection -> connection.async()
-        .pfadd(hllName, element)
-        .thenCompose(modCount -> {
-          if (modCount == 0) {
-            return CompletableFuture.completedFuture(false);
-          }
+  /**
+   * Merges the elements added since the last flush into the shared HyperLogLog and refreshes the published estimate.
+   * If the merge fails, the elements are retained and merged on the next flush.
+   */
+  @VisibleForTesting
+  CompletableFuture<Void> flush() {
+    if (localHll.isEmpty()) {
+      // Other hosts may still have added elements to the shared HyperLogLog
+      return redisCluster.withCluster(connection -> connection.async().pfcount(hllName))
+          .thenAccept(count -> uniqueElementCount = count)
+          .toCompletableFuture();
+    }
 
-          // The hll changed - update our local view of the cardinality, and
-          // initialize the TTL if required
-          return connection.async()
-              .pfcount(hllName)
-              .thenCompose(count -> {
-                uniqueElementCount = count;
-                // check if this is a new hll with no TTL set
-                return connection.async().ttl(hllName).thenApply(ttl -> ttl == -1);
-              });
-        })
-        .thenCompose(isNewHll -> {
-          if (!isNewHll) {
-            return CompletableFuture.completedFuture(null);
-          }
+    final RedisHyperLogLog pendingHll = localHll.drain();
+    flushCounter.increment();
 
-          // If this is a new hll, we need to set the TTL. This could be
-          // a single atomic op in redis 7.x with EXPIRE NX
-          return connection.async().expire(hllName, period).thenRun(Util.NOOP);
-        }));
+    return mergeScript.executeBinaryAsync(
+            List.of(hllName.getBytes(StandardCharsets.UTF_8), scratchHllName.getBytes(StandardCharsets.UTF_8)),
+            List.of(pendingHll.toRedisDenseRepresentation(),
+                String.valueOf(period.toMillis()).getBytes(StandardCharsets.UTF_8)))
+        .thenAccept(count -> uniqueElementCount = (long) count)
+        .whenComplete((ignored, throwable) -> {
+          if (throwable != null) {
+            flushErrorCounter.increment();
+            localHll.merge(pendingHll);
+          }
+        });
   }
 
   @VisibleForTesting
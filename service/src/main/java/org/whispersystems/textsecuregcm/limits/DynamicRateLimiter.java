@@ -85,6 +85,7 @@ public class DynamicRateLimiter implements RateLimiter {
 
   private Pair<RateLimiterConfig, RateLimiter> current() {
     final RateLimiterConfig cfg = configResolver.get();
+    // Replacing the limiter when its configuration changes also discards any denials it has cached locally
     return currentHolder.updateAndGet(p -> p != null && p.getLeft().equals(cfg)
         ? p
         : Pair.of(cfg, new StaticRateLimiter(name, cfg, validateScript, cluster, clock, dynamicConfigurationManager))
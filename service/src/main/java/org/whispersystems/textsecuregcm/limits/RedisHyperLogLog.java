@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.limits;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An in-process HyperLogLog that hashes elements and lays out its registers exactly as Redis does, so its serialized
+ * form can be merged into a Redis HyperLogLog with {@code PFMERGE}. Merging a sketch into Redis yields the same
+ * registers, and therefore the same {@code PFCOUNT}, as adding each of the sketch's elements with {@code PFADD}.
+ *
+ * @see <a href="https://github.com/redis/redis/blob/unstable/src/hyperloglog.c">hyperloglog.c</a>
+ */
+class RedisHyperLogLog {
+
+  private static final int PRECISION = 14;
+  private static final int REGISTER_COUNT = 1 << PRECISION;
+  private static final int REGISTER_BITS = 6;
+  private static final int REGISTER_MAX = (1 << REGISTER_BITS) - 1;
+
+  private static final byte[] MAGIC = "HYLL".getBytes(StandardCharsets.US_ASCII);
+  private static final byte DENSE_ENCODING = 0;
+  private static final int HEADER_SIZE = 16;
+
+  @VisibleForTesting
+  static final int DENSE_SIZE = HEADER_SIZE + (REGISTER_COUNT * REGISTER_BITS + 7) / 8;
+
+  private static final long MURMUR_SEED = 0xadc83b19L;
+  private static final long MURMUR_MULTIPLIER = 0xc6a4a7935bd1e995L;
+  private static final int MURMUR_SHIFT = 47;
+
+  // One (unpacked) register per byte; registers are only packed into six bits apiece when serialized
+  private final byte[] registers = new byte[REGISTER_COUNT];
+  private boolean empty = true;
+
+  /**
+   * Adds an element to this sketch.
+   *
+   * @return {@code true} if adding the element changed this sketch or {@code false} otherwise
+   */
+  synchronized boolean add(final String element) {
+    final long hash = murmurHash64A(element.getBytes(StandardCharsets.UTF_8));
+    final int index = (int) (hash & (REGISTER_COUNT - 1));
+
+    // Like Redis, set a sentinel bit so the run of zeroes is bounded
+    final long remainingBits = (hash >>> PRECISION) | (1L << (Long.SIZE - PRECISION));
+    final byte runLength = (byte) (Long.numberOfTrailingZeros(remainingBits) + 1);
+
+    if (runLength > registers[index]) {
+      registers[index] = runLength;
+      empty = false;
+
+      return true;
+    }
+
+    return false;
+  }
+
+  synchronized boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Moves the contents of this sketch into a new sketch, leaving this sketch empty.
+   */
+  synchronized RedisHyperLogLog drain() {
+    final RedisHyperLogLog drained = new RedisHyperLogLog();
+    drained.merge(this.registers, this.empty);
+
+    Arrays.fill(registers, (byte) 0);
+    empty = true;
+
+    return drained;
+  }
+
+  /**
+   * Merges the contents of another sketch into this sketch.
+   */
+  void merge(final RedisHyperLogLog other) {
+    final byte[] otherRegisters;
+    final boolean otherEmpty;
+
+    synchronized (other) {
+      otherRegisters = other.registers.clone();
+      otherEmpty = other.empty;
+    }
+
+    merge(otherRegisters, otherEmpty);
+  }
+
+  private synchronized void merge(final byte[] otherRegisters, final boolean otherEmpty) {
+    for (int i = 0; i < REGISTER_COUNT; i++) {
+      registers[i] = (byte) Math.max(registers[i], otherRegisters[i]);
+    }
+
+    empty = empty && otherEmpty;
+  }
+
+  /**
+   * Serializes this sketch in the dense representation Redis uses for HyperLogLog values.
+   */
+  synchronized byte[] toRedisDenseRepresentation() {
+    final byte[] serialized = new byte[DENSE_SIZE];
+
+    System.arraycopy(MAGIC, 0, serialized, 0, MAGIC.length);
+    serialized[MAGIC.length] = DENSE_ENCODING;
+
+    // Bytes 5-7 are unused and bytes 8-15 hold a cached cardinality; setting the most significant bit of the cached
+    // cardinality marks it as invalid so Redis will compute it on demand
+    serialized[HEADER_SIZE - 1] = (byte) 0x80;
+
+    for (int i = 0; i < REGISTER_COUNT; i++) {
+      final int value = registers[i] & REGISTER_MAX;
+
+      if (value == 0) {
+        continue;
+      }
+
+      final int bitOffset = i * REGISTER_BITS;
+      final int byteOffset = HEADER_SIZE + bitOffset / 8;
+      final int bitShift = bitOffset & 7;
+
+      serialized[byteOffset] |= (byte) (value << bitShift);
+
+      // A register may straddle two bytes; the last register never does, so this never writes past the end
+      if (bitShift > 8 - REGISTER_BITS) {
+        serialized[byteOffset + 1] |= (byte) (value >>> (8 - bitShift));
+      }
+    }
+
+    return serialized;
+  }
+
+  /**
+   * Redis's 64-bit variant of MurmurHash2, which reads input in little-endian order.
+   */
+  @VisibleForTesting
+  static long murmurHash64A(final byte[] data) {
+    final int length = data.length;
+    long hash = MURMUR_SEED ^ (length * MURMUR_MULTIPLIER);
+
+    final int blockLength = length - (length & 7);
+
+    for (int offset = 0; offset < blockLength; offset += 8) {
+      long k = (data[offset] & 0xffL)
+          | (data[offset + 1] & 0xffL) << 8
+          | (data[offset + 2] & 0xffL) << 16
+          | (data[offset + 3] & 0xffL) << 24
+          | (data[offset + 4] & 0xffL) << 32
+          | (data[offset + 5] & 0xffL) << 40
+          | (data[offset + 6] & 0xffL) << 48
+          | (data[offset + 7] & 0xffL) << 56;
+
+      k *= MURMUR_MULTIPLIER;
+      k ^= k >>> MURMUR_SHIFT;
+      k *= MURMUR_MULTIPLIER;
+
+      hash ^= k;
+      hash *= MURMUR_MULTIPLIER;
+    }
+
+    final int remaining = length & 7;
+
+    if (remaining > 0) {
+      for (int i = remaining - 1; i >= 0; i--) {
+        hash ^= (data[blockLength + i] & 0xffL) << (8 * i);
+      }
+
+      hash *= MURMUR_MULTIPLIER;
+    }
+
+    hash ^= hash >>> MURMUR_SHIFT;
+    hash *= MURMUR_MULTIPLIER;
+    hash ^= hash >>> MURMUR_SHIFT;
+
+    return hash;
+  }
+}
@@ -9,12 +9,15 @@ import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.failedFuture;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import io.lettuce.core.RedisException;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletionStage;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
@@ -32,6 +35,7 @@ public class StaticRateLimiter implements RateLimiter {
   private final RateLimiterConfig config;
 
   private final Counter counter;
+  private final Counter deniedLocallyCounter;
   private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
 
   private final ClusterLuaScript validateScript;
@@ -40,6 +44,28 @@ public class StaticRateLimiter implements RateLimiter {
 
   private final Clock clock;
 
+  // Keys known to be over their limit; checks for these keys can be rejected without a call to Redis until the key's
+  // retry-after time has elapsed. Each limiter instance has its own cache, so replacing a limiter when its configuration
+  // changes discards denials computed under the old configuration.
+  private final Cache<String, LocalDenial> localDenials = CacheBuilder.newBuilder()
+      .maximumSize(MAX_LOCAL_DENIALS)
+      .expireAfterWrite(MAX_LOCAL_DENIAL_DURATION)
+      .build();
+
+  @VisibleForTesting
+  static final int MAX_LOCAL_DENIALS = 10_000;
+
+  // Another host may clear a key's bucket (e.g. after a challenge is answered), so don't trust a local denial for long,
+  // even if the key's retry-after time is further away
+  @VisibleForTesting
+  static final Duration MAX_LOCAL_DENIAL_DURATION = Duration.ofSeconds(10);
+
+  /**
+   * A record that a key was denied for the given amount of permits and won't have that many permits available until
+   * the given time.
+   */
+  private record LocalDenial(int amount, long deniedUntilMillis) {
+  }
 
   public StaticRateLimiter(
       final String name,
@@ -54,17 +80,24 @@ public class StaticRateLimiter implements RateLimiter {
     this.cacheCluster = requireNonNull(cacheCluster);
     this.clock = requireNonNull(clock);
     this.counter = Metrics.counter(MetricsUtil.name(getClass(), "exceeded"), "name", name);
+    this.deniedLocallyCounter = Metrics.counter(MetricsUtil.name(getClass(), "deniedLocally"), "name", name);
     this.dynamicConfigurationManager = dynamicConfigurationManager;
   }
 
   @Override
   public void validate(final String key, final int amount) throws RateLimitExceededException {
+    final Optional<Duration> maybeLocalRetryAfter = getLocalRetryAfter(key, amount);
+
+    if (maybeLocalRetryAfter.isPresent()) {
+      counter.increment();
+      throw new RateLimitExceededException(maybeLocalRetryAfter.get(), true);
+    }
+
     try {
       final long deficitPermitsAmount = executeValidateScript(key, amount, true);
       if (deficitPermitsAmount > 0) {
         counter.increment();
-        final Duration retryAfter = Duration.ofMillis(
-            (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
+        final Duration retryAfter = denyLocally(key, amount, deficitPermitsAmount);
         throw new RateLimitExceededException(retryAfter, true);
       }
     } catch (RedisException e) {
@@ -76,14 +109,20 @@ public class StaticRateLimiter implements RateLimiter {
 
   @Override
   public CompletionStage<Void> validateAsync(final String key, final int amount) {
+    final Optional<Duration> maybeLocalRetryAfter = getLocalRetryAfter(key, amount);
+
+    if (maybeLocalRetryAfter.isPresent()) {
+      counter.increment();
+      return failedFuture(new RateLimitExceededException(maybeLocalRetryAfter.get(), true));
+    }
+
     return executeValidateScriptAsync(key, amount, true)
         .thenCompose(deficitPermitsAmount -> {
           if (deficitPermitsAmount == 0) {
             return completedFuture((Void) null);
           }
           counter.increment();
-          final Duration retryAfter = Duration.ofMillis(
-              (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
+          final Duration retryAfter = denyLocally(key, amount, deficitPermitsAmount);
           return failedFuture(new RateLimitExceededException(retryAfter, true));
         })
         .exceptionally(throwable -> {
@@ -96,9 +135,17 @@ public class StaticRateLimiter implements RateLimiter {
 
   @Override
   public boolean hasAvailablePermits(final String key, final int amount) {
+    if (getLocalRetryAfter(key, amount).isPresent()) {
+      return false;
+    }
+
     try {
       final long deficitPermitsAmount = executeValidateScript(key, amount, false);
-      return deficitPermitsAmount == 0;
+      if (deficitPermitsAmount > 0) {
+        denyLocally(key, amount, deficitPermitsAmount);
+        return false;
+      }
+      return true;
     } catch (RedisException e) {
       if (failOpen()) {
         return true;
@@ -110,8 +157,18 @@ public class StaticRateLimiter implements RateLimiter {
 
   @Override
   public CompletionStage<Boolean> hasAvailablePermitsAsync(final String key, final int amount) {
+    if (getLocalRetryAfter(key, amount).isPresent()) {
+      return completedFuture(false);
+    }
+
     return executeValidateScriptAsync(key, amount, false)
-        .thenApply(deficitPermitsAmount -> deficitPermitsAmount == 0)
+        .thenApply(deficitPermitsAmount -> {
+          if (deficitPermitsAmount > 0) {
+            denyLocally(key, amount, deficitPermitsAmount);
+            return false;
+          }
+          return true;
+        })
         .exceptionally(throwable -> {
           if (ExceptionUtils.unwrap(throwable) instanceof RedisException && failOpen()) {
             return true;
@@ -122,11 +179,13 @@ public class StaticRateLimiter implements RateLimiter {
 
   @Override
   public void clear(final String key) {
+    localDenials.invalidate(key);
     cacheCluster.useCluster(connection -> connection.sync().del(bucketName(name, key)));
   }
 
   @Override
   public CompletionStage<Void> clearAsync(final String key) {
+    localDenials.invalidate(key);
     return cacheCluster.withCluster(connection -> connection.async().del(bucketName(name, key)))
         .thenRun(Util.NOOP);
   }
@@ -140,6 +199,40 @@ public class StaticRateLimiter implements RateLimiter {
     return this.dynamicConfigurationManager.getConfiguration().getRateLimitPolicy().failOpen();
   }
 
+  /**
+   * Checks whether the given key was recently denied at least the given amount of permits by Redis.
+   *
+   * @return the time remaining until the key will have enough permits if the key is still known to be denied or empty
+   * if Redis must be consulted
+   */
+  private Optional<Duration> getLocalRetryAfter(final String key, final int amount) {
+    final LocalDenial localDenial = localDenials.getIfPresent(key);
+
+    // A denial for a larger amount says nothing about whether a smaller amount is available
+    if (localDenial == null || amount < localDenial.amount()) {
+      return Optional.empty();
+    }
+
+    final long remainingMillis = localDenial.deniedUntilMillis() - clock.millis();
+
+    if (remainingMillis <= 0) {
+      localDenials.asMap().remove(key, localDenial);
+      return Optional.empty();
+    }
+
+    deniedLocallyCounter.increment();
+    return Optional.of(Duration.ofMillis(remainingMillis));
+  }
+
+  private Duration denyLocally(final String key, final int amount, final long deficitPermitsAmount) {
+    final Duration retryAfter = Duration.ofMillis(
+        (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
+
+    localDenials.put(key, new LocalDenial(amount, clock.millis() + retryAfter.toMillis()));
+
+    return retryAfter;
+  }
+
   private long executeValidateScript(final String key, final int amount, final boolean applyChanges) {
     final List<String> keys = List.of(bucketName(name, key));
     final List<String> arguments = List.of(
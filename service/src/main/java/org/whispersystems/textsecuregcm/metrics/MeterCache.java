@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caches resolved meters by a caller-defined key, typically a record of the (low-cardinality) values from which a
+ * meter's tags are derived. Looking up a meter in a {@link MeterRegistry} sorts its tags, builds a meter ID, and
+ * searches the registry for a matching meter every time; looking up a meter in a {@code MeterCache} is a single hash
+ * lookup, and so is better suited to call sites on per-request or per-message paths.
+ * <p>
+ * Keys must have meaningful {@code equals} and {@code hashCode} implementations and should be drawn from a small,
+ * bounded set of values. Each cache has a maximum size, which callers should choose to comfortably exceed the number of
+ * distinct keys they expect to see. As a guard against unexpectedly high-cardinality keys, a cache stops retaining new
+ * meters once it reaches its maximum size; meters for additional keys are still resolved and returned, but are resolved
+ * from scratch on every lookup.
+ *
+ * @param <K> the type of key from which meters are derived
+ * @param <M> the type of meter held by this cache
+ */
+public class MeterCache<K, M extends Meter> {
+
+  private final Function<K, M> meterFunction;
+  private final int maxSize;
+  private final Map<K, M> meters = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new meter cache that resolves meters with the given function on cache misses.
+   *
+   * @param maxSize the maximum number of meters to retain; should exceed the number of distinct keys the caller expects
+   * @param meterFunction a function that registers (or retrieves) the meter for a given key
+   */
+  public MeterCache(final int maxSize, final Function<K, M> meterFunction) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum size must be positive");
+    }
+
+    this.maxSize = maxSize;
+    this.meterFunction = meterFunction;
+  }
+
+  /**
+   * Constructs a new cache of counters with the given name.
+   *
+   * @param meterRegistry the registry in which to register counters
+   * @param name the name of the counters held by the cache
+   * @param maxSize the maximum number of counters to retain
+   * @param tagsFunction a function that derives a counter's tags from its key
+   */
+  public static <K> MeterCache<K, Counter> counters(final MeterRegistry meterRegistry,
+      final String name,
+      final int maxSize,
+      final Function<K, Iterable<Tag>> tagsFunction) {
+
+    return new MeterCache<>(maxSize, key -> meterRegistry.counter(name, tagsFunction.apply(key)));
+  }
+
+  /**
+   * Returns the meter for the given key, resolving (and possibly retaining) it if it's not already cached.
+   */
+  public M get(final K key) {
+    final M meter = meters.get(key);
+
+    if (meter != null) {
+      return meter;
+    }
+
+    if (meters.size() >= maxSize) {
+      return meterFunction.apply(key);
+    }
+
+    return meters.computeIfAbsent(key, meterFunction);
+  }
+
+  @VisibleForTesting
+  int size() {
+    return meters.size();
+  }
+}
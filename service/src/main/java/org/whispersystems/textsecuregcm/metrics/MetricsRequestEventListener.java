@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.metrics;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HttpHeaders;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
@@ -18,7 +19,6 @@ import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.util.logging.UriInfoUtil;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,8 +43,20 @@ public class MetricsRequestEventListener implements RequestEventListener {
   @VisibleForTesting
   static final String TRAFFIC_SOURCE_TAG = "trafficSource";
 
-  private final TrafficSource trafficSource;
-  private final MeterRegistry meterRegistry;
+  // Roughly (resource methods) x (status codes) x (platforms); the path tag is a template, not a raw path
+  private static final int REQUEST_COUNTERS_MAX_SIZE = 16_384;
+
+  // Versions are only tagged if they're known to the client release manager
+  private static final int REQUESTS_BY_VERSION_COUNTERS_MAX_SIZE = 4_096;
+
+  private final MeterCache<RequestCounterKey, Counter> requestCounters;
+  private final MeterCache<RequestByVersionCounterKey, Counter> requestsByVersionCounters;
+
+  private record RequestCounterKey(String pathTemplate, String method, int status, Tag platformTag) {
+  }
+
+  private record RequestByVersionCounterKey(Tag clientVersionTag, Tag platformTag) {
+  }
 
   public MetricsRequestEventListener(final TrafficSource trafficSource, final ClientReleaseManager clientReleaseManager) {
     this(trafficSource, Metrics.globalRegistry, clientReleaseManager);
@@ -55,35 +67,43 @@ public class MetricsRequestEventListener implements RequestEventListener {
       final MeterRegistry meterRegistry,
       final ClientReleaseManager clientReleaseManager) {
 
-    this.trafficSource = trafficSource;
-    this.meterRegistry = meterRegistry;
     this.clientReleaseManager = clientReleaseManager;
+
+    final Tag trafficSourceTag = Tag.of(TRAFFIC_SOURCE_TAG, trafficSource.name().toLowerCase());
+
+    this.requestCounters = MeterCache.counters(meterRegistry, REQUEST_COUNTER_NAME, REQUEST_COUNTERS_MAX_SIZE, key -> List.of(
+        Tag.of(PATH_TAG, key.pathTemplate()),
+        Tag.of(METHOD_TAG, key.method()),
+        Tag.of(STATUS_CODE_TAG, String.valueOf(key.status())),
+        trafficSourceTag,
+        key.platformTag()));
+
+    this.requestsByVersionCounters = MeterCache.counters(meterRegistry, REQUESTS_BY_VERSION_COUNTER_NAME,
+        REQUESTS_BY_VERSION_COUNTERS_MAX_SIZE, key -> Tags.of(key.clientVersionTag(), key.platformTag()));
   }
 
   @Override
   public void onEvent(final RequestEvent event) {
     if (event.getType() == RequestEvent.Type.FINISHED) {
       if (!event.getUriInfo().getMatchedTemplates().isEmpty()) {
-        final List<Tag> tags = new ArrayList<>(5);
-        tags.add(Tag.of(PATH_TAG, UriInfoUtil.getPathTemplate(event.getUriInfo())));
-        tags.add(Tag.of(METHOD_TAG, event.getContainerRequest().getMethod()));
-        tags.add(Tag.of(STATUS_CODE_TAG, String.valueOf(event.getContainerResponse().getStatus())));
-        tags.add(Tag.of(TRAFFIC_SOURCE_TAG, trafficSource.name().toLowerCase()));
-
         @Nullable final String userAgent;
         {
           final List<String> userAgentValues = event.getContainerRequest().getRequestHeader(HttpHeaders.USER_AGENT);
           userAgent = userAgentValues != null && !userAgentValues.isEmpty() ? userAgentValues.get(0) : null;
         }
 
-        tags.add(UserAgentTagUtil.getPlatformTag(userAgent));
+        final Tag platformTag = UserAgentTagUtil.getPlatformTag(userAgent);
 
-        meterRegistry.counter(REQUEST_COUNTER_NAME, tags).increment();
+        requestCounters.get(new RequestCounterKey(UriInfoUtil.getPathTemplate(event.getUriInfo()),
+                event.getContainerRequest().getMethod(),
+                event.getContainerResponse().getStatus(),
+                platformTag))
+            .increment();
 
         UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager)
-            .ifPresent(clientVersionTag -> meterRegistry.counter(REQUESTS_BY_VERSION_COUNTER_NAME,
-                    Tags.of(clientVersionTag, UserAgentTagUtil.getPlatformTag(userAgent)))
-                .increment());
+            .ifPresent(clientVersionTag ->
+                requestsByVersionCounters.get(new RequestByVersionCounterKey(clientVersionTag, platformTag))
+                    .increment());
       }
     }
   }
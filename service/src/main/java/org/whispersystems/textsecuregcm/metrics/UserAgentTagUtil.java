@@ -7,10 +7,13 @@ package org.whispersystems.textsecuregcm.metrics;
 
 import com.vdurmont.semver4j.Semver;
 import io.micrometer.core.instrument.Tag;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.util.ua.ClientPlatform;
 import org.whispersystems.textsecuregcm.util.ua.UnrecognizedUserAgentException;
@@ -28,16 +31,19 @@ public class UserAgentTagUtil {
   private UserAgentTagUtil() {
   }
 
-  public static Tag getPlatformTag(final String userAgentString) {
-    String platform;
+  // Platform tags are attached to meters on many hot paths, so build them once up front
+  private static final Map<ClientPlatform, Tag> PLATFORM_TAGS = Arrays.stream(ClientPlatform.values())
+      .collect(Collectors.toUnmodifiableMap(Function.identity(),
+          platform -> Tag.of(PLATFORM_TAG, platform.name().toLowerCase())));
+
+  private static final Tag UNRECOGNIZED_PLATFORM_TAG = Tag.of(PLATFORM_TAG, "unrecognized");
 
+  public static Tag getPlatformTag(final String userAgentString) {
     try {
-      platform = UserAgentUtil.parseUserAgentString(userAgentString).getPlatform().name().toLowerCase();
+      return PLATFORM_TAGS.get(UserAgentUtil.parseUserAgentString(userAgentString).getPlatform());
     } catch (final UnrecognizedUserAgentException e) {
-      platform = "unrecognized";
+      return UNRECOGNIZED_PLATFORM_TAG;
     }
-
-    return Tag.of(PLATFORM_TAG, platform);
   }
 
   public static Optional<Tag> getClientVersionTag(final String userAgentString, final ClientReleaseManager clientReleaseManager) {
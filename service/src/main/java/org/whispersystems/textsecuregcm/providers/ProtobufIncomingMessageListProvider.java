@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.providers;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.dropwizard.util.DataSizeUnit;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NoContentException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageList;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageProtos;
+
+/**
+ * Reads single-recipient message sends encoded as {@link IncomingMessageProtos.IncomingMessageList} protobufs. Message
+ * content is carried as raw bytes rather than base64 text, and the parsed messages' content refers to the request body
+ * rather than to copies of it.
+ */
+@Provider
+@Consumes(ProtobufIncomingMessageListProvider.MEDIA_TYPE)
+public class ProtobufIncomingMessageListProvider implements MessageBodyReader<IncomingMessageList> {
+
+  public static final String MEDIA_TYPE = "application/x-protobuf";
+
+  private static final MediaType PROTOBUF_MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE);
+
+  // Individual messages are limited to 256 KiB of base64 text by the controller; this just bounds how much we'll
+  // buffer before parsing a request with messages for every device
+  public static final int MAX_ENTITY_SIZE = Math.toIntExact(DataSizeUnit.MEBIBYTES.toBytes(4));
+
+  @Override
+  public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return PROTOBUF_MEDIA_TYPE.isCompatible(mediaType) && IncomingMessageList.class.isAssignableFrom(type);
+  }
+
+  @Override
+  public IncomingMessageList readFrom(Class<IncomingMessageList> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+      throws IOException, WebApplicationException {
+
+    final byte[] entity = entityStream.readNBytes(MAX_ENTITY_SIZE + 1);
+
+    if (entity.length == 0) {
+      throw new NoContentException("Empty body not allowed");
+    }
+
+    if (entity.length > MAX_ENTITY_SIZE) {
+      throw new WebApplicationException(Status.REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    // With aliasing enabled, parsed `bytes` fields are views of the entity array instead of copies of it
+    final CodedInputStream codedInputStream = CodedInputStream.newInstance(entity);
+    codedInputStream.enableAliasing(true);
+
+    try {
+      return IncomingMessageList.fromProtobuf(IncomingMessageProtos.IncomingMessageList.parseFrom(codedInputStream));
+    } catch (final InvalidProtocolBufferException e) {
+      throw new BadRequestException("Invalid message list", e);
+    }
+  }
+}
@@ -11,25 +11,32 @@ import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.Limit;
 import io.lettuce.core.Range;
-import io.lettuce.core.RedisException;
 import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.SetArgs;
 import io.lettuce.core.cluster.SlotHash;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +48,10 @@ import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 public class ApnPushNotificationScheduler implements Managed {
 
@@ -58,6 +69,15 @@ public class ApnPushNotificationScheduler implements Managed {
   private static final Counter retry = Metrics.counter(name(ApnPushNotificationScheduler.class, "voip_retry"));
   private static final Counter evicted = Metrics.counter(name(ApnPushNotificationScheduler.class, "voip_evicted"));
 
+  private static final String SCHEDULING_LAG_TIMER_NAME = name(ApnPushNotificationScheduler.class, "schedulingLag");
+  private static final String NOTIFICATION_TYPE_TAG_NAME = "type";
+
+  private static final Timer voipSchedulingLagTimer =
+      Metrics.timer(SCHEDULING_LAG_TIMER_NAME, NOTIFICATION_TYPE_TAG_NAME, "voip");
+
+  private static final Timer backgroundSchedulingLagTimer =
+      Metrics.timer(SCHEDULING_LAG_TIMER_NAME, NOTIFICATION_TYPE_TAG_NAME, "background");
+
   private static final Counter backgroundNotificationScheduledCounter = Metrics.counter(name(ApnPushNotificationScheduler.class, "backgroundNotification", "scheduled"));
   private static final Counter backgroundNotificationSentCounter = Metrics.counter(name(ApnPushNotificationScheduler.class, "backgroundNotification", "sent"));
 
@@ -77,8 +97,26 @@ public class ApnPushNotificationScheduler implements Managed {
   @VisibleForTesting
   static final Duration BACKGROUND_NOTIFICATION_PERIOD = Duration.ofMinutes(20);
 
+  // The number of slots each worker claims and processes together
+  private static final int SLOTS_PER_BATCH = 16;
+
+  // The maximum number of account lookups or notifications each worker has in flight at once
+  private static final int MAX_CONCURRENCY = 256;
+
   private final AtomicBoolean running = new AtomicBoolean(false);
 
+  /**
+   * A destination with a pending notification, along with the time at which its notification was due.
+   */
+  private record PendingDestination(String accountAndDevice, long scheduledTimestamp) {
+  }
+
+  /**
+   * A notification worker claims a batch of slots at a time and processes the slots' pending notifications as a
+   * pipeline: pending entries are fetched from all claimed slots at once, the accounts they refer to are resolved
+   * together, notifications are sent with a bounded number in flight, and processed entries are removed from Redis
+   * only after their notifications have been sent.
+   */
   class NotificationWorker implements Runnable {
 
     private static final int PAGE_SIZE = 128;
@@ -87,7 +125,7 @@ public class ApnPushNotificationScheduler implements Managed {
     public void run() {
       do {
         try {
-          final long entriesProcessed = processNextSlot();
+          final long entriesProcessed = processNextSlots();
 
           if (entriesProcessed == 0) {
             Util.sleep(1000);
@@ -98,67 +136,205 @@ public class ApnPushNotificationScheduler implements Managed {
       } while (running.get());
     }
 
-    private long processNextSlot() {
-      final int slot = (int) (pushSchedulingCluster.withCluster(connection ->
-          connection.sync().incr(NEXT_SLOT_TO_PROCESS_KEY)) % SlotHash.SLOT_COUNT);
+    private long processNextSlots() {
+      final long lastSlot = pushSchedulingCluster.withCluster(connection ->
+          connection.sync().incrby(NEXT_SLOT_TO_PROCESS_KEY, SLOTS_PER_BATCH));
+
+      final List<Integer> slots = LongStream.range(lastSlot - SLOTS_PER_BATCH + 1, lastSlot + 1)
+          .mapToObj(slot -> (int) Math.floorMod(slot, (long) SlotHash.SLOT_COUNT))
+          .toList();
 
-      return processRecurringVoipNotifications(slot) + processScheduledBackgroundNotifications(slot);
+      return processRecurringVoipNotifications(slots) + processScheduledBackgroundNotifications(slots);
     }
 
     @VisibleForTesting
     long processRecurringVoipNotifications(final int slot) {
-      List<String> pendingDestinations;
+      return processRecurringVoipNotifications(List.of(slot));
+    }
+
+    @VisibleForTesting
+    long processRecurringVoipNotifications(final List<Integer> slots) {
+      List<Integer> slotsToProcess = slots;
       long entriesProcessed = 0;
 
-      do {
-        pendingDestinations = getPendingDestinationsForRecurringVoipNotifications(slot, PAGE_SIZE);
+      // Fetching pending destinations pushes their next notification into the future, so each pass only returns
+      // destinations that haven't been processed yet; a slot is exhausted as soon as it returns less than a full page
+      while (!slotsToProcess.isEmpty()) {
+        final Map<Integer, List<PendingDestination>> pendingDestinationsBySlot = Flux.fromIterable(slotsToProcess)
+            .flatMap(slot -> Mono.fromFuture(() -> getPendingRecurringVoipDestinations(slot, PAGE_SIZE))
+                .map(pendingDestinations -> Tuples.of(slot, pendingDestinations)))
+            .collectMap(Tuple2::getT1, Tuple2::getT2)
+            .block();
+
+        assert pendingDestinationsBySlot != null;
+
+        final List<PendingDestination> pendingDestinations = pendingDestinationsBySlot.values().stream()
+            .flatMap(List::stream)
+            .toList();
+
         entriesProcessed += pendingDestinations.size();
 
-        for (final String destination : pendingDestinations) {
-          try {
-            getAccountAndDeviceFromPairString(destination).ifPresentOrElse(
-                accountAndDevice -> sendRecurringVoipNotification(accountAndDevice.first(), accountAndDevice.second()),
-                () -> removeRecurringVoipNotificationEntrySync(destination));
-          } catch (final IllegalArgumentException e) {
-            logger.warn("Failed to parse account/device pair: {}", destination, e);
-          }
-        }
-      } while (!pendingDestinations.isEmpty());
+        sendNotifications(pendingDestinations, voipSchedulingLagTimer,
+            ApnPushNotificationScheduler.this::sendRecurringVoipNotification,
+            (accountIdentifier, deviceId) ->
+                removeRecurringVoipNotificationEntry(getEndpointKey(accountIdentifier, deviceId)).toCompletableFuture());
+
+        slotsToProcess = pendingDestinationsBySlot.entrySet().stream()
+            .filter(entry -> entry.getValue().size() == PAGE_SIZE)
+            .map(Map.Entry::getKey)
+            .toList();
+      }
 
       return entriesProcessed;
     }
 
     @VisibleForTesting
     long processScheduledBackgroundNotifications(final int slot) {
+      return processScheduledBackgroundNotifications(List.of(slot));
+    }
+
+    @VisibleForTesting
+    long processScheduledBackgroundNotifications(final List<Integer> slots) {
       final long currentTimeMillis = clock.millis();
-      final String queueKey = getPendingBackgroundNotificationQueueKey(slot);
 
-      final long processedBackgroundNotifications = pushSchedulingCluster.withCluster(connection -> {
-        List<String> destinations;
-        long offset = 0;
+      List<Integer> slotsToProcess = slots;
+      long entriesProcessed = 0;
 
-        do {
-          destinations = connection.sync().zrangebyscore(queueKey, Range.create(0, currentTimeMillis), Limit.create(offset, PAGE_SIZE));
+      // Processed entries are removed before the next pass, so each pass starts from the front of each queue
+      while (!slotsToProcess.isEmpty()) {
+        final Map<Integer, List<PendingDestination>> pendingDestinationsBySlot = Flux.fromIterable(slotsToProcess)
+            .flatMap(slot -> Mono.fromCompletionStage(() -> pushSchedulingCluster.withCluster(connection ->
+                    connection.async().zrangebyscoreWithScores(getPendingBackgroundNotificationQueueKey(slot),
+                        Range.create(0, currentTimeMillis), Limit.create(0, PAGE_SIZE))))
+                .map(scoredValues -> Tuples.of(slot, scoredValues.stream()
+                    .map(scoredValue -> new PendingDestination(scoredValue.getValue(), (long) scoredValue.getScore()))
+                    .toList())))
+            .collectMap(Tuple2::getT1, Tuple2::getT2)
+            .block();
 
-          for (final String destination : destinations) {
-            try {
-              getAccountAndDeviceFromPairString(destination).ifPresent(accountAndDevice ->
-                  sendBackgroundNotification(accountAndDevice.first(), accountAndDevice.second()));
-            } catch (final IllegalArgumentException e) {
-              logger.warn("Failed to parse account/device pair: {}", destination, e);
-            }
-          }
+        assert pendingDestinationsBySlot != null;
+
+        final List<PendingDestination> pendingDestinations = pendingDestinationsBySlot.values().stream()
+            .flatMap(List::stream)
+            .toList();
+
+        entriesProcessed += pendingDestinations.size();
 
-          offset += destinations.size();
-        } while (destinations.size() == PAGE_SIZE);
+        final Set<PendingDestination> unresolvedDestinations = sendNotifications(pendingDestinations,
+            backgroundSchedulingLagTimer,
+            ApnPushNotificationScheduler.this::sendBackgroundNotification,
+            (accountIdentifier, deviceId) -> CompletableFuture.completedFuture(null));
+
+        // Background notifications are one-shot, so every entry we've processed is finished whether or not its
+        // notification could be sent; entries whose account couldn't be retrieved stay queued for a later batch
+        final Map<Integer, List<PendingDestination>> processedDestinationsBySlot =
+            pendingDestinationsBySlot.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
+                    .filter(pendingDestination -> !unresolvedDestinations.contains(pendingDestination))
+                    .toList()));
+
+        Flux.fromIterable(processedDestinationsBySlot.entrySet())
+            .filter(entry -> !entry.getValue().isEmpty())
+            .flatMap(entry -> Mono.fromCompletionStage(() -> pushSchedulingCluster.withCluster(connection ->
+                connection.async().zrem(getPendingBackgroundNotificationQueueKey(entry.getKey()),
+                    entry.getValue().stream().map(PendingDestination::accountAndDevice).toArray(String[]::new)))))
+            .then()
+            .block();
+
+        // A slot with entries left in place would return them again at the front of its next page, so it waits for
+        // the next batch
+        slotsToProcess = pendingDestinationsBySlot.entrySet().stream()
+            .filter(entry -> entry.getValue().size() == PAGE_SIZE)
+            .filter(entry -> processedDestinationsBySlot.get(entry.getKey()).size() == PAGE_SIZE)
+            .map(Map.Entry::getKey)
+            .toList();
+      }
+
+      return entriesProcessed;
+    }
+
+    /**
+     * Resolves the accounts for a group of pending destinations and sends each destination's notification, waiting
+     * until all notifications have been sent.
+     *
+     * @param pendingDestinations the destinations to notify
+     * @param schedulingLagTimer a timer that records how long after its scheduled time each notification was sent
+     * @param sendNotificationFunction sends a notification to a resolved account and device
+     * @param missingDeviceFunction called for destinations whose account or device no longer exists
+     *
+     * @return the destinations that were skipped because their account could not be retrieved
+     */
+    private Set<PendingDestination> sendNotifications(final List<PendingDestination> pendingDestinations,
+        final Timer schedulingLagTimer,
+        final BiFunction<Account, Device, CompletableFuture<Void>> sendNotificationFunction,
+        final BiFunction<UUID, Long, CompletableFuture<?>> missingDeviceFunction) {
+
+      if (pendingDestinations.isEmpty()) {
+        return Collections.emptySet();
+      }
+
+      final Map<PendingDestination, Pair<UUID, Long>> accountIdentifiersAndDeviceIds = new HashMap<>();
+
+      for (final PendingDestination pendingDestination : pendingDestinations) {
+        try {
+          accountIdentifiersAndDeviceIds.put(pendingDestination,
+              parseAccountAndDevice(pendingDestination.accountAndDevice()));
+        } catch (final IllegalArgumentException e) {
+          logger.warn("Failed to parse account/device pair: {}", pendingDestination.accountAndDevice(), e);
+        }
+      }
+
+      // Accounts that couldn't be retrieved are left out of the map entirely; their destinations are skipped rather
+      // than treated as missing
+      final Map<UUID, Optional<Account>> accountsByIdentifier = Flux.fromStream(
+              accountIdentifiersAndDeviceIds.values().stream().map(Pair::first).distinct())
+          .flatMap(accountIdentifier -> Mono.fromFuture(() -> accountsManager.getByAccountIdentifierAsync(accountIdentifier))
+              .map(maybeAccount -> Tuples.of(accountIdentifier, maybeAccount))
+              .onErrorResume(throwable -> {
+                logger.warn("Failed to retrieve account {}", accountIdentifier, throwable);
+                return Mono.empty();
+              }), MAX_CONCURRENCY)
+          .collectMap(Tuple2::getT1, Tuple2::getT2)
+          .block();
+
+      assert accountsByIdentifier != null;
+
+      Flux.fromIterable(accountIdentifiersAndDeviceIds.entrySet())
+          .filter(entry -> accountsByIdentifier.containsKey(entry.getValue().first()))
+          .flatMap(entry -> {
+            final PendingDestination pendingDestination = entry.getKey();
+            final UUID accountIdentifier = entry.getValue().first();
+            final long deviceId = entry.getValue().second();
+
+            final Optional<Account> maybeAccount = accountsByIdentifier.get(accountIdentifier);
+            final Optional<Device> maybeDevice = maybeAccount.flatMap(account -> account.getDevice(deviceId));
+
+            final Mono<Void> notificationMono;
+
+            if (maybeAccount.isPresent() && maybeDevice.isPresent()) {
+              schedulingLagTimer.record(
+                  Math.max(0, clock.millis() - pendingDestination.scheduledTimestamp()), TimeUnit.MILLISECONDS);
+
+              notificationMono =
+                  Mono.fromFuture(() -> sendNotificationFunction.apply(maybeAccount.get(), maybeDevice.get())).then();
+            } else {
+              notificationMono = Mono.fromFuture(() -> missingDeviceFunction.apply(accountIdentifier, deviceId)).then();
+            }
 
-        return offset;
-      });
+            return notificationMono.onErrorResume(throwable -> {
+              logger.warn("Failed to process scheduled notification for {}", pendingDestination.accountAndDevice(),
+                  throwable);
 
-      pushSchedulingCluster.useCluster(connection ->
-          connection.sync().zremrangebyscore(queueKey, Range.create(0, currentTimeMillis)));
+              return Mono.empty();
+            });
+          }, MAX_CONCURRENCY)
+          .then()
+          .block();
 
-      return processedBackgroundNotifications;
+      return accountIdentifiersAndDeviceIds.entrySet().stream()
+          .filter(entry -> !accountsByIdentifier.containsKey(entry.getValue().first()))
+          .map(Map.Entry::getKey)
+          .collect(Collectors.toSet());
     }
   }
 
@@ -265,38 +441,41 @@ public class ApnPushNotificationScheduler implements Managed {
     }
   }
 
-  private void sendRecurringVoipNotification(final Account account, final Device device) {
+  private CompletableFuture<Void> sendRecurringVoipNotification(final Account account, final Device device) {
     String apnId = device.getVoipApnId();
 
     if (apnId == null) {
-      removeRecurringVoipNotificationEntrySync(getEndpointKey(account, device));
-      return;
+      return removeRecurringVoipNotificationEntry(account, device)
+          .thenAccept(dropValue())
+          .toCompletableFuture();
     }
 
     long deviceLastSeen = device.getLastSeen();
     if (deviceLastSeen < clock.millis() - TimeUnit.DAYS.toMillis(7)) {
       evicted.increment();
-      removeRecurringVoipNotificationEntrySync(getEndpointKey(account, device));
-      return;
+      return removeRecurringVoipNotificationEntry(account, device)
+          .thenAccept(dropValue())
+          .toCompletableFuture();
     }
 
-    apnSender.sendNotification(new PushNotification(apnId, PushNotification.TokenType.APN_VOIP, PushNotification.NotificationType.NOTIFICATION, null, account, device, true));
-    retry.increment();
+    return apnSender.sendNotification(new PushNotification(apnId, PushNotification.TokenType.APN_VOIP, PushNotification.NotificationType.NOTIFICATION, null, account, device, true))
+        .thenRun(retry::increment);
   }
 
   @VisibleForTesting
-  void sendBackgroundNotification(final Account account, final Device device) {
-    if (StringUtils.isNotBlank(device.getApnId())) {
-      // It's okay for the "last notification" timestamp to expire after the "cooldown" period has elapsed; a missing
-      // timestamp and a timestamp older than the period are functionally equivalent.
-      pushSchedulingCluster.useCluster(connection -> connection.sync().set(
-          getLastBackgroundNotificationTimestampKey(account, device),
-          String.valueOf(clock.millis()), new SetArgs().ex(BACKGROUND_NOTIFICATION_PERIOD)));
-
-      apnSender.sendNotification(new PushNotification(device.getApnId(), PushNotification.TokenType.APN, PushNotification.NotificationType.NOTIFICATION, null, account, device, false));
-
-      backgroundNotificationSentCounter.increment();
+  CompletableFuture<Void> sendBackgroundNotification(final Account account, final Device device) {
+    if (StringUtils.isBlank(device.getApnId())) {
+      return CompletableFuture.completedFuture(null);
     }
+
+    // It's okay for the "last notification" timestamp to expire after the "cooldown" period has elapsed; a missing
+    // timestamp and a timestamp older than the period are functionally equivalent.
+    return pushSchedulingCluster.withCluster(connection -> connection.async().set(
+            getLastBackgroundNotificationTimestampKey(account, device),
+            String.valueOf(clock.millis()), new SetArgs().ex(BACKGROUND_NOTIFICATION_PERIOD)))
+        .toCompletableFuture()
+        .thenCompose(ignored -> apnSender.sendNotification(new PushNotification(device.getApnId(), PushNotification.TokenType.APN, PushNotification.NotificationType.NOTIFICATION, null, account, device, false)))
+        .thenRun(backgroundNotificationSentCounter::increment);
   }
 
   @VisibleForTesting
@@ -324,7 +503,7 @@ public class ApnPushNotificationScheduler implements Managed {
   }
 
   @VisibleForTesting
-  Optional<Pair<Account, Device>> getAccountAndDeviceFromPairString(final String endpoint) {
+  static Pair<UUID, Long> parseAccountAndDevice(final String endpoint) {
     try {
       if (StringUtils.isBlank(endpoint)) {
         throw new IllegalArgumentException("Endpoint must not be blank");
@@ -336,29 +515,12 @@ public class ApnPushNotificationScheduler implements Managed {
         throw new IllegalArgumentException("Could not parse endpoint string: " + endpoint);
       }
 
-      final Optional<Account> maybeAccount = accountsManager.getByAccountIdentifier(UUID.fromString(parts[0]));
-
-      return maybeAccount.flatMap(account -> account.getDevice(Long.parseLong(parts[1])))
-          .map(device -> new Pair<>(maybeAccount.get(), device));
-
+      return new Pair<>(UUID.fromString(parts[0]), Long.parseLong(parts[1]));
     } catch (final NumberFormatException e) {
       throw new IllegalArgumentException(e);
     }
   }
 
-  private boolean removeRecurringVoipNotificationEntrySync(final String endpoint) {
-    try {
-      return removeRecurringVoipNotificationEntry(endpoint).toCompletableFuture().get();
-    } catch (ExecutionException e) {
-      if (e.getCause() instanceof RedisException re) {
-        throw re;
-      }
-      throw new RuntimeException(e);
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   private CompletionStage<Boolean> removeRecurringVoipNotificationEntry(Account account, Device device) {
     return removeRecurringVoipNotificationEntry(getEndpointKey(account, device));
   }
@@ -370,12 +532,32 @@ public class ApnPushNotificationScheduler implements Managed {
         .thenApply(result -> ((long) result) > 0);
   }
 
-  @SuppressWarnings("unchecked")
   @VisibleForTesting
   List<String> getPendingDestinationsForRecurringVoipNotifications(final int slot, final int limit) {
-    return (List<String>) getPendingVoipDestinationsScript.execute(
-        List.of(getPendingRecurringVoipNotificationQueueKey(slot)),
-        List.of(String.valueOf(clock.millis()), String.valueOf(limit)));
+    return getPendingRecurringVoipDestinations(slot, limit).join().stream()
+        .map(PendingDestination::accountAndDevice)
+        .toList();
+  }
+
+  @SuppressWarnings("unchecked")
+  private CompletableFuture<List<PendingDestination>> getPendingRecurringVoipDestinations(final int slot,
+      final int limit) {
+
+    return getPendingVoipDestinationsScript.executeAsync(
+            List.of(getPendingRecurringVoipNotificationQueueKey(slot)),
+            List.of(String.valueOf(clock.millis()), String.valueOf(limit)))
+        .thenApply(result -> {
+          // The script returns a flattened list of destinations and the times their notifications were due
+          final List<String> destinationsAndTimestamps = (List<String>) result;
+          final List<PendingDestination> pendingDestinations = new ArrayList<>(destinationsAndTimestamps.size() / 2);
+
+          for (int i = 0; i + 1 < destinationsAndTimestamps.size(); i += 2) {
+            pendingDestinations.add(new PendingDestination(destinationsAndTimestamps.get(i),
+                (long) Double.parseDouble(destinationsAndTimestamps.get(i + 1))));
+          }
+
+          return pendingDestinations;
+        });
   }
 
   private CompletionStage<Void> insertRecurringVoipNotificationEntry(final Account account, final Device device, final long timestamp, final long interval) {
@@ -392,7 +574,11 @@ public class ApnPushNotificationScheduler implements Managed {
 
   @VisibleForTesting
   static String getEndpointKey(final Account account, final Device device) {
-    return "apn_device::{" + account.getUuid() + "::" + device.getId() + "}";
+    return getEndpointKey(account.getUuid(), device.getId());
+  }
+
+  private static String getEndpointKey(final UUID accountIdentifier, final long deviceId) {
+    return "apn_device::{" + accountIdentifier + "::" + deviceId + "}";
   }
 
   private static String getPendingRecurringVoipNotificationQueueKey(final String endpoint) {
@@ -12,6 +12,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Iterables;
 import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisFuture;
@@ -28,6 +29,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
@@ -65,6 +67,7 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
   private final ExecutorService keyspaceNotificationExecutorService;
   private final ScheduledExecutorService scheduledExecutorService;
   private ScheduledFuture<?> pruneMissingPeersFuture;
+  private ScheduledFuture<?> renewPresencesFuture;
 
   private final Map<String, DisplacedPresenceListener> displacementListenersByPresenceKey = new ConcurrentHashMap<>();
 
@@ -72,12 +75,19 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
   private final Timer setPresenceTimer;
   private final Timer clearPresenceTimer;
   private final Timer prunePeersTimer;
+  private final Timer renewPresencesTimer;
+  private final Meter renewPresenceMeter;
+  private final Meter renewPresenceErrorMeter;
   private final Meter pruneClientMeter;
   private final Meter remoteDisplacementMeter;
   private final Meter pubSubMessageMeter;
 
   private static final int PRUNE_PEERS_INTERVAL_SECONDS = (int) Duration.ofSeconds(30).toSeconds();
   private static final int PRESENCE_EXPIRATION_SECONDS = (int) Duration.ofMinutes(11).toSeconds();
+  private static final int RENEW_PRESENCE_INTERVAL_SECONDS = (int) Duration.ofMinutes(5).toSeconds();
+
+  // The maximum number of renewals in flight at once during a sweep
+  private static final int RENEW_PRESENCE_BATCH_SIZE = 1_000;
 
   static final String MANAGER_SET_KEY = "presence::managers";
 
@@ -102,6 +112,9 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
     this.setPresenceTimer = metricRegistry.timer(name(getClass(), "setPresence"));
     this.clearPresenceTimer = metricRegistry.timer(name(getClass(), "clearPresence"));
     this.prunePeersTimer = metricRegistry.timer(name(getClass(), "prunePeers"));
+    this.renewPresencesTimer = metricRegistry.timer(name(getClass(), "renewPresences"));
+    this.renewPresenceMeter = metricRegistry.meter(name(getClass(), "renewPresence"));
+    this.renewPresenceErrorMeter = metricRegistry.meter(name(getClass(), "renewPresenceError"));
     this.pruneClientMeter = metricRegistry.meter(name(getClass(), "pruneClient"));
     this.remoteDisplacementMeter = metricRegistry.meter(name(getClass(), "remoteDisplacement"));
     this.pubSubMessageMeter = metricRegistry.meter(name(getClass(), "pubSubMessage"));
@@ -136,6 +149,14 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
         log.warn("Failed to prune missing peers", t);
       }
     }, new Random().nextInt(PRUNE_PEERS_INTERVAL_SECONDS), PRUNE_PEERS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+    renewPresencesFuture = scheduledExecutorService.scheduleAtFixedRate(() -> {
+      try {
+        renewPresences();
+      } catch (final Throwable t) {
+        log.warn("Failed to renew presences", t);
+      }
+    }, new Random().nextInt(RENEW_PRESENCE_INTERVAL_SECONDS), RENEW_PRESENCE_INTERVAL_SECONDS, TimeUnit.SECONDS);
   }
 
   @Override
@@ -146,6 +167,10 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
       pruneMissingPeersFuture.cancel(false);
     }
 
+    if (renewPresencesFuture != null) {
+      renewPresencesFuture.cancel(false);
+    }
+
     for (final String presenceKey : displacementListenersByPresenceKey.keySet()) {
       clearPresence(presenceKey);
     }
@@ -179,9 +204,35 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
     }
   }
 
-  public void renewPresence(final UUID accountUuid, final long deviceId) {
-    renewPresenceScript.execute(List.of(getPresenceKey(accountUuid, deviceId)),
-        List.of(managerId, String.valueOf(PRESENCE_EXPIRATION_SECONDS)));
+  /**
+   * Extends the expiration of the presence keys for all clients present on this host. Rather than renewing each
+   * client's presence on its own schedule, all local presences are renewed in a single periodic sweep.
+   * <p>
+   * Each presence key is in its own hash slot, so renewals can't be combined into multi-key commands; instead, renewals
+   * are issued asynchronously in batches, and Lettuce pipelines each batch's commands to the nodes that own the keys.
+   */
+  @VisibleForTesting
+  void renewPresences() {
+    try (final Timer.Context ignored = renewPresencesTimer.time()) {
+      final List<String> renewPresenceArgs = List.of(managerId, String.valueOf(PRESENCE_EXPIRATION_SECONDS));
+
+      for (final List<String> presenceKeys : Iterables.partition(displacementListenersByPresenceKey.keySet(),
+          RENEW_PRESENCE_BATCH_SIZE)) {
+
+        CompletableFuture.allOf(presenceKeys.stream()
+                .map(presenceKey -> renewPresenceScript.executeAsync(List.of(presenceKey), renewPresenceArgs)
+                    .whenComplete((result, throwable) -> {
+                      if (throwable == null) {
+                        renewPresenceMeter.mark();
+                      } else {
+                        renewPresenceErrorMeter.mark();
+                      }
+                    })
+                    .exceptionally(throwable -> null))
+                .toArray(CompletableFuture[]::new))
+            .join();
+      }
+    }
   }
 
   public void disconnectAllPresences(final UUID accountUuid, final List<Long> deviceIds) {
@@ -226,6 +277,22 @@ public class ClientPresenceManager extends RedisClusterPubSubAdapter<String, Str
     }
   }
 
+  /**
+   * Checks whether a device is connected to any server without waiting for the check to complete, so that presence
+   * for several devices can be checked at once.
+   *
+   * @return a future that yields {@code true} if the device is present or {@code false} otherwise
+   */
+  public CompletableFuture<Boolean> isPresentAsync(final UUID accountUuid, final long deviceId) {
+    final Timer.Context timerContext = checkPresenceTimer.time();
+
+    return presenceCluster.withCluster(connection ->
+            connection.async().exists(getPresenceKey(accountUuid, deviceId)))
+        .toCompletableFuture()
+        .whenComplete((ignored, throwable) -> timerContext.stop())
+        .thenApply(count -> count == 1);
+  }
+
   public boolean isLocallyPresent(final UUID accountUuid, final long deviceId) {
     return displacementListenersByPresenceKey.containsKey(getPresenceKey(accountUuid, deviceId));
   }
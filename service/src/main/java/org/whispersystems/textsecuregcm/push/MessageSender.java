@@ -7,12 +7,24 @@ package org.whispersystems.textsecuregcm.push;
 import static com.codahale.metrics.MetricRegistry.name;
 import static org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 
+import com.google.common.base.Throwables;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.commons.lang3.StringUtils;
+import org.whispersystems.textsecuregcm.metrics.MeterCache;
 import org.whispersystems.textsecuregcm.redis.RedisOperation;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 
 /**
  * A MessageSender sends Signal messages to destination devices. Messages may be "normal" user-to-user messages,
@@ -43,6 +55,25 @@ public class MessageSender {
   private static final String SEALED_SENDER_TAG_NAME = "sealedSender";
   private static final String HAS_SPAM_REPORTING_TOKEN_TAG_NAME = "hasSpamReportingToken";
 
+  private record SendCounterKey(String channel,
+                                boolean ephemeral,
+                                boolean clientOnline,
+                                boolean urgent,
+                                boolean story,
+                                boolean sealedSender,
+                                boolean hasSpamReportingToken) {
+  }
+
+  private static final MeterCache<SendCounterKey, Counter> SEND_COUNTERS =
+      MeterCache.counters(Metrics.globalRegistry, SEND_COUNTER_NAME, 1_024, key -> Tags.of(
+          CHANNEL_TAG_NAME, key.channel(),
+          EPHEMERAL_TAG_NAME, String.valueOf(key.ephemeral()),
+          CLIENT_ONLINE_TAG_NAME, String.valueOf(key.clientOnline()),
+          URGENT_TAG_NAME, String.valueOf(key.urgent()),
+          STORY_TAG_NAME, String.valueOf(key.story()),
+          SEALED_SENDER_TAG_NAME, String.valueOf(key.sealedSender()),
+          HAS_SPAM_REPORTING_TOKEN_TAG_NAME, String.valueOf(key.hasSpamReportingToken())));
+
   public MessageSender(ClientPresenceManager clientPresenceManager,
       MessagesManager messagesManager,
       PushNotificationManager pushNotificationManager,
@@ -56,18 +87,7 @@ public class MessageSender {
   public void sendMessage(final Account account, final Device device, final Envelope message, final boolean online)
       throws NotPushRegisteredException {
 
-    final String channel;
-
-    if (device.getGcmId() != null) {
-      channel = "gcm";
-    } else if (device.getApnId() != null) {
-      channel = "apn";
-    } else if (device.getFetchesMessages()) {
-      channel = "websocket";
-    } else {
-      throw new AssertionError();
-    }
-
+    final String channel = getDeliveryChannel(device);
     final boolean clientPresent;
 
     if (online) {
@@ -85,27 +105,133 @@ public class MessageSender {
       clientPresent = clientPresenceManager.isPresent(account.getUuid(), device.getId());
 
       if (!clientPresent) {
-        try {
-          pushNotificationManager.sendNewMessageNotification(account, device.getId(), message.getUrgent());
-
-          final boolean useVoip = StringUtils.isNotBlank(device.getVoipApnId());
-          RedisOperation.unchecked(() -> pushLatencyManager.recordPushSent(account.getUuid(), device.getId(), useVoip, message.getUrgent()));
-        } catch (final NotPushRegisteredException e) {
-          if (!device.getFetchesMessages()) {
-            throw e;
+        sendNewMessageNotification(account, device, message);
+      }
+    }
+
+    incrementSendCounter(channel, online, clientPresent, message);
+  }
+
+  /**
+   * Sends messages to several devices belonging to the same destination account, as when a single request carries a
+   * copy of a message for each of a recipient's devices. Messages are delivered exactly as if each had been passed to
+   * {@link #sendMessage(Account, Device, Envelope, boolean)}, but the message inserts and presence checks for all
+   * devices are issued together rather than one device after another.
+   *
+   * @param account the destination account
+   * @param messagesByDevice the message to send to each destination device
+   * @param online whether the messages should only be delivered to devices that are currently connected
+   *
+   * @return the destination devices that could not be notified of a new message because they have no push token and
+   * don't fetch messages
+   */
+  public List<Device> sendMessages(final Account account, final Map<Device, Envelope> messagesByDevice,
+      final boolean online) {
+
+    final Map<Device, String> channelsByDevice = new HashMap<>(messagesByDevice.size());
+    messagesByDevice.keySet().forEach(device -> channelsByDevice.put(device, getDeliveryChannel(device)));
+
+    final Map<Device, Boolean> presenceByDevice;
+    final List<Device> notPushRegisteredDevices = new ArrayList<>();
+
+    if (online) {
+      presenceByDevice = getPresence(account, messagesByDevice.keySet());
+
+      final Map<Long, Envelope> ephemeralMessagesByDeviceId = new HashMap<>();
+
+      messagesByDevice.forEach((device, message) -> {
+        if (presenceByDevice.get(device)) {
+          ephemeralMessagesByDeviceId.put(device.getId(), message.toBuilder().setEphemeral(true).build());
+        }
+      });
+
+      if (!ephemeralMessagesByDeviceId.isEmpty()) {
+        messagesManager.insert(account.getUuid(), ephemeralMessagesByDeviceId);
+      }
+    } else {
+      final Map<Long, Envelope> messagesByDeviceId = new HashMap<>(messagesByDevice.size());
+      messagesByDevice.forEach((device, message) -> messagesByDeviceId.put(device.getId(), message));
+
+      messagesManager.insert(account.getUuid(), messagesByDeviceId);
+
+      // As with single messages, check for presence only after all messages have been inserted
+      presenceByDevice = getPresence(account, messagesByDevice.keySet());
+
+      messagesByDevice.forEach((device, message) -> {
+        if (!presenceByDevice.get(device)) {
+          try {
+            sendNewMessageNotification(account, device, message);
+          } catch (final NotPushRegisteredException e) {
+            notPushRegisteredDevices.add(device);
           }
         }
+      });
+    }
+
+    messagesByDevice.forEach((device, message) ->
+        incrementSendCounter(channelsByDevice.get(device), online, presenceByDevice.get(device), message));
+
+    return notPushRegisteredDevices;
+  }
+
+  private Map<Device, Boolean> getPresence(final Account account, final Collection<Device> devices) {
+    final Map<Device, CompletableFuture<Boolean>> presenceFuturesByDevice = new HashMap<>(devices.size());
+
+    devices.forEach(device ->
+        presenceFuturesByDevice.put(device, clientPresenceManager.isPresentAsync(account.getUuid(), device.getId())));
+
+    try {
+      CompletableFuture.allOf(presenceFuturesByDevice.values().toArray(CompletableFuture[]::new)).join();
+    } catch (final CompletionException e) {
+      Throwables.throwIfUnchecked(ExceptionUtils.unwrap(e));
+      throw e;
+    }
+
+    final Map<Device, Boolean> presenceByDevice = new HashMap<>(devices.size());
+    presenceFuturesByDevice.forEach((device, future) -> presenceByDevice.put(device, future.join()));
+
+    return presenceByDevice;
+  }
+
+  private static String getDeliveryChannel(final Device device) {
+    if (device.getGcmId() != null) {
+      return "gcm";
+    } else if (device.getApnId() != null) {
+      return "apn";
+    } else if (device.getFetchesMessages()) {
+      return "websocket";
+    } else {
+      throw new AssertionError();
+    }
+  }
+
+  private void sendNewMessageNotification(final Account account, final Device device, final Envelope message)
+      throws NotPushRegisteredException {
+
+    try {
+      pushNotificationManager.sendNewMessageNotification(account, device.getId(), message.getUrgent());
+
+      final boolean useVoip = StringUtils.isNotBlank(device.getVoipApnId());
+      RedisOperation.unchecked(() -> pushLatencyManager.recordPushSent(account.getUuid(), device.getId(), useVoip, message.getUrgent()));
+    } catch (final NotPushRegisteredException e) {
+      if (!device.getFetchesMessages()) {
+        throw e;
       }
     }
+  }
 
-    Metrics.counter(SEND_COUNTER_NAME,
-            CHANNEL_TAG_NAME, channel,
-            EPHEMERAL_TAG_NAME, String.valueOf(online),
-            CLIENT_ONLINE_TAG_NAME, String.valueOf(clientPresent),
-            URGENT_TAG_NAME, String.valueOf(message.getUrgent()),
-            STORY_TAG_NAME, String.valueOf(message.getStory()),
-            SEALED_SENDER_TAG_NAME, String.valueOf(!message.hasSourceUuid()),
-            HAS_SPAM_REPORTING_TOKEN_TAG_NAME, String.valueOf(message.getReportSpamToken() != null && !message.getReportSpamToken().isEmpty()))
+  private static void incrementSendCounter(final String channel,
+      final boolean online,
+      final boolean clientPresent,
+      final Envelope message) {
+
+    SEND_COUNTERS.get(new SendCounterKey(channel,
+            online,
+            clientPresent,
+            message.getUrgent(),
+            message.getStory(),
+            !message.hasSourceUuid(),
+            message.getReportSpamToken() != null && !message.getReportSpamToken().isEmpty()))
         .increment();
   }
 }
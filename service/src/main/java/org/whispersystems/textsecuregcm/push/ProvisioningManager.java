@@ -18,42 +18,71 @@ import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.configuration.CircuitBreakerConfiguration;
-import org.whispersystems.textsecuregcm.redis.RedisOperation;
 import org.whispersystems.textsecuregcm.redis.RedisUriUtil;
 import org.whispersystems.textsecuregcm.storage.PubSubProtos;
 import org.whispersystems.textsecuregcm.util.CircuitBreakerUtil;
 import org.whispersystems.textsecuregcm.websocket.InvalidWebsocketAddressException;
 import org.whispersystems.textsecuregcm.websocket.ProvisioningAddress;
 
+/**
+ * Relays provisioning messages between the device that initiates provisioning and the new device's provisioning
+ * websocket via Redis pub/sub. Provisioning channels are spread across several pub/sub connections so that a burst of
+ * provisioning sessions doesn't queue behind a single connection, and subscription changes are sent asynchronously in
+ * batches: while a batch for a connection is in flight, further changes for that connection accumulate and are sent
+ * together once the batch completes.
+ */
 public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> implements Managed {
 
   private final RedisClient redisClient;
-  private final StatefulRedisPubSubConnection<byte[], byte[]> subscriptionConnection;
+  private final List<SubscriptionShard> subscriptionShards;
   private final StatefulRedisConnection<byte[], byte[]> publicationConnection;
+  private final Duration timeout;
 
   private final CircuitBreaker circuitBreaker;
 
   private final Map<ProvisioningAddress, Consumer<PubSubProtos.PubSubMessage>> listenersByProvisioningAddress =
       new ConcurrentHashMap<>();
 
+  @VisibleForTesting
+  static final int DEFAULT_SUBSCRIPTION_CONNECTIONS = 8;
+
   private static final String ACTIVE_LISTENERS_GAUGE_NAME = name(ProvisioningManager.class, "activeListeners");
 
+  private static final String CONNECTION_LISTENERS_GAUGE_NAME = name(ProvisioningManager.class, "connectionListeners");
+
+  private static final String SUBSCRIPTION_LATENCY_TIMER_NAME = name(ProvisioningManager.class, "subscriptionLatency");
+
+  private static final String SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME =
+      name(ProvisioningManager.class, "subscriptionBatchSize");
+
   private static final String SEND_PROVISIONING_MESSAGE_COUNTER_NAME =
       name(ProvisioningManager.class, "sendProvisioningMessage");
 
   private static final String RECEIVE_PROVISIONING_MESSAGE_COUNTER_NAME =
       name(ProvisioningManager.class, "receiveProvisioningMessage");
 
+  private static final String CONNECTION_TAG_NAME = "connection";
+  private static final String OPERATION_TAG_NAME = "operation";
+
   private static final Logger logger = LoggerFactory.getLogger(ProvisioningManager.class);
 
   public ProvisioningManager(final String redisUri,
@@ -62,18 +91,24 @@ public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> impl
       final CircuitBreakerConfiguration circuitBreakerConfiguration) {
 
     this(RedisClient.create(clientResources, RedisUriUtil.createRedisUriWithTimeout(redisUri, timeout)), timeout,
-        circuitBreakerConfiguration);
+        circuitBreakerConfiguration, DEFAULT_SUBSCRIPTION_CONNECTIONS);
   }
 
   @VisibleForTesting
   ProvisioningManager(final RedisClient redisClient,
       final Duration timeout,
-      final CircuitBreakerConfiguration circuitBreakerConfiguration) {
+      final CircuitBreakerConfiguration circuitBreakerConfiguration,
+      final int subscriptionConnections) {
 
     this.redisClient = redisClient;
     this.redisClient.setDefaultTimeout(timeout);
+    this.timeout = timeout;
+
+    this.subscriptionShards = IntStream.range(0, subscriptionConnections)
+        .mapToObj(i -> new SubscriptionShard(i, redisClient.connectPubSub(new ByteArrayCodec()),
+            circuitBreakerConfiguration))
+        .toList();
 
-    this.subscriptionConnection = redisClient.connectPubSub(new ByteArrayCodec());
     this.publicationConnection = redisClient.connect(new ByteArrayCodec());
 
     this.circuitBreaker = CircuitBreaker.of("pubsub-breaker", circuitBreakerConfiguration.toCircuitBreakerConfig());
@@ -85,31 +120,54 @@ public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> impl
 
   @Override
   public void start() throws Exception {
-    subscriptionConnection.addListener(this);
+    subscriptionShards.forEach(shard -> shard.connection.addListener(this));
   }
 
   @Override
   public void stop() throws Exception {
-    subscriptionConnection.removeListener(this);
+    for (final SubscriptionShard shard : subscriptionShards) {
+      shard.connection.removeListener(this);
+      shard.connection.close();
+    }
 
-    subscriptionConnection.close();
     publicationConnection.close();
 
     redisClient.shutdown();
   }
 
-  public void addListener(final ProvisioningAddress address, final Consumer<PubSubProtos.PubSubMessage> listener) {
-    listenersByProvisioningAddress.put(address, listener);
+  /**
+   * Registers a listener for messages sent to the given provisioning address.
+   *
+   * @param address the address for which to receive messages
+   * @param listener the listener to notify when a message arrives
+   *
+   * @return a future that completes once the subscription for the given address is active; messages sent before the
+   * future completes may not be delivered
+   */
+  public CompletableFuture<Void> addListener(final ProvisioningAddress address,
+      final Consumer<PubSubProtos.PubSubMessage> listener) {
+
+    final SubscriptionShard shard = getShard(address);
+
+    if (listenersByProvisioningAddress.put(address, listener) == null) {
+      shard.listenerCount.incrementAndGet();
+    }
 
-    circuitBreaker.executeRunnable(
-        () -> subscriptionConnection.sync().subscribe(address.serialize().getBytes(StandardCharsets.UTF_8)));
+    return shard.subscribe(address);
   }
 
-  public void removeListener(final ProvisioningAddress address) {
-    RedisOperation.unchecked(() -> circuitBreaker.executeRunnable(
-        () -> subscriptionConnection.sync().unsubscribe(address.serialize().getBytes(StandardCharsets.UTF_8))));
-
-    listenersByProvisioningAddress.remove(address);
+  /**
+   * Removes the listener for the given provisioning address. The listener will not be notified of any further
+   * messages, even if the returned future has not yet completed.
+   *
+   * @param address the address for which to stop receiving messages
+   *
+   * @return a future that completes once the subscription for the given address has been removed
+   */
+  public CompletableFuture<Void> removeListener(final ProvisioningAddress address) {
+    removeListenerEntry(address);
+
+    return getShard(address).unsubscribe(address);
   }
 
   public boolean sendProvisioningMessage(final ProvisioningAddress address, final byte[] body) {
@@ -155,9 +213,190 @@ public class ProvisioningManager extends RedisPubSubAdapter<byte[], byte[]> impl
   @Override
   public void unsubscribed(final byte[] channel, final long count) {
     try {
-      listenersByProvisioningAddress.remove(new ProvisioningAddress(new String(channel)));
+      removeListenerEntry(new ProvisioningAddress(new String(channel)));
     } catch (final InvalidWebsocketAddressException e) {
       logger.warn("Failed to parse provisioning address for `unsubscribe` event", e);
     }
   }
+
+  private void removeListenerEntry(final ProvisioningAddress address) {
+    if (listenersByProvisioningAddress.remove(address) != null) {
+      getShard(address).listenerCount.decrementAndGet();
+    }
+  }
+
+  @VisibleForTesting
+  int getShardIndex(final ProvisioningAddress address) {
+    return Math.floorMod(address.serialize().hashCode(), subscriptionShards.size());
+  }
+
+  private SubscriptionShard getShard(final ProvisioningAddress address) {
+    return subscriptionShards.get(getShardIndex(address));
+  }
+
+  private static byte[][] getChannels(final Map<ProvisioningAddress, ?> addresses) {
+    return addresses.keySet().stream()
+        .map(address -> address.serialize().getBytes(StandardCharsets.UTF_8))
+        .toArray(byte[][]::new);
+  }
+
+  /**
+   * A single pub/sub connection and the subscription changes waiting to be sent over it.
+   */
+  private class SubscriptionShard {
+
+    private final StatefulRedisPubSubConnection<byte[], byte[]> connection;
+    private final CircuitBreaker subscriptionCircuitBreaker;
+    private final AtomicInteger listenerCount = new AtomicInteger();
+
+    private final Timer subscribeTimer;
+    private final Timer unsubscribeTimer;
+    private final DistributionSummary subscribeBatchSize;
+    private final DistributionSummary unsubscribeBatchSize;
+
+    // Guarded by this shard's monitor
+    private Map<ProvisioningAddress, CompletableFuture<Void>> pendingSubscriptions = new HashMap<>();
+    private Map<ProvisioningAddress, CompletableFuture<Void>> pendingUnsubscriptions = new HashMap<>();
+    private boolean flushInProgress = false;
+
+    private SubscriptionShard(final int index,
+        final StatefulRedisPubSubConnection<byte[], byte[]> connection,
+        final CircuitBreakerConfiguration circuitBreakerConfiguration) {
+
+      this.connection = connection;
+      this.subscriptionCircuitBreaker = CircuitBreaker.of("pubsub-subscription-breaker-" + index,
+          circuitBreakerConfiguration.toCircuitBreakerConfig());
+
+      CircuitBreakerUtil.registerMetrics(subscriptionCircuitBreaker, ProvisioningManager.class);
+
+      final String connectionTag = String.valueOf(index);
+
+      Metrics.gauge(CONNECTION_LISTENERS_GAUGE_NAME, Tags.of(CONNECTION_TAG_NAME, connectionTag), listenerCount);
+
+      subscribeTimer = Timer.builder(SUBSCRIPTION_LATENCY_TIMER_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "subscribe")
+          .publishPercentileHistogram()
+          .register(Metrics.globalRegistry);
+
+      unsubscribeTimer = Timer.builder(SUBSCRIPTION_LATENCY_TIMER_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "unsubscribe")
+          .publishPercentileHistogram()
+          .register(Metrics.globalRegistry);
+
+      subscribeBatchSize = DistributionSummary.builder(SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "subscribe")
+          .register(Metrics.globalRegistry);
+
+      unsubscribeBatchSize = DistributionSummary.builder(SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "unsubscribe")
+          .register(Metrics.globalRegistry);
+    }
+
+    CompletableFuture<Void> subscribe(final ProvisioningAddress address) {
+      final CompletableFuture<Void> subscribeFuture;
+
+      synchronized (this) {
+        final CompletableFuture<Void> pendingUnsubscribeFuture = pendingUnsubscriptions.remove(address);
+
+        if (pendingUnsubscribeFuture != null) {
+          // We haven't actually unsubscribed yet, so the existing subscription is still good
+          pendingUnsubscribeFuture.complete(null);
+          return CompletableFuture.completedFuture(null);
+        }
+
+        subscribeFuture = pendingSubscriptions.computeIfAbsent(address, ignored -> new CompletableFuture<>());
+      }
+
+      flush();
+
+      return subscribeFuture;
+    }
+
+    CompletableFuture<Void> unsubscribe(final ProvisioningAddress address) {
+      final CompletableFuture<Void> unsubscribeFuture;
+
+      synchronized (this) {
+        final CompletableFuture<Void> pendingSubscribeFuture = pendingSubscriptions.remove(address);
+
+        if (pendingSubscribeFuture != null) {
+          // We never actually subscribed, so there's nothing to undo
+          pendingSubscribeFuture.complete(null);
+          return CompletableFuture.completedFuture(null);
+        }
+
+        unsubscribeFuture = pendingUnsubscriptions.computeIfAbsent(address, ignored -> new CompletableFuture<>());
+      }
+
+      flush();
+
+      return unsubscribeFuture;
+    }
+
+    /**
+     * Sends all pending subscription changes for this connection unless a previous batch is still in flight, in which
+     * case the pending changes will be sent when that batch completes.
+     */
+    private void flush() {
+      final Map<ProvisioningAddress, CompletableFuture<Void>> subscriptions;
+      final Map<ProvisioningAddress, CompletableFuture<Void>> unsubscriptions;
+
+      synchronized (this) {
+        if (flushInProgress || (pendingSubscriptions.isEmpty() && pendingUnsubscriptions.isEmpty())) {
+          return;
+        }
+
+        flushInProgress = true;
+
+        subscriptions = pendingSubscriptions;
+        unsubscriptions = pendingUnsubscriptions;
+
+        pendingSubscriptions = new HashMap<>();
+        pendingUnsubscriptions = new HashMap<>();
+      }
+
+      // Pub/sub commands on a single connection are processed in order, so there's no need to wait for the
+      // subscription batch to complete before sending the unsubscription batch
+      CompletableFuture.allOf(
+              execute(subscriptions, subscribeTimer, subscribeBatchSize,
+                  channels -> connection.async().subscribe(channels).toCompletableFuture()),
+              execute(unsubscriptions, unsubscribeTimer, unsubscribeBatchSize,
+                  channels -> connection.async().unsubscribe(channels).toCompletableFuture()))
+          .whenComplete((ignored, throwable) -> {
+            synchronized (this) {
+              flushInProgress = false;
+            }
+
+            flush();
+          });
+    }
+
+    private CompletableFuture<Void> execute(final Map<ProvisioningAddress, CompletableFuture<Void>> batch,
+        final Timer timer,
+        final DistributionSummary batchSize,
+        final Function<byte[][], CompletableFuture<Void>> command) {
+
+      if (batch.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      batchSize.record(batch.size());
+      final long start = System.nanoTime();
+
+      return subscriptionCircuitBreaker.executeCompletionStage(() -> command.apply(getChannels(batch))
+              .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS))
+          .toCompletableFuture()
+          .handle((ignored, throwable) -> {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            if (throwable != null) {
+              logger.warn("Failed to update provisioning subscriptions", throwable);
+              batch.values().forEach(future -> future.completeExceptionally(throwable));
+            } else {
+              batch.values().forEach(future -> future.complete(null));
+            }
+
+            return null;
+          });
+    }
+  }
 }
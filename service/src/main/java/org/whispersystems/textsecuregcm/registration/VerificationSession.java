@@ -23,7 +23,8 @@ import org.whispersystems.textsecuregcm.storage.SerializedExpireableJsonDynamoSt
  * @param allowedToRequestCode    whether the client is allowed to request a code. This request will be forwarded to
  *                                Registration Service
  * @param createdTimestamp        when this session was created
- * @param updatedTimestamp        when this session was updated
+ * @param updatedTimestamp        when this session was updated; also serves as the session's version, and so must
+ *                                increase with every update
  * @param remoteExpirationSeconds when the remote
  *                                {@link org.whispersystems.textsecuregcm.entities.RegistrationServiceSession} expires
  * @see org.whispersystems.textsecuregcm.entities.RegistrationServiceSession
@@ -33,13 +34,18 @@ public record VerificationSession(@Nullable String pushChallenge,
                                   List<Information> requestedInformation, List<Information> submittedInformation,
                                   boolean allowedToRequestCode, long createdTimestamp, long updatedTimestamp,
                                   long remoteExpirationSeconds) implements
-    SerializedExpireableJsonDynamoStore.Expireable {
+    SerializedExpireableJsonDynamoStore.Expireable, SerializedExpireableJsonDynamoStore.Versioned {
 
   @Override
   public long getExpirationEpochSeconds() {
     return Instant.ofEpochMilli(updatedTimestamp).plusSeconds(remoteExpirationSeconds).getEpochSecond();
   }
 
+  @Override
+  public long getVersion() {
+    return updatedTimestamp;
+  }
+
   public enum Information {
     @JsonProperty("pushChallenge")
     PUSH_CHALLENGE,
@@ -11,18 +11,28 @@ import static io.micrometer.core.instrument.Metrics.timer;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 import javax.annotation.Nonnull;
@@ -35,6 +45,10 @@ public abstract class AbstractDynamoDbStore {
 
   public static final int RESULT_SET_CHUNK_SIZE = 100;
 
+  private static final int MAX_DELETE_BATCH_ATTEMPTS = 8;
+  private static final Duration DELETE_BATCH_RETRY_BASE_DELAY = Duration.ofMillis(50);
+  private static final Duration DELETE_BATCH_RETRY_MAX_DELAY = Duration.ofSeconds(2);
+
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   private final Timer batchWriteItemsFirstPass = timer(name(getClass(), "batchWriteItems"), "firstAttempt", "true");
@@ -43,6 +57,10 @@ public abstract class AbstractDynamoDbStore {
 
   private final Counter batchWriteItemsUnprocessed = counter(name(getClass(), "batchWriteItemsUnprocessed"));
 
+  private final Counter deleteBatchRetries = counter(name(getClass(), "delete", "batchRetries"));
+
+  private final Counter deleteBatchUnprocessed = counter(name(getClass(), "delete", "batchUnprocessed"));
+
   private final DynamoDbClient dynamoDbClient;
 
 
@@ -71,6 +89,83 @@ public abstract class AbstractDynamoDbStore {
     }
   }
 
+  /**
+   * Deletes the items with the given keys as they arrive, grouping them into {@code BatchWriteItem} requests of up to
+   * {@link #DYNAMO_DB_MAX_BATCH_SIZE} deletions and keeping at most {@code concurrency} batches in flight at a time.
+   * Throttled requests and unprocessed items are retried with exponential backoff.
+   *
+   * @param dynamoDbAsyncClient the client with which to issue batch deletions
+   * @param tableName the table from which to delete items
+   * @param keys the primary keys of the items to delete
+   * @param concurrency the maximum number of batches to have in flight at once
+   *
+   * @return a {@code Mono} that completes once all items have been deleted, or fails if a batch could not be deleted
+   * after the maximum number of attempts
+   */
+  protected Mono<Void> deleteInBatchesAsync(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final Publisher<Map<String, AttributeValue>> keys,
+      final int concurrency) {
+
+    return Flux.from(keys)
+        .map(key -> WriteRequest.builder()
+            .deleteRequest(DeleteRequest.builder().key(key).build())
+            .build())
+        .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+        .flatMap(writeRequests -> executeDeleteBatch(dynamoDbAsyncClient, tableName, writeRequests, 1), concurrency)
+        .then();
+  }
+
+  private Mono<Void> executeDeleteBatch(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final List<WriteRequest> writeRequests,
+      final int attempt) {
+
+    return Mono.fromFuture(() -> dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(tableName, writeRequests))
+            .build()))
+        // The SDK already retries throttled requests a few times; keep backing off if DynamoDB is still throttling
+        .retryWhen(Retry.backoff(MAX_DELETE_BATCH_ATTEMPTS, DELETE_BATCH_RETRY_BASE_DELAY)
+            .maxBackoff(DELETE_BATCH_RETRY_MAX_DELAY)
+            .filter(AbstractDynamoDbStore::isThrottlingException)
+            .doBeforeRetry(ignored -> deleteBatchRetries.increment())
+            .onRetryExhaustedThrow((spec, retrySignal) -> retrySignal.failure()))
+        .flatMap(response -> {
+          final List<WriteRequest> unprocessedItems = response.unprocessedItems().getOrDefault(tableName, List.of());
+
+          if (unprocessedItems.isEmpty()) {
+            return Mono.empty();
+          }
+
+          if (attempt >= MAX_DELETE_BATCH_ATTEMPTS) {
+            logger.error("Attempt count ({}) reached max before deleting all items in batch; {} unprocessed items remain",
+                attempt, unprocessedItems.size());
+
+            deleteBatchUnprocessed.increment(unprocessedItems.size());
+
+            return Mono.error(new IllegalStateException(
+                "Failed to delete " + unprocessedItems.size() + " items after " + attempt + " attempts"));
+          }
+
+          deleteBatchRetries.increment();
+
+          return Mono.delay(getDeleteBatchRetryDelay(attempt))
+              .then(executeDeleteBatch(dynamoDbAsyncClient, tableName, unprocessedItems, attempt + 1));
+        });
+  }
+
+  private static Duration getDeleteBatchRetryDelay(final int attempt) {
+    final Duration delay = DELETE_BATCH_RETRY_BASE_DELAY.multipliedBy(1L << Math.min(attempt - 1, 16));
+    return delay.compareTo(DELETE_BATCH_RETRY_MAX_DELAY) > 0 ? DELETE_BATCH_RETRY_MAX_DELAY : delay;
+  }
+
+  private static boolean isThrottlingException(final Throwable throwable) {
+    final Throwable unwrapped = ExceptionUtils.unwrap(throwable);
+
+    return unwrapped instanceof ProvisionedThroughputExceededException
+        || unwrapped instanceof RequestLimitExceededException;
+  }
+
   @Nonnull
   protected List<Map<String, AttributeValue>> scan(final ScanRequest scanRequest, final int max) {
     return db().scanPaginator(scanRequest)
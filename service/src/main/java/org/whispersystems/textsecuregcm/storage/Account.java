@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,6 +21,7 @@ import java.util.UUID;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.InvalidKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
@@ -69,15 +71,23 @@ public class Account {
   @JsonProperty
   private List<Device> devices = new ArrayList<>();
 
-  @JsonProperty
-  @JsonSerialize(using = IdentityKeyAdapter.Serializer.class)
-  @JsonDeserialize(using = IdentityKeyAdapter.Deserializer.class)
-  private IdentityKey identityKey;
+  // Identity keys are stored in their base64-encoded form and only decoded when requested; most accounts are loaded to
+  // authenticate a request or route a message, and decoding keys for those callers would be wasted work
+  @JsonProperty("identityKey")
+  @Nullable
+  private String encodedIdentityKey;
 
   @JsonProperty("pniIdentityKey")
-  @JsonSerialize(using = IdentityKeyAdapter.Serializer.class)
-  @JsonDeserialize(using = IdentityKeyAdapter.Deserializer.class)
-  private IdentityKey phoneNumberIdentityKey;
+  @Nullable
+  private String encodedPhoneNumberIdentityKey;
+
+  @JsonIgnore
+  @Nullable
+  private IdentityKey decodedIdentityKey;
+
+  @JsonIgnore
+  @Nullable
+  private IdentityKey decodedPhoneNumberIdentityKey;
 
   @JsonProperty("cpv")
   private String currentProfileVersion;
@@ -305,20 +315,49 @@ public class Account {
   public void setIdentityKey(final IdentityKey identityKey) {
     requireNotStale();
 
-    this.identityKey = identityKey;
+    this.encodedIdentityKey = encodeIdentityKey(identityKey);
+    this.decodedIdentityKey = identityKey;
   }
 
   public IdentityKey getIdentityKey(final IdentityType identityType) {
     requireNotStale();
 
+    // Decoded keys are immutable, so racing threads at worst decode the same key twice
     return switch (identityType) {
-      case ACI -> identityKey;
-      case PNI -> phoneNumberIdentityKey;
+      case ACI -> {
+        if (decodedIdentityKey == null && encodedIdentityKey != null) {
+          decodedIdentityKey = decodeIdentityKey(encodedIdentityKey);
+        }
+
+        yield decodedIdentityKey;
+      }
+      case PNI -> {
+        if (decodedPhoneNumberIdentityKey == null && encodedPhoneNumberIdentityKey != null) {
+          decodedPhoneNumberIdentityKey = decodeIdentityKey(encodedPhoneNumberIdentityKey);
+        }
+
+        yield decodedPhoneNumberIdentityKey;
+      }
     };
   }
 
   public void setPhoneNumberIdentityKey(final IdentityKey phoneNumberIdentityKey) {
-    this.phoneNumberIdentityKey = phoneNumberIdentityKey;
+    this.encodedPhoneNumberIdentityKey = encodeIdentityKey(phoneNumberIdentityKey);
+    this.decodedPhoneNumberIdentityKey = phoneNumberIdentityKey;
+  }
+
+  @Nullable
+  private static String encodeIdentityKey(@Nullable final IdentityKey identityKey) {
+    return identityKey != null ? Base64.getEncoder().encodeToString(identityKey.serialize()) : null;
+  }
+
+  @Nullable
+  private static IdentityKey decodeIdentityKey(final String encodedIdentityKey) {
+    try {
+      return IdentityKeyAdapter.decode(encodedIdentityKey);
+    } catch (final IllegalArgumentException | InvalidKeyException e) {
+      throw new IllegalStateException("Stored identity key could not be decoded", e);
+    }
   }
 
   public long getLastSeen() {
@@ -519,6 +558,47 @@ public class Account {
     return stale;
   }
 
+  /**
+   * Returns a deep copy of this account that is not marked as stale, even if this account is. The copy shares no
+   * mutable state with this account and is equivalent to the result of a JSON serialization round trip, but is much
+   * cheaper to produce.
+   *
+   * @return a deep copy of this account that is not marked as stale
+   */
+  Account copyAsNotStale() {
+    final Account copy = new Account();
+
+    copy.uuid = uuid;
+    copy.phoneNumberIdentifier = phoneNumberIdentifier;
+    copy.number = number;
+    copy.usernameHash = copyOf(usernameHash);
+    copy.reservedUsernameHash = copyOf(reservedUsernameHash);
+    copy.usernameLinkHandle = usernameLinkHandle;
+    copy.encryptedUsername = copyOf(encryptedUsername);
+    copy.devices = devices != null ? new ArrayList<>(devices.stream().map(Device::copy).toList()) : null;
+    // Identity keys are immutable
+    copy.encodedIdentityKey = encodedIdentityKey;
+    copy.encodedPhoneNumberIdentityKey = encodedPhoneNumberIdentityKey;
+    copy.decodedIdentityKey = decodedIdentityKey;
+    copy.decodedPhoneNumberIdentityKey = decodedPhoneNumberIdentityKey;
+    copy.currentProfileVersion = currentProfileVersion;
+    // Badges are immutable
+    copy.badges = badges != null ? new ArrayList<>(badges) : null;
+    copy.registrationLock = registrationLock;
+    copy.registrationLockSalt = registrationLockSalt;
+    copy.unidentifiedAccessKey = copyOf(unidentifiedAccessKey);
+    copy.unrestrictedUnidentifiedAccess = unrestrictedUnidentifiedAccess;
+    copy.discoverableByPhoneNumber = discoverableByPhoneNumber;
+    copy.version = version;
+
+    return copy;
+  }
+
+  @Nullable
+  private static byte[] copyOf(@Nullable final byte[] bytes) {
+    return bytes != null ? bytes.clone() : null;
+  }
+
   public void markStale() {
     stale = true;
   }
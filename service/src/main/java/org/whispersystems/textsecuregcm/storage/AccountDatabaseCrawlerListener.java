@@ -6,6 +6,8 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
 import java.util.List;
@@ -17,6 +19,7 @@ import org.whispersystems.textsecuregcm.util.Constants;
 public abstract class AccountDatabaseCrawlerListener {
 
   private final Timer processChunkTimer;
+  private final Meter processedAccountsMeter;
 
   abstract public void onCrawlStart();
 
@@ -25,13 +28,18 @@ public abstract class AccountDatabaseCrawlerListener {
   abstract protected void onCrawlChunk(Optional<UUID> fromUuid, List<Account> chunkAccounts);
 
   public AccountDatabaseCrawlerListener() {
-    processChunkTimer = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME).timer(name(AccountDatabaseCrawlerListener.class, "processChunk", getClass().getSimpleName()));
+    final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    processChunkTimer = metricRegistry.timer(name(AccountDatabaseCrawlerListener.class, "processChunk", getClass().getSimpleName()));
+    processedAccountsMeter = metricRegistry.meter(name(AccountDatabaseCrawlerListener.class, "processedAccounts", getClass().getSimpleName()));
   }
 
   public void timeAndProcessCrawlChunk(Optional<UUID> fromUuid, List<Account> chunkAccounts) {
     try (Timer.Context timer = processChunkTimer.time()) {
       onCrawlChunk(fromUuid, chunkAccounts);
     }
+
+    processedAccountsMeter.mark(chunkAccounts.size());
   }
 
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.lettuce.core.Range;
+import io.lettuce.core.ScriptOutputType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+
+/**
+ * A durable queue of data to purge for deleted accounts. Deleting an account only removes the account record itself
+ * and enqueues a purge; the account's keys, messages, profiles, and backups are removed later by an
+ * {@link AccountPurgeWorker}. Claimed purges are leased rather than removed, so a purge that fails or whose worker dies
+ * is retried once its lease expires. The queue counts how many times each purge has been claimed so that workers can
+ * {@link #abandon(PendingPurge) abandon} purges that keep failing instead of retrying them forever.
+ */
+public class AccountDeletionQueue {
+
+  private final FaultTolerantRedisCluster cluster;
+  private final Clock clock;
+  private final ClusterLuaScript claimPendingPurgesScript;
+
+  // Deletions are rare enough relative to other traffic that a single queue (and therefore a single slot) suffices; the
+  // attempt counts must live in the same slot so the claim script can update both
+  @VisibleForTesting
+  static final String QUEUE_KEY = "{account_deletion}::pending_purges";
+
+  @VisibleForTesting
+  static final String ATTEMPTS_KEY = "{account_deletion}::purge_attempts";
+
+  @VisibleForTesting
+  static final String ABANDONED_KEY = "{account_deletion}::abandoned_purges";
+
+  /**
+   * Identifies the data to purge for a deleted account.
+   *
+   * @param accountIdentifier the deleted account's ACI
+   * @param phoneNumberIdentifier the deleted account's PNI
+   * @param e164 the deleted account's phone number, which identifies the lock to hold while purging
+   */
+  public record PendingPurge(UUID accountIdentifier, UUID phoneNumberIdentifier, String e164) {
+
+    static PendingPurge fromAccount(final Account account) {
+      return new PendingPurge(account.getUuid(), account.getPhoneNumberIdentifier(), account.getNumber());
+    }
+
+    @VisibleForTesting
+    String toQueueMember() {
+      return accountIdentifier + ":" + phoneNumberIdentifier + ":" + e164;
+    }
+
+    @VisibleForTesting
+    static PendingPurge fromQueueMember(final String queueMember) {
+      final String[] pieces = queueMember.split(":", 3);
+
+      if (pieces.length != 3) {
+        throw new IllegalArgumentException("Bad pending purge: " + queueMember);
+      }
+
+      return new PendingPurge(UUID.fromString(pieces[0]), UUID.fromString(pieces[1]), pieces[2]);
+    }
+  }
+
+  /**
+   * A purge claimed from the queue.
+   *
+   * @param pendingPurge the claimed purge
+   * @param attempts the number of times the purge has been claimed, including this claim
+   */
+  public record ClaimedPurge(PendingPurge pendingPurge, int attempts) {
+  }
+
+  /**
+   * @param cluster a cluster dedicated to this queue; it must be configured for persistence and must not evict keys, or
+   * deleted accounts' data may never be purged
+   */
+  public AccountDeletionQueue(final FaultTolerantRedisCluster cluster, final Clock clock) {
+    this.cluster = cluster;
+    this.clock = clock;
+
+    try {
+      this.claimPendingPurgesScript = ClusterLuaScript.fromResource(cluster,
+          "lua/account_deletion/claim_pending_purges.lua", ScriptOutputType.MULTI);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to load pending purge claim script", e);
+    }
+  }
+
+  /**
+   * Adds a purge to the queue; the purge is immediately eligible to be claimed.
+   */
+  public void enqueue(final PendingPurge pendingPurge) {
+    cluster.useCluster(connection -> {
+      connection.sync().hdel(ATTEMPTS_KEY, pendingPurge.toQueueMember());
+      connection.sync().zadd(QUEUE_KEY, clock.millis(), pendingPurge.toQueueMember());
+    });
+  }
+
+  /**
+   * Claims up to {@code limit} purges that are due. Each claimed purge becomes eligible to be claimed again after the
+   * given lease duration unless it is {@link #remove(PendingPurge) removed} or {@link #abandon(PendingPurge) abandoned}
+   * before then.
+   */
+  public List<ClaimedPurge> claim(final int limit, final Duration lease) {
+    final long nowMillis = clock.millis();
+
+    @SuppressWarnings("unchecked") final List<String> claims = (List<String>) claimPendingPurgesScript.execute(
+        List.of(QUEUE_KEY, ATTEMPTS_KEY),
+        List.of(String.valueOf(nowMillis), String.valueOf(nowMillis + lease.toMillis()), String.valueOf(limit)));
+
+    final List<ClaimedPurge> claimedPurges = new ArrayList<>(claims.size() / 2);
+
+    for (int i = 0; i < claims.size(); i += 2) {
+      claimedPurges.add(new ClaimedPurge(PendingPurge.fromQueueMember(claims.get(i)),
+          Integer.parseInt(claims.get(i + 1))));
+    }
+
+    return claimedPurges;
+  }
+
+  public boolean isPending(final PendingPurge pendingPurge) {
+    return cluster.withCluster(connection ->
+        connection.sync().zscore(QUEUE_KEY, pendingPurge.toQueueMember()) != null);
+  }
+
+  public void remove(final PendingPurge pendingPurge) {
+    cluster.useCluster(connection -> {
+      connection.sync().zrem(QUEUE_KEY, pendingPurge.toQueueMember());
+      connection.sync().hdel(ATTEMPTS_KEY, pendingPurge.toQueueMember());
+    });
+  }
+
+  /**
+   * Moves a purge that can't be completed out of the queue and into a set of abandoned purges, where it stays until an
+   * operator intervenes.
+   */
+  public void abandon(final PendingPurge pendingPurge) {
+    cluster.useCluster(connection -> {
+      connection.sync().zadd(ABANDONED_KEY, clock.millis(), pendingPurge.toQueueMember());
+      connection.sync().zrem(QUEUE_KEY, pendingPurge.toQueueMember());
+      connection.sync().hdel(ATTEMPTS_KEY, pendingPurge.toQueueMember());
+    });
+  }
+
+  /**
+   * Returns the number of purges in the queue, including purges that are claimed but not yet finished.
+   */
+  public long size() {
+    return cluster.withCluster(connection -> connection.sync().zcard(QUEUE_KEY));
+  }
+
+  /**
+   * Returns the number of purges that are due but not currently claimed.
+   */
+  public long dueSize() {
+    return cluster.withCluster(connection ->
+        connection.sync().zcount(QUEUE_KEY, Range.create(Double.NEGATIVE_INFINITY, (double) clock.millis())));
+  }
+
+  /**
+   * Returns the number of purges that have been abandoned after failing too many times.
+   */
+  public long abandonedSize() {
+    return cluster.withCluster(connection -> connection.sync().zcard(ABANDONED_KEY));
+  }
+}
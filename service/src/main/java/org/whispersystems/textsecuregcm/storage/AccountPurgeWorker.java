@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.AccountPurgeWorkerConfiguration;
+import org.whispersystems.textsecuregcm.util.Util;
+
+/**
+ * Purges the data of deleted accounts from an {@link AccountDeletionQueue}. Each worker thread purges one account at a
+ * time, so the number of worker threads bounds the number of purges in flight on each host. Purges that still fail
+ * after the configured number of attempts are abandoned and reported rather than retried indefinitely.
+ */
+public class AccountPurgeWorker implements Managed {
+
+  private final AccountDeletionQueue accountDeletionQueue;
+  private final AccountsManager accountsManager;
+  private final int maxAttempts;
+  private final Thread[] workerThreads;
+
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  private final AtomicLong backlogSize = new AtomicLong();
+  private final AtomicLong dueBacklogSize = new AtomicLong();
+  private final AtomicLong abandonedSize = new AtomicLong();
+
+  private static final int CLAIM_BATCH_SIZE = 16;
+
+  // Purges that aren't finished within their lease are retried, so this should comfortably exceed the time it takes to
+  // purge a batch
+  @VisibleForTesting
+  static final Duration CLAIM_LEASE = Duration.ofMinutes(5);
+
+  private static final long IDLE_SLEEP_MILLIS = 5_000;
+
+  private static final Counter purgedCounter = Metrics.counter(name(AccountPurgeWorker.class, "purged"));
+  private static final Counter failedCounter = Metrics.counter(name(AccountPurgeWorker.class, "failed"));
+  private static final Counter abandonedCounter = Metrics.counter(name(AccountPurgeWorker.class, "abandoned"));
+
+  private static final Logger logger = LoggerFactory.getLogger(AccountPurgeWorker.class);
+
+  public AccountPurgeWorker(final AccountDeletionQueue accountDeletionQueue,
+      final AccountsManager accountsManager,
+      final AccountPurgeWorkerConfiguration configuration) {
+
+    this.accountDeletionQueue = accountDeletionQueue;
+    this.accountsManager = accountsManager;
+    this.maxAttempts = configuration.maxAttempts();
+
+    this.workerThreads = new Thread[configuration.workerThreads()];
+
+    for (int i = 0; i < workerThreads.length; i++) {
+      workerThreads[i] = new Thread(this::run, "AccountPurgeWorker-" + i);
+    }
+
+    Metrics.gauge(name(getClass(), "backlog"), backlogSize);
+    Metrics.gauge(name(getClass(), "dueBacklog"), dueBacklogSize);
+    Metrics.gauge(name(getClass(), "abandonedBacklog"), abandonedSize);
+  }
+
+  @Override
+  public synchronized void start() {
+    running.set(true);
+
+    for (final Thread workerThread : workerThreads) {
+      workerThread.start();
+    }
+  }
+
+  @Override
+  public synchronized void stop() throws InterruptedException {
+    running.set(false);
+
+    for (final Thread workerThread : workerThreads) {
+      workerThread.join();
+    }
+  }
+
+  private void run() {
+    do {
+      try {
+        if (processBatch() == 0) {
+          Util.sleep(IDLE_SLEEP_MILLIS);
+        }
+      } catch (final Exception e) {
+        logger.warn("Failed to process pending account purges", e);
+        Util.sleep(IDLE_SLEEP_MILLIS);
+      }
+    } while (running.get());
+  }
+
+  /**
+   * Claims and purges a batch of deleted accounts.
+   *
+   * @return the number of purges claimed
+   */
+  @VisibleForTesting
+  int processBatch() {
+    final List<AccountDeletionQueue.ClaimedPurge> claimedPurges =
+        accountDeletionQueue.claim(CLAIM_BATCH_SIZE, CLAIM_LEASE);
+
+    for (final AccountDeletionQueue.ClaimedPurge claimedPurge : claimedPurges) {
+      final AccountDeletionQueue.PendingPurge pendingPurge = claimedPurge.pendingPurge();
+
+      if (claimedPurge.attempts() > maxAttempts) {
+        logger.error("Abandoning purge of deleted account {} after {} failed attempts",
+            pendingPurge.accountIdentifier(), maxAttempts);
+
+        accountDeletionQueue.abandon(pendingPurge);
+        abandonedCounter.increment();
+        continue;
+      }
+
+      try {
+        accountsManager.purge(pendingPurge);
+        purgedCounter.increment();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (final Exception e) {
+        // The purge will be retried once its lease expires
+        logger.warn("Failed to purge deleted account {} (attempt {} of {})",
+            pendingPurge.accountIdentifier(), claimedPurge.attempts(), maxAttempts, e);
+        failedCounter.increment();
+      }
+    }
+
+    backlogSize.set(accountDeletionQueue.size());
+    dueBacklogSize.set(accountDeletionQueue.dueSize());
+    abandonedSize.set(accountDeletionQueue.abandonedSize());
+
+    return claimedPurges.size();
+  }
+}
@@ -15,18 +15,24 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,9 +41,13 @@ import java.util.OptionalInt;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -52,9 +62,12 @@ import org.whispersystems.textsecuregcm.entities.AccountAttributes;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.push.ClientPresenceManager;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.redis.RedisOperation;
 import org.whispersystems.textsecuregcm.securebackup.SecureBackupClient;
@@ -65,6 +78,8 @@ import org.whispersystems.textsecuregcm.util.DestinationDeviceValidator;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.ParallelFlux;
 import reactor.core.scheduler.Scheduler;
 
@@ -78,6 +93,7 @@ public class AccountsManager {
   private static final Timer getByUsernameLinkHandleTimer = metricRegistry.timer(name(AccountsManager.class, "getByUsernameLinkHandle"));
   private static final Timer getByUuidTimer = metricRegistry.timer(name(AccountsManager.class, "getByUuid"));
   private static final Timer deleteTimer = metricRegistry.timer(name(AccountsManager.class, "delete"));
+  private static final Timer purgeTimer = metricRegistry.timer(name(AccountsManager.class, "purge"));
 
   private static final Timer redisSetTimer = metricRegistry.timer(name(AccountsManager.class, "redisSet"));
   private static final Timer redisNumberGetTimer = metricRegistry.timer(name(AccountsManager.class, "redisNumberGet"));
@@ -86,12 +102,37 @@ public class AccountsManager {
   private static final Timer redisPniGetTimer = metricRegistry.timer(name(AccountsManager.class, "redisPniGet"));
   private static final Timer redisUuidGetTimer = metricRegistry.timer(name(AccountsManager.class, "redisUuidGet"));
   private static final Timer redisDeleteTimer = metricRegistry.timer(name(AccountsManager.class, "redisDelete"));
+  private static final Timer redisIdentityKeyFingerprintGetTimer =
+      metricRegistry.timer(name(AccountsManager.class, "redisIdentityKeyFingerprintGet"));
 
   private static final String CREATE_COUNTER_NAME       = name(AccountsManager.class, "createCounter");
   private static final String DELETE_COUNTER_NAME       = name(AccountsManager.class, "deleteCounter");
   private static final String COUNTRY_CODE_TAG_NAME     = "country";
   private static final String DELETION_REASON_TAG_NAME  = "reason";
 
+  private static final String PURGE_COUNTER_NAME = name(AccountsManager.class, "purgeCounter");
+  private static final String IDENTIFIER_TYPE_TAG_NAME = "identifierType";
+  private static final String PURGED_TAG_NAME = "purged";
+
+  private static final String IDENTITY_KEY_FINGERPRINT_LOOKUP_COUNTER_NAME =
+      name(AccountsManager.class, "identityKeyFingerprintLookup");
+  private static final String FOUND_TAG_NAME = "found";
+
+  private static final String ACCOUNT_CACHE_MISS_COUNTER_NAME = name(AccountsManager.class, "accountCacheMiss");
+  private static final String UPDATE_IN_PROGRESS_TAG_NAME = "updateInProgress";
+
+  private static final String WRITE_THROUGH_COUNTER_NAME = name(AccountsManager.class, "writeThrough");
+  private static final String REPLACED_TAG_NAME = "replaced";
+
+  @VisibleForTesting
+  static final String WRITE_THROUGH_CACHE_EXPERIMENT_NAME = "accountCacheWriteThrough";
+
+  /**
+   * The length, in bytes, of the truncated identity key digests clients use to check whether their view of an
+   * identity key is current
+   */
+  public static final int IDENTITY_KEY_FINGERPRINT_LENGTH = 4;
+
   @VisibleForTesting
   public static final String USERNAME_EXPERIMENT_NAME  = "usernames";
 
@@ -111,8 +152,14 @@ public class AccountsManager {
   private final ClientPresenceManager clientPresenceManager;
   private final ExperimentEnrollmentManager experimentEnrollmentManager;
   private final RegistrationRecoveryPasswordsManager registrationRecoveryPasswordsManager;
+  private final AccountDeletionQueue accountDeletionQueue;
   private final Clock clock;
 
+  private final ClusterLuaScript setAccountIfNewerScript;
+
+  // Counts of updates in progress on this instance that have removed an account from the cache, by account identifier
+  private final Map<UUID, Integer> cacheInvalidatingUpdatesInProgress = new ConcurrentHashMap<>();
+
   private static final ObjectWriter ACCOUNT_REDIS_JSON_WRITER = SystemMapper.jsonMapper()
       .writer(SystemMapper.excludingField(Account.class, List.of("uuid")));
 
@@ -157,6 +204,7 @@ public class AccountsManager {
       final ClientPresenceManager clientPresenceManager,
       final ExperimentEnrollmentManager experimentEnrollmentManager,
       final RegistrationRecoveryPasswordsManager registrationRecoveryPasswordsManager,
+      final AccountDeletionQueue accountDeletionQueue,
       final Clock clock) {
     this.accounts = accounts;
     this.phoneNumberIdentifiers = phoneNumberIdentifiers;
@@ -172,7 +220,15 @@ public class AccountsManager {
     this.clientPresenceManager = clientPresenceManager;
     this.experimentEnrollmentManager = experimentEnrollmentManager;
     this.registrationRecoveryPasswordsManager = requireNonNull(registrationRecoveryPasswordsManager);
+    this.accountDeletionQueue = requireNonNull(accountDeletionQueue);
     this.clock = requireNonNull(clock);
+
+    try {
+      this.setAccountIfNewerScript =
+          ClusterLuaScript.fromResource(cacheCluster, "lua/set_account_if_newer.lua", ScriptOutputType.INTEGER);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to load account cache update script", e);
+    }
   }
 
   public Account create(final String number,
@@ -201,7 +257,13 @@ public class AccountsManager {
 
         // Reuse the ACI from any recently-deleted account with this number to cover cases where somebody is
         // re-registering.
-        account.setUuid(deletedAccounts.findUuid(number).orElseGet(UUID::randomUUID));
+        final Optional<UUID> maybeRecentlyDeletedUuid = deletedAccounts.findUuid(number);
+        account.setUuid(maybeRecentlyDeletedUuid.orElseGet(UUID::randomUUID));
+
+        // The recently-deleted account's data may not have been purged yet; make sure it's gone before its identifiers
+        // are reused
+        maybeRecentlyDeletedUuid.ifPresent(recentlyDeletedUuid -> purgeNowIfPending(
+            new AccountDeletionQueue.PendingPurge(recentlyDeletedUuid, account.getPhoneNumberIdentifier(), number)));
         account.addDevice(device);
         account.setRegistrationLockFromAttributes(accountAttributes);
         account.setUnidentifiedAccessKey(accountAttributes.getUnidentifiedAccessKey());
@@ -228,8 +290,8 @@ public class AccountsManager {
         // 3. This is a re-registration of a recently-deleted account, in which case maybeRecentlyDeletedUuid is
         //    present.
         //
-        // All cases are mutually-exclusive. In the first case, we don't need to do anything. In the third, we can be
-        // confident that everything has already been deleted. In the second case, though, we're taking over an existing
+        // All cases are mutually-exclusive. In the first case, we don't need to do anything. In the third, any pending
+        // purge of the recently-deleted account has already run above. In the second case, though, we're taking over an existing
         // account and need to clear out messages and keys that may have been stored for the old account.
         if (!originalUuid.equals(actualUuid)) {
           final CompletableFuture<Void> deleteKeysFuture = CompletableFuture.allOf(
@@ -237,7 +299,7 @@ public class AccountsManager {
               keysManager.delete(account.getPhoneNumberIdentifier()));
 
           messagesManager.clear(actualUuid).join();
-          profilesManager.deleteAll(actualUuid);
+          profilesManager.deleteAll(actualUuid).join();
 
           deleteKeysFuture.join();
 
@@ -307,18 +369,23 @@ public class AccountsManager {
       final Optional<Account> maybeExistingAccount = getByE164(targetNumber);
       final Optional<UUID> maybeDisplacedUuid;
 
+      final UUID uuid = account.getUuid();
+      final UUID phoneNumberIdentifier = phoneNumberIdentifiers.getPhoneNumberIdentifier(targetNumber);
+
       if (maybeExistingAccount.isPresent()) {
-        delete(maybeExistingAccount.get());
+        // This account is about to take over the existing account's PNI, so purge the existing account's data now
+        // rather than in the background
+        deleteAndPurge(maybeExistingAccount.get());
         maybeDisplacedUuid = maybeExistingAccount.map(Account::getUuid);
       } else {
+        recentlyDeletedAci.ifPresent(recentlyDeletedUuid -> purgeNowIfPending(
+            new AccountDeletionQueue.PendingPurge(recentlyDeletedUuid, phoneNumberIdentifier, targetNumber)));
+
         maybeDisplacedUuid = recentlyDeletedAci;
       }
 
       maybeDisplacedUuid.ifPresent(displacedUuid -> deletedAccounts.put(displacedUuid, originalNumber));
 
-      final UUID uuid = account.getUuid();
-      final UUID phoneNumberIdentifier = phoneNumberIdentifiers.getPhoneNumberIdentifier(targetNumber);
-
       final Account numberChangedAccount;
 
       numberChangedAccount = updateWithRetries(
@@ -600,20 +667,36 @@ public class AccountsManager {
   private Account update(Account account, Function<Account, Boolean> updater) {
 
     final Account updatedAccount;
+    final UUID uuid = account.getUuid();
+    final boolean writeThrough = experimentEnrollmentManager.isEnrolled(uuid, WRITE_THROUGH_CACHE_EXPERIMENT_NAME);
 
     try (Timer.Context ignored = updateTimer.time()) {
 
-      redisDelete(account);
+      if (!writeThrough) {
+        beginCacheInvalidatingUpdate(uuid);
+      }
 
-      final UUID uuid = account.getUuid();
+      try {
+        if (!writeThrough) {
+          redisDelete(account);
+        }
 
-      updatedAccount = updateWithRetries(account,
-          updater,
-          accounts::update,
-          () -> accounts.getByAccountIdentifier(uuid).orElseThrow(),
-          AccountChangeValidator.GENERAL_CHANGE_VALIDATOR);
+        updatedAccount = updateWithRetries(account,
+            updater,
+            accounts::update,
+            () -> accounts.getByAccountIdentifier(uuid).orElseThrow(),
+            AccountChangeValidator.GENERAL_CHANGE_VALIDATOR);
 
-      redisSet(updatedAccount);
+        if (writeThrough) {
+          redisSetIfNewer(updatedAccount);
+        } else {
+          redisSet(updatedAccount);
+        }
+      } finally {
+        if (!writeThrough) {
+          endCacheInvalidatingUpdate(uuid);
+        }
+      }
     }
 
     return updatedAccount;
@@ -623,19 +706,42 @@ public class AccountsManager {
 
     final Timer.Context timerContext = updateTimer.time();
 
-    return redisDeleteAsync(account)
-        .thenCompose(ignored -> {
-          final UUID uuid = account.getUuid();
+    final UUID uuid = account.getUuid();
+    final boolean writeThrough = experimentEnrollmentManager.isEnrolled(uuid, WRITE_THROUGH_CACHE_EXPERIMENT_NAME);
 
-          return updateWithRetriesAsync(account,
-              updater,
-              a -> accounts.updateAsync(a).toCompletableFuture(),
-              () -> accounts.getByAccountIdentifierAsync(uuid).thenApply(Optional::orElseThrow),
-              AccountChangeValidator.GENERAL_CHANGE_VALIDATOR,
-              MAX_UPDATE_ATTEMPTS);
-        })
-        .thenCompose(updatedAccount -> redisSetAsync(updatedAccount).thenApply(ignored -> updatedAccount))
-        .whenComplete((ignored, throwable) -> timerContext.close());
+    final CompletableFuture<Void> prepareCacheFuture;
+
+    if (writeThrough) {
+      prepareCacheFuture = CompletableFuture.completedFuture(null);
+    } else {
+      beginCacheInvalidatingUpdate(uuid);
+      prepareCacheFuture = redisDeleteAsync(account);
+    }
+
+    return prepareCacheFuture
+        .thenCompose(ignored -> updateWithRetriesAsync(account,
+            updater,
+            a -> accounts.updateAsync(a).toCompletableFuture(),
+            () -> accounts.getByAccountIdentifierAsync(uuid).thenApply(Optional::orElseThrow),
+            AccountChangeValidator.GENERAL_CHANGE_VALIDATOR,
+            MAX_UPDATE_ATTEMPTS))
+        .thenCompose(updatedAccount -> (writeThrough ? redisSetIfNewerAsync(updatedAccount) : redisSetAsync(updatedAccount))
+            .thenApply(ignored -> updatedAccount))
+        .whenComplete((ignored, throwable) -> {
+          if (!writeThrough) {
+            endCacheInvalidatingUpdate(uuid);
+          }
+
+          timerContext.close();
+        });
+  }
+
+  private void beginCacheInvalidatingUpdate(final UUID uuid) {
+    cacheInvalidatingUpdatesInProgress.merge(uuid, 1, Integer::sum);
+  }
+
+  private void endCacheInvalidatingUpdate(final UUID uuid) {
+    cacheInvalidatingUpdatesInProgress.computeIfPresent(uuid, (ignored, count) -> count > 1 ? count - 1 : null);
   }
 
   private Account updateWithRetries(Account account,
@@ -729,13 +835,7 @@ public class AccountsManager {
   }
 
   private static Account cloneAccountAsNotStale(final Account account) {
-    try {
-      return SystemMapper.jsonMapper().readValue(
-          SystemMapper.jsonMapper().writeValueAsBytes(account), Account.class);
-    } catch (final IOException e) {
-      // this should really, truly, never happen
-      throw new IllegalArgumentException(e);
-    }
+    return account.copyAsNotStale();
   }
 
   public Account updateDevice(Account account, long deviceId, Consumer<Device> deviceUpdater) {
@@ -754,6 +854,71 @@ public class AccountsManager {
     });
   }
 
+  /**
+   * The outcome of a {@link #updateDevicesAsync(Collection, Predicate, int)} call.
+   *
+   * @param updated the number of accounts in which at least one device was updated
+   * @param unchanged the number of accounts in which no device needed an update; these accounts were not written
+   * @param failed the number of accounts that could not be updated
+   */
+  public record BulkDeviceUpdateResult(int updated, int unchanged, int failed) {
+  }
+
+  /**
+   * Applies a device-level update to each device of each of the given accounts, updating at most
+   * {@code maxConcurrency} accounts at a time. This is intended for batch jobs like account crawlers that already hold
+   * recently-loaded copies of the accounts to update: the given accounts serve as the baseline for optimistic locking,
+   * so accounts are only re-read if they have changed since they were loaded. The given accounts themselves are not
+   * modified, and accounts in which the updater doesn't change any device aren't written to the database.
+   *
+   * @param accounts the accounts to update
+   * @param deviceUpdater applied to each device; must return {@code true} if the device was actually updated
+   * @param maxConcurrency the maximum number of accounts to update concurrently
+   *
+   * @return a future that completes with a summary of the updates once all updates have finished; failures to update
+   * individual accounts are logged and counted rather than failing the returned future
+   */
+  public CompletableFuture<BulkDeviceUpdateResult> updateDevicesAsync(final Collection<Account> accounts,
+      final Predicate<Device> deviceUpdater,
+      final int maxConcurrency) {
+
+    final AtomicInteger updated = new AtomicInteger();
+    final AtomicInteger unchanged = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+
+    return Flux.fromIterable(accounts)
+        .flatMap(account -> {
+          // Whether the updater changed any device on its most recent application; an account re-read after a conflict
+          // may turn out not to need any changes
+          final AtomicBoolean changed = new AtomicBoolean();
+
+          // The given accounts may be shared with other callers (e.g. other crawler listeners), so work on a copy
+          return Mono.fromFuture(() -> updateAsync(cloneAccountAsNotStale(account), a -> {
+                changed.set(updateDevices(a, deviceUpdater));
+                return changed.get();
+              }))
+              .doOnSuccess(ignored -> (changed.get() ? updated : unchanged).incrementAndGet())
+              .onErrorResume(throwable -> {
+                logger.warn("Failed to update devices for account {}", account.getUuid(), throwable);
+                failed.incrementAndGet();
+
+                return Mono.empty();
+              });
+        }, maxConcurrency)
+        .then(Mono.fromSupplier(() -> new BulkDeviceUpdateResult(updated.get(), unchanged.get(), failed.get())))
+        .toFuture();
+  }
+
+  private static boolean updateDevices(final Account account, final Predicate<Device> deviceUpdater) {
+    boolean updated = false;
+
+    for (final Device device : account.getDevices()) {
+      updated |= deviceUpdater.test(device);
+    }
+
+    return updated;
+  }
+
   public Optional<Account> getByE164(final String number) {
     return checkRedisThenAccounts(
         getByNumberTimer,
@@ -848,13 +1013,20 @@ public class AccountsManager {
     return accounts.getAll(segments, scheduler);
   }
 
+  /**
+   * Deletes the given account. The account record is removed immediately, while the account's keys, messages, profiles,
+   * and backups are purged in the background by way of the {@link AccountDeletionQueue}.
+   */
   public void delete(final Account account, final DeletionReason deletionReason) throws InterruptedException {
     try (final Timer.Context ignored = deleteTimer.time()) {
       accountLockManager.withLock(List.of(account.getNumber()), () -> {
         final UUID accountIdentifier = account.getUuid();
         final String e164 = account.getNumber();
 
-        delete(account);
+        // Enqueue the purge before removing the account so a purge is never lost; if removing the account fails, the
+        // purge will find that the account still exists and leave its data alone
+        accountDeletionQueue.enqueue(AccountDeletionQueue.PendingPurge.fromAccount(account));
+        removeAccount(account);
 
         deletedAccounts.put(accountIdentifier, e164);
       });
@@ -869,30 +1041,58 @@ public class AccountsManager {
         .increment();
   }
 
-  private void delete(final Account account) {
-    final CompletableFuture<Void> deleteStorageServiceDataFuture = secureStorageClient.deleteStoredData(
-        account.getUuid());
-    final CompletableFuture<Void> deleteBackupServiceDataFuture = secureBackupClient.deleteBackups(account.getUuid());
-    final CompletableFuture<Void> deleteSecureValueRecoveryServiceDataFuture = secureValueRecovery2Client.deleteBackups(
-        account.getUuid());
+  /**
+   * Purges the data associated with a deleted account. Data associated with identifiers that have since been claimed by
+   * another account (e.g. because the deleted account's owner re-registered) is left in place.
+   *
+   * @throws InterruptedException if interrupted while waiting for the lock on the deleted account's phone number
+   */
+  public void purge(final AccountDeletionQueue.PendingPurge pendingPurge) throws InterruptedException {
+    try (final Timer.Context ignored = purgeTimer.time()) {
+      accountLockManager.withLock(List.of(pendingPurge.e164()), () -> {
+        final boolean purgeAciData = accounts.getByAccountIdentifier(pendingPurge.accountIdentifier()).isEmpty();
+        final boolean purgePniData = accounts.getByPhoneNumberIdentifier(pendingPurge.phoneNumberIdentifier()).isEmpty();
+
+        CompletableFuture.allOf(
+            purgeAciData ? purgeAciData(pendingPurge.accountIdentifier()) : CompletableFuture.completedFuture(null),
+            purgePniData ? purgePniData(pendingPurge.phoneNumberIdentifier()) : CompletableFuture.completedFuture(null))
+            .join();
+
+        accountDeletionQueue.remove(pendingPurge);
+
+        Metrics.counter(PURGE_COUNTER_NAME, IDENTIFIER_TYPE_TAG_NAME, "aci", PURGED_TAG_NAME, String.valueOf(purgeAciData))
+            .increment();
+        Metrics.counter(PURGE_COUNTER_NAME, IDENTIFIER_TYPE_TAG_NAME, "pni", PURGED_TAG_NAME, String.valueOf(purgePniData))
+            .increment();
+      });
+    }
+  }
+
+  /**
+   * Purges a deleted account's data immediately if its purge hasn't finished yet. Callers must hold the lock for the
+   * deleted account's phone number.
+   */
+  private void purgeNowIfPending(final AccountDeletionQueue.PendingPurge pendingPurge) {
+    if (accountDeletionQueue.isPending(pendingPurge)) {
+      CompletableFuture.allOf(
+          purgeAciData(pendingPurge.accountIdentifier()),
+          purgePniData(pendingPurge.phoneNumberIdentifier())).join();
+
+      accountDeletionQueue.remove(pendingPurge);
+    }
+  }
 
-    final CompletableFuture<Void> deleteKeysFuture = CompletableFuture.allOf(
-        keysManager.delete(account.getUuid()),
-        keysManager.delete(account.getPhoneNumberIdentifier()));
+  private void deleteAndPurge(final Account account) {
+    CompletableFuture.allOf(
+        purgeAciData(account.getUuid()),
+        purgePniData(account.getPhoneNumberIdentifier())).join();
 
-    final CompletableFuture<Void> deleteMessagesFuture = CompletableFuture.allOf(
-        messagesManager.clear(account.getUuid()),
-        messagesManager.clear(account.getPhoneNumberIdentifier()));
+    removeAccount(account);
+  }
 
-    profilesManager.deleteAll(account.getUuid());
+  private void removeAccount(final Account account) {
     registrationRecoveryPasswordsManager.removeForNumber(account.getNumber());
 
-    deleteKeysFuture.join();
-    deleteMessagesFuture.join();
-    deleteStorageServiceDataFuture.join();
-    deleteBackupServiceDataFuture.join();
-    deleteSecureValueRecoveryServiceDataFuture.join();
-
     accounts.delete(account.getUuid());
     redisDelete(account);
 
@@ -901,6 +1101,30 @@ public class AccountsManager {
             clientPresenceManager.disconnectPresence(account.getUuid(), device.getId())));
   }
 
+  private CompletableFuture<Void> purgeAciData(final UUID accountIdentifier) {
+    final CompletableFuture<Void> deleteStorageServiceDataFuture = secureStorageClient.deleteStoredData(accountIdentifier);
+    final CompletableFuture<Void> deleteBackupServiceDataFuture = secureBackupClient.deleteBackups(accountIdentifier);
+    final CompletableFuture<Void> deleteSecureValueRecoveryServiceDataFuture =
+        secureValueRecovery2Client.deleteBackups(accountIdentifier);
+
+    final CompletableFuture<Void> deleteKeysFuture = keysManager.delete(accountIdentifier);
+    final CompletableFuture<Void> deleteMessagesFuture = messagesManager.clear(accountIdentifier);
+    final CompletableFuture<Void> deleteProfilesFuture = profilesManager.deleteAll(accountIdentifier);
+
+    return CompletableFuture.allOf(deleteKeysFuture,
+        deleteMessagesFuture,
+        deleteProfilesFuture,
+        deleteStorageServiceDataFuture,
+        deleteBackupServiceDataFuture,
+        deleteSecureValueRecoveryServiceDataFuture);
+  }
+
+  private CompletableFuture<Void> purgePniData(final UUID phoneNumberIdentifier) {
+    return CompletableFuture.allOf(
+        keysManager.delete(phoneNumberIdentifier),
+        messagesManager.clear(phoneNumberIdentifier));
+  }
+
   private String getUsernameHashAccountMapKey(byte[] usernameHash) {
     return "UAccountMap::" + Base64.getUrlEncoder().withoutPadding().encodeToString(usernameHash);
   }
@@ -913,6 +1137,106 @@ public class AccountsManager {
     return "Account3::" + uuid.toString();
   }
 
+  private static String getIdentityKeyFingerprintKey(final ServiceIdentifier serviceIdentifier) {
+    return "IdentityKeyFingerprint::" + serviceIdentifier.toServiceIdentifierString();
+  }
+
+  private static Map<String, String> getIdentityKeyFingerprintEntries(final Account account) {
+    final Map<String, String> entries = new HashMap<>(2);
+
+    for (final IdentityType identityType : IdentityType.values()) {
+      final IdentityKey identityKey = account.getIdentityKey(identityType);
+
+      if (identityKey != null) {
+        final ServiceIdentifier serviceIdentifier = switch (identityType) {
+          case ACI -> new AciServiceIdentifier(account.getUuid());
+          case PNI -> new PniServiceIdentifier(account.getPhoneNumberIdentifier());
+        };
+
+        entries.put(getIdentityKeyFingerprintKey(serviceIdentifier),
+            Base64.getEncoder().encodeToString(getIdentityKeyFingerprint(identityKey)));
+      }
+    }
+
+    return entries;
+  }
+
+  /**
+   * Returns the truncated SHA-256 digest of the given identity key that clients use to check whether their view of the
+   * identity key is current.
+   *
+   * @param identityKey the identity key for which to compute a fingerprint
+   *
+   * @return the first {@link #IDENTITY_KEY_FINGERPRINT_LENGTH} bytes of the SHA-256 digest of the serialized identity
+   * key
+   */
+  public static byte[] getIdentityKeyFingerprint(final IdentityKey identityKey) {
+    try {
+      return Util.truncate(MessageDigest.getInstance("SHA-256").digest(identityKey.serialize()),
+          IDENTITY_KEY_FINGERPRINT_LENGTH);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Retrieves identity key fingerprints for the given service identifiers from the fingerprint index in a single
+   * pipelined multi-get. Fingerprint index entries are written and cleared alongside cached account entities, so an
+   * index entry is exactly as fresh as the cached account it was derived from.
+   * <p>
+   * Identifiers for accounts that are not cached, that do not exist, or that have no identity key will be absent from
+   * the returned map, and callers must fall back to resolving the full account for those identifiers. The returned
+   * future never fails; if the index cannot be read, the returned map is empty.
+   *
+   * @param serviceIdentifiers the service identifiers for which to retrieve identity key fingerprints
+   *
+   * @return a future that yields a map of service identifiers to identity key fingerprints for all identifiers found
+   * in the index
+   *
+   * @see #getIdentityKeyFingerprint(IdentityKey)
+   */
+  public CompletableFuture<Map<ServiceIdentifier, byte[]>> getIdentityKeyFingerprints(
+      final List<ServiceIdentifier> serviceIdentifiers) {
+
+    if (serviceIdentifiers.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    @SuppressWarnings("resource") final Timer.Context timerContext = redisIdentityKeyFingerprintGetTimer.time();
+
+    final String[] keys = serviceIdentifiers.stream()
+        .map(AccountsManager::getIdentityKeyFingerprintKey)
+        .toArray(String[]::new);
+
+    return cacheCluster.withCluster(connection -> connection.async().mget(keys))
+        .thenApply(keyValues -> {
+          final Map<ServiceIdentifier, byte[]> fingerprints = new HashMap<>(keyValues.size());
+
+          // MGET returns values in the same order as the requested keys
+          for (int i = 0; i < keyValues.size(); i++) {
+            final KeyValue<String, String> keyValue = keyValues.get(i);
+
+            if (keyValue.hasValue()) {
+              fingerprints.put(serviceIdentifiers.get(i), Base64.getDecoder().decode(keyValue.getValue()));
+            }
+          }
+
+          Metrics.counter(IDENTITY_KEY_FINGERPRINT_LOOKUP_COUNTER_NAME, FOUND_TAG_NAME, "true")
+              .increment(fingerprints.size());
+
+          Metrics.counter(IDENTITY_KEY_FINGERPRINT_LOOKUP_COUNTER_NAME, FOUND_TAG_NAME, "false")
+              .increment(serviceIdentifiers.size() - fingerprints.size());
+
+          return fingerprints;
+        })
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve identity key fingerprints from Redis", throwable);
+          return Collections.emptyMap();
+        })
+        .whenComplete((ignored, throwable) -> timerContext.close())
+        .toCompletableFuture();
+  }
+
   private void redisSet(Account account) {
     try (Timer.Context ignored = redisSetTimer.time()) {
       final String accountJson = writeRedisAccountJson(account);
@@ -926,6 +1250,9 @@ public class AccountsManager {
 
         account.getUsernameHash().ifPresent(usernameHash ->
             commands.setex(getUsernameHashAccountMapKey(usernameHash), CACHE_TTL_SECONDS, account.getUuid().toString()));
+
+        getIdentityKeyFingerprintEntries(account).forEach((key, fingerprint) ->
+            commands.setex(key, CACHE_TTL_SECONDS, fingerprint));
       });
     } catch (JsonProcessingException e) {
       throw new IllegalStateException(e);
@@ -941,6 +1268,8 @@ public class AccountsManager {
       throw new UncheckedIOException(e);
     }
 
+    final Map<String, String> identityKeyFingerprintEntries = getIdentityKeyFingerprintEntries(account);
+
     return cacheCluster.withCluster(connection -> CompletableFuture.allOf(
         connection.async().setex(
                 getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
@@ -958,10 +1287,116 @@ public class AccountsManager {
             .map(usernameHash -> connection.async()
                 .setex(getUsernameHashAccountMapKey(usernameHash), CACHE_TTL_SECONDS, account.getUuid().toString())
                 .toCompletableFuture())
-            .orElseGet(() -> CompletableFuture.completedFuture(null))
+            .orElseGet(() -> CompletableFuture.completedFuture(null)),
+
+        CompletableFuture.allOf(identityKeyFingerprintEntries.entrySet().stream()
+            .map(entry -> connection.async().setex(entry.getKey(), CACHE_TTL_SECONDS, entry.getValue())
+                .toCompletableFuture())
+            .toArray(CompletableFuture[]::new))
     ));
   }
 
+  /**
+   * Writes the given account to the cache unless the cache already holds a newer version of the account. Unlike the
+   * delete-then-set approach, this never leaves the account absent from the cache, and so doesn't force concurrent
+   * readers to fall through to DynamoDB while an update is in progress. The given account's number, PNI and username
+   * must match those of any cached version.
+   */
+  private void redisSetIfNewer(final Account account) {
+    try (Timer.Context ignored = redisSetTimer.time()) {
+      final String accountJson = writeRedisAccountJson(account);
+
+      try {
+        final boolean replaced = Long.valueOf(1).equals(setAccountIfNewerScript.execute(
+            List.of(getAccountEntityKey(account.getUuid())),
+            List.of(accountJson, String.valueOf(account.getVersion()), String.valueOf(CACHE_TTL_SECONDS))));
+
+        Metrics.counter(WRITE_THROUGH_COUNTER_NAME, REPLACED_TAG_NAME, String.valueOf(replaced)).increment();
+
+        if (replaced) {
+          cacheCluster.useCluster(connection -> {
+            final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+
+            getIdentityKeyFingerprintEntries(account).forEach((key, fingerprint) ->
+                commands.setex(key, CACHE_TTL_SECONDS, fingerprint));
+
+            commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS, account.getUuid().toString());
+            commands.setex(getAccountMapKey(account.getNumber()), CACHE_TTL_SECONDS, account.getUuid().toString());
+
+            account.getUsernameHash().ifPresent(usernameHash ->
+                commands.setex(getUsernameHashAccountMapKey(usernameHash), CACHE_TTL_SECONDS, account.getUuid().toString()));
+          });
+        }
+      } catch (final RuntimeException e) {
+        // The cache may still hold a version older than the one we just persisted; make sure it doesn't outlive this
+        // update
+        try {
+          redisDelete(account);
+        } catch (final RuntimeException deleteException) {
+          e.addSuppressed(deleteException);
+        }
+
+        throw e;
+      }
+    } catch (final JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private CompletableFuture<Void> redisSetIfNewerAsync(final Account account) {
+    final String accountJson;
+
+    try {
+      accountJson = writeRedisAccountJson(account);
+    } catch (final JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    @SuppressWarnings("resource") final Timer.Context timerContext = redisSetTimer.time();
+
+    return setAccountIfNewerScript.executeAsync(
+            List.of(getAccountEntityKey(account.getUuid())),
+            List.of(accountJson, String.valueOf(account.getVersion()), String.valueOf(CACHE_TTL_SECONDS)))
+        .thenCompose(result -> {
+          final boolean replaced = Long.valueOf(1).equals(result);
+
+          Metrics.counter(WRITE_THROUGH_COUNTER_NAME, REPLACED_TAG_NAME, String.valueOf(replaced)).increment();
+
+          if (!replaced) {
+            return CompletableFuture.<Void>completedFuture(null);
+          }
+
+          final Map<String, String> identityKeyFingerprintEntries = getIdentityKeyFingerprintEntries(account);
+
+          return cacheCluster.withCluster(connection -> CompletableFuture.allOf(
+              connection.async().setex(
+                      getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                      account.getUuid().toString())
+                  .toCompletableFuture(),
+
+              connection.async()
+                  .setex(getAccountMapKey(account.getNumber()), CACHE_TTL_SECONDS, account.getUuid().toString())
+                  .toCompletableFuture(),
+
+              account.getUsernameHash()
+                  .map(usernameHash -> connection.async()
+                      .setex(getUsernameHashAccountMapKey(usernameHash), CACHE_TTL_SECONDS, account.getUuid().toString())
+                      .toCompletableFuture())
+                  .orElseGet(() -> CompletableFuture.completedFuture(null)),
+
+              CompletableFuture.allOf(identityKeyFingerprintEntries.entrySet().stream()
+                  .map(entry -> connection.async().setex(entry.getKey(), CACHE_TTL_SECONDS, entry.getValue())
+                      .toCompletableFuture())
+                  .toArray(CompletableFuture[]::new))));
+        })
+        // The cache may still hold a version older than the one we just persisted; make sure it doesn't outlive this
+        // update
+        .exceptionallyCompose(throwable -> redisDeleteAsync(account)
+            .handle((ignored, deleteThrowable) -> null)
+            .thenCompose(ignored -> CompletableFuture.<Void>failedFuture(throwable)))
+        .whenComplete((ignored, throwable) -> timerContext.close());
+  }
+
   private Optional<Account> checkRedisThenAccounts(
       final Timer overallTimer,
       final Supplier<Optional<Account>> resolveFromRedis,
@@ -1030,6 +1465,10 @@ public class AccountsManager {
     try (Timer.Context ignored = redisUuidGetTimer.time()) {
       final String json = cacheCluster.withCluster(connection -> connection.sync().get(getAccountEntityKey(uuid)));
 
+      if (json == null) {
+        incrementAccountCacheMissCounter(uuid);
+      }
+
       return parseAccountJson(json, uuid);
     } catch (final RedisException e) {
       logger.warn("Redis failure", e);
@@ -1039,7 +1478,13 @@ public class AccountsManager {
 
   private CompletableFuture<Optional<Account>> redisGetByAccountIdentifierAsync(final UUID uuid) {
     return cacheCluster.withCluster(connection -> connection.async().get(getAccountEntityKey(uuid)))
-        .thenApply(accountJson -> parseAccountJson(accountJson, uuid))
+        .thenApply(accountJson -> {
+          if (accountJson == null) {
+            incrementAccountCacheMissCounter(uuid);
+          }
+
+          return parseAccountJson(accountJson, uuid);
+        })
         .exceptionally(throwable -> {
           logger.warn("Failed to retrieve account from Redis", throwable);
           return Optional.empty();
@@ -1047,6 +1492,16 @@ public class AccountsManager {
         .toCompletableFuture();
   }
 
+  /**
+   * Counts a cache miss for the given account, noting whether the miss may have been caused by an update on this
+   * instance that removed the account from the cache.
+   */
+  private void incrementAccountCacheMissCounter(final UUID uuid) {
+    Metrics.counter(ACCOUNT_CACHE_MISS_COUNTER_NAME,
+            UPDATE_IN_PROGRESS_TAG_NAME, String.valueOf(cacheInvalidatingUpdatesInProgress.containsKey(uuid)))
+        .increment();
+  }
+
   @VisibleForTesting
   static Optional<Account> parseAccountJson(@Nullable final String accountJson, final UUID uuid) {
     try {
@@ -1079,7 +1534,9 @@ public class AccountsManager {
         connection.sync().del(
             getAccountMapKey(account.getNumber()),
             getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
-            getAccountEntityKey(account.getUuid()));
+            getAccountEntityKey(account.getUuid()),
+            getIdentityKeyFingerprintKey(new AciServiceIdentifier(account.getUuid())),
+            getIdentityKeyFingerprintKey(new PniServiceIdentifier(account.getPhoneNumberIdentifier())));
 
         account.getUsernameHash().ifPresent(usernameHash -> connection.sync().del(getUsernameHashAccountMapKey(usernameHash)));
       });
@@ -1089,10 +1546,12 @@ public class AccountsManager {
   private CompletableFuture<Void> redisDeleteAsync(final Account account) {
     @SuppressWarnings("resource") final Timer.Context timerContext = redisDeleteTimer.time();
 
-    final List<String> keysToDelete = new ArrayList<>(4);
+    final List<String> keysToDelete = new ArrayList<>(6);
     keysToDelete.add(getAccountMapKey(account.getNumber()));
     keysToDelete.add(getAccountMapKey(account.getPhoneNumberIdentifier().toString()));
     keysToDelete.add(getAccountEntityKey(account.getUuid()));
+    keysToDelete.add(getIdentityKeyFingerprintKey(new AciServiceIdentifier(account.getUuid())));
+    keysToDelete.add(getIdentityKeyFingerprintKey(new PniServiceIdentifier(account.getPhoneNumberIdentifier())));
 
     account.getUsernameHash().ifPresent(usernameHash -> keysToDelete.add(getUsernameHashAccountMapKey(usernameHash)));
 
@@ -5,16 +5,20 @@
 package org.whispersystems.textsecuregcm.storage;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Base64;
 import java.util.List;
 import java.util.OptionalInt;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import javax.annotation.Nullable;
+import org.signal.libsignal.protocol.InvalidKeyException;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.util.ECPublicKeyAdapter;
 import org.whispersystems.textsecuregcm.util.Util;
 
 public class Device {
@@ -61,11 +65,22 @@ public class Device {
   @JsonProperty("pniRegistrationId")
   private Integer phoneNumberIdentityRegistrationId;
 
-  @JsonProperty
-  private ECSignedPreKey signedPreKey;
+  // Like identity keys, signed pre-keys are stored in their encoded form and only decoded when requested
+  @JsonProperty("signedPreKey")
+  @Nullable
+  private EncodedSignedPreKey encodedSignedPreKey;
 
   @JsonProperty("pniSignedPreKey")
-  private ECSignedPreKey phoneNumberIdentitySignedPreKey;
+  @Nullable
+  private EncodedSignedPreKey encodedPhoneNumberIdentitySignedPreKey;
+
+  @JsonIgnore
+  @Nullable
+  private ECSignedPreKey decodedSignedPreKey;
+
+  @JsonIgnore
+  @Nullable
+  private ECSignedPreKey decodedPhoneNumberIdentitySignedPreKey;
 
   @JsonProperty
   private long lastSeen;
@@ -199,8 +214,8 @@ public class Device {
   public boolean isEnabled() {
     boolean hasChannel = fetchesMessages || !Util.isEmpty(getApnId()) || !Util.isEmpty(getGcmId());
 
-    return (id == MASTER_ID && hasChannel && signedPreKey != null) ||
-           (id != MASTER_ID && hasChannel && signedPreKey != null && lastSeen > (System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+    return (id == MASTER_ID && hasChannel && encodedSignedPreKey != null) ||
+           (id != MASTER_ID && hasChannel && encodedSignedPreKey != null && lastSeen > (System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
   }
 
   public boolean getFetchesMessages() {
@@ -232,18 +247,36 @@ public class Device {
   }
 
   public ECSignedPreKey getSignedPreKey(final IdentityType identityType) {
+    // Decoded keys are immutable, so racing threads at worst decode the same key twice
     return switch (identityType) {
-      case ACI -> signedPreKey;
-      case PNI -> phoneNumberIdentitySignedPreKey;
+      case ACI -> {
+        if (decodedSignedPreKey == null && encodedSignedPreKey != null) {
+          decodedSignedPreKey = encodedSignedPreKey.decode();
+        }
+
+        yield decodedSignedPreKey;
+      }
+      case PNI -> {
+        if (decodedPhoneNumberIdentitySignedPreKey == null && encodedPhoneNumberIdentitySignedPreKey != null) {
+          decodedPhoneNumberIdentitySignedPreKey = encodedPhoneNumberIdentitySignedPreKey.decode();
+        }
+
+        yield decodedPhoneNumberIdentitySignedPreKey;
+      }
     };
   }
 
   public void setSignedPreKey(ECSignedPreKey signedPreKey) {
-    this.signedPreKey = signedPreKey;
+    this.encodedSignedPreKey = signedPreKey != null ? new EncodedSignedPreKey(signedPreKey) : null;
+    this.decodedSignedPreKey = signedPreKey;
   }
 
   public void setPhoneNumberIdentitySignedPreKey(final ECSignedPreKey phoneNumberIdentitySignedPreKey) {
-    this.phoneNumberIdentitySignedPreKey = phoneNumberIdentitySignedPreKey;
+    this.encodedPhoneNumberIdentitySignedPreKey = phoneNumberIdentitySignedPreKey != null
+        ? new EncodedSignedPreKey(phoneNumberIdentitySignedPreKey)
+        : null;
+
+    this.decodedPhoneNumberIdentitySignedPreKey = phoneNumberIdentitySignedPreKey;
   }
 
   public long getPushTimestamp() {
@@ -258,6 +291,90 @@ public class Device {
     return this.userAgent;
   }
 
+  /**
+   * Returns a deep copy of this device.
+   */
+  Device copy() {
+    final Device copy = new Device();
+
+    copy.id = id;
+    copy.name = name;
+    copy.authToken = authToken;
+    copy.salt = salt;
+    copy.gcmId = gcmId;
+    copy.apnId = apnId;
+    copy.voipApnId = voipApnId;
+    copy.pushTimestamp = pushTimestamp;
+    copy.uninstalledFeedback = uninstalledFeedback;
+    copy.fetchesMessages = fetchesMessages;
+    copy.registrationId = registrationId;
+    copy.phoneNumberIdentityRegistrationId = phoneNumberIdentityRegistrationId;
+    // Encoded signed pre-keys are immutable
+    copy.encodedSignedPreKey = encodedSignedPreKey;
+    copy.encodedPhoneNumberIdentitySignedPreKey = encodedPhoneNumberIdentitySignedPreKey;
+    copy.decodedSignedPreKey = copyOf(decodedSignedPreKey);
+    copy.decodedPhoneNumberIdentitySignedPreKey = copyOf(decodedPhoneNumberIdentitySignedPreKey);
+    copy.lastSeen = lastSeen;
+    copy.created = created;
+    copy.userAgent = userAgent;
+    // Capabilities are immutable
+    copy.capabilities = capabilities;
+
+    return copy;
+  }
+
+  @Nullable
+  private static ECSignedPreKey copyOf(@Nullable final ECSignedPreKey signedPreKey) {
+    if (signedPreKey == null) {
+      return null;
+    }
+
+    return new ECSignedPreKey(signedPreKey.keyId(), signedPreKey.publicKey(),
+        signedPreKey.signature() != null ? signedPreKey.signature().clone() : null);
+  }
+
+  /**
+   * A signed pre-key as it appears in stored device JSON. The encoding matches the JSON representation of
+   * {@link ECSignedPreKey}, so stored devices can be read and written either way.
+   */
+  private static class EncodedSignedPreKey {
+
+    @JsonProperty
+    private long keyId;
+
+    @JsonProperty
+    @Nullable
+    private String publicKey;
+
+    @JsonProperty
+    @Nullable
+    private String signature;
+
+    @SuppressWarnings("unused")
+    private EncodedSignedPreKey() {
+    }
+
+    private EncodedSignedPreKey(final ECSignedPreKey signedPreKey) {
+      this.keyId = signedPreKey.keyId();
+      this.publicKey = signedPreKey.publicKey() != null
+          ? Base64.getEncoder().encodeToString(signedPreKey.publicKey().serialize())
+          : null;
+      this.signature = signedPreKey.signature() != null
+          ? Base64.getEncoder().withoutPadding().encodeToString(signedPreKey.signature())
+          : null;
+    }
+
+    private ECSignedPreKey decode() {
+      try {
+        return new ECSignedPreKey(keyId,
+            publicKey != null ? ECPublicKeyAdapter.decode(publicKey) : null,
+            signature != null ? Base64.getDecoder().decode(signature) : null);
+      } catch (final IllegalArgumentException | InvalidKeyException e) {
+        throw new IllegalStateException("Stored signed pre-key could not be decoded", e);
+      }
+    }
+  }
+
   public record DeviceCapabilities(boolean storage, boolean transfer, boolean pni, boolean paymentActivation) {
   }
 }
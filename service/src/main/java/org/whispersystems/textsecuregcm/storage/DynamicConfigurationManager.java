@@ -11,9 +11,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
@@ -28,6 +31,13 @@ import software.amazon.awssdk.services.appconfigdata.model.GetLatestConfiguratio
 import software.amazon.awssdk.services.appconfigdata.model.StartConfigurationSessionRequest;
 import software.amazon.awssdk.services.appconfigdata.model.StartConfigurationSessionResponse;
 
+/**
+ * Polls AWS AppConfig for dynamic configuration and publishes each parsed configuration as an immutable, versioned
+ * snapshot. Readers never block once the initial configuration has been retrieved; they simply read the most recently
+ * published snapshot.
+ *
+ * @param <T> the type of the dynamic configuration
+ */
 public class DynamicConfigurationManager<T> {
 
   private final String application;
@@ -36,16 +46,19 @@ public class DynamicConfigurationManager<T> {
   private final AppConfigDataClient appConfigClient;
   private final Class<T> configurationClass;
 
-  // Set on initial config fetch
-  private final AtomicReference<T> configuration = new AtomicReference<>();
+  // Set on initial config fetch and replaced wholesale whenever a new configuration is retrieved
+  private volatile ConfigurationSnapshot<T> snapshot = null;
+  private final CountDownLatch initialized = new CountDownLatch(1);
   private String configurationToken = null;
-  private boolean initialized = false;
+
+  private final List<Consumer<ConfigurationSnapshot<T>>> changeListeners = new CopyOnWriteArrayList<>();
 
   private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
 
   private static final String ERROR_COUNTER_NAME = name(DynamicConfigurationManager.class, "error");
   private static final String ERROR_TYPE_TAG_NAME = "type";
   private static final String CONFIG_CLASS_TAG_NAME = "configClass";
+  private static final String LISTENER_ERROR_COUNTER_NAME = name(DynamicConfigurationManager.class, "listenerError");
 
   private static final Logger logger = LoggerFactory.getLogger(DynamicConfigurationManager.class);
 
@@ -70,26 +83,89 @@ public class DynamicConfigurationManager<T> {
     this.configurationClass = configurationClass;
   }
 
+  /**
+   * An immutable view of a parsed dynamic configuration.
+   *
+   * @param configuration the parsed configuration
+   * @param version a version number for this snapshot; versions increase monotonically each time a new configuration
+   *                is published, and dependents may use them to key objects derived from a specific snapshot
+   * @param <T> the type of the dynamic configuration
+   */
+  public record ConfigurationSnapshot<T>(T configuration, long version) {
+  }
+
+  /**
+   * Returns the most recently published configuration, blocking only if no configuration has been published yet.
+   *
+   * @return the current dynamic configuration
+   */
   public T getConfiguration() {
-    synchronized (this) {
-      while (!initialized) {
-        Util.wait(this);
+    return getConfigurationSnapshot().configuration();
+  }
+
+  /**
+   * Returns the most recently published configuration snapshot, blocking only if no configuration has been published
+   * yet.
+   *
+   * @return the current dynamic configuration snapshot
+   */
+  public ConfigurationSnapshot<T> getConfigurationSnapshot() {
+    final ConfigurationSnapshot<T> currentSnapshot = snapshot;
+
+    if (currentSnapshot != null) {
+      return currentSnapshot;
+    }
+
+    try {
+      initialized.await();
+    } catch (final InterruptedException e) {
+      throw new AssertionError(e);
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Registers a listener to be notified each time a new configuration snapshot is published. Listeners are called on
+   * the configuration polling thread and should return quickly; they are not notified of snapshots published before
+   * they were registered.
+   *
+   * @param listener the listener to notify of new configuration snapshots
+   */
+  public void addChangeListener(final Consumer<ConfigurationSnapshot<T>> listener) {
+    changeListeners.add(listener);
+  }
+
+  public void removeChangeListener(final Consumer<ConfigurationSnapshot<T>> listener) {
+    changeListeners.remove(listener);
+  }
+
+  @VisibleForTesting
+  synchronized void publish(final T configuration) {
+    final ConfigurationSnapshot<T> previousSnapshot = snapshot;
+    final ConfigurationSnapshot<T> newSnapshot =
+        new ConfigurationSnapshot<>(configuration, previousSnapshot == null ? 0 : previousSnapshot.version() + 1);
+
+    snapshot = newSnapshot;
+    initialized.countDown();
+
+    for (final Consumer<ConfigurationSnapshot<T>> listener : changeListeners) {
+      try {
+        listener.accept(newSnapshot);
+      } catch (final RuntimeException e) {
+        Metrics.counter(LISTENER_ERROR_COUNTER_NAME, CONFIG_CLASS_TAG_NAME, configurationClass.getName()).increment();
+        logger.warn("Dynamic configuration change listener failed", e);
       }
     }
-    return configuration.get();
   }
 
   public void start() {
-    configuration.set(retrieveInitialDynamicConfiguration());
-    synchronized (this) {
-      this.initialized = true;
-      this.notifyAll();
-    }
+    publish(retrieveInitialDynamicConfiguration());
 
     final Thread workerThread = new Thread(() -> {
       while (true) {
         try {
-          retrieveDynamicConfiguration().ifPresent(configuration::set);
+          retrieveDynamicConfiguration().ifPresent(this::publish);
         } catch (Exception e) {
           logger.warn("Error retrieving dynamic configuration", e);
         }
@@ -10,14 +10,18 @@ import static com.codahale.metrics.MetricRegistry.name;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.DataSize;
 import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.ZAddArgs;
 import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.models.partitions.Partitions;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -27,21 +31,21 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.IntStream;
 import java.util.stream.Collectors;
-import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.MessageCacheConfiguration;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
@@ -58,8 +62,9 @@ import reactor.core.scheduler.Schedulers;
 public class MessagesCache extends RedisClusterPubSubAdapter<String, String> implements Managed {
 
   private final FaultTolerantRedisCluster readDeleteCluster;
-  private final FaultTolerantPubSubConnection<String, String> pubSubConnection;
+  private final List<PubSubShard> pubSubShards;
   private final Clock clock;
+  private final long earlyPersistenceQueueSizeBytes;
 
   private final ExecutorService notificationExecutorService;
   private final Scheduler messageDeliveryScheduler;
@@ -73,9 +78,6 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
   private final ClusterLuaScript removeQueueScript;
   private final ClusterLuaScript getQueuesToPersistScript;
 
-  private final Map<String, MessageAvailabilityListener> messageListenersByQueueName = new HashMap<>();
-  private final Map<MessageAvailabilityListener, String> queueNamesByMessageListener = new IdentityHashMap<>();
-
   private final Timer insertTimer = Metrics.timer(name(MessagesCache.class, "insert"));
   private final Timer getMessagesTimer = Metrics.timer(name(MessagesCache.class, "get"));
   private final Timer getQueuesToPersistTimer = Metrics.timer(name(MessagesCache.class, "getQueuesToPersist"));
@@ -87,10 +89,29 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
       name(MessagesCache.class, "queuePersisted"));
   private final Counter staleEphemeralMessagesCounter = Metrics.counter(
       name(MessagesCache.class, "staleEphemeralMessages"));
+  private final Counter earlyPersistenceQueueCounter = Metrics.counter(
+      name(MessagesCache.class, "earlyPersistenceQueue"));
+  private final DistributionSummary queueSizeBytesDistribution = DistributionSummary.builder(
+          name(MessagesCache.class, "queueSizeBytes"))
+      .baseUnit("bytes")
+      .register(Metrics.globalRegistry);
+  private final DistributionSummary queueMessageCountDistribution = Metrics.summary(
+      name(MessagesCache.class, "queueMessageCount"));
 
   static final String NEXT_SLOT_TO_PERSIST_KEY = "user_queue_persist_slot";
   private static final byte[] LOCK_VALUE = "1".getBytes(StandardCharsets.UTF_8);
 
+  @VisibleForTesting
+  static final int DEFAULT_PUB_SUB_CONNECTIONS = 4;
+
+  private static final String CONNECTION_LISTENERS_GAUGE_NAME = name(MessagesCache.class, "connectionListeners");
+  private static final String SUBSCRIPTION_LATENCY_TIMER_NAME = name(MessagesCache.class, "subscriptionLatency");
+  private static final String SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME =
+      name(MessagesCache.class, "subscriptionBatchSize");
+
+  private static final String CONNECTION_TAG_NAME = "connection";
+  private static final String OPERATION_TAG_NAME = "operation";
+
   private static final String QUEUE_KEYSPACE_PREFIX = "__keyspace@0__:user_queue::";
   private static final String PERSISTING_KEYSPACE_PREFIX = "__keyspace@0__:user_queue_persisting::";
 
@@ -106,16 +127,42 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
       final ExecutorService notificationExecutorService, final Scheduler messageDeliveryScheduler,
       final ExecutorService messageDeletionExecutorService, final Clock clock) throws IOException {
 
+    this(insertCluster, readDeleteCluster, notificationExecutorService, messageDeliveryScheduler,
+        messageDeletionExecutorService, clock, MessageCacheConfiguration.DEFAULT_EARLY_PERSISTENCE_QUEUE_SIZE);
+  }
+
+  /**
+   * @param earlyPersistenceQueueSize queues holding more than this many bytes of messages are made eligible for
+   * persistence immediately rather than after the message persister's usual delay
+   */
+  public MessagesCache(final FaultTolerantRedisCluster insertCluster, final FaultTolerantRedisCluster readDeleteCluster,
+      final ExecutorService notificationExecutorService, final Scheduler messageDeliveryScheduler,
+      final ExecutorService messageDeletionExecutorService, final Clock clock,
+      final DataSize earlyPersistenceQueueSize) throws IOException {
+
+    this(insertCluster, readDeleteCluster, notificationExecutorService, messageDeliveryScheduler,
+        messageDeletionExecutorService, clock, earlyPersistenceQueueSize, DEFAULT_PUB_SUB_CONNECTIONS);
+  }
+
+  @VisibleForTesting
+  MessagesCache(final FaultTolerantRedisCluster insertCluster, final FaultTolerantRedisCluster readDeleteCluster,
+      final ExecutorService notificationExecutorService, final Scheduler messageDeliveryScheduler,
+      final ExecutorService messageDeletionExecutorService, final Clock clock,
+      final DataSize earlyPersistenceQueueSize, final int pubSubConnections) throws IOException {
+
     this.readDeleteCluster = readDeleteCluster;
-    this.pubSubConnection = readDeleteCluster.createPubSubConnection();
+    this.pubSubShards = IntStream.range(0, pubSubConnections)
+        .mapToObj(i -> new PubSubShard(i, readDeleteCluster.createPubSubConnection()))
+        .toList();
     this.clock = clock;
+    this.earlyPersistenceQueueSizeBytes = earlyPersistenceQueueSize.toBytes();
 
     this.notificationExecutorService = notificationExecutorService;
     this.messageDeliveryScheduler = messageDeliveryScheduler;
     this.messageDeletionExecutorService = messageDeletionExecutorService;
     this.messageDeletionScheduler = Schedulers.fromExecutorService(messageDeletionExecutorService, "messageDeletion");
 
-    this.insertScript = ClusterLuaScript.fromResource(insertCluster, "lua/insert_item.lua", ScriptOutputType.INTEGER);
+    this.insertScript = ClusterLuaScript.fromResource(insertCluster, "lua/insert_item.lua", ScriptOutputType.MULTI);
     this.removeByGuidScript = ClusterLuaScript.fromResource(readDeleteCluster, "lua/remove_item_by_guid.lua",
         ScriptOutputType.MULTI);
     this.getItemsScript = ClusterLuaScript.fromResource(readDeleteCluster, "lua/get_items.lua", ScriptOutputType.MULTI);
@@ -127,38 +174,74 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
 
   @Override
   public void start() {
-    pubSubConnection.usePubSubConnection(connection -> connection.addListener(this));
-    pubSubConnection.subscribeToClusterTopologyChangedEvents(this::resubscribeAll);
+    for (final PubSubShard shard : pubSubShards) {
+      shard.pubSubConnection.usePubSubConnection(connection -> connection.addListener(this));
+      shard.pubSubConnection.subscribeToClusterTopologyChangedEvents(shard::resubscribeAll);
+    }
   }
 
   @Override
   public void stop() {
-    pubSubConnection.usePubSubConnection(connection -> connection.sync().upstream().commands().unsubscribe());
+    for (final PubSubShard shard : pubSubShards) {
+      shard.pubSubConnection.usePubSubConnection(
+          connection -> connection.sync().upstream().commands().unsubscribe());
+    }
   }
 
-  private void resubscribeAll() {
-
-    final Set<String> queueNames;
+  @SuppressWarnings("unchecked")
+  public long insert(final UUID guid, final UUID destinationUuid, final long destinationDevice,
+      final MessageProtos.Envelope message) {
 
-    synchronized (messageListenersByQueueName) {
-      queueNames = new HashSet<>(messageListenersByQueueName.keySet());
-    }
+    final List<Long> result = (List<Long>) insertTimer.record(() ->
+        insertScript.executeBinary(getInsertKeys(destinationUuid, destinationDevice), getInsertArgs(guid, message)));
 
-    for (final String queueName : queueNames) {
-      subscribeForKeyspaceNotifications(queueName);
-    }
+    return recordInsertResult(result);
   }
 
-  public long insert(final UUID guid, final UUID destinationUuid, final long destinationDevice,
+  /**
+   * Inserts a message without waiting for the insert to complete; callers inserting messages for several devices at
+   * once can issue all of the inserts before waiting for any of them.
+   *
+   * @return a future that yields the new message's ID within its queue
+   */
+  @SuppressWarnings("unchecked")
+  public CompletableFuture<Long> insertAsync(final UUID guid, final UUID destinationUuid, final long destinationDevice,
       final MessageProtos.Envelope message) {
+
+    final Timer.Sample sample = Timer.start();
+
+    return insertScript.executeBinaryAsync(getInsertKeys(destinationUuid, destinationDevice),
+            getInsertArgs(guid, message))
+        .whenComplete((ignored, throwable) -> sample.stop(insertTimer))
+        .thenApply(result -> recordInsertResult((List<Long>) result));
+  }
+
+  private static List<byte[]> getInsertKeys(final UUID destinationUuid, final long destinationDevice) {
+    return List.of(getMessageQueueKey(destinationUuid, destinationDevice),
+        getMessageQueueMetadataKey(destinationUuid, destinationDevice),
+        getQueueIndexKey(destinationUuid, destinationDevice));
+  }
+
+  private List<byte[]> getInsertArgs(final UUID guid, final MessageProtos.Envelope message) {
     final MessageProtos.Envelope messageWithGuid = message.toBuilder().setServerGuid(guid.toString()).build();
-    return (long) insertTimer.record(() ->
-        insertScript.executeBinary(List.of(getMessageQueueKey(destinationUuid, destinationDevice),
-                getMessageQueueMetadataKey(destinationUuid, destinationDevice),
-                getQueueIndexKey(destinationUuid, destinationDevice)),
-            List.of(messageWithGuid.toByteArray(),
-                String.valueOf(message.getServerTimestamp()).getBytes(StandardCharsets.UTF_8),
-                guid.toString().getBytes(StandardCharsets.UTF_8))));
+
+    return List.of(messageWithGuid.toByteArray(),
+        String.valueOf(message.getServerTimestamp()).getBytes(StandardCharsets.UTF_8),
+        guid.toString().getBytes(StandardCharsets.UTF_8),
+        String.valueOf(earlyPersistenceQueueSizeBytes).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private long recordInsertResult(final List<Long> result) {
+    // The insert script returns the new message's ID along with the size of its queue in bytes and in messages, and
+    // whether the insert pushed the queue past the early persistence threshold
+    queueSizeBytesDistribution.record(result.get(1));
+    queueMessageCountDistribution.record(result.get(2));
+
+    if (result.get(3) == 1) {
+      earlyPersistenceQueueCounter.increment();
+    }
+
+    return result.get(0);
   }
 
   public CompletableFuture<Optional<MessageProtos.Envelope>> remove(final UUID destinationUuid,
@@ -201,12 +284,15 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         connection -> connection.sync().zcard(getMessageQueueKey(destinationUuid, destinationDevice)) > 0);
   }
 
-  public Publisher<MessageProtos.Envelope> get(final UUID destinationUuid, final long destinationDevice) {
+  /**
+   * Returns the messages in the given device's queue, each along with the bytes from which it was parsed.
+   */
+  public Publisher<StoredEnvelope> get(final UUID destinationUuid, final long destinationDevice) {
 
     final long earliestAllowableEphemeralTimestamp =
         clock.millis() - MAX_EPHEMERAL_MESSAGE_DELAY.toMillis();
 
-    final Flux<MessageProtos.Envelope> allMessages = getAllMessages(destinationUuid, destinationDevice)
+    final Flux<StoredEnvelope> allMessages = getAllMessages(destinationUuid, destinationDevice)
         .publish()
         // We expect exactly two subscribers to this base flux:
         // 1. the websocket that delivers messages to clients
@@ -215,10 +301,11 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         // websocket never subscribes.
         .autoConnect(2);
 
-    final Flux<MessageProtos.Envelope> messagesToPublish = allMessages
-        .filter(Predicate.not(envelope -> isStaleEphemeralMessage(envelope, earliestAllowableEphemeralTimestamp)));
+    final Flux<StoredEnvelope> messagesToPublish = allMessages
+        .filter(Predicate.not(stored -> isStaleEphemeralMessage(stored.envelope(), earliestAllowableEphemeralTimestamp)));
 
     final Flux<MessageProtos.Envelope> staleEphemeralMessages = allMessages
+        .map(StoredEnvelope::envelope)
         .filter(envelope -> isStaleEphemeralMessage(envelope, earliestAllowableEphemeralTimestamp));
 
     discardStaleEphemeralMessages(destinationUuid, destinationDevice, staleEphemeralMessages);
@@ -245,7 +332,7 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
   }
 
   @VisibleForTesting
-  Flux<MessageProtos.Envelope> getAllMessages(final UUID destinationUuid, final long destinationDevice) {
+  Flux<StoredEnvelope> getAllMessages(final UUID destinationUuid, final long destinationDevice) {
 
     // fetch messages by page
     return getNextMessagePage(destinationUuid, destinationDevice, -1)
@@ -262,13 +349,13 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         .publishOn(messageDeliveryScheduler)
         .map(Pair::first)
         .flatMapIterable(queueItems -> {
-          final List<MessageProtos.Envelope> envelopes = new ArrayList<>(queueItems.size() / 2);
+          final List<StoredEnvelope> envelopes = new ArrayList<>(queueItems.size() / 2);
 
           for (int i = 0; i < queueItems.size() - 1; i += 2) {
             try {
-              final MessageProtos.Envelope message = MessageProtos.Envelope.parseFrom(queueItems.get(i));
+              final byte[] storedBytes = queueItems.get(i);
 
-              envelopes.add(message);
+              envelopes.add(new StoredEnvelope(MessageProtos.Envelope.parseFrom(storedBytes), storedBytes));
             } catch (InvalidProtocolBufferException e) {
               logger.warn("Failed to parse envelope", e);
             }
@@ -378,50 +465,43 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
         connection -> connection.sync().del(getPersistInProgressKey(accountUuid, deviceId)));
   }
 
-  public void addMessageAvailabilityListener(final UUID destinationUuid, final long deviceId,
+  /**
+   * Registers a listener for new messages in and persistence of the given device's message queue. Any listener
+   * previously registered for the same queue is replaced.
+   *
+   * @return a future that completes once the keyspace notification subscriptions for the queue are active;
+   * notifications for changes made before the future completes may not be delivered
+   */
+  public CompletableFuture<Void> addMessageAvailabilityListener(final UUID destinationUuid, final long deviceId,
       final MessageAvailabilityListener listener) {
     final String queueName = getQueueName(destinationUuid, deviceId);
+    final PubSubShard shard = getShard(queueName);
 
-    synchronized (messageListenersByQueueName) {
-      messageListenersByQueueName.put(queueName, listener);
-      queueNamesByMessageListener.put(listener, queueName);
-    }
+    shard.listenersByQueueName.put(queueName, listener);
 
-    subscribeForKeyspaceNotifications(queueName);
+    return shard.subscribe(queueName);
   }
 
-  public void removeMessageAvailabilityListener(final MessageAvailabilityListener listener) {
-    @Nullable final String queueName;
-    synchronized (messageListenersByQueueName) {
-      queueName = queueNamesByMessageListener.get(listener);
-    }
-
-    if (queueName != null) {
-      unsubscribeFromKeyspaceNotifications(queueName);
-
-      synchronized (messageListenersByQueueName) {
-        queueNamesByMessageListener.remove(listener);
-        messageListenersByQueueName.remove(queueName);
-      }
-    }
+  /**
+   * Removes the given listener for the given device's message queue. Does nothing if the listener has since been
+   * replaced by another listener for the same queue.
+   */
+  public void removeMessageAvailabilityListener(final UUID destinationUuid, final long deviceId,
+      final MessageAvailabilityListener listener) {
+    removeMessageAvailabilityListener(getQueueName(destinationUuid, deviceId), listener);
   }
 
-  private void subscribeForKeyspaceNotifications(final String queueName) {
-    final int slot = SlotHash.getSlot(queueName);
+  private void removeMessageAvailabilityListener(final String queueName, final MessageAvailabilityListener listener) {
+    final PubSubShard shard = getShard(queueName);
 
-    pubSubConnection.usePubSubConnection(
-        connection -> connection.sync().nodes(node -> node.is(RedisClusterNode.NodeFlag.UPSTREAM) && node.hasSlot(slot))
-            .commands()
-            .subscribe(getKeyspaceChannels(queueName)));
+    // If another listener has replaced this one, the queue's subscriptions must stay in place
+    if (shard.listenersByQueueName.remove(queueName, listener)) {
+      shard.unsubscribe(queueName);
+    }
   }
 
-  private void unsubscribeFromKeyspaceNotifications(final String queueName) {
-    final int slot = SlotHash.getSlot(queueName);
-
-    pubSubConnection.usePubSubConnection(
-        connection -> connection.sync().nodes(node -> node.is(RedisClusterNode.NodeFlag.UPSTREAM) && node.hasSlot(slot))
-            .commands()
-            .unsubscribe(getKeyspaceChannels(queueName)));
+  private PubSubShard getShard(final String queueName) {
+    return pubSubShards.get(SlotHash.getSlot(queueName) % pubSubShards.size());
   }
 
   private static String[] getKeyspaceChannels(final String queueName) {
@@ -439,9 +519,11 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
       newMessageNotificationCounter.increment();
       notificationExecutorService.execute(() -> {
         try {
-          findListener(channel).ifPresent(listener -> {
+          final String queueName = getQueueNameFromKeyspaceChannel(channel);
+
+          findListener(queueName).ifPresent(listener -> {
             if (!listener.handleNewMessagesAvailable()) {
-              removeMessageAvailabilityListener(listener);
+              removeMessageAvailabilityListener(queueName, listener);
             }
           });
         } catch (final Exception e) {
@@ -452,9 +534,11 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
       queuePersistedNotificationCounter.increment();
       notificationExecutorService.execute(() -> {
         try {
-          findListener(channel).ifPresent(listener -> {
+          final String queueName = getQueueNameFromKeyspaceChannel(channel);
+
+          findListener(queueName).ifPresent(listener -> {
             if (!listener.handleMessagesPersisted()) {
-              removeMessageAvailabilityListener(listener);
+              removeMessageAvailabilityListener(queueName, listener);
             }
           });
         } catch (final Exception e) {
@@ -464,12 +548,8 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
     }
   }
 
-  private Optional<MessageAvailabilityListener> findListener(final String keyspaceChannel) {
-    final String queueName = getQueueNameFromKeyspaceChannel(keyspaceChannel);
-
-    synchronized (messageListenersByQueueName) {
-      return Optional.ofNullable(messageListenersByQueueName.get(queueName));
-    }
+  private Optional<MessageAvailabilityListener> findListener(final String queueName) {
+    return Optional.ofNullable(getShard(queueName).listenersByQueueName.get(queueName));
   }
 
   @VisibleForTesting
@@ -515,4 +595,203 @@ public class MessagesCache extends RedisClusterPubSubAdapter<String, String> imp
   static long getDeviceIdFromQueueName(final String queueName) {
     return Long.parseLong(queueName.substring(queueName.lastIndexOf("::") + 2, queueName.lastIndexOf('}')));
   }
+
+  /**
+   * A single pub/sub connection, the listeners whose keyspace notifications arrive over it, and the subscription changes
+   * waiting to be sent over it. Subscription changes are sent asynchronously in batches: while a batch for a connection
+   * is in flight, further changes for that connection accumulate and are sent together once the batch completes.
+   */
+  private class PubSubShard {
+
+    private final FaultTolerantPubSubConnection<String, String> pubSubConnection;
+    private final Map<String, MessageAvailabilityListener> listenersByQueueName = new ConcurrentHashMap<>();
+
+    private final Timer subscribeTimer;
+    private final Timer unsubscribeTimer;
+    private final DistributionSummary subscribeBatchSize;
+    private final DistributionSummary unsubscribeBatchSize;
+
+    // Guarded by this shard's monitor
+    private Map<String, CompletableFuture<Void>> pendingSubscriptions = new HashMap<>();
+    private Map<String, CompletableFuture<Void>> pendingUnsubscriptions = new HashMap<>();
+    private boolean flushInProgress = false;
+
+    private PubSubShard(final int index, final FaultTolerantPubSubConnection<String, String> pubSubConnection) {
+      this.pubSubConnection = pubSubConnection;
+
+      final String connectionTag = String.valueOf(index);
+
+      Metrics.gaugeMapSize(CONNECTION_LISTENERS_GAUGE_NAME, Tags.of(CONNECTION_TAG_NAME, connectionTag),
+          listenersByQueueName);
+
+      subscribeTimer = Timer.builder(SUBSCRIPTION_LATENCY_TIMER_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "subscribe")
+          .publishPercentileHistogram()
+          .register(Metrics.globalRegistry);
+
+      unsubscribeTimer = Timer.builder(SUBSCRIPTION_LATENCY_TIMER_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "unsubscribe")
+          .publishPercentileHistogram()
+          .register(Metrics.globalRegistry);
+
+      subscribeBatchSize = DistributionSummary.builder(SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "subscribe")
+          .register(Metrics.globalRegistry);
+
+      unsubscribeBatchSize = DistributionSummary.builder(SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_NAME)
+          .tags(CONNECTION_TAG_NAME, connectionTag, OPERATION_TAG_NAME, "unsubscribe")
+          .register(Metrics.globalRegistry);
+    }
+
+    CompletableFuture<Void> subscribe(final String queueName) {
+      final CompletableFuture<Void> subscribeFuture;
+
+      synchronized (this) {
+        final CompletableFuture<Void> pendingUnsubscribeFuture = pendingUnsubscriptions.remove(queueName);
+
+        if (pendingUnsubscribeFuture != null) {
+          // We haven't actually unsubscribed yet, so the existing subscriptions are still good
+          pendingUnsubscribeFuture.complete(null);
+          return CompletableFuture.completedFuture(null);
+        }
+
+        subscribeFuture = pendingSubscriptions.computeIfAbsent(queueName, ignored -> new CompletableFuture<>());
+      }
+
+      flush();
+
+      return subscribeFuture;
+    }
+
+    CompletableFuture<Void> unsubscribe(final String queueName) {
+      final CompletableFuture<Void> unsubscribeFuture;
+
+      synchronized (this) {
+        if (listenersByQueueName.containsKey(queueName)) {
+          // A new listener arrived for this queue after the old one was removed and needs the subscriptions to stay
+          return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> pendingSubscribeFuture = pendingSubscriptions.remove(queueName);
+
+        if (pendingSubscribeFuture != null) {
+          // We never actually subscribed, so there's nothing to undo
+          pendingSubscribeFuture.complete(null);
+          return CompletableFuture.completedFuture(null);
+        }
+
+        unsubscribeFuture = pendingUnsubscriptions.computeIfAbsent(queueName, ignored -> new CompletableFuture<>());
+      }
+
+      flush();
+
+      return unsubscribeFuture;
+    }
+
+    void resubscribeAll() {
+      final List<CompletableFuture<Void>> subscribeFutures = listenersByQueueName.keySet().stream()
+          .map(this::subscribe)
+          .toList();
+
+      // Wait for the resubscription to finish so failures propagate to (and are retried by) the topology change handler
+      CompletableFuture.allOf(subscribeFutures.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Sends all pending subscription changes for this connection unless a previous batch is still in flight, in which
+     * case the pending changes will be sent when that batch completes.
+     */
+    private void flush() {
+      final Map<String, CompletableFuture<Void>> subscriptions;
+      final Map<String, CompletableFuture<Void>> unsubscriptions;
+
+      synchronized (this) {
+        if (flushInProgress || (pendingSubscriptions.isEmpty() && pendingUnsubscriptions.isEmpty())) {
+          return;
+        }
+
+        flushInProgress = true;
+
+        subscriptions = pendingSubscriptions;
+        unsubscriptions = pendingUnsubscriptions;
+
+        pendingSubscriptions = new HashMap<>();
+        pendingUnsubscriptions = new HashMap<>();
+      }
+
+      // Pub/sub commands on a single node connection are processed in order, so there's no need to wait for the
+      // subscription batch to complete before sending the unsubscription batch
+      CompletableFuture.allOf(
+              execute(subscriptions, subscribeTimer, subscribeBatchSize, true),
+              execute(unsubscriptions, unsubscribeTimer, unsubscribeBatchSize, false))
+          .whenComplete((ignored, throwable) -> {
+            synchronized (this) {
+              flushInProgress = false;
+            }
+
+            flush();
+          });
+    }
+
+    private CompletableFuture<Void> execute(final Map<String, CompletableFuture<Void>> batch,
+        final Timer timer,
+        final DistributionSummary batchSize,
+        final boolean subscribe) {
+
+      if (batch.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      batchSize.record(batch.size());
+      final long start = System.nanoTime();
+
+      CompletableFuture<Void> commandFuture;
+
+      try {
+        commandFuture = pubSubConnection.withPubSubConnection(connection -> {
+          // Keyspace notifications are only published by the node that holds the key, so each queue's channels have to
+          // be (un)subscribed on that node; send one command per node for the whole batch
+          final Partitions partitions = connection.getPartitions();
+          final Map<String, List<String>> channelsByNodeId = new HashMap<>();
+
+          for (final String queueName : batch.keySet()) {
+            final RedisClusterNode node = partitions.getPartitionBySlot(SlotHash.getSlot(queueName));
+
+            if (node == null) {
+              throw new IllegalStateException("No node holds slot for queue " + queueName);
+            }
+
+            Collections.addAll(channelsByNodeId.computeIfAbsent(node.getNodeId(), ignored -> new ArrayList<>()),
+                getKeyspaceChannels(queueName));
+          }
+
+          return CompletableFuture.allOf(channelsByNodeId.entrySet().stream()
+              .map(entry -> {
+                final String[] channels = entry.getValue().toArray(String[]::new);
+
+                return connection.getConnectionAsync(entry.getKey())
+                    .thenCompose(nodeConnection -> subscribe
+                        ? nodeConnection.async().subscribe(channels)
+                        : nodeConnection.async().unsubscribe(channels));
+              })
+              .toArray(CompletableFuture[]::new));
+        });
+      } catch (final Exception e) {
+        commandFuture = CompletableFuture.failedFuture(e);
+      }
+
+      return commandFuture.handle((ignored, throwable) -> {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (throwable != null) {
+          logger.warn("Failed to update keyspace notification subscriptions", throwable);
+          batch.values().forEach(future -> future.completeExceptionally(throwable));
+        } else {
+          batch.values().forEach(future -> future.complete(null));
+        }
+
+        return null;
+      });
+    }
+  }
 }
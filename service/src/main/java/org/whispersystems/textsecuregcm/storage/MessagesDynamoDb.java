@@ -56,6 +56,10 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
   @VisibleForTesting
   static final String LOCAL_INDEX_MESSAGE_UUID_KEY_SORT = "U";
 
+  // The maximum number of batch deletes to have in flight at once when deleting a whole queue
+  @VisibleForTesting
+  static final int DELETE_BATCH_CONCURRENCY = 8;
+
   private static final String KEY_TTL = "E";
   private static final String KEY_ENVELOPE_BYTES = "EB";
 
@@ -219,7 +223,7 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
 
     final AttributeValue partitionKey = convertPartitionKey(destinationAccountUuid);
 
-    return Flux.from(dbAsyncClient.queryPaginator(QueryRequest.builder()
+    return deleteItemsInBatches(dbAsyncClient.queryPaginator(QueryRequest.builder()
             .tableName(tableName)
             .projectionExpression(KEY_SORT)
             .consistentRead(true)
@@ -227,16 +231,8 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
             .expressionAttributeNames(Map.of("#part", KEY_PARTITION))
             .expressionAttributeValues(Map.of(":part", partitionKey))
             .build())
-        .items())
-        .flatMap(item -> Mono.fromFuture(() -> dbAsyncClient.deleteItem(DeleteItemRequest.builder()
-            .tableName(tableName)
-            .key(Map.of(
-                KEY_PARTITION, partitionKey,
-                KEY_SORT, item.get(KEY_SORT)))
-            .build())),
-            DYNAMO_DB_MAX_BATCH_SIZE)
-        .doOnComplete(() -> sample.stop(deleteByAccount))
-        .then()
+        .items(), partitionKey)
+        .doOnSuccess(ignored -> sample.stop(deleteByAccount))
         .toFuture();
   }
 
@@ -244,7 +240,7 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
     final Timer.Sample sample = Timer.start();
     final AttributeValue partitionKey = convertPartitionKey(destinationAccountUuid);
 
-    return Flux.from(dbAsyncClient.queryPaginator(QueryRequest.builder()
+    return deleteItemsInBatches(dbAsyncClient.queryPaginator(QueryRequest.builder()
                 .tableName(tableName)
                 .keyConditionExpression("#part = :part AND begins_with ( #sort , :sortprefix )")
                 .expressionAttributeNames(Map.of(
@@ -256,19 +252,30 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
                 .projectionExpression(KEY_SORT)
                 .consistentRead(true)
                 .build())
-            .items())
-        .flatMap(item -> Mono.fromFuture(() -> dbAsyncClient.deleteItem(DeleteItemRequest.builder()
-            .tableName(tableName)
-            .key(Map.of(
-                KEY_PARTITION, partitionKey,
-                KEY_SORT, item.get(KEY_SORT)))
-            .build())),
-            DYNAMO_DB_MAX_BATCH_SIZE)
-        .doOnComplete(() -> sample.stop(deleteByDevice))
-        .then()
+            .items(), partitionKey)
+        .doOnSuccess(ignored -> sample.stop(deleteByDevice))
         .toFuture();
   }
 
+  /**
+   * Deletes the given items from the messages table, keeping at most {@link #DELETE_BATCH_CONCURRENCY} batches in
+   * flight at a time.
+   *
+   * @param items the items to delete; each must have a {@link #KEY_SORT} attribute
+   * @param partitionKey the partition key shared by all items to delete
+   *
+   * @return a {@code Mono} that completes once all batches have been processed
+   */
+  private Mono<Void> deleteItemsInBatches(final Publisher<Map<String, AttributeValue>> items,
+      final AttributeValue partitionKey) {
+
+    return deleteInBatchesAsync(dbAsyncClient, tableName,
+        Flux.from(items).map(item -> Map.of(
+            KEY_PARTITION, partitionKey,
+            KEY_SORT, item.get(KEY_SORT))),
+        DELETE_BATCH_CONCURRENCY);
+  }
+
   @VisibleForTesting
   static MessageProtos.Envelope convertItemToEnvelope(final Map<String, AttributeValue> item)
       throws InvalidProtocolBufferException {
@@ -9,11 +9,14 @@ import static com.codahale.metrics.MetricRegistry.name;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Throwables;
 import io.micrometer.core.instrument.Metrics;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.util.Constants;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.Pair;
 import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Flux;
@@ -70,6 +74,39 @@ public class MessagesManager {
     }
   }
 
+  /**
+   * Inserts messages for several devices belonging to the same destination account. All of the inserts are issued
+   * before any of them complete, so the time taken is roughly that of a single insert rather than growing with the
+   * number of devices. Each message's report hash is stored without blocking once that message has been inserted.
+   *
+   * @param destinationUuid the destination account's identifier
+   * @param messagesByDeviceId the message to insert for each destination device
+   */
+  public void insert(final UUID destinationUuid, final Map<Long, Envelope> messagesByDeviceId) {
+    final CompletableFuture<?>[] insertFutures = messagesByDeviceId.entrySet().stream()
+        .map(entry -> {
+          final UUID messageGuid = UUID.randomUUID();
+          final Envelope message = entry.getValue();
+
+          final CompletableFuture<Long> insertFuture =
+              messagesCache.insertAsync(messageGuid, destinationUuid, entry.getKey(), message);
+
+          if (message.hasSourceUuid() && !destinationUuid.toString().equals(message.getSourceUuid())) {
+            insertFuture.thenRun(() -> reportMessageManager.storeAsync(message.getSourceUuid(), messageGuid));
+          }
+
+          return insertFuture;
+        })
+        .toArray(CompletableFuture[]::new);
+
+    try {
+      CompletableFuture.allOf(insertFutures).join();
+    } catch (final CompletionException e) {
+      Throwables.throwIfUnchecked(ExceptionUtils.unwrap(e));
+      throw e;
+    }
+  }
+
   public boolean hasCachedMessages(final UUID destinationUuid, final long destinationDevice) {
     return messagesCache.hasMessages(destinationUuid, destinationDevice);
   }
@@ -80,22 +117,28 @@ public class MessagesManager {
     return Flux.from(
             getMessagesForDevice(destinationUuid, destinationDevice, RESULT_SET_CHUNK_SIZE, cachedMessagesOnly))
         .take(RESULT_SET_CHUNK_SIZE)
+        .map(StoredEnvelope::envelope)
         .collectList()
         .map(envelopes -> new Pair<>(envelopes, envelopes.size() >= RESULT_SET_CHUNK_SIZE));
   }
 
-  public Publisher<Envelope> getMessagesForDeviceReactive(UUID destinationUuid, long destinationDevice,
+  /**
+   * Returns the messages for the given device. Messages read from the cache carry the bytes from which they were
+   * parsed, so they can be delivered without being re-serialized.
+   */
+  public Publisher<StoredEnvelope> getMessagesForDeviceReactive(UUID destinationUuid, long destinationDevice,
       final boolean cachedMessagesOnly) {
 
     return getMessagesForDevice(destinationUuid, destinationDevice, null, cachedMessagesOnly);
   }
 
-  private Publisher<Envelope> getMessagesForDevice(UUID destinationUuid, long destinationDevice,
+  private Publisher<StoredEnvelope> getMessagesForDevice(UUID destinationUuid, long destinationDevice,
       @Nullable Integer limit, final boolean cachedMessagesOnly) {
 
-    final Publisher<Envelope> dynamoPublisher =
-        cachedMessagesOnly ? Flux.empty() : messagesDynamoDb.load(destinationUuid, destinationDevice, limit);
-    final Publisher<Envelope> cachePublisher = messagesCache.get(destinationUuid, destinationDevice);
+    final Publisher<StoredEnvelope> dynamoPublisher = cachedMessagesOnly
+        ? Flux.empty()
+        : Flux.from(messagesDynamoDb.load(destinationUuid, destinationDevice, limit)).map(StoredEnvelope::new);
+    final Publisher<StoredEnvelope> cachePublisher = messagesCache.get(destinationUuid, destinationDevice);
 
     return Flux.concat(dynamoPublisher, cachePublisher)
         .name(GET_MESSAGES_FOR_DEVICE_FLUX_NAME)
@@ -163,15 +206,18 @@ public class MessagesManager {
     return messagesRemovedFromCache;
   }
 
-  public void addMessageAvailabilityListener(
+  public CompletableFuture<Void> addMessageAvailabilityListener(
       final UUID destinationUuid,
       final long destinationDeviceId,
       final MessageAvailabilityListener listener) {
-    messagesCache.addMessageAvailabilityListener(destinationUuid, destinationDeviceId, listener);
+    return messagesCache.addMessageAvailabilityListener(destinationUuid, destinationDeviceId, listener);
   }
 
-  public void removeMessageAvailabilityListener(final MessageAvailabilityListener listener) {
-    messagesCache.removeMessageAvailabilityListener(listener);
+  public void removeMessageAvailabilityListener(
+      final UUID destinationUuid,
+      final long destinationDeviceId,
+      final MessageAvailabilityListener listener) {
+    messagesCache.removeMessageAvailabilityListener(destinationUuid, destinationDeviceId, listener);
   }
 
 }
@@ -22,19 +22,17 @@ import org.apache.commons.lang3.StringUtils;
 import org.whispersystems.textsecuregcm.util.AsyncTimerUtil;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
-import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
 
-public class Profiles {
+public class Profiles extends AbstractDynamoDbStore {
 
-  private final DynamoDbClient dynamoDbClient;
   private final DynamoDbAsyncClient dynamoDbAsyncClient;
   private final String tableName;
 
@@ -75,20 +73,22 @@ public class Profiles {
   private static final Timer SET_PROFILES_TIMER = Metrics.timer(name(Profiles.class, "set"));
   private static final Timer GET_PROFILE_TIMER = Metrics.timer(name(Profiles.class, "get"));
   private static final Timer DELETE_PROFILES_TIMER = Metrics.timer(name(Profiles.class, "delete"));
+
+  private static final int DELETE_BATCH_CONCURRENCY = 4;
   private static final String PARSE_BYTE_ARRAY_COUNTER_NAME = name(Profiles.class, "parseByteArray");
 
   public Profiles(final DynamoDbClient dynamoDbClient,
       final DynamoDbAsyncClient dynamoDbAsyncClient,
       final String tableName) {
 
-    this.dynamoDbClient = dynamoDbClient;
+    super(dynamoDbClient);
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
     this.tableName = tableName;
   }
 
   public void set(final UUID uuid, final VersionedProfile profile) {
     SET_PROFILES_TIMER.record(() -> {
-      dynamoDbClient.updateItem(UpdateItemRequest.builder()
+      db().updateItem(UpdateItemRequest.builder()
           .tableName(tableName)
           .key(buildPrimaryKey(uuid, profile.version()))
           .updateExpression(buildUpdateExpression(profile))
@@ -203,7 +203,7 @@ public class Profiles {
 
   public Optional<VersionedProfile> get(final UUID uuid, final String version) {
     return GET_PROFILE_TIMER.record(() -> {
-      final GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+      final GetItemResponse response = db().getItem(GetItemRequest.builder()
           .tableName(tableName)
           .key(buildPrimaryKey(uuid, version))
           .consistentRead(true)
@@ -244,27 +244,28 @@ public class Profiles {
     return AttributeValues.extractByteArray(attributeValue, PARSE_BYTE_ARRAY_COUNTER_NAME);
   }
 
-  public void deleteAll(final UUID uuid) {
-    DELETE_PROFILES_TIMER.record(() -> {
-      final AttributeValue uuidAttributeValue = AttributeValues.fromUUID(uuid);
-
-      final QueryIterable queryIterable = dynamoDbClient.queryPaginator(QueryRequest.builder()
-          .tableName(tableName)
-          .keyConditionExpression("#uuid = :uuid")
-          .expressionAttributeNames(Map.of("#uuid", KEY_ACCOUNT_UUID))
-          .expressionAttributeValues(Map.of(":uuid", uuidAttributeValue))
-          .projectionExpression(ATTR_VERSION)
-          .consistentRead(true)
-          .build());
-
-      CompletableFuture.allOf(queryIterable.items().stream()
-          .map(item -> dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
-              .tableName(tableName)
-              .key(Map.of(
-                  KEY_ACCOUNT_UUID, uuidAttributeValue,
-                  ATTR_VERSION, item.get(ATTR_VERSION)))
-              .build()))
-          .toArray(CompletableFuture[]::new)).join();
-    });
+  /**
+   * Deletes all versions of the given account's profile, keeping at most {@link #DELETE_BATCH_CONCURRENCY} batch
+   * deletions in flight at a time.
+   */
+  public CompletableFuture<Void> deleteAll(final UUID uuid) {
+    final AttributeValue uuidAttributeValue = AttributeValues.fromUUID(uuid);
+
+    return AsyncTimerUtil.record(DELETE_PROFILES_TIMER, () -> deleteInBatchesAsync(dynamoDbAsyncClient, tableName,
+            Flux.from(dynamoDbAsyncClient.queryPaginator(QueryRequest.builder()
+                        .tableName(tableName)
+                        .keyConditionExpression("#uuid = :uuid")
+                        .expressionAttributeNames(Map.of("#uuid", KEY_ACCOUNT_UUID))
+                        .expressionAttributeValues(Map.of(":uuid", uuidAttributeValue))
+                        .projectionExpression(ATTR_VERSION)
+                        .consistentRead(true)
+                        .build())
+                    .items())
+                .map(item -> Map.of(
+                    KEY_ACCOUNT_UUID, uuidAttributeValue,
+                    ATTR_VERSION, item.get(ATTR_VERSION))),
+            DELETE_BATCH_CONCURRENCY)
+        .toFuture())
+        .toCompletableFuture();
   }
 }
@@ -47,9 +47,9 @@ public class ProfilesManager {
         .thenCompose(ignored -> redisSetAsync(uuid, versionedProfile));
   }
 
-  public void deleteAll(UUID uuid) {
+  public CompletableFuture<Void> deleteAll(UUID uuid) {
     redisDelete(uuid);
-    profiles.deleteAll(uuid);
+    return profiles.deleteAll(uuid);
   }
 
   public Optional<VersionedProfile> get(UUID uuid, String version) {
@@ -13,8 +13,6 @@ import com.codahale.metrics.SharedMetricRegistries;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
@@ -35,13 +33,15 @@ public class PushFeedbackProcessor extends AccountDatabaseCrawlerListener {
   private static final Counter UPDATED_ACCOUNT_COUNTER = Metrics.counter(
       MetricsUtil.name(PushFeedbackProcessor.class, "updatedAccounts"));
 
+  private static final Counter FAILED_ACCOUNT_UPDATE_COUNTER = Metrics.counter(
+      MetricsUtil.name(PushFeedbackProcessor.class, "failedAccountUpdates"));
 
   private final AccountsManager accountsManager;
-  private final ExecutorService updateExecutor;
+  private final int maxConcurrency;
 
-  public PushFeedbackProcessor(AccountsManager accountsManager, ExecutorService updateExecutor) {
+  public PushFeedbackProcessor(AccountsManager accountsManager, int maxConcurrency) {
     this.accountsManager = accountsManager;
-    this.updateExecutor = updateExecutor;
+    this.maxConcurrency = maxConcurrency;
   }
 
   @Override
@@ -54,7 +54,7 @@ public class PushFeedbackProcessor extends AccountDatabaseCrawlerListener {
   @Override
   protected void onCrawlChunk(Optional<UUID> fromUuid, List<Account> chunkAccounts) {
 
-    final List<CompletableFuture<Void>> updateFutures = chunkAccounts.stream()
+    final List<Account> accountsToUpdate = chunkAccounts.stream()
         .filter(account -> {
           boolean update = false;
 
@@ -74,50 +74,50 @@ public class PushFeedbackProcessor extends AccountDatabaseCrawlerListener {
 
           return update;
         })
-        .map(account -> CompletableFuture.runAsync(() -> {
-              // fetch a new version, since the chunk is shared and implicitly read-only
-              accountsManager.getByAccountIdentifier(account.getUuid()).ifPresent(accountToUpdate -> {
-                accountsManager.update(accountToUpdate, a -> {
-                  for (Device device : a.getDevices()) {
-                    if (deviceNeedsUpdate(device)) {
-                      if (deviceExpired(device)) {
-                        if (!Util.isEmpty(device.getApnId())) {
-                          if (device.getId() == 1) {
-                            device.setUserAgent("OWI");
-                          } else {
-                            device.setUserAgent("OWP");
-                          }
-                        } else if (!Util.isEmpty(device.getGcmId())) {
-                          device.setUserAgent("OWA");
-                        }
-                        device.setGcmId(null);
-                        device.setApnId(null);
-                        device.setVoipApnId(null);
-                        device.setFetchesMessages(false);
-                      } else {
-                        device.setUninstalledFeedbackTimestamp(0);
-                      }
-                    }
-                  }
-                });
-              });
-            }, updateExecutor)
-            .whenComplete((ignored, throwable) -> {
-              if (throwable != null) {
-                log.warn("Failed to update account {}", account.getUuid(), throwable);
-              } else {
-                UPDATED_ACCOUNT_COUNTER.increment();
-              }
-            }))
         .toList();
 
+    if (accountsToUpdate.isEmpty()) {
+      return;
+    }
+
     try {
-      CompletableFuture.allOf(updateFutures.toArray(new CompletableFuture[0])).join();
+      // the chunk's copies of the accounts are the baseline for the update, so accounts are only re-fetched on conflict
+      final AccountsManager.BulkDeviceUpdateResult result =
+          accountsManager.updateDevicesAsync(accountsToUpdate, this::updateDevice, maxConcurrency).join();
+
+      UPDATED_ACCOUNT_COUNTER.increment(result.updated());
+      FAILED_ACCOUNT_UPDATE_COUNTER.increment(result.failed());
     } catch (final Exception e) {
-      log.debug("Failed to update one or more accounts in chunk", e);
+      log.warn("Failed to update accounts in chunk", e);
     }
   }
 
+  private boolean updateDevice(final Device device) {
+    if (!deviceNeedsUpdate(device)) {
+      return false;
+    }
+
+    if (deviceExpired(device)) {
+      if (!Util.isEmpty(device.getApnId())) {
+        if (device.getId() == 1) {
+          device.setUserAgent("OWI");
+        } else {
+          device.setUserAgent("OWP");
+        }
+      } else if (!Util.isEmpty(device.getGcmId())) {
+        device.setUserAgent("OWA");
+      }
+      device.setGcmId(null);
+      device.setApnId(null);
+      device.setVoipApnId(null);
+      device.setFetchesMessages(false);
+    } else {
+      device.setUninstalledFeedbackTimestamp(0);
+    }
+
+    return true;
+  }
+
   private boolean deviceNeedsUpdate(final Device device) {
     return device.getUninstalledFeedbackTimestamp() != 0 &&
         device.getUninstalledFeedbackTimestamp() + TimeUnit.DAYS.toMillis(2) <= Util.todayInMillis();
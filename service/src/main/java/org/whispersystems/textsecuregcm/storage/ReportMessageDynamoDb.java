@@ -3,6 +3,7 @@ package org.whispersystems.textsecuregcm.storage;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
@@ -11,6 +12,7 @@ import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 
@@ -20,6 +22,7 @@ public class ReportMessageDynamoDb {
   static final String ATTR_TTL = "E";
 
   private final DynamoDbClient db;
+  private final DynamoDbAsyncClient asyncDb;
   private final String tableName;
   private final Duration ttl;
 
@@ -30,20 +33,30 @@ public class ReportMessageDynamoDb {
       .distributionStatisticExpiry(Duration.ofDays(1))
       .register(Metrics.globalRegistry);
 
-  public ReportMessageDynamoDb(final DynamoDbClient dynamoDB, final String tableName, final Duration ttl) {
+  public ReportMessageDynamoDb(final DynamoDbClient dynamoDB, final DynamoDbAsyncClient asyncDynamoDb,
+      final String tableName, final Duration ttl) {
     this.db = dynamoDB;
+    this.asyncDb = asyncDynamoDb;
     this.tableName = tableName;
     this.ttl = ttl;
   }
 
   public void store(byte[] hash) {
-    db.putItem(PutItemRequest.builder()
+    db.putItem(buildPutItemRequest(hash));
+  }
+
+  public CompletableFuture<Void> storeAsync(final byte[] hash) {
+    return asyncDb.putItem(buildPutItemRequest(hash)).thenRun(() -> {});
+  }
+
+  private PutItemRequest buildPutItemRequest(final byte[] hash) {
+    return PutItemRequest.builder()
         .tableName(tableName)
         .item(Map.of(
             KEY_HASH, AttributeValues.fromByteArray(hash),
             ATTR_TTL, AttributeValues.fromLong(Instant.now().plus(ttl).getEpochSecond())
         ))
-        .build());
+        .build();
   }
 
   public boolean remove(byte[] hash) {
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import org.slf4j.Logger;
@@ -64,6 +65,25 @@ public class ReportMessageManager {
     }
   }
 
+  /**
+   * Stores a hash of the given message's GUID and sender without waiting for the write. Failures are logged rather
+   * than propagated, so the returned future always completes normally.
+   */
+  public CompletableFuture<Void> storeAsync(final String sourceAci, final UUID messageGuid) {
+    try {
+      Objects.requireNonNull(sourceAci);
+
+      return reportMessageDynamoDb.storeAsync(hash(messageGuid, sourceAci))
+          .exceptionally(throwable -> {
+            logger.warn("Failed to store hash", throwable);
+            return null;
+          });
+    } catch (final Exception e) {
+      logger.warn("Failed to store hash", e);
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
   public void report(final Optional<String> sourceNumber,
       final Optional<UUID> sourceAci,
       final Optional<UUID> sourcePni,
@@ -19,9 +19,11 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
@@ -34,6 +36,15 @@ public abstract class SerializedExpireableJsonDynamoStore<T> {
     long getExpirationEpochSeconds();
   }
 
+  /**
+   * A value whose version is stored alongside it, so that updates can be made conditional on the stored version.
+   */
+  public interface Versioned {
+
+    @JsonIgnore
+    long getVersion();
+  }
+
   private final DynamoDbAsyncClient dynamoDbClient;
   private final String tableName;
   private final Clock clock;
@@ -44,6 +55,7 @@ public abstract class SerializedExpireableJsonDynamoStore<T> {
 
   private static final String ATTR_SERIALIZED_VALUE = "V";
   private static final String ATTR_TTL = "E";
+  private static final String ATTR_VERSION = "R";
 
   private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -78,6 +90,28 @@ public abstract class SerializedExpireableJsonDynamoStore<T> {
     });
   }
 
+  /**
+   * Replaces the stored value for the given key if the stored value's version matches the given expected version.
+   * Values stored before versions were recorded have no version, and are replaced unconditionally.
+   *
+   * @return a future that yields {@code true} if the value was stored or {@code false} if the stored value's version
+   * did not match the expected version
+   */
+  public CompletableFuture<Boolean> update(final String key, final T v, final long expectedVersion) {
+    return put(key, v, builder -> builder
+        .conditionExpression("attribute_not_exists(#version) OR #version = :expectedVersion")
+        .expressionAttributeNames(Map.of("#version", ATTR_VERSION))
+        .expressionAttributeValues(Map.of(":expectedVersion", AttributeValues.fromLong(expectedVersion))))
+        .thenApply(ignored -> true)
+        .exceptionally(throwable -> {
+          if (ExceptionUtils.unwrap(throwable) instanceof ConditionalCheckFailedException) {
+            return false;
+          }
+
+          throw ExceptionUtils.wrap(throwable);
+        });
+  }
+
   private CompletableFuture<Void> put(final String key, final T v,
       final Consumer<PutItemRequest.Builder> putRequestCustomizer) {
     try {
@@ -88,6 +122,9 @@ public abstract class SerializedExpireableJsonDynamoStore<T> {
       if (v instanceof Expireable ev) {
         attributeValueMap.put(ATTR_TTL, AttributeValues.fromLong(getExpirationTimestamp(ev)));
       }
+      if (v instanceof Versioned vv) {
+        attributeValueMap.put(ATTR_VERSION, AttributeValues.fromLong(vv.getVersion()));
+      }
       final PutItemRequest.Builder builder = PutItemRequest.builder()
           .tableName(tableName)
           .item(attributeValueMap);
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+
+/**
+ * A stored message envelope along with the bytes from which it was parsed, if available. Callers that forward an
+ * envelope unmodified can send the stored bytes as-is instead of re-serializing the envelope.
+ *
+ * @param envelope the parsed envelope
+ * @param storedBytes the serialized envelope exactly as stored, or {@code null} if not available
+ */
+public record StoredEnvelope(MessageProtos.Envelope envelope, @Nullable byte[] storedBytes) {
+
+  public StoredEnvelope(final MessageProtos.Envelope envelope) {
+    this(envelope, null);
+  }
+}
@@ -5,28 +5,272 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.annotations.VisibleForTesting;
+import io.lettuce.core.ScriptOutputType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.registration.VerificationSession;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
 
+/**
+ * Stores verification sessions in DynamoDB, optionally fronted by a Redis write-through cache. Sessions are read and
+ * rewritten at every step of registration, but only live for a few minutes, so a cache absorbs most of that traffic.
+ * <p>
+ * A session's {@link VerificationSession#updatedTimestamp()} serves as its version. Updates carry the version of the
+ * session they were derived from and are compared-and-set against it, first in DynamoDB and then in the cache, so
+ * concurrent registration steps can't overwrite each other's changes. Cached sessions expire along with the sessions
+ * themselves.
+ */
 public class VerificationSessionManager {
 
   private final VerificationSessions verificationSessions;
 
+  @Nullable
+  private final FaultTolerantRedisCluster cacheCluster;
+
+  @Nullable
+  private final ClusterLuaScript setSessionScript;
+
+  private final Clock clock;
+
+  private static final String CACHE_KEY_PREFIX = "verification_session::";
+
+  private static final String CACHE_LOOKUP_COUNTER_NAME = name(VerificationSessionManager.class, "cacheLookup");
+  private static final String CACHE_WRITE_COUNTER_NAME = name(VerificationSessionManager.class, "cacheWrite");
+  private static final String UPDATE_CONFLICT_COUNTER_NAME = name(VerificationSessionManager.class, "updateConflict");
+
+  private static final String OUTCOME_TAG_NAME = "outcome";
+  private static final String REPLACED_TAG_NAME = "replaced";
+
+  private static final Counter CACHE_HIT_COUNTER = Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, OUTCOME_TAG_NAME, "hit");
+  private static final Counter CACHE_MISS_COUNTER = Metrics.counter(CACHE_LOOKUP_COUNTER_NAME, OUTCOME_TAG_NAME, "miss");
+
+  private static final Logger logger = LoggerFactory.getLogger(VerificationSessionManager.class);
+
   public VerificationSessionManager(final VerificationSessions verificationSessions) {
     this.verificationSessions = verificationSessions;
+    this.cacheCluster = null;
+    this.setSessionScript = null;
+    this.clock = Clock.systemUTC();
+  }
+
+  public VerificationSessionManager(final VerificationSessions verificationSessions,
+      final FaultTolerantRedisCluster cacheCluster,
+      final Clock clock) {
+
+    this.verificationSessions = verificationSessions;
+    this.cacheCluster = cacheCluster;
+    this.clock = clock;
+
+    try {
+      this.setSessionScript = ClusterLuaScript.fromResource(cacheCluster, "lua/set_verification_session.lua",
+          ScriptOutputType.INTEGER);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to load verification session cache update script", e);
+    }
   }
 
   public CompletableFuture<Void> insert(final String encodedSessionId, final VerificationSession verificationSession) {
-    return verificationSessions.insert(encodedSessionId, verificationSession);
+    if (cacheCluster == null) {
+      return verificationSessions.insert(encodedSessionId, verificationSession);
+    }
+
+    // DynamoDB decides whether the session already exists, so only cache sessions it has accepted; once it has, the
+    // session is stored whether or not it could be cached
+    return verificationSessions.insert(encodedSessionId, verificationSession)
+        .thenCompose(ignored -> setCachedSession(encodedSessionId, verificationSession, null)
+            .handle((replaced, throwable) -> {
+              if (throwable != null) {
+                logger.warn("Failed to cache verification session", throwable);
+              }
+
+              return null;
+            }));
   }
 
-  public CompletableFuture<Void> update(final String encodedSessionId, final VerificationSession verificationSession) {
-    return verificationSessions.update(encodedSessionId, verificationSession);
+  /**
+   * Replaces a stored session with an updated version of it.
+   *
+   * @param encodedSessionId the session's identifier
+   * @param expectedVersion the {@link VerificationSession#getVersion() version} of the session from which the updated
+   * session was derived
+   * @param verificationSession the updated session, whose version must be greater than the expected version
+   *
+   * @return a future that completes once the updated session has been stored, or that fails with a
+   * {@link ContestedOptimisticLockException} if the stored session's version no longer matches the expected version
+   */
+  public CompletableFuture<Void> update(final String encodedSessionId, final long expectedVersion,
+      final VerificationSession verificationSession) {
+
+    if (verificationSession.getVersion() <= expectedVersion) {
+      throw new IllegalArgumentException("Updated session must have a newer version than the session it replaces");
+    }
+
+    return verificationSessions.update(encodedSessionId, verificationSession, expectedVersion)
+        .thenCompose(updated -> {
+          if (!updated) {
+            Metrics.counter(UPDATE_CONFLICT_COUNTER_NAME).increment();
+
+            // Whatever the cache holds may be the copy this update was derived from; make sure the next read goes to
+            // DynamoDB
+            return removeCachedSessionIfPresent(encodedSessionId)
+                .thenCompose(ignored -> CompletableFuture.<Void>failedFuture(new ContestedOptimisticLockException()));
+          }
+
+          if (cacheCluster == null) {
+            return CompletableFuture.<Void>completedFuture(null);
+          }
+
+          // DynamoDB has accepted the update, so the cache can only make it visible sooner; if the cached copy isn't the
+          // one this update replaced, or it can't be updated, drop it so that the next read goes to DynamoDB
+          return setCachedSession(encodedSessionId, verificationSession, expectedVersion)
+              .exceptionally(throwable -> {
+                logger.warn("Failed to cache verification session", throwable);
+                return false;
+              })
+              .thenCompose(replaced -> replaced
+                  ? CompletableFuture.<Void>completedFuture(null)
+                  : removeCachedSessionIfPresent(encodedSessionId));
+        });
   }
 
   public CompletableFuture<Optional<VerificationSession>> findForId(final String encodedSessionId) {
-    return verificationSessions.findForKey(encodedSessionId);
+    if (cacheCluster == null) {
+      return verificationSessions.findForKey(encodedSessionId);
+    }
+
+    return cacheCluster.withCluster(connection -> connection.async().get(getCacheKey(encodedSessionId)))
+        .toCompletableFuture()
+        .thenApply(this::parseCachedSession)
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve verification session from Redis", throwable);
+          return Optional.empty();
+        })
+        .thenCompose(maybeCachedSession -> {
+          if (maybeCachedSession.isPresent()) {
+            CACHE_HIT_COUNTER.increment();
+            return CompletableFuture.completedFuture(maybeCachedSession);
+          }
+
+          CACHE_MISS_COUNTER.increment();
+
+          return verificationSessions.findForKey(encodedSessionId)
+              .thenCompose(maybeSession -> maybeSession
+                  .map(session -> setCachedSession(encodedSessionId, session, null)
+                      .handle((ignored, throwable) -> {
+                        if (throwable != null) {
+                          logger.warn("Failed to cache verification session", throwable);
+                        }
+
+                        return maybeSession;
+                      }))
+                  .orElseGet(() -> CompletableFuture.completedFuture(maybeSession)));
+        });
+  }
+
+  /**
+   * Caches the given session. If an expected version is given, the cached session is replaced only if it is absent or
+   * has that version; otherwise, it is replaced only if it is absent or older than the given session.
+   *
+   * @return a future that yields {@code true} if the given session is now the cached version or {@code false} if the
+   * cached session was left in place
+   */
+  private CompletableFuture<Boolean> setCachedSession(final String encodedSessionId,
+      final VerificationSession verificationSession,
+      @Nullable final Long expectedVersion) {
+
+    assert cacheCluster != null && setSessionScript != null;
+
+    final long ttlSeconds = verificationSession.getExpirationEpochSeconds() - clock.instant().getEpochSecond();
+
+    if (ttlSeconds <= 0) {
+      // There's no point in caching an expired session, but an older version mustn't outlive this one
+      return removeCachedSession(encodedSessionId).thenApply(ignored -> true);
+    }
+
+    final String sessionJson;
+
+    try {
+      sessionJson = SystemMapper.jsonMapper().writeValueAsString(verificationSession);
+    } catch (final JsonProcessingException e) {
+      // This should never happen when writing directly to a string except in cases of serious misconfiguration, which
+      // would be caught by tests.
+      throw new AssertionError(e);
+    }
+
+    return setSessionScript.executeAsync(List.of(getCacheKey(encodedSessionId)),
+            List.of(sessionJson,
+                String.valueOf(verificationSession.getVersion()),
+                expectedVersion != null ? String.valueOf(expectedVersion) : "",
+                String.valueOf(ttlSeconds)))
+        .thenApply(result -> {
+          final boolean replaced = Long.valueOf(1).equals(result);
+
+          Metrics.counter(CACHE_WRITE_COUNTER_NAME, REPLACED_TAG_NAME, String.valueOf(replaced)).increment();
+
+          return replaced;
+        });
   }
 
+  private CompletableFuture<Void> removeCachedSession(final String encodedSessionId) {
+    assert cacheCluster != null;
+
+    return cacheCluster.withCluster(connection -> connection.async().del(getCacheKey(encodedSessionId)))
+        .toCompletableFuture()
+        .thenRun(() -> {
+        });
+  }
+
+  /**
+   * Removes any cached copy of the given session, logging rather than propagating failures.
+   */
+  private CompletableFuture<Void> removeCachedSessionIfPresent(final String encodedSessionId) {
+    if (cacheCluster == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return removeCachedSession(encodedSessionId)
+        .exceptionally(throwable -> {
+          logger.warn("Failed to remove cached verification session", throwable);
+          return null;
+        });
+  }
+
+  private Optional<VerificationSession> parseCachedSession(@Nullable final String sessionJson) {
+    if (sessionJson == null) {
+      return Optional.empty();
+    }
+
+    try {
+      final VerificationSession verificationSession =
+          SystemMapper.jsonMapper().readValue(sessionJson, VerificationSession.class);
+
+      // Redis expires cached sessions on its own, but only to the nearest second
+      return verificationSession.getExpirationEpochSeconds() < clock.instant().getEpochSecond()
+          ? Optional.empty()
+          : Optional.of(verificationSession);
+    } catch (final JsonProcessingException e) {
+      logger.warn("Failed to parse cached verification session", e);
+      return Optional.empty();
+    }
+  }
+
+  @VisibleForTesting
+  static String getCacheKey(final String encodedSessionId) {
+    return CACHE_KEY_PREFIX + encodedSessionId;
+  }
 }
@@ -14,6 +14,7 @@ import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
 import java.util.Base64;
+import javax.annotation.Nullable;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import org.signal.libsignal.protocol.InvalidKeyException;
@@ -40,28 +41,43 @@ public class ECPublicKeyAdapter {
 
     @Override
     public ECPublicKey deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
-      final byte[] ecPublicKeyBytes;
-
       try {
-        ecPublicKeyBytes = Base64.getDecoder().decode(parser.getValueAsString());
+        return decode(parser.getValueAsString());
       } catch (final IllegalArgumentException e) {
         throw new JsonParseException(parser, "Could not parse EC public key as a base64-encoded value", e);
+      } catch (final InvalidKeyException e) {
+        throw new JsonParseException(parser, "Could not interpret identity key bytes as an EC public key", e);
       }
+    }
+  }
 
-      if (ecPublicKeyBytes.length == 0) {
-        return null;
-      }
+  /**
+   * Decodes a base64-encoded EC public key, tolerating keys that were stored without a leading version byte.
+   *
+   * @param encodedPublicKey the base64-encoded public key to decode
+   *
+   * @return the decoded public key, or {@code null} if the encoded public key is empty
+   *
+   * @throws IllegalArgumentException if the given string is not valid base64
+   * @throws InvalidKeyException if the decoded bytes are not a valid EC public key
+   */
+  @Nullable
+  public static ECPublicKey decode(final String encodedPublicKey) throws InvalidKeyException {
+    final byte[] ecPublicKeyBytes = Base64.getDecoder().decode(encodedPublicKey);
 
-      try {
-        return new ECPublicKey(ecPublicKeyBytes);
-      } catch (final InvalidKeyException e) {
-        if (ecPublicKeyBytes.length == ECPublicKey.KEY_SIZE - 1) {
-          EC_PUBLIC_KEY_WITHOUT_VERSION_BYTE_COUNTER.increment();
-          return ECPublicKey.fromPublicKeyBytes(ecPublicKeyBytes);
-        }
+    if (ecPublicKeyBytes.length == 0) {
+      return null;
+    }
 
-        throw new JsonParseException(parser, "Could not interpret identity key bytes as an EC public key", e);
+    try {
+      return new ECPublicKey(ecPublicKeyBytes);
+    } catch (final InvalidKeyException e) {
+      if (ecPublicKeyBytes.length == ECPublicKey.KEY_SIZE - 1) {
+        EC_PUBLIC_KEY_WITHOUT_VERSION_BYTE_COUNTER.increment();
+        return ECPublicKey.fromPublicKeyBytes(ecPublicKeyBytes);
       }
+
+      throw e;
     }
   }
 }
@@ -14,6 +14,7 @@ import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
 import java.util.Base64;
+import javax.annotation.Nullable;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import org.signal.libsignal.protocol.IdentityKey;
@@ -41,28 +42,43 @@ public class IdentityKeyAdapter {
 
     @Override
     public IdentityKey deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
-      final byte[] identityKeyBytes;
-
       try {
-        identityKeyBytes = Base64.getDecoder().decode(parser.getValueAsString());
+        return decode(parser.getValueAsString());
       } catch (final IllegalArgumentException e) {
         throw new JsonParseException(parser, "Could not parse identity key as a base64-encoded value", e);
+      } catch (final InvalidKeyException e) {
+        throw new JsonParseException(parser, "Could not interpret identity key bytes as an EC public key", e);
       }
+    }
+  }
 
-      if (identityKeyBytes.length == 0) {
-        return null;
-      }
+  /**
+   * Decodes a base64-encoded identity key, tolerating keys that were stored without a leading version byte.
+   *
+   * @param encodedIdentityKey the base64-encoded identity key to decode
+   *
+   * @return the decoded identity key, or {@code null} if the encoded identity key is empty
+   *
+   * @throws IllegalArgumentException if the given string is not valid base64
+   * @throws InvalidKeyException if the decoded bytes are not a valid EC public key
+   */
+  @Nullable
+  public static IdentityKey decode(final String encodedIdentityKey) throws InvalidKeyException {
+    final byte[] identityKeyBytes = Base64.getDecoder().decode(encodedIdentityKey);
 
-      try {
-        return new IdentityKey(identityKeyBytes);
-      } catch (final InvalidKeyException e) {
-        if (identityKeyBytes.length == ECPublicKey.KEY_SIZE - 1) {
-          IDENTITY_KEY_WITHOUT_VERSION_BYTE_COUNTER.increment();
-          return new IdentityKey(ECPublicKey.fromPublicKeyBytes(identityKeyBytes));
-        }
+    if (identityKeyBytes.length == 0) {
+      return null;
+    }
 
-        throw new JsonParseException(parser, "Could not interpret identity key bytes as an EC public key", e);
+    try {
+      return new IdentityKey(identityKeyBytes);
+    } catch (final InvalidKeyException e) {
+      if (identityKeyBytes.length == ECPublicKey.KEY_SIZE - 1) {
+        IDENTITY_KEY_WITHOUT_VERSION_BYTE_COUNTER.increment();
+        return new IdentityKey(ECPublicKey.fromPublicKeyBytes(identityKeyBytes));
       }
+
+      throw e;
     }
   }
 }
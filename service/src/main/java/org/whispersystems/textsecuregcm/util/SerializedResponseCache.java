@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Metrics;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Caches ready-to-send JSON response bodies for read-mostly endpoints along with a strong entity tag for each body.
+ * Responses are keyed by an endpoint name and the request dimensions that affect the response (for example, the locale
+ * resolved from a request's {@code Accept-Language} header); each entry also carries a caller-supplied data version,
+ * and an entry is rebuilt whenever the caller presents a version other than the one that produced it. Requests whose {@code If-None-Match} header matches the
+ * current entity tag receive a {@code 304 Not Modified} response without any serialization.
+ */
+public class SerializedResponseCache {
+
+  private final String name;
+  private final Cache<CacheKey, CachedResponse> responses;
+
+  private static final String REQUEST_COUNTER_NAME = name(SerializedResponseCache.class, "request");
+  private static final String CACHE_NAME_TAG_NAME = "cache";
+  private static final String ENDPOINT_TAG_NAME = "endpoint";
+  private static final String OUTCOME_TAG_NAME = "outcome";
+
+  private static final int ENTITY_TAG_LENGTH = 16;
+
+  private record CacheKey(String endpoint, List<?> dimensions) {
+  }
+
+  @VisibleForTesting
+  record CachedResponse(long version, byte[] body, EntityTag entityTag) {
+  }
+
+  /**
+   * @param name a name for this cache, used to distinguish its metrics from those of other caches
+   * @param maxEntries the maximum number of distinct (endpoint, dimensions) combinations to retain; once the cache is
+   * full, the least-recently-used entry is evicted to make room for a new one
+   */
+  public SerializedResponseCache(final String name, final int maxEntries) {
+    this.name = name;
+    this.responses = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .build();
+  }
+
+  /**
+   * Returns a response for the given endpoint and request dimensions, serializing a new entity only if no response
+   * has been cached for the given data version.
+   *
+   * @param endpoint a stable name for the endpoint
+   * @param dimensions the request attributes that influence the response entity; must have meaningful
+   * {@code equals}/{@code hashCode} implementations
+   * @param version the version of the data from which the entity is built
+   * @param ifNoneMatch the value of the request's {@code If-None-Match} header, if any
+   * @param entitySupplier a supplier of the entity to serialize on a cache miss
+   *
+   * @return a {@code 200 OK} response with a pre-serialized JSON body and an {@code ETag} header, or a
+   * {@code 304 Not Modified} response if the client already holds the current representation
+   */
+  public Response getResponse(final String endpoint,
+      final List<?> dimensions,
+      final long version,
+      @Nullable final String ifNoneMatch,
+      final Supplier<?> entitySupplier) {
+
+    final CacheKey cacheKey = new CacheKey(endpoint, List.copyOf(dimensions));
+    CachedResponse cachedResponse = responses.getIfPresent(cacheKey);
+
+    final String outcome;
+
+    if (cachedResponse == null || cachedResponse.version() != version) {
+      outcome = "miss";
+      cachedResponse = serialize(version, entitySupplier.get());
+      responses.put(cacheKey, cachedResponse);
+    } else {
+      outcome = "hit";
+    }
+
+    if (matches(ifNoneMatch, cachedResponse.entityTag())) {
+      incrementRequestCounter(endpoint, "notModified");
+      return Response.notModified(cachedResponse.entityTag()).build();
+    }
+
+    incrementRequestCounter(endpoint, outcome);
+
+    return Response.ok(cachedResponse.body(), MediaType.APPLICATION_JSON_TYPE)
+        .tag(cachedResponse.entityTag())
+        .build();
+  }
+
+  /**
+   * Discards all cached responses.
+   */
+  public void invalidateAll() {
+    responses.invalidateAll();
+  }
+
+  @VisibleForTesting
+  static CachedResponse serialize(final long version, final Object entity) {
+    final byte[] body;
+
+    try {
+      body = SystemMapper.jsonMapper().writeValueAsBytes(entity);
+    } catch (final JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return new CachedResponse(version, body, new EntityTag(generateEntityTagValue(body)));
+  }
+
+  @VisibleForTesting
+  static String generateEntityTagValue(final byte[] body) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+      return HexFormat.of().formatHex(Arrays.copyOf(digest, ENTITY_TAG_LENGTH));
+    } catch (final NoSuchAlgorithmException e) {
+      // All Java implementations are required to support SHA-256
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Checks whether an {@code If-None-Match} header matches the given entity tag. Per RFC 9110, section 13.1.2, the
+   * comparison is weak, so a {@code W/} prefix on a client-supplied tag is ignored.
+   */
+  @VisibleForTesting
+  static boolean matches(@Nullable final String ifNoneMatch, final EntityTag entityTag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+
+    for (final String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+
+      if (tag.equals("*")) {
+        return true;
+      }
+
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+
+      if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+        tag = tag.substring(1, tag.length() - 1);
+      }
+
+      if (tag.equals(entityTag.getValue())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private void incrementRequestCounter(final String endpoint, final String outcome) {
+    Metrics.counter(REQUEST_COUNTER_NAME,
+            CACHE_NAME_TAG_NAME, name,
+            ENDPOINT_TAG_NAME, endpoint,
+            OUTCOME_TAG_NAME, outcome)
+        .increment();
+  }
+}
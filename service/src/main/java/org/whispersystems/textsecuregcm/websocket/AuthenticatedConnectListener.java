@@ -16,10 +16,8 @@ import io.micrometer.core.instrument.Tags;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
@@ -58,8 +56,6 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
 
   private static final String AUTHENTICATED_TAG_NAME = "authenticated";
 
-  private static final long RENEW_PRESENCE_INTERVAL_MINUTES = 5;
-
   private static final Logger log = LoggerFactory.getLogger(AuthenticatedConnectListener.class);
 
   private final ReceiptSender receiptSender;
@@ -149,8 +145,8 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
     if (authenticated) {
       final AuthenticatedAccount auth = context.getAuthenticated(AuthenticatedAccount.class);
       final Device device = auth.getAuthenticatedDevice();
-      final Timer.Context timer = durationTimer.time();
-      final io.micrometer.core.instrument.Timer.Sample sample = io.micrometer.core.instrument.Timer.start();
+      // A start time is all we need to record both connection duration timers when the connection closes
+      final long connectedNanos = System.nanoTime();
       final WebSocketConnection connection = new WebSocketConnection(receiptSender,
           messagesManager, auth, device,
           context.getClient(),
@@ -163,27 +159,18 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
 
       pushNotificationManager.handleMessagesRetrieved(auth.getAccount(), device, userAgent);
 
-      final AtomicReference<ScheduledFuture<?>> renewPresenceFutureReference = new AtomicReference<>();
-
       context.addWebsocketClosedListener((closingContext, statusCode, reason) -> {
         openWebsocketAtomicInteger.decrementAndGet();
         openWebsocketCounter.dec();
 
-        timer.stop();
-        sample.stop(connectionTimer);
-
-        final ScheduledFuture<?> renewPresenceFuture = renewPresenceFutureReference.get();
-
-        if (renewPresenceFuture != null) {
-          renewPresenceFuture.cancel(false);
-        }
+        recordConnectionDuration(durationTimer, connectionTimer, connectedNanos);
 
         connection.stop();
 
         RedisOperation.unchecked(
             () -> clientPresenceManager.clearPresence(auth.getAccount().getUuid(), device.getId()));
         RedisOperation.unchecked(() -> {
-          messagesManager.removeMessageAvailabilityListener(connection);
+          messagesManager.removeMessageAvailabilityListener(auth.getAccount().getUuid(), device.getId(), connection);
 
           if (messagesManager.hasCachedMessages(auth.getAccount().getUuid(), device.getId())) {
             try {
@@ -195,15 +182,21 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
       });
 
       try {
-        connection.start();
         clientPresenceManager.setPresent(auth.getAccount().getUuid(), device.getId(), connection);
-        messagesManager.addMessageAvailabilityListener(auth.getAccount().getUuid(), device.getId(), connection);
-
-        renewPresenceFutureReference.set(scheduledExecutorService.scheduleAtFixedRate(() -> RedisOperation.unchecked(() ->
-                clientPresenceManager.renewPresence(auth.getAccount().getUuid(), device.getId())),
-            RENEW_PRESENCE_INTERVAL_MINUTES,
-            RENEW_PRESENCE_INTERVAL_MINUTES,
-            TimeUnit.MINUTES));
+        messagesManager.addMessageAvailabilityListener(auth.getAccount().getUuid(), device.getId(), connection)
+            .whenComplete((ignored, throwable) -> {
+              if (throwable != null) {
+                log.warn("Failed to subscribe to message availability events", throwable);
+                context.getClient().close(1011, "Unexpected error initializing connection");
+                return;
+              }
+
+              // Don't start draining stored messages until we're listening for new ones; otherwise, messages that
+              // arrive between the drain and the subscription would go unnoticed until the next message arrives
+              if (context.getClient().isOpen()) {
+                connection.start();
+              }
+            });
       } catch (final Exception e) {
         log.warn("Failed to initialize websocket", e);
         context.getClient().close(1011, "Unexpected error initializing connection");
@@ -213,13 +206,11 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
       openWebsocketAtomicInteger.incrementAndGet();
       openWebsocketCounter.inc();
 
-      final Timer.Context timer = unauthenticatedDurationTimer.time();
-      final io.micrometer.core.instrument.Timer.Sample sample = io.micrometer.core.instrument.Timer.start();
+      final long connectedNanos = System.nanoTime();
       context.addWebsocketClosedListener((context1, statusCode, reason) -> {
         openWebsocketAtomicInteger.decrementAndGet();
         openWebsocketCounter.dec();
-        timer.stop();
-        sample.stop(connectionTimer);
+        recordConnectionDuration(unauthenticatedDurationTimer, connectionTimer, connectedNanos);
       });
     }
   }
@@ -237,6 +228,16 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
     }
   }
 
+  private static void recordConnectionDuration(final Timer connectedDurationTimer,
+      final io.micrometer.core.instrument.Timer connectionTimer,
+      final long connectedNanos) {
+
+    final long durationNanos = System.nanoTime() - connectedNanos;
+
+    connectedDurationTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+    connectionTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
   private io.micrometer.core.instrument.Timer getConnectionTimer(final String userAgentString,
       final boolean authenticated) {
     try {
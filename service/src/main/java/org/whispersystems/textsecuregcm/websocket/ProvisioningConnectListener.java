@@ -34,12 +34,24 @@ public class ProvisioningConnectListener implements WebSocketConnectListener {
 
       context.getClient().sendRequest("PUT", "/v1/message", List.of(HeaderUtils.getTimestampHeader()), body)
           .whenComplete((ignored, throwable) -> context.getClient().close(1000, "Closed"));
+    }).whenComplete((ignored, throwable) -> {
+      if (throwable != null) {
+        context.getClient().close(1011, "Failed to subscribe");
+        return;
+      }
+
+      if (!context.getClient().isOpen()) {
+        // The client went away while we were subscribing; make sure we don't leave the subscription behind
+        provisioningManager.removeListener(provisioningAddress);
+        return;
+      }
+
+      // Don't share the address until we're actually listening for messages sent to it
+      context.getClient().sendRequest("PUT", "/v1/address", List.of(HeaderUtils.getTimestampHeader()),
+          Optional.of(MessageProtos.ProvisioningUuid.newBuilder()
+              .setUuid(provisioningAddress.getAddress())
+              .build()
+              .toByteArray()));
     });
-
-    context.getClient().sendRequest("PUT", "/v1/address", List.of(HeaderUtils.getTimestampHeader()),
-        Optional.of(MessageProtos.ProvisioningUuid.newBuilder()
-            .setUuid(provisioningAddress.getAddress())
-            .build()
-            .toByteArray()));
   }
 }
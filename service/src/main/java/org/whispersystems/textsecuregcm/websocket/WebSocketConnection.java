@@ -19,19 +19,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
@@ -50,6 +48,7 @@ import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessageAvailabilityListener;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
+import org.whispersystems.textsecuregcm.storage.StoredEnvelope;
 import org.whispersystems.textsecuregcm.util.Constants;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.websocket.WebSocketClient;
@@ -118,17 +117,34 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
   private final ScheduledExecutorService scheduledExecutorService;
 
-  private final Semaphore processStoredMessagesSemaphore = new Semaphore(1);
-  private final AtomicReference<StoredMessageState> storedMessageState = new AtomicReference<>(
-      StoredMessageState.PERSISTED_NEW_MESSAGES_AVAILABLE);
-  private final AtomicBoolean sentInitialQueueEmptyMessage = new AtomicBoolean(false);
-  private final LongAdder sentMessageCounter = new LongAdder();
-  private final AtomicLong queueDrainStartTime = new AtomicLong();
-  private final AtomicInteger consecutiveRetries = new AtomicInteger();
-  private final AtomicReference<ScheduledFuture<?>> retryFuture = new AtomicReference<>();
-  private final AtomicReference<Disposable> messageSubscription = new AtomicReference<>();
-
-  private final Random random = new Random();
+  // Hosts hold many mostly-idle connections, so per-connection state is kept in plain volatile fields updated through
+  // shared field updaters rather than in per-connection atomic objects
+  private volatile int processingStoredMessages;
+  private volatile StoredMessageState storedMessageState = StoredMessageState.PERSISTED_NEW_MESSAGES_AVAILABLE;
+  private volatile boolean sentInitialQueueEmptyMessage;
+  private volatile long sentMessageCount;
+  private volatile long queueDrainStartTime;
+  private volatile int consecutiveRetries;
+  @Nullable
+  private volatile ScheduledFuture<?> retryFuture;
+  @Nullable
+  private volatile Disposable messageSubscription;
+
+  private static final AtomicIntegerFieldUpdater<WebSocketConnection> PROCESSING_STORED_MESSAGES =
+      AtomicIntegerFieldUpdater.newUpdater(WebSocketConnection.class, "processingStoredMessages");
+
+  private static final AtomicReferenceFieldUpdater<WebSocketConnection, StoredMessageState> STORED_MESSAGE_STATE =
+      AtomicReferenceFieldUpdater.newUpdater(WebSocketConnection.class, StoredMessageState.class, "storedMessageState");
+
+  private static final AtomicLongFieldUpdater<WebSocketConnection> SENT_MESSAGE_COUNT =
+      AtomicLongFieldUpdater.newUpdater(WebSocketConnection.class, "sentMessageCount");
+
+  private static final AtomicIntegerFieldUpdater<WebSocketConnection> CONSECUTIVE_RETRIES =
+      AtomicIntegerFieldUpdater.newUpdater(WebSocketConnection.class, "consecutiveRetries");
+
+  private static final AtomicReferenceFieldUpdater<WebSocketConnection, Disposable> MESSAGE_SUBSCRIPTION =
+      AtomicReferenceFieldUpdater.newUpdater(WebSocketConnection.class, Disposable.class, "messageSubscription");
+
   private final Scheduler messageDeliveryScheduler;
 
   private final ClientReleaseManager clientReleaseManager;
@@ -182,18 +198,18 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   }
 
   public void start() {
-    queueDrainStartTime.set(System.currentTimeMillis());
+    queueDrainStartTime = System.currentTimeMillis();
     processStoredMessages();
   }
 
   public void stop() {
-    final ScheduledFuture<?> future = retryFuture.get();
+    final ScheduledFuture<?> future = retryFuture;
 
     if (future != null) {
       future.cancel(false);
     }
 
-    final Disposable subscription = messageSubscription.get();
+    final Disposable subscription = messageSubscription;
     if (subscription != null) {
       subscription.dispose();
     }
@@ -201,12 +217,25 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
     client.close(1000, "OK");
   }
 
-  private CompletableFuture<Void> sendMessage(final Envelope message, StoredMessageInfo storedMessageInfo) {
-    // clear ephemeral field from the envelope
-    final Optional<byte[]> body = Optional.ofNullable(message.toBuilder().clearEphemeral().build().toByteArray());
+  private CompletableFuture<Void> sendMessage(final StoredEnvelope storedEnvelope,
+      StoredMessageInfo storedMessageInfo) {
+
+    final Envelope message = storedEnvelope.envelope();
+
+    // clear ephemeral field from the envelope; most envelopes don't have one, and can be sent exactly as they were
+    // stored without being serialized again
+    final Optional<byte[]> body;
+
+    if (message.hasEphemeral()) {
+      body = Optional.of(message.toBuilder().clearEphemeral().build().toByteArray());
+    } else if (storedEnvelope.storedBytes() != null) {
+      body = Optional.of(storedEnvelope.storedBytes());
+    } else {
+      body = Optional.of(message.toByteArray());
+    }
 
     sendMessageMeter.mark();
-    sentMessageCounter.increment();
+    SENT_MESSAGE_COUNT.incrementAndGet(this);
     bytesSentMeter.mark(body.map(bytes -> bytes.length).orElse(0));
     MessageMetrics.measureAccountEnvelopeUuidMismatches(auth.getAccount(), message);
 
@@ -282,8 +311,8 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
   @VisibleForTesting
   void processStoredMessages() {
-    if (processStoredMessagesSemaphore.tryAcquire()) {
-      final StoredMessageState state = storedMessageState.getAndSet(StoredMessageState.EMPTY);
+    if (PROCESSING_STORED_MESSAGES.compareAndSet(this, 0, 1)) {
+      final StoredMessageState state = STORED_MESSAGE_STATE.getAndSet(this, StoredMessageState.EMPTY);
       final CompletableFuture<Void> queueCleared = new CompletableFuture<>();
 
       sendMessages(state != StoredMessageState.PERSISTED_NEW_MESSAGES_AVAILABLE, queueCleared);
@@ -296,15 +325,18 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
     queueCleared.whenComplete((v, cause) -> {
       if (cause == null) {
-        consecutiveRetries.set(0);
+        consecutiveRetries = 0;
+
+        // Only one queue drain is in progress at a time, so no other thread can be sending this message concurrently
+        if (!sentInitialQueueEmptyMessage) {
+          sentInitialQueueEmptyMessage = true;
 
-        if (sentInitialQueueEmptyMessage.compareAndSet(false, true)) {
           final List<Tag> tags = List.of(
               UserAgentTagUtil.getPlatformTag(client.getUserAgent())
           );
-          final long drainDuration = System.currentTimeMillis() - queueDrainStartTime.get();
+          final long drainDuration = System.currentTimeMillis() - queueDrainStartTime;
 
-          Metrics.summary(INITIAL_QUEUE_LENGTH_DISTRIBUTION_NAME, tags).record(sentMessageCounter.sum());
+          Metrics.summary(INITIAL_QUEUE_LENGTH_DISTRIBUTION_NAME, tags).record(sentMessageCount);
           Metrics.timer(INITIAL_QUEUE_DRAIN_TIMER_NAME, tags).record(drainDuration, TimeUnit.MILLISECONDS);
 
           if (drainDuration > SLOW_DRAIN_THRESHOLD) {
@@ -315,19 +347,19 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
               Collections.singletonList(HeaderUtils.getTimestampHeader()), Optional.empty());
         }
       } else {
-        storedMessageState.compareAndSet(StoredMessageState.EMPTY, state);
+        STORED_MESSAGE_STATE.compareAndSet(this, StoredMessageState.EMPTY, state);
       }
 
-      processStoredMessagesSemaphore.release();
+      processingStoredMessages = 0;
 
       if (cause == null) {
-        if (storedMessageState.get() != StoredMessageState.EMPTY) {
+        if (storedMessageState != StoredMessageState.EMPTY) {
           processStoredMessages();
         }
       } else {
         if (client.isOpen()) {
 
-          if (consecutiveRetries.incrementAndGet() > MAX_CONSECUTIVE_RETRIES) {
+          if (CONSECUTIVE_RETRIES.incrementAndGet(this) > MAX_CONSECUTIVE_RETRIES) {
             logger.warn("Max consecutive retries exceeded", cause);
             client.close(1011, "Failed to retrieve messages");
           } else {
@@ -336,9 +368,11 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
             Metrics.counter(QUEUE_DRAIN_RETRY_COUNTER_NAME, tags).increment();
 
-            final long delay = RETRY_DELAY_MILLIS + random.nextInt(RETRY_DELAY_JITTER_MILLIS);
-            retryFuture
-                .set(scheduledExecutorService.schedule(this::processStoredMessages, delay, TimeUnit.MILLISECONDS));
+            final long delay = RETRY_DELAY_MILLIS + ThreadLocalRandom.current().nextInt(RETRY_DELAY_JITTER_MILLIS);
+            retryFuture = scheduledExecutorService.schedule(() -> {
+              retryFuture = null;
+              processStoredMessages();
+            }, delay, TimeUnit.MILLISECONDS);
           }
         } else {
           logger.debug("Client disconnected before queue cleared");
@@ -349,7 +383,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
   private void sendMessages(final boolean cachedMessagesOnly, final CompletableFuture<Void> queueCleared) {
 
-    final Publisher<Envelope> messages =
+    final Publisher<StoredEnvelope> messages =
         messagesManager.getMessagesForDeviceReactive(auth.getAccount().getUuid(), device.getId(), cachedMessagesOnly);
 
     final Disposable subscription = Flux.from(messages)
@@ -385,10 +419,14 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
             () -> queueCleared.complete(null)
         );
 
-    messageSubscription.set(subscription);
+    messageSubscription = subscription;
+
+    // Don't hold on to a finished subscription (and everything it references) while the connection sits idle
+    queueCleared.whenComplete((ignored, throwable) -> MESSAGE_SUBSCRIPTION.compareAndSet(this, subscription, null));
   }
 
-  private CompletableFuture<Void> sendMessage(Envelope envelope) {
+  private CompletableFuture<Void> sendMessage(final StoredEnvelope storedEnvelope) {
+    final Envelope envelope = storedEnvelope.envelope();
     final UUID messageGuid = UUID.fromString(envelope.getServerGuid());
 
     if (envelope.getStory() && !client.shouldDeliverStories()) {
@@ -396,7 +434,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
       return CompletableFuture.completedFuture(null);
     } else {
-      return sendMessage(envelope, new StoredMessageInfo(messageGuid, envelope.getServerTimestamp()));
+      return sendMessage(storedEnvelope, new StoredMessageInfo(messageGuid, envelope.getServerTimestamp()));
     }
   }
 
@@ -410,7 +448,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
 
     messageAvailableMeter.mark();
 
-    storedMessageState.compareAndSet(StoredMessageState.EMPTY, StoredMessageState.CACHED_NEW_MESSAGES_AVAILABLE);
+    STORED_MESSAGE_STATE.compareAndSet(this, StoredMessageState.EMPTY, StoredMessageState.CACHED_NEW_MESSAGES_AVAILABLE);
 
     processStoredMessages();
 
@@ -426,7 +464,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
     }
     messagesPersistedMeter.mark();
 
-    storedMessageState.set(StoredMessageState.PERSISTED_NEW_MESSAGES_AVAILABLE);
+    storedMessageState = StoredMessageState.PERSISTED_NEW_MESSAGES_AVAILABLE;
 
     processStoredMessages();
 
@@ -107,14 +107,11 @@ public class CrawlAccountsCommand extends EnvironmentCommand<WhisperServerConfig
 
     final AccountDatabaseCrawler crawler = switch ((CrawlType) namespace.get(CRAWL_TYPE)) {
       case GENERAL_PURPOSE -> {
-        final ExecutorService pushFeedbackUpdateExecutor = environment.lifecycle()
-            .executorService(name(getClass(), "pushFeedback-%d")).maxThreads(workers).minThreads(workers).build();
-
         // TODO listeners must be ordered so that ones that directly update accounts come last, so that read-only ones are not working with stale data
         final List<AccountDatabaseCrawlerListener> accountDatabaseCrawlerListeners = List.of(
             new NonNormalizedAccountCrawlerListener(accountsManager, metricsCluster),
             // PushFeedbackProcessor may update device properties
-            new PushFeedbackProcessor(accountsManager, pushFeedbackUpdateExecutor));
+            new PushFeedbackProcessor(accountsManager, workers));
 
         final AccountDatabaseCrawlerCache accountDatabaseCrawlerCache = new AccountDatabaseCrawlerCache(
             cacheCluster,
@@ -0,0 +1,20 @@
+-- Claims up to the given number of pending account purges that are due, deferring each claimed purge until the given
+-- lease expiration so that it will be retried if the claimant fails to finish it. Each claim counts as an attempt.
+-- Returns a flat list of claimed purges and the number of times each has been claimed, including this claim.
+local queueKey = KEYS[1]
+local attemptsKey = KEYS[2]
+local nowMillis = ARGV[1]
+local leaseExpirationMillis = ARGV[2]
+local limit = tonumber(ARGV[3])
+
+local purges = redis.call("ZRANGEBYSCORE", queueKey, "-inf", nowMillis, "LIMIT", 0, limit)
+local claims = {}
+
+for _, purge in ipairs(purges) do
+    redis.call("ZADD", queueKey, "XX", leaseExpirationMillis, purge)
+
+    table.insert(claims, purge)
+    table.insert(claims, tostring(redis.call("HINCRBY", attemptsKey, purge, 1)))
+end
+
+return claims
@@ -46,11 +46,13 @@ local getNextInterval = function(interval)
 end
 
 
-local results  = redis.call("ZRANGEBYSCORE", pendingNotificationQueue, 0, maxTime, "LIMIT", 0, limit)
+-- Returns a flattened list of destinations and the times at which their notifications were due
+local results  = redis.call("ZRANGEBYSCORE", pendingNotificationQueue, 0, maxTime, "WITHSCORES", "LIMIT", 0, limit)
 local collated = {}
 
 if results and next(results) then
-    for i, name in ipairs(results) do
+    for i = 1, #results, 2 do
+        local name         = results[i]
         local pending      = hgetall(name)
         local lastInterval = pending["interval"]
 
@@ -63,7 +65,8 @@ if results and next(results) then
         redis.call("HSET", name, "interval", nextInterval)
         redis.call("ZADD", pendingNotificationQueue, tonumber(maxTime) + nextInterval, name)
 
-        collated[i] = pending["account"] .. ":" .. pending["device"]
+        collated[i]     = pending["account"] .. ":" .. pending["device"]
+        collated[i + 1] = results[i + 1]
     end
 end
 
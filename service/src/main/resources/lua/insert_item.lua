@@ -4,9 +4,13 @@ local queueTotalIndexKey = KEYS[3]
 local message            = ARGV[1]
 local currentTime        = ARGV[2]
 local guid               = ARGV[3]
+local earlyPersistBytes  = tonumber(ARGV[4])
 
 if redis.call("HEXISTS", queueMetadataKey, guid) == 1 then
-    return tonumber(redis.call("HGET", queueMetadataKey, guid))
+    return { tonumber(redis.call("HGET", queueMetadataKey, guid)),
+             tonumber(redis.call("HGET", queueMetadataKey, "bytes") or 0),
+             redis.call("ZCARD", queueKey),
+             0 }
 end
 
 local messageId = redis.call("HINCRBY", queueMetadataKey, "counter", 1)
@@ -15,8 +19,21 @@ redis.call("ZADD", queueKey, "NX", messageId, message)
 
 redis.call("HSET", queueMetadataKey, guid, messageId)
 
+local queueBytes = redis.call("HINCRBY", queueMetadataKey, "bytes", string.len(message))
+local queueMessages = redis.call("ZCARD", queueKey)
+
 redis.call("EXPIRE", queueKey, 7776000)         -- 90 days
 redis.call("EXPIRE", queueMetadataKey, 7776000) -- 90 days
 
-redis.call("ZADD", queueTotalIndexKey, "NX", currentTime, queueKey)
-return messageId
+local promoted = 0
+
+if queueBytes > earlyPersistBytes and queueBytes - string.len(message) <= earlyPersistBytes then
+    -- Move queues that just became oversized to the front of the persistence index so they're persisted without waiting
+    -- for the usual persistence delay
+    redis.call("ZADD", queueTotalIndexKey, 0, queueKey)
+    promoted = 1
+else
+    redis.call("ZADD", queueTotalIndexKey, "NX", currentTime, queueKey)
+end
+
+return { messageId, queueBytes, queueMessages, promoted }
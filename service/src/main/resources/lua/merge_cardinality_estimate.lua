@@ -0,0 +1,18 @@
+-- Merges a serialized HyperLogLog into the estimator's shared HyperLogLog, starting the estimator's period if the shared
+-- HyperLogLog is new, and returns the estimated cardinality of the shared HyperLogLog. The scratch key must be in the
+-- same slot as the estimator key and is removed before the script returns.
+local estimatorKey = KEYS[1]
+local scratchKey = KEYS[2]
+local serializedHyperLogLog = ARGV[1]
+local periodMillis = ARGV[2]
+
+redis.call("SET", scratchKey, serializedHyperLogLog)
+redis.call("PFMERGE", estimatorKey, scratchKey)
+redis.call("DEL", scratchKey)
+
+-- This could be a single PEXPIRE with NX in Redis 7.x
+if redis.call("PTTL", estimatorKey) == -1 then
+    redis.call("PEXPIRE", estimatorKey, periodMillis)
+end
+
+return redis.call("PFCOUNT", estimatorKey)
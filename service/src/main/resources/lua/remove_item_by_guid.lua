@@ -15,6 +15,11 @@ for _, guid in ipairs(ARGV) do
 
         if envelope and next(envelope) then
             removedMessages[#removedMessages + 1] = envelope[1]
+
+            -- Queues created before sizes were tracked have no size to decrement
+            if redis.call("HINCRBY", queueMetadataKey, "bytes", -string.len(envelope[1])) < 0 then
+                redis.call("HSET", queueMetadataKey, "bytes", 0)
+            end
         end
     end
 end
@@ -0,0 +1,23 @@
+-- Replaces a cached account with the given account unless the cached account has a higher version. Returns 1 if the
+-- cached account was replaced or 0 otherwise.
+local accountKey = KEYS[1]
+local accountJson = ARGV[1]
+local accountVersion = tonumber(ARGV[2])
+local ttlSeconds = ARGV[3]
+
+local cachedAccountJson = redis.call("GET", accountKey)
+
+if cachedAccountJson then
+    local decoded, cachedAccount = pcall(cjson.decode, cachedAccountJson)
+
+    if decoded and type(cachedAccount) == "table" then
+        local cachedVersion = tonumber(cachedAccount["version"])
+
+        if cachedVersion ~= nil and cachedVersion > accountVersion then
+            return 0
+        end
+    end
+end
+
+redis.call("SET", accountKey, accountJson, "EX", ttlSeconds)
+return 1
@@ -0,0 +1,30 @@
+-- Caches the given verification session. A session's updatedTimestamp serves as its version.
+--
+-- If an expected version is given, the cached session is replaced only if it is absent or has the expected version (or
+-- is already the given version). Otherwise, the cached session is replaced only if it is absent or strictly older than
+-- the given session. Returns 1 if the cached session was replaced or 0 otherwise.
+local sessionKey = KEYS[1]
+local sessionJson = ARGV[1]
+local sessionVersion = tonumber(ARGV[2])
+local expectedVersion = tonumber(ARGV[3])
+local ttlSeconds = ARGV[4]
+
+local cachedSessionJson = redis.call("GET", sessionKey)
+
+if cachedSessionJson then
+    local decoded, cachedSession = pcall(cjson.decode, cachedSessionJson)
+    local cachedVersion = decoded and type(cachedSession) == "table" and tonumber(cachedSession["updatedTimestamp"])
+
+    if cachedVersion then
+        if expectedVersion then
+            if cachedVersion ~= expectedVersion and cachedVersion ~= sessionVersion then
+                return 0
+            end
+        elseif cachedVersion >= sessionVersion then
+            return 0
+        end
+    end
+end
+
+redis.call("SET", sessionKey, sessionJson, "EX", ttlSeconds)
+return 1
@@ -9,6 +9,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.whispersystems.textsecuregcm.tests.util.JsonHelpers.asJson;
@@ -41,6 +43,8 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
@@ -48,6 +52,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
@@ -87,6 +92,7 @@ import org.whispersystems.textsecuregcm.entities.AccountStaleDevices;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.IncomingMessage;
 import org.whispersystems.textsecuregcm.entities.IncomingMessageList;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageProtos;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 import org.whispersystems.textsecuregcm.entities.MismatchedDevices;
@@ -105,6 +111,7 @@ import org.whispersystems.textsecuregcm.limits.RateLimiter;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.mappers.RateLimitExceededExceptionMapper;
 import org.whispersystems.textsecuregcm.providers.MultiRecipientMessageProvider;
+import org.whispersystems.textsecuregcm.providers.ProtobufIncomingMessageListProvider;
 import org.whispersystems.textsecuregcm.push.MessageSender;
 import org.whispersystems.textsecuregcm.push.NotPushRegisteredException;
 import org.whispersystems.textsecuregcm.push.PushNotificationManager;
@@ -177,6 +184,7 @@ class MessageControllerTest {
           ImmutableSet.of(AuthenticatedAccount.class, DisabledPermittedAuthenticatedAccount.class)))
       .addProvider(RateLimitExceededExceptionMapper.class)
       .addProvider(MultiRecipientMessageProvider.class)
+      .addProvider(ProtobufIncomingMessageListProvider.class)
       .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
       .addResource(
           new MessageController(rateLimiters, cardinalityEstimator, messageSender, receiptSender, accountsManager, deletedAccounts,
@@ -288,12 +296,12 @@ class MessageControllerTest {
 
     assertThat("Good Response", response.getStatus(), is(equalTo(200)));
 
-    ArgumentCaptor<Envelope> captor = ArgumentCaptor.forClass(Envelope.class);
-    verify(messageSender, times(1)).sendMessage(any(Account.class), any(Device.class), captor.capture(), eq(false));
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(1, envelopes.size());
 
-    assertTrue(captor.getValue().hasSourceUuid());
-    assertTrue(captor.getValue().hasSourceDevice());
-    assertTrue(captor.getValue().getUrgent());
+    assertTrue(envelopes.get(0).hasSourceUuid());
+    assertTrue(envelopes.get(0).hasSourceDevice());
+    assertTrue(envelopes.get(0).getUrgent());
   }
 
   @Test
@@ -309,12 +317,12 @@ class MessageControllerTest {
 
     assertThat("Good Response", response.getStatus(), is(equalTo(200)));
 
-    ArgumentCaptor<Envelope> captor = ArgumentCaptor.forClass(Envelope.class);
-    verify(messageSender, times(1)).sendMessage(any(Account.class), any(Device.class), captor.capture(), eq(false));
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(1, envelopes.size());
 
-    assertTrue(captor.getValue().hasSourceUuid());
-    assertTrue(captor.getValue().hasSourceDevice());
-    assertFalse(captor.getValue().getUrgent());
+    assertTrue(envelopes.get(0).hasSourceUuid());
+    assertTrue(envelopes.get(0).hasSourceDevice());
+    assertFalse(envelopes.get(0).getUrgent());
   }
 
   @Test
@@ -330,11 +338,59 @@ class MessageControllerTest {
 
     assertThat("Good Response", response.getStatus(), is(equalTo(200)));
 
-    ArgumentCaptor<Envelope> captor = ArgumentCaptor.forClass(Envelope.class);
-    verify(messageSender, times(1)).sendMessage(any(Account.class), any(Device.class), captor.capture(), eq(false));
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(1, envelopes.size());
 
-    assertTrue(captor.getValue().hasSourceUuid());
-    assertTrue(captor.getValue().hasSourceDevice());
+    assertTrue(envelopes.get(0).hasSourceUuid());
+    assertTrue(envelopes.get(0).hasSourceDevice());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+      ProtobufIncomingMessageListProvider.MEDIA_TYPE,
+      ProtobufIncomingMessageListProvider.MEDIA_TYPE + "; proto=IncomingMessageList"
+  })
+  void testSingleDeviceCurrentProtobuf(final String contentType) throws Exception {
+    final byte[] content = "foobar".getBytes(StandardCharsets.UTF_8);
+
+    final IncomingMessageProtos.IncomingMessageList messageList = IncomingMessageProtos.IncomingMessageList.newBuilder()
+        .addMessages(IncomingMessageProtos.IncomingMessage.newBuilder()
+            .setType(1)
+            .setDestinationDeviceId(1)
+            .setContent(ByteString.copyFrom(content)))
+        .setUrgent(false)
+        .setTimestamp(1234)
+        .build();
+
+    Response response =
+        resources.getJerseyTest()
+            .target(String.format("/v1/messages/%s", SINGLE_DEVICE_UUID))
+            .request()
+            .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+            .put(Entity.entity(messageList.toByteArray(), contentType));
+
+    assertThat("Good Response", response.getStatus(), is(equalTo(200)));
+
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(1, envelopes.size());
+
+    assertTrue(envelopes.get(0).hasSourceUuid());
+    assertEquals(1234, envelopes.get(0).getTimestamp());
+    assertFalse(envelopes.get(0).getUrgent());
+    assertArrayEquals(content, envelopes.get(0).getContent().toByteArray());
+  }
+
+  @Test
+  void testMalformedProtobuf() throws Exception {
+    Response response =
+        resources.getJerseyTest()
+            .target(String.format("/v1/messages/%s", SINGLE_DEVICE_UUID))
+            .request()
+            .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+            .put(Entity.entity(new byte[]{0x0a, 0x7f, 0x01}, ProtobufIncomingMessageListProvider.MEDIA_TYPE));
+
+    assertThat("Bad request", response.getStatus(), is(equalTo(400)));
+    verifyNoInteractions(messageSender);
   }
 
   @Test
@@ -363,11 +419,11 @@ class MessageControllerTest {
 
     assertThat("Good Response", response.getStatus(), is(equalTo(200)));
 
-    ArgumentCaptor<Envelope> captor = ArgumentCaptor.forClass(Envelope.class);
-    verify(messageSender, times(1)).sendMessage(any(Account.class), any(Device.class), captor.capture(), eq(false));
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(1, envelopes.size());
 
-    assertFalse(captor.getValue().hasSourceUuid());
-    assertFalse(captor.getValue().hasSourceDevice());
+    assertFalse(envelopes.get(0).hasSourceUuid());
+    assertFalse(envelopes.get(0).hasSourceDevice());
   }
 
   @Test
@@ -451,11 +507,10 @@ class MessageControllerTest {
 
     assertThat("Good Response Code", response.getStatus(), is(equalTo(200)));
 
-    final ArgumentCaptor<Envelope> envelopeCaptor = ArgumentCaptor.forClass(Envelope.class);
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(2, envelopes.size());
 
-    verify(messageSender, times(2)).sendMessage(any(Account.class), any(Device.class), envelopeCaptor.capture(), eq(false));
-
-    envelopeCaptor.getAllValues().forEach(envelope -> assertTrue(envelope.getUrgent()));
+    envelopes.forEach(envelope -> assertTrue(envelope.getUrgent()));
   }
 
   @Test
@@ -471,11 +526,10 @@ class MessageControllerTest {
 
     assertThat("Good Response Code", response.getStatus(), is(equalTo(200)));
 
-    final ArgumentCaptor<Envelope> envelopeCaptor = ArgumentCaptor.forClass(Envelope.class);
-
-    verify(messageSender, times(2)).sendMessage(any(Account.class), any(Device.class), envelopeCaptor.capture(), eq(false));
+    final List<Envelope> envelopes = verifySentEnvelopes(false);
+    assertEquals(2, envelopes.size());
 
-    envelopeCaptor.getAllValues().forEach(envelope -> assertFalse(envelope.getUrgent()));
+    envelopes.forEach(envelope -> assertFalse(envelope.getUrgent()));
   }
 
   @Test
@@ -491,7 +545,29 @@ class MessageControllerTest {
 
     assertThat("Good Response Code", response.getStatus(), is(equalTo(200)));
 
-    verify(messageSender, times(2)).sendMessage(any(Account.class), any(Device.class), any(Envelope.class), eq(false));
+    assertEquals(2, verifySentEnvelopes(false).size());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void testMultiDeviceNotPushRegistered(final boolean masterDevice) throws Exception {
+    final Device notPushRegisteredDevice = mock(Device.class);
+    when(notPushRegisteredDevice.isMaster()).thenReturn(masterDevice);
+
+    when(messageSender.sendMessages(any(Account.class), any(), eq(false)))
+        .thenReturn(List.of(notPushRegisteredDevice));
+
+    Response response =
+        resources.getJerseyTest()
+            .target(String.format("/v1/messages/%s", MULTI_DEVICE_UUID))
+            .request()
+            .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+            .put(Entity.entity(SystemMapper.jsonMapper().readValue(jsonFixture("fixtures/current_message_multi_device.json"),
+                    IncomingMessageList.class),
+                MediaType.APPLICATION_JSON_TYPE));
+
+    assertThat("Good Response Code", response.getStatus(), is(equalTo(masterDevice ? 404 : 200)));
+    assertEquals(2, verifySentEnvelopes(false).size());
   }
 
   @Test
@@ -886,8 +962,7 @@ class MessageControllerTest {
 
     assertThat("Bad response", response.getStatus(), is(equalTo(413)));
 
-    verify(messageSender, never()).sendMessage(any(Account.class), any(Device.class), any(Envelope.class),
-        anyBoolean());
+    verify(messageSender, never()).sendMessages(any(), any(), anyBoolean());
   }
 
   @ParameterizedTest
@@ -905,11 +980,10 @@ class MessageControllerTest {
     if (expectOk) {
       assertEquals(200, response.getStatus());
 
-      final ArgumentCaptor<Envelope> captor = ArgumentCaptor.forClass(Envelope.class);
-      verify(messageSender).sendMessage(any(Account.class), any(Device.class), captor.capture(), eq(false));
+      assertEquals(1, verifySentEnvelopes(false).size());
     } else {
       assertEquals(400, response.getStatus());
-      verify(messageSender, never()).sendMessage(any(), any(), any(), anyBoolean());
+      verify(messageSender, never()).sendMessages(any(), any(), anyBoolean());
     }
   }
 
@@ -1365,6 +1439,14 @@ class MessageControllerTest {
         Arguments.of(new PniServiceIdentifier(MULTI_DEVICE_PNI)));
   }
 
+  @SuppressWarnings("unchecked")
+  private static List<Envelope> verifySentEnvelopes(final boolean online) {
+    final ArgumentCaptor<Map<Device, Envelope>> envelopesCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(messageSender).sendMessages(any(Account.class), envelopesCaptor.capture(), eq(online));
+
+    return new ArrayList<>(envelopesCaptor.getValue().values());
+  }
+
   private void checkBadMultiRecipientResponse(Response response, int expectedCode) throws Exception {
     assertThat("Unexpected response", response.getStatus(), is(equalTo(expectedCode)));
     verify(messageSender, never()).sendMessage(any(), any(), any(), anyBoolean());
@@ -18,6 +18,7 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
 import org.junit.jupiter.api.BeforeEach;
@@ -116,6 +117,29 @@ class PaymentsControllerTest {
     assertThat(conversions.getCurrencies().get(0).getConversions().get("USD")).isEqualTo(new BigDecimal("2.35"));
   }
 
+  @Test
+  void testGetCurrencyConversionsNotModified() {
+    final Response response =
+        resources.getJerseyTest()
+            .target("/v1/payments/conversions")
+            .request()
+            .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+            .get();
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getEntityTag()).isNotNull();
+
+    final Response notModifiedResponse =
+        resources.getJerseyTest()
+            .target("/v1/payments/conversions")
+            .request()
+            .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+            .header(HttpHeaders.IF_NONE_MATCH, response.getEntityTag().toString())
+            .get();
+
+    assertThat(notModifiedResponse.getStatus()).isEqualTo(304);
+  }
+
   @Test
   void testGetCurrencyConversions_Json() {
     String json =
@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import javax.ws.rs.client.Entity;
@@ -210,6 +211,8 @@ class ProfileControllerTest {
     when(capabilitiesAccount.isEnabled()).thenReturn(true);
 
     when(accountsManager.getByServiceIdentifier(any())).thenReturn(Optional.empty());
+    when(accountsManager.getIdentityKeyFingerprints(any()))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyMap()));
 
     when(accountsManager.getByE164(AuthHelper.VALID_NUMBER_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID_TWO)).thenReturn(Optional.of(profileAccount));
@@ -1242,6 +1245,39 @@ class ProfileControllerTest {
     }
   }
 
+  @Test
+  void testBatchIdentityCheckFingerprintIndex() {
+    final IdentityKey staleIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+
+    when(accountsManager.getIdentityKeyFingerprints(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+        new AciServiceIdentifier(AuthHelper.VALID_UUID), convertKeyToFingerprint(ACCOUNT_IDENTITY_KEY),
+        new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO), convertKeyToFingerprint(ACCOUNT_TWO_IDENTITY_KEY))));
+
+    try (final Response response = resources.getJerseyTest().target("/v1/profile/identity_check/batch").request()
+        .post(Entity.json(new BatchIdentityCheckRequest(List.of(
+            new BatchIdentityCheckRequest.Element(new AciServiceIdentifier(AuthHelper.VALID_UUID), null,
+                convertKeyToFingerprint(ACCOUNT_IDENTITY_KEY)),
+            new BatchIdentityCheckRequest.Element(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO), null,
+                convertKeyToFingerprint(staleIdentityKey)),
+            new BatchIdentityCheckRequest.Element(new PniServiceIdentifier(AuthHelper.VALID_PNI_TWO), null,
+                convertKeyToFingerprint(staleIdentityKey))
+        ))))) {
+      assertThat(response.getStatus()).isEqualTo(200);
+
+      final BatchIdentityCheckResponse identityCheckResponse = response.readEntity(BatchIdentityCheckResponse.class);
+      assertThat(identityCheckResponse.elements()).hasSize(2);
+      assertThat(identityCheckResponse.elements())
+          .extracting(BatchIdentityCheckResponse.Element::identityKey)
+          .containsExactlyInAnyOrder(ACCOUNT_TWO_IDENTITY_KEY, ACCOUNT_TWO_PHONE_NUMBER_IDENTITY_KEY);
+    }
+
+    // The matching element should be resolved entirely from the fingerprint index; the mismatched and missing elements
+    // should fall back to full account resolution
+    verify(accountsManager, never()).getByServiceIdentifier(new AciServiceIdentifier(AuthHelper.VALID_UUID));
+    verify(accountsManager).getByServiceIdentifier(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO));
+    verify(accountsManager).getByServiceIdentifier(new PniServiceIdentifier(AuthHelper.VALID_PNI_TWO));
+  }
+
   @Test
   void testBatchIdentityCheckDeserialization() throws Exception {
 
@@ -12,6 +12,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -33,6 +34,7 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -41,6 +43,8 @@ import java.util.concurrent.CompletionException;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.server.ServerProperties;
 import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
@@ -126,6 +130,17 @@ class SubscriptionControllerTest {
 
     when(STRIPE_MANAGER.getProcessor()).thenReturn(SubscriptionProcessor.STRIPE);
     when(BRAINTREE_MANAGER.getProcessor()).thenReturn(SubscriptionProcessor.BRAINTREE);
+
+    // resolve acceptable languages to the language of the most-preferred locale, as a resource bundle with only
+    // language-level translations would
+    when(BADGE_TRANSLATOR.resolveLocale(any())).thenAnswer(invocation -> resolveLocale(invocation.getArgument(0)));
+    when(LEVEL_TRANSLATOR.resolveLocale(any())).thenAnswer(invocation -> resolveLocale(invocation.getArgument(0)));
+
+    SUBSCRIPTION_CONTROLLER.invalidateResponseCache();
+  }
+
+  private static Locale resolveLocale(final List<Locale> acceptableLanguages) {
+    return acceptableLanguages.isEmpty() ? Locale.ROOT : new Locale(acceptableLanguages.get(0).getLanguage());
   }
 
   @Test
@@ -792,6 +807,75 @@ class SubscriptionControllerTest {
     });
   }
 
+  @Test
+  void getLevelsCached() {
+    mockLevelTranslations();
+
+    final Response english = getLevelsResponse("en-US", null);
+    final Response otherEnglish = getLevelsResponse("en-GB, de;q=0.5", null);
+
+    assertThat(english.getStatus()).isEqualTo(200);
+    assertThat(otherEnglish.getStatus()).isEqualTo(200);
+    assertThat(otherEnglish.getEntityTag()).isEqualTo(english.getEntityTag());
+    verify(LEVEL_TRANSLATOR, times(1)).translate(any(), eq("B1"));
+
+    final Response german = getLevelsResponse("de", null);
+
+    assertThat(german.getStatus()).isEqualTo(200);
+    verify(LEVEL_TRANSLATOR, times(2)).translate(any(), eq("B1"));
+  }
+
+  @Test
+  void getLevelsNotModified() {
+    mockLevelTranslations();
+
+    final EntityTag entityTag = getLevelsResponse("en-US", null).getEntityTag();
+    assertThat(entityTag).isNotNull();
+
+    final Response response = getLevelsResponse("en-GB", "\"" + entityTag.getValue() + "\"");
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getEntityTag()).isEqualTo(entityTag);
+    verify(LEVEL_TRANSLATOR, times(1)).translate(any(), eq("B1"));
+  }
+
+  @Test
+  void getLevelsInvalidated() {
+    mockLevelTranslations();
+
+    final Response original = getLevelsResponse("en-US", null);
+
+    when(LEVEL_TRANSLATOR.translate(any(), eq("B1"))).thenReturn("Y1");
+    SUBSCRIPTION_CONTROLLER.invalidateResponseCache();
+
+    final Response rebuilt = getLevelsResponse("en-US", null);
+
+    assertThat(rebuilt.getStatus()).isEqualTo(200);
+    assertThat(rebuilt.getEntityTag()).isNotEqualTo(original.getEntityTag());
+    assertThat(rebuilt.readEntity(GetLevelsResponse.class).getLevels().get(5L).getName()).isEqualTo("Y1");
+    verify(LEVEL_TRANSLATOR, times(2)).translate(any(), eq("B1"));
+  }
+
+  private static Response getLevelsResponse(final String acceptLanguage, final String ifNoneMatch) {
+    return RESOURCE_EXTENSION.target("/v1/subscription/levels")
+        .request()
+        .header(HttpHeaders.ACCEPT_LANGUAGE, acceptLanguage)
+        .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch)
+        .get();
+  }
+
+  private static void mockLevelTranslations() {
+    for (final String badgeId : List.of("B1", "B2", "B3")) {
+      when(BADGE_TRANSLATOR.translate(any(), eq(badgeId))).thenReturn(new Badge(badgeId, "cat", "name", "desc",
+          List.of("l", "m", "h", "x", "xx", "xxx"), "SVG",
+          List.of(new BadgeSvg("sl", "sd"), new BadgeSvg("ml", "md"), new BadgeSvg("ll", "ld"))));
+    }
+
+    when(LEVEL_TRANSLATOR.translate(any(), eq("B1"))).thenReturn("Z1");
+    when(LEVEL_TRANSLATOR.translate(any(), eq("B2"))).thenReturn("Z2");
+    when(LEVEL_TRANSLATOR.translate(any(), eq("B3"))).thenReturn("Z3");
+  }
+
   /**
    * Encapsulates {@code static} configuration, to keep the class header simpler and avoid illegal forward references
    */
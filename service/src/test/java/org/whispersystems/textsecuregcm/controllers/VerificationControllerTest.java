@@ -12,10 +12,12 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -73,6 +75,7 @@ import org.whispersystems.textsecuregcm.registration.VerificationSession;
 import org.whispersystems.textsecuregcm.spam.ScoreThresholdProvider;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
+import org.whispersystems.textsecuregcm.storage.ContestedOptimisticLockException;
 import org.whispersystems.textsecuregcm.storage.RegistrationRecoveryPasswordsManager;
 import org.whispersystems.textsecuregcm.storage.VerificationSessionManager;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
@@ -303,7 +306,7 @@ class VerificationControllerTest {
                 new VerificationSession(null, List.of(VerificationSession.Information.CAPTCHA), Collections.emptyList(),
                     false, clock.millis(), clock.millis(), registrationServiceSession.expiration()))));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -315,7 +318,7 @@ class VerificationControllerTest {
 
       final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
           VerificationSession.class);
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
+      verify(verificationSessionManager).update(any(), anyLong(), verificationSessionArgumentCaptor.capture());
 
       final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
       assertEquals(List.of(VerificationSession.Information.PUSH_CHALLENGE, VerificationSession.Information.CAPTCHA),
@@ -332,6 +335,50 @@ class VerificationControllerTest {
     }
   }
 
+  @Test
+  void patchSessionConcurrentlyUpdated() {
+    final String encodedSessionId = encodeSessionId(SESSION_ID);
+    final RegistrationServiceSession registrationServiceSession = new RegistrationServiceSession(SESSION_ID, NUMBER,
+        false, null, null, null,
+        SESSION_EXPIRATION_SECONDS);
+    when(registrationServiceClient.getSession(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(
+            Optional.of(
+                registrationServiceSession)));
+
+    final VerificationSession storedSession = new VerificationSession(null,
+        List.of(VerificationSession.Information.CAPTCHA), Collections.emptyList(), false, clock.millis(), clock.millis(),
+        registrationServiceSession.expiration());
+
+    final VerificationSession concurrentlyUpdatedSession = new VerificationSession("challenge",
+        List.of(VerificationSession.Information.PUSH_CHALLENGE, VerificationSession.Information.CAPTCHA),
+        Collections.emptyList(), false, storedSession.createdTimestamp(), storedSession.updatedTimestamp() + 1,
+        registrationServiceSession.expiration());
+
+    when(verificationSessionManager.findForId(any()))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(storedSession)))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(concurrentlyUpdatedSession)));
+
+    when(verificationSessionManager.update(any(), anyLong(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new ContestedOptimisticLockException()));
+
+    final Invocation.Builder request = resources.getJerseyTest()
+        .target("/v1/verification/session/" + encodedSessionId)
+        .request()
+        .header(HttpHeaders.X_FORWARDED_FOR, "127.0.0.1");
+    try (Response response = request.method("PATCH", Entity.json(updateSessionJson(null, null, "abcde", "fcm")))) {
+      assertEquals(HttpStatus.SC_CONFLICT, response.getStatus());
+
+      verify(verificationSessionManager).update(any(), eq(storedSession.getVersion()), any());
+
+      final VerificationSessionResponse verificationSessionResponse = response.readEntity(
+          VerificationSessionResponse.class);
+
+      assertEquals(concurrentlyUpdatedSession.requestedInformation(),
+          verificationSessionResponse.requestedInformation());
+    }
+  }
+
   @Test
   void patchSessionCaptchaRateLimited() throws Exception {
     final String encodedSessionId = encodeSessionId(SESSION_ID);
@@ -347,7 +394,7 @@ class VerificationControllerTest {
             Optional.of(new VerificationSession(null, Collections.emptyList(), Collections.emptyList(), false,
                 clock.millis(), clock.millis(), registrationServiceSession.expiration()))));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     doThrow(RateLimitExceededException.class)
@@ -383,7 +430,7 @@ class VerificationControllerTest {
             Optional.of(new VerificationSession(null, Collections.emptyList(), Collections.emptyList(), false,
                 clock.millis(), clock.millis(), registrationServiceSession.expiration()))));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     doThrow(RateLimitExceededException.class)
@@ -419,7 +466,7 @@ class VerificationControllerTest {
             Optional.of(new VerificationSession("challenge", List.of(VerificationSession.Information.PUSH_CHALLENGE),
                 Collections.emptyList(), false, clock.millis(), clock.millis(),
                 registrationServiceSession.expiration()))));
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -457,7 +504,7 @@ class VerificationControllerTest {
     when(registrationCaptchaManager.assessCaptcha(any(), any()))
         .thenReturn(Optional.of(AssessmentResult.invalid()));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -467,14 +514,8 @@ class VerificationControllerTest {
     try (Response response = request.method("PATCH", Entity.json(updateSessionJson("captcha", null, null, null)))) {
       assertEquals(HttpStatus.SC_FORBIDDEN, response.getStatus());
 
-      final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
-          VerificationSession.class);
-
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
-
-      final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
-      assertEquals(List.of(VerificationSession.Information.CAPTCHA),
-          updatedSession.requestedInformation());
+      // Nothing about the session changed, so there's nothing to store
+      verify(verificationSessionManager, never()).update(any(), anyLong(), any());
 
       final VerificationSessionResponse verificationSessionResponse = response.readEntity(
           VerificationSessionResponse.class);
@@ -501,7 +542,7 @@ class VerificationControllerTest {
                 List.of(VerificationSession.Information.CAPTCHA),
                 List.of(VerificationSession.Information.PUSH_CHALLENGE), false,
                 clock.millis(), clock.millis(), registrationServiceSession.expiration()))));
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -511,15 +552,8 @@ class VerificationControllerTest {
     try (Response response = request.method("PATCH", Entity.json(updateSessionJson(null, "challenge", null, null)))) {
       assertEquals(HttpStatus.SC_OK, response.getStatus());
 
-      final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
-          VerificationSession.class);
-
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
-
-      final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
-      assertEquals(List.of(VerificationSession.Information.PUSH_CHALLENGE),
-          updatedSession.submittedInformation());
-      assertEquals(List.of(VerificationSession.Information.CAPTCHA), updatedSession.requestedInformation());
+      // Nothing about the session changed, so there's nothing to store
+      verify(verificationSessionManager, never()).update(any(), anyLong(), any());
 
       final VerificationSessionResponse verificationSessionResponse = response.readEntity(
           VerificationSessionResponse.class);
@@ -544,7 +578,7 @@ class VerificationControllerTest {
             Optional.of(new VerificationSession("challenge", List.of(), List.of(), true, clock.millis(), clock.millis(),
                 registrationServiceSession.expiration()))));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -581,7 +615,7 @@ class VerificationControllerTest {
                 List.of(VerificationSession.Information.PUSH_CHALLENGE, VerificationSession.Information.CAPTCHA),
                 Collections.emptyList(), false, clock.millis(), clock.millis(),
                 registrationServiceSession.expiration()))));
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -594,7 +628,7 @@ class VerificationControllerTest {
       final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
           VerificationSession.class);
 
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
+      verify(verificationSessionManager).update(any(), anyLong(), verificationSessionArgumentCaptor.capture());
 
       final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
       assertEquals(List.of(VerificationSession.Information.PUSH_CHALLENGE),
@@ -628,7 +662,7 @@ class VerificationControllerTest {
     when(registrationCaptchaManager.assessCaptcha(any(), any()))
         .thenReturn(Optional.of(AssessmentResult.alwaysValid()));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -641,7 +675,7 @@ class VerificationControllerTest {
       final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
           VerificationSession.class);
 
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
+      verify(verificationSessionManager).update(any(), anyLong(), verificationSessionArgumentCaptor.capture());
 
       final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
       assertEquals(List.of(VerificationSession.Information.CAPTCHA),
@@ -676,7 +710,7 @@ class VerificationControllerTest {
     when(registrationCaptchaManager.assessCaptcha(any(), any()))
         .thenReturn(Optional.of(AssessmentResult.alwaysValid()));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -690,7 +724,7 @@ class VerificationControllerTest {
       final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
           VerificationSession.class);
 
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
+      verify(verificationSessionManager).update(any(), anyLong(), verificationSessionArgumentCaptor.capture());
 
       final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
       assertEquals(List.of(VerificationSession.Information.PUSH_CHALLENGE, VerificationSession.Information.CAPTCHA),
@@ -723,7 +757,7 @@ class VerificationControllerTest {
     when(registrationCaptchaManager.assessCaptcha(any(), any()))
         .thenThrow(new IOException("expected service error"));
 
-    when(verificationSessionManager.update(any(), any()))
+    when(verificationSessionManager.update(any(), anyLong(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
 
     final Invocation.Builder request = resources.getJerseyTest()
@@ -737,7 +771,7 @@ class VerificationControllerTest {
       final ArgumentCaptor<VerificationSession> verificationSessionArgumentCaptor = ArgumentCaptor.forClass(
           VerificationSession.class);
 
-      verify(verificationSessionManager).update(any(), verificationSessionArgumentCaptor.capture());
+      verify(verificationSessionManager).update(any(), anyLong(), verificationSessionArgumentCaptor.capture());
 
       final VerificationSession updatedSession = verificationSessionArgumentCaptor.getValue();
       assertTrue(updatedSession.submittedInformation().isEmpty());
@@ -6,48 +6,162 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.lettuce.core.cluster.api.sync.Executions;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.assertj.core.data.Percentage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
-import java.time.Duration;
 
 public class CardinalityEstimatorTest {
 
   @RegisterExtension
   private static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
 
+  private static final String HLL_NAME = "cardinality_estimator::{test}";
+
   @Test
   public void testAdd() throws Exception {
     final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
-    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(1));
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(1),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
 
     estimator.add("1");
+    estimator.flush().join();
 
-    long count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
+    long count = redisCluster.withCluster(conn -> conn.sync().pfcount(HLL_NAME));
     assertThat(count).isEqualTo(1).isEqualTo(estimator.estimate());
 
     estimator.add("2");
-    count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
+    estimator.flush().join();
+    count = redisCluster.withCluster(conn -> conn.sync().pfcount(HLL_NAME));
     assertThat(count).isEqualTo(2).isEqualTo(estimator.estimate());
 
     estimator.add("1");
-    count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
+    estimator.flush().join();
+    count = redisCluster.withCluster(conn -> conn.sync().pfcount(HLL_NAME));
     assertThat(count).isEqualTo(2).isEqualTo(estimator.estimate());
   }
 
+  @Test
+  public void testAddNotVisibleUntilFlushed() throws Exception {
+    final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
+
+    estimator.add("1");
+    final long exists = redisCluster.withCluster(conn -> conn.sync().exists(HLL_NAME));
+    assertThat(exists).isEqualTo(0L);
+    assertThat(estimator.estimate()).isEqualTo(0);
+
+    estimator.flush().join();
+    assertThat(estimator.estimate()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFlushSharedAcrossHosts() throws Exception {
+    final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final CardinalityEstimator firstEstimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
+    final CardinalityEstimator secondEstimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
+
+    firstEstimator.add("1");
+    secondEstimator.add("1");
+    secondEstimator.add("2");
+
+    firstEstimator.flush().join();
+    secondEstimator.flush().join();
+    assertThat(secondEstimator.estimate()).isEqualTo(2);
+
+    // Flushing without any new local elements still picks up elements added by other hosts
+    firstEstimator.flush().join();
+    assertThat(firstEstimator.estimate()).isEqualTo(2);
+  }
+
+  @Test
+  public void testMergeMatchesPfadd() throws Exception {
+    final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofSeconds(10),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
+
+    final String pfaddHllName = "cardinality_estimator::pfadd";
+    final int uniqueElements = 20_000;
+    final int flushes = 5;
+
+    resetCommandStats(redisCluster);
+
+    for (int i = 0; i < uniqueElements; i++) {
+      final String element = "element-" + i;
+
+      // Add each element twice, as repeated senders would
+      for (int j = 0; j < 2; j++) {
+        estimator.add(element);
+        redisCluster.useCluster(conn -> conn.sync().pfadd(pfaddHllName, element));
+      }
+
+      if ((i + 1) % (uniqueElements / flushes) == 0) {
+        estimator.flush().join();
+      }
+    }
+
+    final long pfaddCalls = getCommandCalls(redisCluster, "pfadd");
+    final long scriptCalls = getCommandCalls(redisCluster, "evalsha") + getCommandCalls(redisCluster, "eval");
+
+    final long pfaddEstimate = redisCluster.withCluster(conn -> conn.sync().pfcount(pfaddHllName));
+
+    // The local sketch hashes elements and lays out registers exactly as Redis does, so merging it is exactly as
+    // accurate as adding every element directly
+    assertThat(estimator.estimate()).isEqualTo(pfaddEstimate);
+    assertThat((double) estimator.estimate()).isCloseTo(uniqueElements, Percentage.withPercentage(2));
+
+    // Adding elements directly costs at least one call per element; merging costs one call per flush (plus one to
+    // load the script)
+    assertThat(pfaddCalls).isEqualTo(uniqueElements * 2);
+    assertThat(scriptCalls).isLessThanOrEqualTo(flushes + 1);
+  }
+
   @Test
   @Timeout(5)
-  public void testEventuallyExpires() throws InterruptedException {
+  public void testEventuallyExpires() throws Exception {
     final FaultTolerantRedisCluster redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
-    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofMillis(100));
+    final CardinalityEstimator estimator = new CardinalityEstimator(redisCluster, "test", Duration.ofMillis(100),
+        mock(ScheduledExecutorService.class), Duration.ofSeconds(1));
     estimator.add("1");
+    estimator.flush().join();
     long count;
     do {
-      count = redisCluster.withCluster(conn -> conn.sync().pfcount("cardinality_estimator::test"));
+      count = redisCluster.withCluster(conn -> conn.sync().pfcount(HLL_NAME));
       Thread.sleep(1);
     } while (count != 0);
   }
 
+  private static void resetCommandStats(final FaultTolerantRedisCluster redisCluster) {
+    redisCluster.useCluster(conn -> conn.sync().upstream().commands().configResetstat());
+  }
+
+  private static long getCommandCalls(final FaultTolerantRedisCluster redisCluster, final String command) {
+    final Pattern callsPattern = Pattern.compile("^cmdstat_" + command + ":calls=(\\d+)", Pattern.MULTILINE);
+    final Executions<String> commandStats =
+        redisCluster.withCluster(conn -> conn.sync().upstream().commands().info("commandstats"));
+
+    long calls = 0;
+
+    for (final String nodeCommandStats : commandStats) {
+      final Matcher matcher = callsPattern.matcher(nodeCommandStats);
+
+      if (matcher.find()) {
+        calls += Long.parseLong(matcher.group(1));
+      }
+    }
+
+    return calls;
+  }
 }
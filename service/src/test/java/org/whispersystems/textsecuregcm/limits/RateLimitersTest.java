@@ -6,9 +6,13 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -16,9 +20,11 @@ import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicRateLimitPolicy;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
@@ -179,6 +185,96 @@ public class RateLimitersTest {
     assertEquals(configForStatic, limiter.config());
   }
 
+  @Test
+  void testLocalDenial() throws Exception {
+    final StaticRateLimiter rateLimiter = new StaticRateLimiter("test", new RateLimiterConfig(1, Duration.ofMinutes(1)),
+        validateScript, redisCluster, clock, dynamicConfig);
+
+    when(validateScript.execute(any(), any())).thenReturn(1L);
+
+    final RateLimitExceededException redisException =
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("key"));
+
+    assertEquals(Duration.ofMinutes(1), redisException.getRetryDuration().orElseThrow());
+    verify(validateScript, times(1)).execute(any(), any());
+
+    // Subsequent checks for the same key are rejected without consulting Redis until the retry-after time elapses
+    clock.incrementSeconds(15);
+
+    final RateLimitExceededException localException =
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("key"));
+
+    assertEquals(Duration.ofSeconds(45), localException.getRetryDuration().orElseThrow());
+    assertFalse(rateLimiter.hasAvailablePermits("key", 1));
+    final CompletionException asyncException =
+        assertThrows(CompletionException.class, () -> rateLimiter.validateAsync("key").toCompletableFuture().join());
+    assertTrue(asyncException.getCause() instanceof RateLimitExceededException);
+    verify(validateScript, times(1)).execute(any(), any());
+
+    // Other keys are unaffected
+    when(validateScript.execute(any(), any())).thenReturn(0L);
+    rateLimiter.validate("other-key");
+    verify(validateScript, times(2)).execute(any(), any());
+
+    clock.incrementSeconds(45);
+    rateLimiter.validate("key");
+    verify(validateScript, times(3)).execute(any(), any());
+  }
+
+  @Test
+  void testLocalDenialSmallerAmount() throws Exception {
+    final StaticRateLimiter rateLimiter = new StaticRateLimiter("test", new RateLimiterConfig(10, Duration.ofMinutes(1)),
+        validateScript, redisCluster, clock, dynamicConfig);
+
+    when(validateScript.execute(any(), any())).thenReturn(5L);
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("key", 10));
+
+    // A denial for a larger amount doesn't mean a smaller amount is unavailable
+    when(validateScript.execute(any(), any())).thenReturn(0L);
+    rateLimiter.validate("key", 5);
+    verify(validateScript, times(2)).execute(any(), any());
+
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("key", 10));
+    verify(validateScript, times(2)).execute(any(), any());
+  }
+
+  @Test
+  void testLocalDenialCleared() throws Exception {
+    final StaticRateLimiter rateLimiter = new StaticRateLimiter("test", new RateLimiterConfig(1, Duration.ofMinutes(1)),
+        validateScript, redisCluster, clock, dynamicConfig);
+
+    when(validateScript.execute(any(), any())).thenReturn(1L);
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("key"));
+
+    rateLimiter.clear("key");
+
+    when(validateScript.execute(any(), any())).thenReturn(0L);
+    rateLimiter.validate("key");
+    verify(validateScript, times(2)).execute(any(), any());
+  }
+
+  @Test
+  void testLocalDenialDiscardedOnConfigurationChange() throws Exception {
+    final Map<String, RateLimiterConfig> limitsConfigMap = new HashMap<>();
+    limitsConfigMap.put(RateLimiters.For.RATE_LIMIT_RESET.id(), new RateLimiterConfig(1, Duration.ofMinutes(1)));
+
+    when(configuration.getLimits()).thenReturn(limitsConfigMap);
+
+    final RateLimiters rateLimiters = new RateLimiters(Collections.emptyMap(), dynamicConfig, validateScript, redisCluster, clock);
+    final RateLimiter limiter = rateLimiters.getRateLimitResetLimiter();
+
+    when(validateScript.execute(any(), any())).thenReturn(1L);
+    assertThrows(RateLimitExceededException.class, () -> limiter.validate("key"));
+    assertThrows(RateLimitExceededException.class, () -> limiter.validate("key"));
+    verify(validateScript, times(1)).execute(any(), any());
+
+    limitsConfigMap.put(RateLimiters.For.RATE_LIMIT_RESET.id(), new RateLimiterConfig(10, Duration.ofMinutes(1)));
+
+    when(validateScript.execute(any(), any())).thenReturn(0L);
+    limiter.validate("key");
+    verify(validateScript, times(2)).execute(any(), any());
+  }
+
   private record TestDescriptor(String id) implements RateLimiterDescriptor {
 
     @Override
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MeterCacheTest {
+
+  private MeterRegistry meterRegistry;
+
+  private static final String COUNTER_NAME = "test";
+
+  private record CounterKey(String path, int status) {
+  }
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void get() {
+    final MeterCache<CounterKey, Counter> counters = MeterCache.counters(meterRegistry, COUNTER_NAME, 16,
+        key -> Tags.of("path", key.path(), "status", String.valueOf(key.status())));
+
+    counters.get(new CounterKey("/v1/test", 200)).increment();
+    counters.get(new CounterKey("/v1/test", 200)).increment();
+    counters.get(new CounterKey("/v1/test", 404)).increment();
+
+    assertThat(counters.get(new CounterKey("/v1/test", 200)))
+        .isSameAs(meterRegistry.counter(COUNTER_NAME, "path", "/v1/test", "status", "200"));
+
+    assertThat(meterRegistry.counter(COUNTER_NAME, "path", "/v1/test", "status", "200").count()).isEqualTo(2);
+    assertThat(meterRegistry.counter(COUNTER_NAME, "path", "/v1/test", "status", "404").count()).isEqualTo(1);
+    assertThat(counters.size()).isEqualTo(2);
+  }
+
+  @Test
+  void getResolvesOncePerKey() {
+    final AtomicInteger resolutions = new AtomicInteger();
+
+    final MeterCache<Integer, Counter> counters = new MeterCache<>(16, key -> {
+      resolutions.incrementAndGet();
+      return meterRegistry.counter(COUNTER_NAME, "key", String.valueOf(key));
+    });
+
+    for (int i = 0; i < 100; i++) {
+      counters.get(i % 4).increment();
+    }
+
+    assertThat(resolutions).hasValue(4);
+    assertThat(meterRegistry.counter(COUNTER_NAME, "key", "0").count()).isEqualTo(25);
+  }
+
+  @Test
+  void getBeyondMaxSize() {
+    final AtomicInteger resolutions = new AtomicInteger();
+
+    final int maxSize = 8;
+
+    final MeterCache<Integer, Counter> counters = new MeterCache<>(maxSize, key -> {
+      resolutions.incrementAndGet();
+      return meterRegistry.counter(COUNTER_NAME, "key", String.valueOf(key));
+    });
+
+    for (int i = 0; i < maxSize; i++) {
+      counters.get(i);
+    }
+
+    assertThat(counters.size()).isEqualTo(maxSize);
+
+    // Keys beyond the limit still resolve to the right meter, but aren't retained
+    counters.get(maxSize).increment();
+    counters.get(maxSize).increment();
+
+    assertThat(counters.size()).isEqualTo(maxSize);
+    assertThat(resolutions).hasValue(maxSize + 2);
+    assertThat(meterRegistry.counter(COUNTER_NAME, "key", String.valueOf(maxSize)).count()).isEqualTo(2);
+  }
+}
@@ -12,6 +12,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -19,10 +20,15 @@ import static org.mockito.Mockito.when;
 import io.lettuce.core.cluster.SlotHash;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -47,6 +53,7 @@ class ApnPushNotificationSchedulerTest {
   private Account account;
   private Device device;
 
+  private AccountsManager accountsManager;
   private APNSender apnSender;
   private TestClock clock;
 
@@ -72,11 +79,15 @@ class ApnPushNotificationSchedulerTest {
     when(account.getNumber()).thenReturn(ACCOUNT_NUMBER);
     when(account.getDevice(DEVICE_ID)).thenReturn(Optional.of(device));
 
-    final AccountsManager accountsManager = mock(AccountsManager.class);
+    accountsManager = mock(AccountsManager.class);
     when(accountsManager.getByE164(ACCOUNT_NUMBER)).thenReturn(Optional.of(account));
     when(accountsManager.getByAccountIdentifier(ACCOUNT_UUID)).thenReturn(Optional.of(account));
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(account)));
 
     apnSender = mock(APNSender.class);
+    when(apnSender.sendNotification(any()))
+        .thenReturn(CompletableFuture.completedFuture(new SendPushNotificationResult(true, null, false)));
     clock = TestClock.now();
 
     apnPushNotificationScheduler = new ApnPushNotificationScheduler(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
@@ -160,7 +171,7 @@ class ApnPushNotificationSchedulerTest {
 
     // Insert a timestamp for a recently-sent background push notification
     clock.pin(Instant.ofEpochMilli(recentNotificationTimestamp.toEpochMilli()));
-    apnPushNotificationScheduler.sendBackgroundNotification(account, device);
+    apnPushNotificationScheduler.sendBackgroundNotification(account, device).join();
 
     clock.pin(now);
     apnPushNotificationScheduler.scheduleBackgroundNotification(account, device).toCompletableFuture().get();
@@ -223,6 +234,98 @@ class ApnPushNotificationSchedulerTest {
     verify(apnSender, never()).sendNotification(any());
   }
 
+  @Test
+  void testProcessScheduledBackgroundNotificationsAccountLookupFailed()
+      throws ExecutionException, InterruptedException {
+
+    final ApnPushNotificationScheduler.NotificationWorker worker = apnPushNotificationScheduler.new NotificationWorker();
+
+    final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    clock.pin(now);
+    apnPushNotificationScheduler.scheduleBackgroundNotification(account, device).toCompletableFuture().get();
+
+    final int slot =
+        SlotHash.getSlot(ApnPushNotificationScheduler.getPendingBackgroundNotificationQueueKey(account, device));
+
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    assertEquals(1, worker.processScheduledBackgroundNotifications(slot));
+    verify(apnSender, never()).sendNotification(any());
+
+    // The entry should still be queued, and should be processed once its account can be retrieved
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(account)));
+
+    assertEquals(1, worker.processScheduledBackgroundNotifications(slot));
+    verify(apnSender).sendNotification(any());
+
+    assertEquals(0, worker.processScheduledBackgroundNotifications(slot));
+  }
+
+  @Test
+  void testProcessRecurringVoipNotificationsMissingAccount() throws ExecutionException, InterruptedException {
+    final ApnPushNotificationScheduler.NotificationWorker worker = apnPushNotificationScheduler.new NotificationWorker();
+    final long currentTimeMillis = System.currentTimeMillis();
+
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis - 30_000));
+    apnPushNotificationScheduler.scheduleRecurringVoipNotification(account, device).toCompletableFuture().get();
+
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis));
+
+    final int slot = SlotHash.getSlot(ApnPushNotificationScheduler.getEndpointKey(account, device));
+
+    assertEquals(1, worker.processRecurringVoipNotifications(slot));
+    verify(apnSender, never()).sendNotification(any());
+
+    // The entry for the missing account should be gone for good rather than rescheduled
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis + TimeUnit.DAYS.toMillis(1)));
+    assertTrue(apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(slot, 1).isEmpty());
+  }
+
+  @Test
+  void testProcessScheduledBackgroundNotificationsMultipleSlots() throws ExecutionException, InterruptedException {
+    final ApnPushNotificationScheduler.NotificationWorker worker = apnPushNotificationScheduler.new NotificationWorker();
+
+    final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    clock.pin(now);
+
+    final List<Account> accounts = new ArrayList<>();
+    final Set<Integer> slots = new HashSet<>();
+
+    for (int i = 0; i < 3; i++) {
+      final UUID accountIdentifier = UUID.randomUUID();
+
+      final Account otherAccount = mock(Account.class);
+      when(otherAccount.getUuid()).thenReturn(accountIdentifier);
+      when(otherAccount.getDevice(DEVICE_ID)).thenReturn(Optional.of(device));
+      when(accountsManager.getByAccountIdentifierAsync(accountIdentifier))
+          .thenReturn(CompletableFuture.completedFuture(Optional.of(otherAccount)));
+
+      apnPushNotificationScheduler.scheduleBackgroundNotification(otherAccount, device).toCompletableFuture().get();
+
+      accounts.add(otherAccount);
+      slots.add(SlotHash.getSlot(
+          ApnPushNotificationScheduler.getPendingBackgroundNotificationQueueKey(otherAccount, device)));
+    }
+
+    assertEquals(accounts.size(), worker.processScheduledBackgroundNotifications(new ArrayList<>(slots)));
+    verify(apnSender, times(accounts.size())).sendNotification(any());
+
+    for (final Account otherAccount : accounts) {
+      verify(accountsManager).getByAccountIdentifierAsync(otherAccount.getUuid());
+
+      assertEquals(Optional.empty(),
+          apnPushNotificationScheduler.getNextScheduledBackgroundNotificationTimestamp(otherAccount, device));
+    }
+
+    assertEquals(0, worker.processScheduledBackgroundNotifications(new ArrayList<>(slots)));
+  }
+
   @ParameterizedTest
   @CsvSource({
       "1, true",
@@ -220,30 +220,38 @@ class ClientPresenceManagerTest {
   }
 
   @Test
-  void testRenewPresence() {
+  void testRenewPresences() {
     final UUID accountUuid = UUID.randomUUID();
-    final long deviceId = 1;
+    final List<Long> deviceIds = List.of(1L, 2L, 3L);
 
-    final String presenceKey = ClientPresenceManager.getPresenceKey(accountUuid, deviceId);
+    for (final long deviceId : deviceIds) {
+      clientPresenceManager.setPresent(accountUuid, deviceId, NO_OP);
+    }
 
+    // Presence keys for clients connected to other hosts shouldn't be renewed
+    final String displacedPresenceKey = ClientPresenceManager.getPresenceKey(accountUuid, 4);
     REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(connection ->
-        connection.sync().set(presenceKey, clientPresenceManager.getManagerId()));
+        connection.sync().set(displacedPresenceKey, "another-manager"));
 
-    {
-      final int ttl = REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
-          connection.sync().ttl(presenceKey).intValue());
+    for (final long deviceId : deviceIds) {
+      final String presenceKey = ClientPresenceManager.getPresenceKey(accountUuid, deviceId);
 
-      assertEquals(-1, ttl);
+      REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(connection -> connection.sync().persist(presenceKey));
+      assertEquals(-1, (long) REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
+          connection.sync().ttl(presenceKey)));
     }
 
-    clientPresenceManager.renewPresence(accountUuid, deviceId);
+    clientPresenceManager.renewPresences();
 
-    {
-      final int ttl = REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
-          connection.sync().ttl(presenceKey).intValue());
+    for (final long deviceId : deviceIds) {
+      final String presenceKey = ClientPresenceManager.getPresenceKey(accountUuid, deviceId);
 
-      assertTrue(ttl > 0);
+      assertTrue(REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
+          connection.sync().ttl(presenceKey)) > 0);
     }
+
+    assertEquals(-1, (long) REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
+        connection.sync().ttl(displacedPresenceKey)));
   }
 
   @Test
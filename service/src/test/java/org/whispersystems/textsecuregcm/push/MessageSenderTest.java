@@ -20,7 +20,10 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -142,6 +145,63 @@ class MessageSenderTest {
     verify(messagesManager).insert(ACCOUNT_UUID, DEVICE_ID, message);
   }
 
+  @Test
+  void testSendMessagesToMultipleDevices() throws Exception {
+    final long presentDeviceId = DEVICE_ID + 1;
+    final Device presentDevice = mock(Device.class);
+    when(presentDevice.getId()).thenReturn(presentDeviceId);
+    when(presentDevice.getFetchesMessages()).thenReturn(true);
+
+    final MessageProtos.Envelope otherMessage = generateRandomMessage();
+
+    when(device.getApnId()).thenReturn("apn-id");
+    when(clientPresenceManager.isPresentAsync(ACCOUNT_UUID, DEVICE_ID))
+        .thenReturn(CompletableFuture.completedFuture(false));
+    when(clientPresenceManager.isPresentAsync(ACCOUNT_UUID, presentDeviceId))
+        .thenReturn(CompletableFuture.completedFuture(true));
+
+    final List<Device> notPushRegisteredDevices =
+        messageSender.sendMessages(account, Map.of(device, message, presentDevice, otherMessage), false);
+
+    assertTrue(notPushRegisteredDevices.isEmpty());
+    verify(messagesManager).insert(ACCOUNT_UUID, Map.of(DEVICE_ID, message, presentDeviceId, otherMessage));
+    verify(pushNotificationManager).sendNewMessageNotification(account, DEVICE_ID, message.getUrgent());
+    verify(pushNotificationManager, never()).sendNewMessageNotification(account, presentDeviceId, otherMessage.getUrgent());
+    verify(clientPresenceManager, never()).isPresent(any(), anyLong());
+  }
+
+  @Test
+  void testSendOnlineMessagesToMultipleDevices() {
+    final long absentDeviceId = DEVICE_ID + 1;
+    final Device absentDevice = mock(Device.class);
+    when(absentDevice.getId()).thenReturn(absentDeviceId);
+    when(absentDevice.getGcmId()).thenReturn("gcm-id");
+
+    when(device.getGcmId()).thenReturn("gcm-id");
+    when(clientPresenceManager.isPresentAsync(ACCOUNT_UUID, DEVICE_ID))
+        .thenReturn(CompletableFuture.completedFuture(true));
+    when(clientPresenceManager.isPresentAsync(ACCOUNT_UUID, absentDeviceId))
+        .thenReturn(CompletableFuture.completedFuture(false));
+
+    messageSender.sendMessages(account, Map.of(device, message, absentDevice, generateRandomMessage()), true);
+
+    verify(messagesManager).insert(ACCOUNT_UUID, Map.of(DEVICE_ID, message.toBuilder().setEphemeral(true).build()));
+    verifyNoInteractions(pushNotificationManager);
+  }
+
+  @Test
+  void testSendMessagesNotPushRegistered() throws Exception {
+    when(device.getApnId()).thenReturn("apn-id");
+    when(clientPresenceManager.isPresentAsync(ACCOUNT_UUID, DEVICE_ID))
+        .thenReturn(CompletableFuture.completedFuture(false));
+
+    doThrow(NotPushRegisteredException.class)
+        .when(pushNotificationManager).sendNewMessageNotification(account, DEVICE_ID, message.getUrgent());
+
+    assertEquals(List.of(device), messageSender.sendMessages(account, Map.of(device, message), false));
+    verify(messagesManager).insert(ACCOUNT_UUID, Map.of(DEVICE_ID, message));
+  }
+
   private MessageProtos.Envelope generateRandomMessage() {
     return MessageProtos.Envelope.newBuilder()
         .setTimestamp(System.currentTimeMillis())
@@ -12,8 +12,11 @@ import org.whispersystems.textsecuregcm.storage.PubSubProtos;
 import org.whispersystems.textsecuregcm.websocket.ProvisioningAddress;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,7 +36,8 @@ class ProvisioningManagerTest {
 
   @BeforeEach
   void setUp() throws Exception {
-    provisioningManager = new ProvisioningManager(REDIS_EXTENSION.getRedisClient(), Duration.ofSeconds(1), new CircuitBreakerConfiguration());
+    provisioningManager = new ProvisioningManager(REDIS_EXTENSION.getRedisClient(), Duration.ofSeconds(1), new CircuitBreakerConfiguration(),
+        ProvisioningManager.DEFAULT_SUBSCRIPTION_CONNECTIONS);
     provisioningManager.start();
   }
 
@@ -51,7 +55,7 @@ class ProvisioningManagerTest {
 
     @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
 
-    provisioningManager.addListener(address, subscribedConsumer);
+    provisioningManager.addListener(address, subscribedConsumer).join();
     provisioningManager.sendProvisioningMessage(address, content);
 
     final ArgumentCaptor<PubSubProtos.PubSubMessage> messageCaptor =
@@ -72,11 +76,65 @@ class ProvisioningManagerTest {
 
     @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
 
-    provisioningManager.addListener(address, subscribedConsumer);
-    provisioningManager.removeListener(address);
+    provisioningManager.addListener(address, subscribedConsumer).join();
+    provisioningManager.removeListener(address).join();
     provisioningManager.sendProvisioningMessage(address, content);
 
     // Make sure that we give the message enough time to show up (if it was going to) before declaring victory
     verify(subscribedConsumer, after(PUBSUB_TIMEOUT_MILLIS).never()).accept(any());
   }
+
+  @Test
+  void sendProvisioningMessageManyListeners() {
+    final int listenerCount = 256;
+
+    final List<ProvisioningAddress> addresses = IntStream.range(0, listenerCount)
+        .mapToObj(i -> new ProvisioningAddress("address-" + i, 0))
+        .toList();
+
+    @SuppressWarnings("unchecked") final List<Consumer<PubSubProtos.PubSubMessage>> consumers =
+        addresses.stream().map(ignored -> (Consumer<PubSubProtos.PubSubMessage>) mock(Consumer.class)).toList();
+
+    // Listeners should be spread across connections
+    assertTrue(addresses.stream().map(provisioningManager::getShardIndex).distinct().count() > 1);
+
+    CompletableFuture.allOf(IntStream.range(0, listenerCount)
+            .mapToObj(i -> provisioningManager.addListener(addresses.get(i), consumers.get(i)))
+            .toArray(CompletableFuture[]::new))
+        .join();
+
+    for (int i = 0; i < listenerCount; i++) {
+      assertTrue(provisioningManager.sendProvisioningMessage(addresses.get(i), new byte[]{(byte) i}));
+    }
+
+    for (int i = 0; i < listenerCount; i++) {
+      final ArgumentCaptor<PubSubProtos.PubSubMessage> messageCaptor =
+          ArgumentCaptor.forClass(PubSubProtos.PubSubMessage.class);
+
+      verify(consumers.get(i), timeout(PUBSUB_TIMEOUT_MILLIS)).accept(messageCaptor.capture());
+      assertEquals(ByteString.copyFrom(new byte[]{(byte) i}), messageCaptor.getValue().getContent());
+    }
+
+    CompletableFuture.allOf(addresses.stream()
+            .map(provisioningManager::removeListener)
+            .toArray(CompletableFuture[]::new))
+        .join();
+
+    assertFalse(provisioningManager.sendProvisioningMessage(addresses.get(0), new byte[0]));
+  }
+
+  @Test
+  void removeListenerBeforeSubscribed() {
+    final ProvisioningAddress address = new ProvisioningAddress("address", 0);
+
+    @SuppressWarnings("unchecked") final Consumer<PubSubProtos.PubSubMessage> subscribedConsumer = mock(Consumer.class);
+
+    final CompletableFuture<Void> subscribeFuture = provisioningManager.addListener(address, subscribedConsumer);
+    final CompletableFuture<Void> unsubscribeFuture = provisioningManager.removeListener(address);
+
+    CompletableFuture.allOf(subscribeFuture, unsubscribeFuture).join();
+
+    assertFalse(provisioningManager.sendProvisioningMessage(address, new byte[16]));
+    verify(subscribedConsumer, after(PUBSUB_TIMEOUT_MILLIS).never()).accept(any());
+  }
 }
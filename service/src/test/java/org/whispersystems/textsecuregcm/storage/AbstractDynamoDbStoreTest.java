@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class AbstractDynamoDbStoreTest {
+
+  private DynamoDbAsyncClient dynamoDbAsyncClient;
+  private AbstractDynamoDbStore store;
+
+  private static final String TABLE_NAME = "test";
+
+  @BeforeEach
+  void setUp() {
+    dynamoDbAsyncClient = mock(DynamoDbAsyncClient.class);
+    store = new AbstractDynamoDbStore(mock(DynamoDbClient.class)) {
+    };
+  }
+
+  @Test
+  void deleteInBatchesAsync() {
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+    assertDoesNotThrow(() -> store.deleteInBatchesAsync(dynamoDbAsyncClient, TABLE_NAME, Flux.fromIterable(keys(60)), 2)
+        .block());
+
+    verify(dynamoDbAsyncClient, times(3)).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+
+  @Test
+  void deleteInBatchesAsyncThrottled() {
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenReturn(CompletableFuture.failedFuture(ProvisionedThroughputExceededException.builder().build()))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+    assertDoesNotThrow(() -> store.deleteInBatchesAsync(dynamoDbAsyncClient, TABLE_NAME, Flux.fromIterable(keys(1)), 1)
+        .block());
+
+    verify(dynamoDbAsyncClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+
+  @Test
+  void deleteInBatchesAsyncUnprocessed() {
+    final List<Map<String, AttributeValue>> keys = keys(1);
+
+    final BatchWriteItemResponse unprocessedResponse = BatchWriteItemResponse.builder()
+        .unprocessedItems(Map.of(TABLE_NAME, List.of(WriteRequest.builder()
+            .deleteRequest(DeleteRequest.builder().key(keys.get(0)).build())
+            .build())))
+        .build();
+
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(unprocessedResponse))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+    assertDoesNotThrow(() -> store.deleteInBatchesAsync(dynamoDbAsyncClient, TABLE_NAME, Flux.fromIterable(keys), 1)
+        .block());
+
+    verify(dynamoDbAsyncClient, times(2)).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+
+  @Test
+  void deleteInBatchesAsyncUnprocessedExhausted() {
+    final List<Map<String, AttributeValue>> keys = keys(1);
+
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+            .unprocessedItems(Map.of(TABLE_NAME, List.of(WriteRequest.builder()
+                .deleteRequest(DeleteRequest.builder().key(keys.get(0)).build())
+                .build())))
+            .build()));
+
+    assertThrows(IllegalStateException.class,
+        () -> store.deleteInBatchesAsync(dynamoDbAsyncClient, TABLE_NAME, Flux.fromIterable(keys), 1).block());
+  }
+
+  private static List<Map<String, AttributeValue>> keys(final int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> Map.of("K", AttributeValue.fromN(String.valueOf(i))))
+        .toList();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.util.MockUtils;
+import org.whispersystems.textsecuregcm.util.MutableClock;
+
+class AccountDeletionQueueTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private MutableClock clock;
+  private AccountDeletionQueue accountDeletionQueue;
+
+  private static final Duration LEASE = Duration.ofMinutes(5);
+
+  @BeforeEach
+  void setUp() {
+    clock = MockUtils.mutableClock(0);
+    accountDeletionQueue = new AccountDeletionQueue(REDIS_CLUSTER_EXTENSION.getRedisCluster(), clock);
+  }
+
+  @Test
+  void testClaimAndRemove() {
+    final AccountDeletionQueue.PendingPurge pendingPurge =
+        new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+18005551234");
+
+    assertFalse(accountDeletionQueue.isPending(pendingPurge));
+
+    accountDeletionQueue.enqueue(pendingPurge);
+
+    assertTrue(accountDeletionQueue.isPending(pendingPurge));
+    assertEquals(1, accountDeletionQueue.size());
+    assertEquals(1, accountDeletionQueue.dueSize());
+
+    assertEquals(List.of(new AccountDeletionQueue.ClaimedPurge(pendingPurge, 1)),
+        accountDeletionQueue.claim(10, LEASE));
+
+    // Claimed purges stay in the queue, but can't be claimed again until their lease expires
+    assertEquals(1, accountDeletionQueue.size());
+    assertEquals(0, accountDeletionQueue.dueSize());
+    assertEquals(List.of(), accountDeletionQueue.claim(10, LEASE));
+
+    clock.incrementMillis(LEASE.toMillis());
+    assertEquals(List.of(new AccountDeletionQueue.ClaimedPurge(pendingPurge, 2)),
+        accountDeletionQueue.claim(10, LEASE));
+
+    accountDeletionQueue.remove(pendingPurge);
+
+    assertFalse(accountDeletionQueue.isPending(pendingPurge));
+    assertEquals(0, accountDeletionQueue.size());
+
+    clock.incrementMillis(LEASE.toMillis());
+    assertEquals(List.of(), accountDeletionQueue.claim(10, LEASE));
+  }
+
+  @Test
+  void testAbandon() {
+    final AccountDeletionQueue.PendingPurge pendingPurge =
+        new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+18005551234");
+
+    accountDeletionQueue.enqueue(pendingPurge);
+    assertEquals(List.of(new AccountDeletionQueue.ClaimedPurge(pendingPurge, 1)),
+        accountDeletionQueue.claim(10, LEASE));
+
+    accountDeletionQueue.abandon(pendingPurge);
+
+    assertFalse(accountDeletionQueue.isPending(pendingPurge));
+    assertEquals(0, accountDeletionQueue.size());
+    assertEquals(1, accountDeletionQueue.abandonedSize());
+
+    clock.incrementMillis(LEASE.toMillis());
+    assertEquals(List.of(), accountDeletionQueue.claim(10, LEASE));
+
+    // Re-enqueueing a purge starts its attempt count over
+    accountDeletionQueue.enqueue(pendingPurge);
+    assertEquals(List.of(new AccountDeletionQueue.ClaimedPurge(pendingPurge, 1)),
+        accountDeletionQueue.claim(10, LEASE));
+  }
+
+  @Test
+  void testClaimLimit() {
+    for (int i = 0; i < 5; i++) {
+      accountDeletionQueue.enqueue(
+          new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+1800555123" + i));
+    }
+
+    assertEquals(3, accountDeletionQueue.claim(3, LEASE).size());
+    assertEquals(2, accountDeletionQueue.claim(3, LEASE).size());
+    assertEquals(0, accountDeletionQueue.claim(3, LEASE).size());
+  }
+
+  @Test
+  void testQueueMemberRoundTrip() {
+    final AccountDeletionQueue.PendingPurge pendingPurge =
+        new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+18005551234");
+
+    assertEquals(pendingPurge, AccountDeletionQueue.PendingPurge.fromQueueMember(pendingPurge.toQueueMember()));
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.configuration.AccountPurgeWorkerConfiguration;
+
+class AccountPurgeWorkerTest {
+
+  private AccountDeletionQueue accountDeletionQueue;
+  private AccountsManager accountsManager;
+
+  private AccountPurgeWorker accountPurgeWorker;
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final AccountDeletionQueue.PendingPurge PENDING_PURGE =
+      new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+18005551234");
+
+  @BeforeEach
+  void setUp() {
+    accountDeletionQueue = mock(AccountDeletionQueue.class);
+    accountsManager = mock(AccountsManager.class);
+
+    accountPurgeWorker = new AccountPurgeWorker(accountDeletionQueue, accountsManager,
+        new AccountPurgeWorkerConfiguration(1, MAX_ATTEMPTS));
+  }
+
+  @Test
+  void processBatch() throws InterruptedException {
+    when(accountDeletionQueue.claim(anyInt(), any()))
+        .thenReturn(List.of(new AccountDeletionQueue.ClaimedPurge(PENDING_PURGE, 1)));
+
+    assertEquals(1, accountPurgeWorker.processBatch());
+
+    verify(accountsManager).purge(PENDING_PURGE);
+    verify(accountDeletionQueue, never()).abandon(any());
+  }
+
+  @Test
+  void processBatchFailedPurge() throws InterruptedException {
+    when(accountDeletionQueue.claim(anyInt(), any()))
+        .thenReturn(List.of(new AccountDeletionQueue.ClaimedPurge(PENDING_PURGE, MAX_ATTEMPTS)));
+
+    doThrow(new RuntimeException("OH NO")).when(accountsManager).purge(PENDING_PURGE);
+
+    assertEquals(1, accountPurgeWorker.processBatch());
+
+    // The purge stays in the queue and will be retried once its lease expires
+    verify(accountDeletionQueue, never()).abandon(any());
+    verify(accountDeletionQueue, never()).remove(any());
+  }
+
+  @Test
+  void processBatchAbandon() throws InterruptedException {
+    when(accountDeletionQueue.claim(anyInt(), any()))
+        .thenReturn(List.of(new AccountDeletionQueue.ClaimedPurge(PENDING_PURGE, MAX_ATTEMPTS + 1)));
+
+    assertEquals(1, accountPurgeWorker.processBatch());
+
+    verify(accountsManager, never()).purge(any());
+    verify(accountDeletionQueue).abandon(PENDING_PURGE);
+  }
+}
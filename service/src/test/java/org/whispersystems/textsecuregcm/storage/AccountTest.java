@@ -6,9 +6,12 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -17,20 +20,37 @@ import static org.whispersystems.textsecuregcm.tests.util.DevicesHelper.createDe
 import static org.whispersystems.textsecuregcm.tests.util.DevicesHelper.setEnabled;
 
 import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.lang.annotation.Annotation;
 import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.tests.util.KeysHelper;
 import org.whispersystems.textsecuregcm.storage.Device.DeviceCapabilities;
 import org.whispersystems.textsecuregcm.tests.util.AccountsHelper;
+import org.whispersystems.textsecuregcm.util.IdentityKeyAdapter;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.TestClock;
 
 class AccountTest {
@@ -380,4 +400,226 @@ class AccountTest {
     final JsonFilter jsonFilterAnnotation = (JsonFilter) maybeJsonFilterAnnotation.get();
     assertEquals(Account.class.getSimpleName(), jsonFilterAnnotation.value());
   }
+
+  @ParameterizedTest
+  @MethodSource
+  void copyAsNotStale(final Account account) throws Exception {
+    final Account jsonCopy = SystemMapper.jsonMapper()
+        .readValue(SystemMapper.jsonMapper().writeValueAsBytes(account), Account.class);
+
+    // Accessors can't be called on stale accounts, so capture the original account's state before marking it stale
+    final List<Device> originalDevices = account.getDevices();
+    final Optional<byte[]> originalUnidentifiedAccessKey = account.getUnidentifiedAccessKey();
+
+    account.markStale();
+
+    final Account copy = account.copyAsNotStale();
+
+    assertFalse(copy.isStale());
+    assertEquals(SystemMapper.jsonMapper().writeValueAsString(jsonCopy),
+        SystemMapper.jsonMapper().writeValueAsString(copy));
+
+    assertNotSame(originalDevices, copy.getDevices());
+
+    for (int i = 0; i < originalDevices.size(); i++) {
+      final Device originalDevice = originalDevices.get(i);
+      final Device copiedDevice = copy.getDevices().get(i);
+
+      assertNotSame(originalDevice, copiedDevice);
+
+      if (originalDevice.getSignedPreKey(IdentityType.ACI) != null) {
+        assertNotSame(originalDevice.getSignedPreKey(IdentityType.ACI).signature(),
+            copiedDevice.getSignedPreKey(IdentityType.ACI).signature());
+      }
+    }
+
+    originalUnidentifiedAccessKey.ifPresent(unidentifiedAccessKey ->
+        assertNotSame(unidentifiedAccessKey, copy.getUnidentifiedAccessKey().orElseThrow()));
+  }
+
+  @ParameterizedTest
+  @MethodSource("copyAsNotStale")
+  void lazilyDecodedKeys(final Account account) throws Exception {
+    final byte[] accountJson = SystemMapper.jsonMapper().writeValueAsBytes(account);
+
+    final Account parsedAccount = SystemMapper.jsonMapper().readValue(accountJson, Account.class);
+    final EagerlyDecodedKeys eagerlyDecodedKeys =
+        SystemMapper.jsonMapper().readValue(accountJson, EagerlyDecodedKeys.class);
+
+    // Accounts that have been parsed but whose keys have never been decoded must serialize exactly as before
+    assertArrayEquals(accountJson, SystemMapper.jsonMapper().writeValueAsBytes(parsedAccount));
+
+    assertEquals(eagerlyDecodedKeys.identityKey(), parsedAccount.getIdentityKey(IdentityType.ACI));
+    assertEquals(eagerlyDecodedKeys.pniIdentityKey(), parsedAccount.getIdentityKey(IdentityType.PNI));
+    assertEquals(account.getIdentityKey(IdentityType.ACI), parsedAccount.getIdentityKey(IdentityType.ACI));
+
+    assertEquals(eagerlyDecodedKeys.devices().size(), parsedAccount.getDevices().size());
+
+    for (int i = 0; i < parsedAccount.getDevices().size(); i++) {
+      final Device parsedDevice = parsedAccount.getDevices().get(i);
+      final EagerlyDecodedDeviceKeys eagerlyDecodedDeviceKeys = eagerlyDecodedKeys.devices().get(i);
+
+      assertEquals(eagerlyDecodedDeviceKeys.signedPreKey(), parsedDevice.getSignedPreKey(IdentityType.ACI));
+      assertEquals(eagerlyDecodedDeviceKeys.pniSignedPreKey(), parsedDevice.getSignedPreKey(IdentityType.PNI));
+      assertEquals(account.getDevices().get(i).isEnabled(), parsedDevice.isEnabled());
+    }
+
+    // Decoding keys must not change the serialized form, either
+    assertArrayEquals(accountJson, SystemMapper.jsonMapper().writeValueAsBytes(parsedAccount));
+  }
+
+  @Test
+  void lazilyDecodedKeysWithoutVersionByte() throws Exception {
+    final IdentityKey identityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+    final ECKeyPair signedPreKeyPair = Curve.generateKeyPair();
+
+    final String accountJson = """
+        {
+          "identityKey": "%s",
+          "pniIdentityKey": "",
+          "devices": [
+            {
+              "id": 1,
+              "signedPreKey": {
+                "keyId": 17,
+                "publicKey": "%s",
+                "signature": "AAAA"
+              }
+            }
+          ]
+        }
+        """.formatted(Base64.getEncoder().encodeToString(identityKey.getPublicKey().getPublicKeyBytes()),
+        Base64.getEncoder().encodeToString(signedPreKeyPair.getPublicKey().getPublicKeyBytes()));
+
+    final Account account = SystemMapper.jsonMapper().readValue(accountJson, Account.class);
+
+    assertEquals(identityKey, account.getIdentityKey(IdentityType.ACI));
+    assertNull(account.getIdentityKey(IdentityType.PNI));
+
+    final Device device = account.getDevices().get(0);
+    assertEquals(signedPreKeyPair.getPublicKey(), device.getSignedPreKey(IdentityType.ACI).publicKey());
+    assertEquals(17, device.getSignedPreKey(IdentityType.ACI).keyId());
+    assertNull(device.getSignedPreKey(IdentityType.PNI));
+  }
+
+  @Test
+  void lazilyDecodedKeysInvalid() throws Exception {
+    final Account account = SystemMapper.jsonMapper().readValue("""
+        {
+          "identityKey": "AAAA"
+        }
+        """, Account.class);
+
+    assertThrows(IllegalStateException.class, () -> account.getIdentityKey(IdentityType.ACI));
+  }
+
+  private record EagerlyDecodedKeys(@JsonDeserialize(using = IdentityKeyAdapter.Deserializer.class)
+                                    IdentityKey identityKey,
+
+                                    @JsonDeserialize(using = IdentityKeyAdapter.Deserializer.class)
+                                    IdentityKey pniIdentityKey,
+
+                                    List<EagerlyDecodedDeviceKeys> devices) {
+  }
+
+  private record EagerlyDecodedDeviceKeys(ECSignedPreKey signedPreKey, ECSignedPreKey pniSignedPreKey) {
+  }
+
+  private static Stream<Account> copyAsNotStale() {
+    final Random random = new Random(0x5eed);
+
+    return Stream.concat(
+        Stream.of(new Account()),
+        LongStream.range(0, 64).mapToObj(i -> generateRandomAccount(random, (int) (i % 6) + 1)));
+  }
+
+  private static Account generateRandomAccount(final Random random, final int deviceCount) {
+    final ECKeyPair aciIdentityKeyPair = Curve.generateKeyPair();
+    final ECKeyPair pniIdentityKeyPair = Curve.generateKeyPair();
+    final Clock clock = Clock.systemUTC();
+
+    final Account account = new Account();
+    account.setUuid(UUID.randomUUID());
+    account.setNumber("+1800555" + (1000 + random.nextInt(9000)), UUID.randomUUID());
+    account.setIdentityKey(new IdentityKey(aciIdentityKeyPair.getPublicKey()));
+    account.setPhoneNumberIdentityKey(new IdentityKey(pniIdentityKeyPair.getPublicKey()));
+    account.setVersion(random.nextInt(100));
+    account.setDiscoverableByPhoneNumber(random.nextBoolean());
+    account.setUnrestrictedUnidentifiedAccess(random.nextBoolean());
+
+    if (random.nextBoolean()) {
+      account.setUsernameHash(randomBytes(random, 32));
+      account.setUsernameLinkDetails(UUID.randomUUID(), randomBytes(random, 48));
+    }
+
+    if (random.nextBoolean()) {
+      account.setReservedUsernameHash(randomBytes(random, 32));
+    }
+
+    if (random.nextBoolean()) {
+      account.setUnidentifiedAccessKey(randomBytes(random, 16));
+    }
+
+    if (random.nextBoolean()) {
+      account.setCurrentProfileVersion(Long.toHexString(random.nextLong()));
+    }
+
+    if (random.nextBoolean()) {
+      account.setRegistrationLock(Long.toHexString(random.nextLong()), Long.toHexString(random.nextLong()));
+    }
+
+    final int badgeCount = random.nextInt(3);
+    final List<AccountBadge> badges = new ArrayList<>(badgeCount);
+    for (int i = 0; i < badgeCount; i++) {
+      badges.add(new AccountBadge("badge" + i,
+          Instant.now().plusSeconds(random.nextInt(86_400) + 60).plusNanos(random.nextInt(1_000_000_000)),
+          random.nextBoolean()));
+    }
+    account.setBadges(clock, badges);
+
+    for (int deviceId = 1; deviceId <= deviceCount; deviceId++) {
+      final Device device = new Device();
+      device.setId(deviceId);
+      device.setName(random.nextBoolean() ? "device" + deviceId : null);
+      device.setAuthTokenHash(SaltedTokenHash.generateFor(Long.toHexString(random.nextLong())));
+      device.setRegistrationId(random.nextInt(Device.MAX_REGISTRATION_ID));
+      device.setFetchesMessages(random.nextBoolean());
+      device.setCreated(random.nextLong(0, clock.millis()));
+      device.setLastSeen(random.nextLong(0, clock.millis()));
+      device.setUserAgent(random.nextBoolean() ? "Signal-Android/6.32.3 Android/33" : null);
+      device.setCapabilities(random.nextBoolean()
+          ? new DeviceCapabilities(random.nextBoolean(), random.nextBoolean(), random.nextBoolean(), random.nextBoolean())
+          : null);
+
+      if (random.nextBoolean()) {
+        device.setGcmId(Long.toHexString(random.nextLong()));
+      } else {
+        device.setApnId(Long.toHexString(random.nextLong()));
+        device.setVoipApnId(random.nextBoolean() ? Long.toHexString(random.nextLong()) : null);
+      }
+
+      if (random.nextBoolean()) {
+        device.setUninstalledFeedbackTimestamp(random.nextLong(0, clock.millis()));
+      }
+
+      if (random.nextBoolean()) {
+        device.setPhoneNumberIdentityRegistrationId(random.nextInt(Device.MAX_REGISTRATION_ID));
+      }
+
+      if (random.nextBoolean()) {
+        device.setSignedPreKey(KeysHelper.signedECPreKey(random.nextInt(1 << 24), aciIdentityKeyPair));
+        device.setPhoneNumberIdentitySignedPreKey(KeysHelper.signedECPreKey(random.nextInt(1 << 24), pniIdentityKeyPair));
+      }
+
+      account.addDevice(device);
+    }
+
+    return account;
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
 }
@@ -107,6 +107,9 @@ class AccountsManagerChangeNumberIntegrationTest {
       final MessagesManager messagesManager = mock(MessagesManager.class);
       when(messagesManager.clear(any())).thenReturn(CompletableFuture.completedFuture(null));
 
+      final ProfilesManager profilesManager = mock(ProfilesManager.class);
+      when(profilesManager.deleteAll(any())).thenReturn(CompletableFuture.completedFuture(null));
+
       accountsManager = new AccountsManager(
           accounts,
           phoneNumberIdentifiers,
@@ -115,13 +118,14 @@ class AccountsManagerChangeNumberIntegrationTest {
           deletedAccounts,
           keysManager,
           messagesManager,
-          mock(ProfilesManager.class),
+          profilesManager,
           secureStorageClient,
           secureBackupClient,
           svr2Client,
           clientPresenceManager,
           mock(ExperimentEnrollmentManager.class),
           mock(RegistrationRecoveryPasswordsManager.class),
+          mock(AccountDeletionQueue.class),
           mock(Clock.class));
     }
   }
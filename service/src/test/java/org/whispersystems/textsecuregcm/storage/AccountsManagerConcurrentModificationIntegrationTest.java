@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -125,6 +126,7 @@ class AccountsManagerConcurrentModificationIntegrationTest {
           mock(ClientPresenceManager.class),
           mock(ExperimentEnrollmentManager.class),
           mock(RegistrationRecoveryPasswordsManager.class),
+          mock(AccountDeletionQueue.class),
           mock(Clock.class)
       );
     }
@@ -185,7 +187,8 @@ class AccountsManagerConcurrentModificationIntegrationTest {
   private Account getLastAccountFromRedisMock(RedisAdvancedClusterCommands<String, String> commands) throws IOException {
     ArgumentCaptor<String> redisSetArgumentCapture = ArgumentCaptor.forClass(String.class);
 
-    verify(commands, atLeast(20)).setex(anyString(), anyLong(), redisSetArgumentCapture.capture());
+    // Other cache entries are written alongside the account entity, so match the entity by its key
+    verify(commands, atLeast(1)).setex(startsWith("Account3::"), anyLong(), redisSetArgumentCapture.capture());
 
     return JsonHelpers.fromJson(redisSetArgumentCapture.getValue(), Account.class);
   }
@@ -19,7 +19,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -28,7 +30,9 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
 import java.io.InputStream;
@@ -53,8 +57,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InOrder;
 import org.mockito.stubbing.Answer;
 import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.Curve;
@@ -68,6 +74,7 @@ import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.push.ClientPresenceManager;
 import org.whispersystems.textsecuregcm.securebackup.SecureBackupClient;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
@@ -98,6 +105,7 @@ class AccountsManagerTest {
   private ProfilesManager profilesManager;
   private ClientPresenceManager clientPresenceManager;
   private ExperimentEnrollmentManager enrollmentManager;
+  private AccountDeletionQueue accountDeletionQueue;
 
   private Map<String, UUID> phoneNumberIdentifiersByE164;
 
@@ -129,7 +137,9 @@ class AccountsManagerTest {
     keysManager = mock(KeysManager.class);
     messagesManager = mock(MessagesManager.class);
     profilesManager = mock(ProfilesManager.class);
+    when(profilesManager.deleteAll(any())).thenReturn(CompletableFuture.completedFuture(null));
     clientPresenceManager = mock(ClientPresenceManager.class);
+    accountDeletionQueue = mock(AccountDeletionQueue.class);
 
     //noinspection unchecked
     commands = mock(RedisAdvancedClusterCommands.class);
@@ -212,6 +222,7 @@ class AccountsManagerTest {
         clientPresenceManager,
         enrollmentManager,
         mock(RegistrationRecoveryPasswordsManager.class),
+        accountDeletionQueue,
         mock(Clock.class));
   }
 
@@ -411,6 +422,52 @@ class AccountsManagerTest {
     verifyNoInteractions(accounts);
   }
 
+  @Test
+  void testGetIdentityKeyFingerprints() {
+    final UUID aci = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+    final byte[] fingerprint = {1, 2, 3, 4};
+
+    when(asyncCommands.mget(eq("IdentityKeyFingerprint::" + aci), eq("IdentityKeyFingerprint::PNI:" + pni)))
+        .thenReturn(MockRedisFuture.completedFuture(List.of(
+            KeyValue.just("IdentityKeyFingerprint::" + aci, Base64.getEncoder().encodeToString(fingerprint)),
+            KeyValue.empty("IdentityKeyFingerprint::PNI:" + pni))));
+
+    final Map<ServiceIdentifier, byte[]> fingerprints = accountsManager.getIdentityKeyFingerprints(
+        List.of(new AciServiceIdentifier(aci), new PniServiceIdentifier(pni))).join();
+
+    assertEquals(1, fingerprints.size());
+    assertArrayEquals(fingerprint, fingerprints.get(new AciServiceIdentifier(aci)));
+  }
+
+  @Test
+  void testGetIdentityKeyFingerprintsRedisException() {
+    final UUID aci = UUID.randomUUID();
+
+    when(asyncCommands.mget(eq("IdentityKeyFingerprint::" + aci)))
+        .thenReturn(MockRedisFuture.failedFuture(new RedisException("OH NO")));
+
+    assertTrue(accountsManager.getIdentityKeyFingerprints(List.of(new AciServiceIdentifier(aci))).join().isEmpty());
+  }
+
+  @Test
+  void testIdentityKeyFingerprintsWrittenWithAccount() {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+    final IdentityKey identityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(), new byte[16]);
+    account.setIdentityKey(identityKey);
+
+    when(commands.get(eq("Account3::" + uuid))).thenReturn(null);
+    when(accounts.getByAccountIdentifier(eq(uuid))).thenReturn(Optional.of(account));
+
+    accountsManager.getByAccountIdentifier(uuid);
+
+    verify(commands).setex(eq("IdentityKeyFingerprint::" + uuid), anyLong(),
+        eq(Base64.getEncoder().encodeToString(AccountsManager.getIdentityKeyFingerprint(identityKey))));
+    verify(commands, never()).setex(eq("IdentityKeyFingerprint::PNI:" + pni), anyLong(), anyString());
+  }
+
   @Test
   void testGetAccountByNumberNotInCache() {
     UUID uuid = UUID.randomUUID();
@@ -828,6 +885,149 @@ class AccountsManagerTest {
     verifyNoMoreInteractions(accounts);
   }
 
+  @Test
+  void testUpdateDevicesAsync() {
+    final Account accountToUpdate = generateAccountWithDevice(false);
+    final Account unchangedAccount = generateAccountWithDevice(true);
+    final Account conflictingAccount = generateAccountWithDevice(false);
+    final Account updatedElsewhereAccount = generateAccountWithDevice(false);
+
+    when(accounts.getByAccountIdentifierAsync(conflictingAccount.getUuid())).thenReturn(CompletableFuture.completedFuture(
+        Optional.of(generateAccountWithDevice(conflictingAccount.getUuid(), false))));
+
+    // After a conflict, the re-read account turns out not to need an update after all
+    when(accounts.getByAccountIdentifierAsync(updatedElsewhereAccount.getUuid())).thenReturn(
+        CompletableFuture.completedFuture(Optional.of(generateAccountWithDevice(updatedElsewhereAccount.getUuid(), true))));
+
+    doAnswer(ACCOUNT_UPDATE_ASYNC_ANSWER).when(accounts).updateAsync(any());
+    doReturn(CompletableFuture.failedFuture(new ContestedOptimisticLockException()))
+        .doAnswer(ACCOUNT_UPDATE_ASYNC_ANSWER)
+        .when(accounts).updateAsync(argThat(account -> account != null && account.getUuid().equals(conflictingAccount.getUuid())));
+    doReturn(CompletableFuture.failedFuture(new ContestedOptimisticLockException()))
+        .when(accounts).updateAsync(argThat(account -> account != null && account.getUuid().equals(updatedElsewhereAccount.getUuid())));
+
+    final AccountsManager.BulkDeviceUpdateResult result = accountsManager.updateDevicesAsync(
+        List.of(accountToUpdate, unchangedAccount, conflictingAccount, updatedElsewhereAccount),
+        device -> {
+          if (device.getFetchesMessages()) {
+            return false;
+          }
+
+          device.setFetchesMessages(true);
+          return true;
+        },
+        2).join();
+
+    assertEquals(new AccountsManager.BulkDeviceUpdateResult(2, 2, 0), result);
+
+    // The given accounts are only copied, never modified
+    assertFalse(accountToUpdate.getMasterDevice().orElseThrow().getFetchesMessages());
+    assertFalse(conflictingAccount.getMasterDevice().orElseThrow().getFetchesMessages());
+
+    // Accounts are only re-read after a conflict, and unchanged accounts aren't written
+    verify(accounts).getByAccountIdentifierAsync(conflictingAccount.getUuid());
+    verify(accounts).updateAsync(argThat(account -> account.getUuid().equals(accountToUpdate.getUuid())));
+    verify(accounts, times(2)).updateAsync(argThat(account -> account.getUuid().equals(conflictingAccount.getUuid())));
+    verify(accounts).getByAccountIdentifierAsync(updatedElsewhereAccount.getUuid());
+    verify(accounts).updateAsync(argThat(account -> account.getUuid().equals(updatedElsewhereAccount.getUuid())));
+    verifyNoMoreInteractions(accounts);
+  }
+
+  @Test
+  void testUpdateDevicesAsyncFailure() {
+    final Account account = generateAccountWithDevice(false);
+
+    when(accounts.updateAsync(any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    final AccountsManager.BulkDeviceUpdateResult result =
+        accountsManager.updateDevicesAsync(List.of(account), device -> true, 1).join();
+
+    assertEquals(new AccountsManager.BulkDeviceUpdateResult(0, 0, 1), result);
+  }
+
+  private static Account generateAccountWithDevice(final boolean fetchesMessages) {
+    return generateAccountWithDevice(UUID.randomUUID(), fetchesMessages);
+  }
+
+  private static Account generateAccountWithDevice(final UUID uuid, final boolean fetchesMessages) {
+    final Device device = new Device();
+    device.setId(Device.MASTER_ID);
+    device.setFetchesMessages(fetchesMessages);
+
+    return AccountsHelper.generateTestAccount("+14152222222", uuid, UUID.randomUUID(), List.of(device), new byte[16]);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void testUpdateWriteThrough(final boolean replaced) {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+    final Account account =
+        AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(), new byte[16]);
+
+    when(enrollmentManager.isEnrolled(uuid, AccountsManager.WRITE_THROUGH_CACHE_EXPERIMENT_NAME)).thenReturn(true);
+    when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+        anyString(), anyString(), anyString()))
+        .thenReturn(replaced ? 1L : 0L);
+    doAnswer(ACCOUNT_UPDATE_ANSWER).when(accounts).update(any());
+
+    final Account updatedAccount = accountsManager.update(account, a -> a.setDiscoverableByPhoneNumber(false));
+
+    assertEquals(1, updatedAccount.getVersion());
+
+    verify(commands, never()).del(any());
+    verify(commands).evalsha(anyString(), any(ScriptOutputType.class), eq(new String[]{"Account3::" + uuid}),
+        anyString(), eq("1"), anyString());
+    verify(commands, times(replaced ? 1 : 0)).setex(eq("AccountMap::+14152222222"), anyLong(), eq(uuid.toString()));
+    verify(commands, times(replaced ? 1 : 0)).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
+  }
+
+  @Test
+  void testUpdateWriteThroughFailure() {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+    final Account account =
+        AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(), new byte[16]);
+
+    when(enrollmentManager.isEnrolled(uuid, AccountsManager.WRITE_THROUGH_CACHE_EXPERIMENT_NAME)).thenReturn(true);
+    when(commands.evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+        anyString(), anyString(), anyString()))
+        .thenThrow(new RedisException("OH NO"));
+    doAnswer(ACCOUNT_UPDATE_ANSWER).when(accounts).update(any());
+
+    assertThrows(RedisException.class,
+        () -> accountsManager.update(account, a -> a.setDiscoverableByPhoneNumber(false)));
+
+    // If the cache couldn't be updated, the stale cached account must be removed
+    verify(accounts).update(any());
+    verify(commands).del(any());
+  }
+
+  @Test
+  void testUpdateAsyncWriteThrough() {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+    final Account account =
+        AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(), new byte[16]);
+
+    when(enrollmentManager.isEnrolled(uuid, AccountsManager.WRITE_THROUGH_CACHE_EXPERIMENT_NAME)).thenReturn(true);
+    when(asyncCommands.<Object>evalsha(anyString(), any(ScriptOutputType.class), any(String[].class),
+        anyString(), anyString(), anyString()))
+        .thenReturn(MockRedisFuture.completedFuture(1L));
+    when(accounts.updateAsync(any())).thenAnswer(ACCOUNT_UPDATE_ASYNC_ANSWER);
+
+    final Account updatedAccount =
+        accountsManager.updateAsync(account, a -> a.setDiscoverableByPhoneNumber(false)).join();
+
+    assertEquals(1, updatedAccount.getVersion());
+
+    verify(asyncCommands, never()).del(any());
+    verify(asyncCommands).evalsha(anyString(), any(ScriptOutputType.class), eq(new String[]{"Account3::" + uuid}),
+        anyString(), eq("1"), anyString());
+    verify(asyncCommands).setex(eq("AccountMap::+14152222222"), anyLong(), eq(uuid.toString()));
+    verify(asyncCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
+  }
+
   @Test
   void testUpdate_dynamoOptimisticLockingFailureDuringCreate() {
     UUID uuid = UUID.randomUUID();
@@ -968,6 +1168,83 @@ class AccountsManagerTest {
     verifyNoInteractions(profilesManager);
   }
 
+  @Test
+  void testCreateAccountRecentlyDeletedPendingPurge() throws InterruptedException {
+    final UUID recentlyDeletedUuid = UUID.randomUUID();
+    final String e164 = "+18005550123";
+    final UUID pni = UUID.randomUUID();
+    phoneNumberIdentifiersByE164.put(e164, pni);
+
+    when(deletedAccounts.findUuid(anyString())).thenReturn(Optional.of(recentlyDeletedUuid));
+    when(accounts.create(any())).thenReturn(true);
+    when(accountDeletionQueue.isPending(any())).thenReturn(true);
+
+    final AccountAttributes attributes = new AccountAttributes(false, 0, null, null, true, null);
+    accountsManager.create(e164, "password", null, attributes, new ArrayList<>());
+
+    // The recently-deleted account's data must be gone before its identifiers are reused
+    final AccountDeletionQueue.PendingPurge expectedPurge =
+        new AccountDeletionQueue.PendingPurge(recentlyDeletedUuid, pni, e164);
+
+    final InOrder inOrder = inOrder(accountDeletionQueue, accounts);
+    inOrder.verify(accountDeletionQueue).isPending(expectedPurge);
+    inOrder.verify(accountDeletionQueue).remove(expectedPurge);
+    inOrder.verify(accounts).create(any());
+
+    verify(keysManager).delete(recentlyDeletedUuid);
+    verify(keysManager).delete(pni);
+    verify(messagesManager).clear(recentlyDeletedUuid);
+    verify(messagesManager).clear(pni);
+    verify(profilesManager).deleteAll(recentlyDeletedUuid);
+  }
+
+  @Test
+  void testDelete() throws InterruptedException {
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", UUID.randomUUID(), UUID.randomUUID(),
+        new ArrayList<>(), new byte[16]);
+
+    accountsManager.delete(account, AccountsManager.DeletionReason.USER_REQUEST);
+
+    final InOrder inOrder = inOrder(accountDeletionQueue, accounts);
+    inOrder.verify(accountDeletionQueue).enqueue(AccountDeletionQueue.PendingPurge.fromAccount(account));
+    inOrder.verify(accounts).delete(account.getUuid());
+
+    verify(deletedAccounts).put(account.getUuid(), account.getNumber());
+
+    // Purging happens later, in the background
+    verifyNoInteractions(keysManager);
+    verifyNoInteractions(messagesManager);
+    verifyNoInteractions(profilesManager);
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+      "false, false",
+      "false, true",
+      "true, false",
+      "true, true"
+  })
+  void testPurge(final boolean aciInUse, final boolean pniInUse) throws InterruptedException {
+    final AccountDeletionQueue.PendingPurge pendingPurge =
+        new AccountDeletionQueue.PendingPurge(UUID.randomUUID(), UUID.randomUUID(), "+14152222222");
+
+    when(accounts.getByAccountIdentifier(pendingPurge.accountIdentifier()))
+        .thenReturn(aciInUse ? Optional.of(mock(Account.class)) : Optional.empty());
+    when(accounts.getByPhoneNumberIdentifier(pendingPurge.phoneNumberIdentifier()))
+        .thenReturn(pniInUse ? Optional.of(mock(Account.class)) : Optional.empty());
+
+    accountsManager.purge(pendingPurge);
+
+    // Identifiers claimed by another account since the deletion must be left alone
+    verify(keysManager, times(aciInUse ? 0 : 1)).delete(pendingPurge.accountIdentifier());
+    verify(messagesManager, times(aciInUse ? 0 : 1)).clear(pendingPurge.accountIdentifier());
+    verify(profilesManager, times(aciInUse ? 0 : 1)).deleteAll(pendingPurge.accountIdentifier());
+    verify(keysManager, times(pniInUse ? 0 : 1)).delete(pendingPurge.phoneNumberIdentifier());
+    verify(messagesManager, times(pniInUse ? 0 : 1)).clear(pendingPurge.phoneNumberIdentifier());
+
+    verify(accountDeletionQueue).remove(pendingPurge);
+  }
+
   @ParameterizedTest
   @ValueSource(booleans = {true, false})
   void testCreateWithDiscoverability(final boolean discoverable) throws InterruptedException {
@@ -129,6 +129,7 @@ class AccountsManagerUsernameIntegrationTest {
         mock(ClientPresenceManager.class),
         experimentEnrollmentManager,
         mock(RegistrationRecoveryPasswordsManager.class),
+        mock(AccountDeletionQueue.class),
         mock(Clock.class));
   }
 
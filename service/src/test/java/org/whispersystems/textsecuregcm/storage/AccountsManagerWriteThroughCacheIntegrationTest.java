@@ -0,0 +1,206 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.lettuce.core.ScriptOutputType;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.entities.AccountAttributes;
+import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
+import org.whispersystems.textsecuregcm.push.ClientPresenceManager;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.securebackup.SecureBackupClient;
+import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
+import org.whispersystems.textsecuregcm.securevaluerecovery.SecureValueRecovery2Client;
+import org.whispersystems.textsecuregcm.storage.DynamoDbExtensionSchema.Tables;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+class AccountsManagerWriteThroughCacheIntegrationTest {
+
+  private static final int SCAN_PAGE_SIZE = 1;
+
+  @RegisterExtension
+  static final DynamoDbExtension DYNAMO_DB_EXTENSION = new DynamoDbExtension(
+      Tables.ACCOUNTS,
+      Tables.DELETED_ACCOUNTS,
+      Tables.DELETED_ACCOUNTS_LOCK,
+      Tables.NUMBERS,
+      Tables.PNI,
+      Tables.PNI_ASSIGNMENTS,
+      Tables.USERNAMES);
+
+  @RegisterExtension
+  static final RedisClusterExtension CACHE_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private Accounts accounts;
+  private AccountsManager accountsManager;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(new DynamicConfiguration());
+
+    accounts = new Accounts(
+        DYNAMO_DB_EXTENSION.getDynamoDbClient(),
+        DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        Tables.ACCOUNTS.tableName(),
+        Tables.NUMBERS.tableName(),
+        Tables.PNI_ASSIGNMENTS.tableName(),
+        Tables.USERNAMES.tableName(),
+        SCAN_PAGE_SIZE);
+
+    final ExperimentEnrollmentManager experimentEnrollmentManager = mock(ExperimentEnrollmentManager.class);
+    when(experimentEnrollmentManager.isEnrolled(any(UUID.class), eq(AccountsManager.WRITE_THROUGH_CACHE_EXPERIMENT_NAME)))
+        .thenReturn(true);
+
+    final SecureStorageClient secureStorageClient = mock(SecureStorageClient.class);
+    when(secureStorageClient.deleteStoredData(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    final SecureBackupClient secureBackupClient = mock(SecureBackupClient.class);
+    when(secureBackupClient.deleteBackups(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    final SecureValueRecovery2Client svr2Client = mock(SecureValueRecovery2Client.class);
+    when(svr2Client.deleteBackups(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    final KeysManager keysManager = mock(KeysManager.class);
+    when(keysManager.delete(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    final MessagesManager messagesManager = mock(MessagesManager.class);
+    when(messagesManager.clear(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    final ProfilesManager profilesManager = mock(ProfilesManager.class);
+    when(profilesManager.deleteAll(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    accountsManager = new AccountsManager(
+        accounts,
+        new PhoneNumberIdentifiers(DYNAMO_DB_EXTENSION.getDynamoDbClient(), Tables.PNI.tableName()),
+        CACHE_CLUSTER_EXTENSION.getRedisCluster(),
+        new AccountLockManager(DYNAMO_DB_EXTENSION.getDynamoDbClient(), Tables.DELETED_ACCOUNTS_LOCK.tableName()),
+        new DeletedAccounts(DYNAMO_DB_EXTENSION.getDynamoDbClient(), Tables.DELETED_ACCOUNTS.tableName()),
+        keysManager,
+        messagesManager,
+        profilesManager,
+        secureStorageClient,
+        secureBackupClient,
+        svr2Client,
+        mock(ClientPresenceManager.class),
+        experimentEnrollmentManager,
+        mock(RegistrationRecoveryPasswordsManager.class),
+        mock(AccountDeletionQueue.class),
+        mock(Clock.class));
+
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    executor.shutdown();
+
+    //noinspection ResultOfMethodCallIgnored
+    executor.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void testConcurrentUpdates() throws Exception {
+    final UUID uuid = accountsManager.create("+18005551111", "password", null, new AccountAttributes(), new ArrayList<>())
+        .getUuid();
+
+    final int updateCount = 64;
+    final AtomicBoolean updatesComplete = new AtomicBoolean(false);
+    final AtomicInteger cacheMisses = new AtomicInteger();
+
+    final CompletableFuture<Void> readerFuture = CompletableFuture.runAsync(() -> {
+      while (!updatesComplete.get()) {
+        if (getCachedAccountJson(uuid) == null) {
+          cacheMisses.incrementAndGet();
+        }
+      }
+    }, executor);
+
+    final List<CompletableFuture<Void>> updateFutures = new ArrayList<>(updateCount);
+
+    for (int i = 0; i < updateCount; i++) {
+      final boolean discoverable = i % 2 == 0;
+
+      updateFutures.add(CompletableFuture.runAsync(() ->
+          accountsManager.update(accountsManager.getByAccountIdentifier(uuid).orElseThrow(),
+              a -> a.setDiscoverableByPhoneNumber(discoverable)), executor));
+    }
+
+    CompletableFuture.allOf(updateFutures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+    updatesComplete.set(true);
+    readerFuture.get(5, TimeUnit.SECONDS);
+
+    // Updates never remove the account from the cache, so readers should never have been forced to go to DynamoDB
+    assertEquals(0, cacheMisses.get());
+
+    final String cachedAccountJson = getCachedAccountJson(uuid);
+    assertNotNull(cachedAccountJson);
+
+    // The last write to the cache must not have replaced a newer version with an older one
+    assertEquals(accounts.getByAccountIdentifier(uuid).orElseThrow().getVersion(),
+        SystemMapper.jsonMapper().readTree(cachedAccountJson).get("version").asInt());
+  }
+
+  @Test
+  void testStaleUpdateDoesNotReplaceNewerCachedAccount() throws Exception {
+    final Account account =
+        accountsManager.create("+18005551111", "password", null, new AccountAttributes(), new ArrayList<>());
+
+    final Account updatedAccount = accountsManager.update(account, a -> a.setDiscoverableByPhoneNumber(false));
+    final int updatedVersion = updatedAccount.getVersion();
+
+    // Simulate a slow writer that persisted an older version and only now tries to write it to the cache
+    final Account staleAccount = accounts.getByAccountIdentifier(updatedAccount.getUuid()).orElseThrow();
+    staleAccount.setVersion(updatedVersion - 1);
+    staleAccount.setDiscoverableByPhoneNumber(true);
+
+    final String accountKey = "Account3::" + updatedAccount.getUuid();
+    final String staleAccountJson = SystemMapper.jsonMapper().writeValueAsString(staleAccount);
+
+    final ClusterLuaScript setAccountIfNewerScript = ClusterLuaScript.fromResource(
+        CACHE_CLUSTER_EXTENSION.getRedisCluster(), "lua/set_account_if_newer.lua", ScriptOutputType.INTEGER);
+
+    final Object result = setAccountIfNewerScript.execute(List.of(accountKey),
+        List.of(staleAccountJson, String.valueOf(updatedVersion - 1), "60"));
+
+    assertEquals(0L, result);
+
+    final Account cachedAccount = accountsManager.getByAccountIdentifier(updatedAccount.getUuid()).orElseThrow();
+    assertEquals(updatedVersion, cachedAccount.getVersion());
+    assertFalse(cachedAccount.isDiscoverableByPhoneNumber());
+  }
+
+  private static String getCachedAccountJson(final UUID uuid) {
+    return CACHE_CLUSTER_EXTENSION.getRedisCluster()
+        .withCluster(connection -> connection.sync().get("Account3::" + uuid));
+  }
+}
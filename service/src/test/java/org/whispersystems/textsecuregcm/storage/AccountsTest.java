@@ -176,6 +176,7 @@ class AccountsTest {
         mock(ClientPresenceManager.class),
         mock(ExperimentEnrollmentManager.class),
         mock(RegistrationRecoveryPasswordsManager.class),
+        mock(AccountDeletionQueue.class),
         mock(Clock.class));
 
     final Account account = nextRandomAccount();
@@ -1,11 +1,15 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
@@ -149,4 +153,44 @@ class DynamicConfigurationManagerTest {
     });
 
   }
+
+  @Test
+  void testPublishSnapshotVersions() {
+    final DynamicConfiguration first = new DynamicConfiguration();
+    final DynamicConfiguration second = new DynamicConfiguration();
+
+    dynamicConfigurationManager.publish(first);
+
+    assertSame(first, dynamicConfigurationManager.getConfiguration());
+    assertEquals(0, dynamicConfigurationManager.getConfigurationSnapshot().version());
+
+    dynamicConfigurationManager.publish(second);
+
+    assertSame(second, dynamicConfigurationManager.getConfiguration());
+    assertEquals(1, dynamicConfigurationManager.getConfigurationSnapshot().version());
+  }
+
+  @Test
+  void testChangeListeners() {
+    final List<DynamicConfigurationManager.ConfigurationSnapshot<DynamicConfiguration>> snapshots = new ArrayList<>();
+
+    dynamicConfigurationManager.addChangeListener(snapshot -> {
+      throw new RuntimeException("OH NO");
+    });
+
+    dynamicConfigurationManager.addChangeListener(snapshots::add);
+
+    final DynamicConfiguration first = new DynamicConfiguration();
+    final DynamicConfiguration second = new DynamicConfiguration();
+
+    dynamicConfigurationManager.publish(first);
+    dynamicConfigurationManager.publish(second);
+
+    assertEquals(2, snapshots.size());
+    assertSame(first, snapshots.get(0).configuration());
+    assertEquals(0, snapshots.get(0).version());
+    assertSame(second, snapshots.get(1).configuration());
+    assertEquals(1, snapshots.get(1).version());
+    assertSame(snapshots.get(1), dynamicConfigurationManager.getConfigurationSnapshot());
+  }
 }
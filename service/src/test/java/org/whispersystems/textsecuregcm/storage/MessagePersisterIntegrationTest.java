@@ -148,7 +148,7 @@ class MessagePersisterIntegrationTest {
             return true;
           }
         }
-      });
+      }).join();
 
       messagePersister.start();
 
@@ -6,6 +6,7 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.ArgumentMatchers.any;
@@ -20,6 +21,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.protobuf.ByteString;
+import io.dropwizard.util.DataSize;
 import io.lettuce.core.cluster.SlotHash;
 import java.nio.charset.StandardCharsets;
 import java.time.Clock;
@@ -156,6 +158,31 @@ class MessagePersisterTest {
     verify(messagesDynamoDb, never()).store(any(), any(), anyLong());
   }
 
+  @Test
+  void testPersistNextQueuesOversizedQueue() throws Exception {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final int messageCount = MessagePersister.MESSAGE_BATCH_LIMIT + 7;
+    final Instant now = Instant.now();
+
+    // Each message is a little over 256 bytes, so the queue passes the threshold long before all messages are inserted
+    messagesCache = new MessagesCache(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(), sharedExecutorService, messageDeliveryScheduler,
+        sharedExecutorService, Clock.systemUTC(), DataSize.kibibytes(4));
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
+    setNextSlotToPersist(SlotHash.getSlot(queueName));
+
+    messagePersister.persistNextQueues(now);
+
+    final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
+
+    verify(messagesDynamoDb, atLeastOnce()).store(messagesCaptor.capture(), eq(DESTINATION_ACCOUNT_UUID),
+        eq(DESTINATION_DEVICE_ID));
+    assertEquals(messageCount, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
+    assertFalse(messagesCache.hasMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID));
+  }
+
   @Test
   void testPersistNextQueuesMultiplePages() {
     final int slot = 7;
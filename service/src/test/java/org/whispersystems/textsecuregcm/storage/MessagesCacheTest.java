@@ -39,6 +39,7 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -47,6 +48,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -124,6 +126,19 @@ class MessagesCacheTest {
           generateRandomMessage(messageGuid, sealedSender)) > 0);
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testInsertAsync(final boolean sealedSender) throws Exception {
+      final UUID messageGuid = UUID.randomUUID();
+      final MessageProtos.Envelope message = generateRandomMessage(messageGuid, sealedSender);
+
+      assertTrue(messagesCache.insertAsync(messageGuid, DESTINATION_UUID, DESTINATION_DEVICE_ID, message)
+          .get(5, TimeUnit.SECONDS) > 0);
+
+      assertEquals(Optional.of(message),
+          messagesCache.remove(DESTINATION_UUID, DESTINATION_DEVICE_ID, messageGuid).get(5, TimeUnit.SECONDS));
+    }
+
     @Test
     void testDoubleInsertGuid() {
       final UUID duplicateGuid = UUID.randomUUID();
@@ -276,6 +291,7 @@ class MessagesCacheTest {
 
       final List<MessageProtos.Envelope> actualMessages = Flux.from(
               messagesCache.get(DESTINATION_UUID, DESTINATION_DEVICE_ID))
+          .map(StoredEnvelope::envelope)
           .collectList()
           .block(Duration.ofSeconds(5));
 
@@ -299,6 +315,7 @@ class MessagesCacheTest {
 
         final List<MessageProtos.Envelope> messages = messagesCache.getAllMessages(DESTINATION_UUID,
                 DESTINATION_DEVICE_ID)
+            .map(StoredEnvelope::envelope)
             .collectList()
             .toFuture().get(5, TimeUnit.SECONDS);
 
@@ -410,7 +427,7 @@ class MessagesCacheTest {
       };
 
       assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
-        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener);
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener).join();
         messagesCache.insert(messageGuid, DESTINATION_UUID, DESTINATION_DEVICE_ID,
             generateRandomMessage(messageGuid, true));
 
@@ -446,7 +463,7 @@ class MessagesCacheTest {
       };
 
       assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
-        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener);
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener).join();
 
         messagesCache.lockQueueForPersistence(DESTINATION_UUID, DESTINATION_DEVICE_ID);
         messagesCache.unlockQueueForPersistence(DESTINATION_UUID, DESTINATION_DEVICE_ID);
@@ -462,6 +479,117 @@ class MessagesCacheTest {
     }
 
 
+    @Test
+    void testNotifyListenersAcrossConnections() {
+      final int deviceCount = 64;
+      final CountDownLatch notifiedLatch = new CountDownLatch(deviceCount);
+
+      final MessageAvailabilityListener listener = new MessageAvailabilityListener() {
+        @Override
+        public boolean handleNewMessagesAvailable() {
+          notifiedLatch.countDown();
+          return true;
+        }
+
+        @Override
+        public boolean handleMessagesPersisted() {
+          return true;
+        }
+      };
+
+      final List<UUID> destinationUuids = IntStream.range(0, deviceCount)
+          .mapToObj(ignored -> UUID.randomUUID())
+          .toList();
+
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        // Register every listener at once, as in a connect storm, so subscriptions are batched
+        final List<CompletableFuture<Void>> subscribeFutures = destinationUuids.stream()
+            .map(destinationUuid -> messagesCache.addMessageAvailabilityListener(destinationUuid,
+                DESTINATION_DEVICE_ID, new DelegatingMessageAvailabilityListener(listener)))
+            .toList();
+
+        CompletableFuture.allOf(subscribeFutures.toArray(new CompletableFuture[0])).join();
+
+        for (final UUID destinationUuid : destinationUuids) {
+          final UUID messageGuid = UUID.randomUUID();
+          messagesCache.insert(messageGuid, destinationUuid, DESTINATION_DEVICE_ID,
+              generateRandomMessage(messageGuid, true));
+        }
+
+        notifiedLatch.await();
+      });
+    }
+
+    @Test
+    void testReplacedListenerKeepsSubscription() {
+      final AtomicBoolean replacedListenerNotified = new AtomicBoolean(false);
+      final CompletableFuture<Void> replacementListenerNotified = new CompletableFuture<>();
+
+      final MessageAvailabilityListener replacedListener = new MessageAvailabilityListener() {
+        @Override
+        public boolean handleNewMessagesAvailable() {
+          replacedListenerNotified.set(true);
+          return true;
+        }
+
+        @Override
+        public boolean handleMessagesPersisted() {
+          return true;
+        }
+      };
+
+      final MessageAvailabilityListener replacementListener = new MessageAvailabilityListener() {
+        @Override
+        public boolean handleNewMessagesAvailable() {
+          replacementListenerNotified.complete(null);
+          return true;
+        }
+
+        @Override
+        public boolean handleMessagesPersisted() {
+          return true;
+        }
+      };
+
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, replacedListener).join();
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, replacementListener).join();
+
+        // Removing the replaced listener (e.g. when a device's old connection closes after it reconnects) must not
+        // remove the replacement's subscriptions
+        messagesCache.removeMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, replacedListener);
+
+        final UUID messageGuid = UUID.randomUUID();
+        messagesCache.insert(messageGuid, DESTINATION_UUID, DESTINATION_DEVICE_ID,
+            generateRandomMessage(messageGuid, true));
+
+        replacementListenerNotified.join();
+        assertFalse(replacedListenerNotified.get());
+      });
+    }
+
+    /**
+     * Gives each registration a distinct listener identity while sharing behavior.
+     */
+    private static class DelegatingMessageAvailabilityListener implements MessageAvailabilityListener {
+
+      private final MessageAvailabilityListener delegate;
+
+      private DelegatingMessageAvailabilityListener(final MessageAvailabilityListener delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public boolean handleNewMessagesAvailable() {
+        return delegate.handleNewMessagesAvailable();
+      }
+
+      @Override
+      public boolean handleMessagesPersisted() {
+        return delegate.handleMessagesPersisted();
+      }
+    }
+
     /**
      * Helper class that implements {@link MessageAvailabilityListener#handleNewMessagesAvailable()} by always returning
      * {@code false}. Its {@code counter} field tracks how many times {@code handleNewMessagesAvailable} has been
@@ -505,7 +633,7 @@ class MessagesCacheTest {
           count -> assertEquals(1, count));
 
       assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
-        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener1);
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener1).join();
         final UUID messageGuid1 = UUID.randomUUID();
         messagesCache.insert(messageGuid1, DESTINATION_UUID, DESTINATION_DEVICE_ID,
             generateRandomMessage(messageGuid1, true));
@@ -521,7 +649,7 @@ class MessagesCacheTest {
         messagesCache.insert(messageGuid2, DESTINATION_UUID, DESTINATION_DEVICE_ID,
             generateRandomMessage(messageGuid2, true));
 
-        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener2);
+        messagesCache.addMessageAvailabilityListener(DESTINATION_UUID, DESTINATION_DEVICE_ID, listener2).join();
 
         final UUID messageGuid3 = UUID.randomUUID();
         messagesCache.insert(messageGuid3, DESTINATION_UUID, DESTINATION_DEVICE_ID,
@@ -534,6 +662,7 @@ class MessagesCacheTest {
     private List<MessageProtos.Envelope> get(final UUID destinationUuid, final long destinationDeviceId,
         final int messageCount) {
       return Flux.from(messagesCache.get(destinationUuid, destinationDeviceId))
+          .map(StoredEnvelope::envelope)
           .take(messageCount, true)
           .collectList()
           .block();
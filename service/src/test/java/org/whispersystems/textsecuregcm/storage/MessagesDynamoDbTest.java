@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -288,6 +289,34 @@ class MessagesDynamoDbTest {
         .isEmpty();
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void testDeleteLargeQueue(final boolean deleteAccount, final TestReporter testReporter) {
+    final int messageCount = 10_000;
+    final UUID destinationUuid = UUID.randomUUID();
+    final long destinationDeviceId = 1;
+
+    final List<MessageProtos.Envelope> messages = new ArrayList<>(messageCount);
+    for (int i = 0; i < messageCount; i++) {
+      messages.add(MessageHelper.createMessage(UUID.randomUUID(), 1, destinationUuid, (i + 1L) * 1000, "message " + i));
+    }
+
+    messagesDynamoDb.store(messages, destinationUuid, destinationDeviceId);
+
+    final long start = System.nanoTime();
+
+    if (deleteAccount) {
+      messagesDynamoDb.deleteAllMessagesForAccount(destinationUuid).join();
+    } else {
+      messagesDynamoDb.deleteAllMessagesForDevice(destinationUuid, destinationDeviceId).join();
+    }
+
+    testReporter.publishEntry((deleteAccount ? "deleteAllMessagesForAccount" : "deleteAllMessagesForDevice") + "Millis",
+        String.valueOf(Duration.ofNanos(System.nanoTime() - start).toMillis()));
+
+    assertThat(load(destinationUuid, destinationDeviceId, MessagesDynamoDb.RESULT_SET_CHUNK_SIZE)).isEmpty();
+  }
+
   private List<MessageProtos.Envelope> load(final UUID destinationUuid, final long destinationDeviceId,
       final int count) {
     return Flux.from(messagesDynamoDb.load(destinationUuid, destinationDeviceId, count))
@@ -5,15 +5,23 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 
 class MessagesManagerTest {
@@ -46,4 +54,51 @@ class MessagesManagerTest {
 
     verifyNoMoreInteractions(reportMessageManager);
   }
+
+  @Test
+  void insertMultipleDevices() {
+    final UUID sourceAci = UUID.randomUUID();
+    final Envelope message = Envelope.newBuilder()
+        .setSourceUuid(sourceAci.toString())
+        .build();
+
+    final UUID destinationUuid = UUID.randomUUID();
+
+    when(messagesCache.insertAsync(any(), eq(destinationUuid), anyLong(), eq(message)))
+        .thenReturn(CompletableFuture.completedFuture(1L));
+
+    messagesManager.insert(destinationUuid, Map.of(1L, message, 2L, message));
+
+    final ArgumentCaptor<UUID> messageGuidCaptor = ArgumentCaptor.forClass(UUID.class);
+
+    verify(messagesCache).insertAsync(messageGuidCaptor.capture(), eq(destinationUuid), eq(1L), eq(message));
+    verify(messagesCache).insertAsync(messageGuidCaptor.capture(), eq(destinationUuid), eq(2L), eq(message));
+
+    // Each device's copy must have its own GUID so that acknowledging one copy can't delete another
+    final UUID firstMessageGuid = messageGuidCaptor.getAllValues().get(0);
+    final UUID secondMessageGuid = messageGuidCaptor.getAllValues().get(1);
+    assertNotEquals(firstMessageGuid, secondMessageGuid);
+
+    verify(reportMessageManager).storeAsync(sourceAci.toString(), firstMessageGuid);
+    verify(reportMessageManager).storeAsync(sourceAci.toString(), secondMessageGuid);
+    verifyNoMoreInteractions(reportMessageManager);
+  }
+
+  @Test
+  void insertMultipleDevicesFailed() {
+    final UUID sourceAci = UUID.randomUUID();
+    final Envelope message = Envelope.newBuilder()
+        .setSourceUuid(sourceAci.toString())
+        .build();
+
+    final UUID destinationUuid = UUID.randomUUID();
+
+    when(messagesCache.insertAsync(any(), eq(destinationUuid), anyLong(), eq(message)))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    assertThrows(RuntimeException.class,
+        () -> messagesManager.insert(destinationUuid, Map.of(1L, message, 2L, message)));
+
+    verify(reportMessageManager, never()).storeAsync(any(), any());
+  }
 }
@@ -7,6 +7,8 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isNull;
@@ -15,14 +17,12 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
-import static org.whispersystems.textsecuregcm.tests.util.AccountsHelper.eqUuid;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -96,7 +96,7 @@ class PushFeedbackProcessorTest {
 
   @Test
   void testEmpty() {
-    PushFeedbackProcessor processor = new PushFeedbackProcessor(accountsManager, Executors.newSingleThreadExecutor());
+    PushFeedbackProcessor processor = new PushFeedbackProcessor(accountsManager, 1);
     processor.timeAndProcessCrawlChunk(Optional.of(UUID.randomUUID()), Collections.emptyList());
 
     verifyNoInteractions(accountsManager);
@@ -104,7 +104,7 @@ class PushFeedbackProcessorTest {
 
   @Test
   void testUpdate() {
-    PushFeedbackProcessor processor = new PushFeedbackProcessor(accountsManager, Executors.newSingleThreadExecutor());
+    PushFeedbackProcessor processor = new PushFeedbackProcessor(accountsManager, 1);
     processor.timeAndProcessCrawlChunk(Optional.of(UUID.randomUUID()),
         List.of(uninstalledAccount, mixedAccount, stillActiveAccount, freshAccount, cleanAccount));
 
@@ -113,7 +113,6 @@ class PushFeedbackProcessorTest {
     verify(uninstalledDevice).setFetchesMessages(eq(false));
     when(uninstalledDevice.isEnabled()).thenReturn(false);
 
-    verify(accountsManager).update(eqUuid(uninstalledAccount), any());
 
     verify(uninstalledDeviceTwo).setApnId(isNull());
     verify(uninstalledDeviceTwo).setGcmId(isNull());
@@ -124,36 +123,35 @@ class PushFeedbackProcessorTest {
     verify(installedDevice, never()).setGcmId(any());
     verify(installedDevice, never()).setFetchesMessages(anyBoolean());
 
-    verify(accountsManager).update(eqUuid(mixedAccount), any());
 
     verify(recentUninstalledDevice, never()).setApnId(any());
     verify(recentUninstalledDevice, never()).setGcmId(any());
     verify(recentUninstalledDevice, never()).setFetchesMessages(anyBoolean());
 
-    verify(accountsManager, never()).update(eqUuid(freshAccount), any());
-
     verify(installedDeviceTwo, never()).setApnId(any());
     verify(installedDeviceTwo, never()).setGcmId(any());
     verify(installedDeviceTwo, never()).setFetchesMessages(anyBoolean());
 
-    verify(accountsManager, never()).update(eqUuid(cleanAccount), any());
-
     verify(stillActiveDevice).setUninstalledFeedbackTimestamp(eq(0L));
     verify(stillActiveDevice, never()).setApnId(any());
     verify(stillActiveDevice, never()).setGcmId(any());
     verify(stillActiveDevice, never()).setFetchesMessages(anyBoolean());
     when(stillActiveDevice.getUninstalledFeedbackTimestamp()).thenReturn(0L);
 
-    verify(accountsManager).update(eqUuid(stillActiveAccount), any());
+    // only accounts with devices that need updates should be updated, and they should be updated in a single batch
+    verify(accountsManager).updateDevicesAsync(
+        argThat(accounts -> accounts.size() == 3
+            && accounts.containsAll(List.of(uninstalledAccount, mixedAccount, stillActiveAccount))),
+        any(), anyInt());
+    verify(accountsManager, never()).getByAccountIdentifier(any());
 
-    // there are un-verified calls to updateDevice
     clearInvocations(accountsManager);
 
     // a second crawl should not make any further updates
     processor.timeAndProcessCrawlChunk(Optional.of(UUID.randomUUID()),
         List.of(uninstalledAccount, mixedAccount, stillActiveAccount, freshAccount, cleanAccount));
 
-    verify(accountsManager, never()).update(any(Account.class), any());
+    verifyNoInteractions(accountsManager);
   }
 
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import org.whispersystems.textsecuregcm.registration.VerificationSession;
+import org.whispersystems.textsecuregcm.storage.DynamoDbExtensionSchema.Tables;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+class VerificationSessionManagerTest {
+
+  private static final Clock clock = Clock.systemUTC();
+
+  @RegisterExtension
+  static final DynamoDbExtension DYNAMO_DB_EXTENSION = new DynamoDbExtension(Tables.VERIFICATION_SESSIONS);
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private VerificationSessions verificationSessions;
+  private VerificationSessionManager verificationSessionManager;
+
+  private static final String SESSION_ID = "sessionId";
+
+  @BeforeEach
+  void setUp() {
+    verificationSessions = new VerificationSessions(
+        DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(), Tables.VERIFICATION_SESSIONS.tableName(), clock);
+
+    verificationSessionManager =
+        new VerificationSessionManager(verificationSessions, REDIS_CLUSTER_EXTENSION.getRedisCluster(), clock);
+  }
+
+  @Test
+  void insert() {
+    final VerificationSession session = buildSession(clock.millis());
+
+    verificationSessionManager.insert(SESSION_ID, session).join();
+
+    assertEquals(session, verificationSessions.findForKey(SESSION_ID).join().orElseThrow());
+    assertNotNull(getCachedSessionJson());
+    assertEquals(session, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> verificationSessionManager.insert(SESSION_ID, session).join());
+
+    assertTrue(ExceptionUtils.unwrap(completionException) instanceof ConditionalCheckFailedException);
+  }
+
+  @Test
+  void findForIdCacheMiss() {
+    final VerificationSession session = buildSession(clock.millis());
+
+    // Written directly to DynamoDB, bypassing the cache
+    verificationSessions.insert(SESSION_ID, session).join();
+    assertNull(getCachedSessionJson());
+
+    assertEquals(session, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+    assertNotNull(getCachedSessionJson());
+  }
+
+  @Test
+  void findForIdAbsent() {
+    assertTrue(verificationSessionManager.findForId(SESSION_ID).join().isEmpty());
+    assertNull(getCachedSessionJson());
+  }
+
+  @Test
+  void update() {
+    final long created = clock.millis();
+    final VerificationSession session = buildSession(created);
+
+    verificationSessionManager.insert(SESSION_ID, session).join();
+
+    final VerificationSession updatedSession = new VerificationSession("challenge",
+        session.requestedInformation(), session.submittedInformation(), session.allowedToRequestCode(),
+        created, created + 1_000, session.remoteExpirationSeconds());
+
+    verificationSessionManager.update(SESSION_ID, session.getVersion(), updatedSession).join();
+
+    assertEquals(updatedSession, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+    assertEquals(updatedSession, verificationSessions.findForKey(SESSION_ID).join().orElseThrow());
+  }
+
+  @Test
+  void updateConflict() {
+    final long created = clock.millis();
+    final VerificationSession session = buildSession(created);
+
+    final VerificationSession firstUpdate = new VerificationSession("challenge",
+        List.of(VerificationSession.Information.PUSH_CHALLENGE), Collections.emptyList(), true,
+        created, created + 1_000, Duration.ofMinutes(10).toSeconds());
+
+    final VerificationSession secondUpdate = new VerificationSession(null,
+        List.of(VerificationSession.Information.PUSH_CHALLENGE), Collections.emptyList(), false,
+        created, created + 1_000, Duration.ofMinutes(10).toSeconds());
+
+    verificationSessionManager.insert(SESSION_ID, session).join();
+    verificationSessionManager.update(SESSION_ID, session.getVersion(), firstUpdate).join();
+
+    // A concurrent step that read the same version of the session must not overwrite the first step's changes, even
+    // though its updated timestamp is the same
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> verificationSessionManager.update(SESSION_ID, session.getVersion(), secondUpdate).join());
+
+    assertTrue(ExceptionUtils.unwrap(completionException) instanceof ContestedOptimisticLockException);
+
+    assertEquals(firstUpdate, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+    assertEquals(firstUpdate, verificationSessions.findForKey(SESSION_ID).join().orElseThrow());
+  }
+
+  @Test
+  void updateStaleCache() {
+    final long created = clock.millis();
+    final VerificationSession session = buildSession(created);
+
+    verificationSessionManager.insert(SESSION_ID, session).join();
+
+    // Updated directly in DynamoDB, leaving an outdated copy in the cache
+    final VerificationSession concurrentUpdate = new VerificationSession("challenge",
+        session.requestedInformation(), session.submittedInformation(), session.allowedToRequestCode(),
+        created, created + 1_000, session.remoteExpirationSeconds());
+
+    assertTrue(verificationSessions.update(SESSION_ID, concurrentUpdate, session.getVersion()).join());
+    assertEquals(session, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+
+    final VerificationSession staleUpdate = new VerificationSession(null,
+        session.requestedInformation(), session.submittedInformation(), true,
+        created, created + 2_000, session.remoteExpirationSeconds());
+
+    assertThrows(CompletionException.class,
+        () -> verificationSessionManager.update(SESSION_ID, session.getVersion(), staleUpdate).join());
+
+    // The conflict should have evicted the outdated copy
+    assertNull(getCachedSessionJson());
+    assertEquals(concurrentUpdate, verificationSessionManager.findForId(SESSION_ID).join().orElseThrow());
+  }
+
+  @Test
+  void updateNotNewer() {
+    final VerificationSession session = buildSession(clock.millis());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> verificationSessionManager.update(SESSION_ID, session.getVersion(), session));
+  }
+
+  private static VerificationSession buildSession(final long timestamp) {
+    return new VerificationSession(null, List.of(VerificationSession.Information.PUSH_CHALLENGE),
+        Collections.emptyList(), false, timestamp, timestamp, Duration.ofMinutes(10).toSeconds());
+  }
+
+  private static String getCachedSessionJson() {
+    return REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(connection ->
+        connection.sync().get(VerificationSessionManager.getCacheKey(SESSION_ID)));
+  }
+}
@@ -6,6 +6,7 @@
 package org.whispersystems.textsecuregcm.tests.util;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
@@ -14,10 +15,13 @@ import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import org.mockito.MockingDetails;
 import org.mockito.stubbing.Stubbing;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
@@ -69,6 +73,28 @@ public class AccountsHelper {
       return markStale ? copyAndMarkStale(account) : account;
     });
 
+    when(mockAccountsManager.updateDevicesAsync(any(), any(), anyInt())).thenAnswer(answer -> {
+      @SuppressWarnings("unchecked") final Collection<Account> accounts = answer.getArgument(0, Collection.class);
+      @SuppressWarnings("unchecked") final Predicate<Device> deviceUpdater = answer.getArgument(1, Predicate.class);
+
+      int updated = 0;
+
+      for (final Account account : accounts) {
+        boolean accountUpdated = false;
+
+        for (final Device device : account.getDevices()) {
+          accountUpdated |= deviceUpdater.test(device);
+        }
+
+        if (accountUpdated) {
+          updated++;
+        }
+      }
+
+      return CompletableFuture.completedFuture(
+          new AccountsManager.BulkDeviceUpdateResult(updated, accounts.size() - updated, 0));
+    });
+
     when(mockAccountsManager.updateDeviceLastSeen(any(), any(), anyLong())).thenAnswer(answer -> {
       answer.getArgument(1, Device.class).setLastSeen(answer.getArgument(2, Long.class));
       return mockAccountsManager.update(answer.getArgument(0, Account.class), account -> {});
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SerializedResponseCacheTest {
+
+  private SerializedResponseCache responseCache;
+  private AtomicInteger supplierInvocations;
+
+  @BeforeEach
+  void setUp() {
+    responseCache = new SerializedResponseCache("test", 2);
+    supplierInvocations = new AtomicInteger();
+  }
+
+  @Test
+  void getResponse() throws Exception {
+    final Response response =
+        responseCache.getResponse("endpoint", List.of(Locale.ENGLISH), 1, null, entitySupplier("value"));
+
+    assertEquals(200, response.getStatus());
+    assertArrayEquals(SystemMapper.jsonMapper().writeValueAsBytes(Map.of("key", "value")),
+        (byte[]) response.getEntity());
+    assertEquals(
+        new EntityTag(SerializedResponseCache.generateEntityTagValue((byte[]) response.getEntity())),
+        response.getEntityTag());
+  }
+
+  @Test
+  void getResponseCached() {
+    final Response first =
+        responseCache.getResponse("endpoint", List.of(Locale.ENGLISH), 1, null, entitySupplier("value"));
+
+    final Response second =
+        responseCache.getResponse("endpoint", List.of(Locale.ENGLISH), 1, null, entitySupplier("value"));
+
+    assertEquals(1, supplierInvocations.get());
+    assertEquals(first.getEntityTag(), second.getEntityTag());
+  }
+
+  @Test
+  void getResponseDimensionsAndVersion() {
+    final Response original =
+        responseCache.getResponse("endpoint", List.of(Locale.ENGLISH), 1, null, entitySupplier("english"));
+
+    final Response otherLocale =
+        responseCache.getResponse("endpoint", List.of(Locale.GERMAN), 1, null, entitySupplier("german"));
+
+    final Response newVersion =
+        responseCache.getResponse("endpoint", List.of(Locale.ENGLISH), 2, null, entitySupplier("updated"));
+
+    assertEquals(3, supplierInvocations.get());
+    assertNotEquals(original.getEntityTag(), otherLocale.getEntityTag());
+    assertNotEquals(original.getEntityTag(), newVersion.getEntityTag());
+  }
+
+  @Test
+  void getResponseNotModified() {
+    final EntityTag entityTag =
+        responseCache.getResponse("endpoint", List.of(), 1, null, entitySupplier("value")).getEntityTag();
+
+    final Response response = responseCache.getResponse("endpoint", List.of(), 1,
+        "\"" + entityTag.getValue() + "\"", entitySupplier("value"));
+
+    assertEquals(304, response.getStatus());
+    assertEquals(entityTag, response.getEntityTag());
+    assertEquals(1, supplierInvocations.get());
+  }
+
+  @Test
+  void getResponseMaxEntries() {
+    responseCache.getResponse("endpoint", List.of("a"), 1, null, entitySupplier("a"));
+    responseCache.getResponse("endpoint", List.of("b"), 1, null, entitySupplier("b"));
+    responseCache.getResponse("endpoint", List.of("c"), 1, null, entitySupplier("c"));
+    responseCache.getResponse("endpoint", List.of("c"), 1, null, entitySupplier("c"));
+
+    assertEquals(3, supplierInvocations.get());
+
+    responseCache.getResponse("endpoint", List.of("a"), 1, null, entitySupplier("a"));
+
+    assertEquals(4, supplierInvocations.get());
+
+    // only the least-recently-used entry ("b") should have been evicted to make room for "a"
+    responseCache.getResponse("endpoint", List.of("c"), 1, null, entitySupplier("c"));
+
+    assertEquals(4, supplierInvocations.get());
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void matches(final String ifNoneMatch, final boolean expectMatch) {
+    assertEquals(expectMatch, SerializedResponseCache.matches(ifNoneMatch, new EntityTag("abc123")));
+  }
+
+  private static Stream<Arguments> matches() {
+    return Stream.of(
+        arguments(null, false),
+        arguments("", false),
+        arguments("\"abc123\"", true),
+        arguments("W/\"abc123\"", true),
+        arguments("\"def456\", \"abc123\"", true),
+        arguments("\"def456\"", false),
+        arguments("*", true)
+    );
+  }
+
+  private Supplier<Map<String, String>> entitySupplier(final String value) {
+    return () -> {
+      supplierInvocations.incrementAndGet();
+      return Map.of("key", value);
+    };
+  }
+}
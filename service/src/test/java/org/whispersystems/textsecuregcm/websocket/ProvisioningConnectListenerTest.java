@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.websocket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.whispersystems.textsecuregcm.push.ProvisioningManager;
+import org.whispersystems.websocket.WebSocketClient;
+import org.whispersystems.websocket.session.WebSocketSessionContext;
+
+class ProvisioningConnectListenerTest {
+
+  private ProvisioningManager provisioningManager;
+  private WebSocketClient client;
+  private WebSocketSessionContext context;
+
+  private ProvisioningConnectListener provisioningConnectListener;
+
+  @BeforeEach
+  void setUp() {
+    provisioningManager = mock(ProvisioningManager.class);
+    client = mock(WebSocketClient.class);
+    context = mock(WebSocketSessionContext.class);
+
+    when(context.getClient()).thenReturn(client);
+    when(provisioningManager.removeListener(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+    provisioningConnectListener = new ProvisioningConnectListener(provisioningManager);
+  }
+
+  @Test
+  void onWebSocketConnect() {
+    when(provisioningManager.addListener(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(client.isOpen()).thenReturn(true);
+
+    provisioningConnectListener.onWebSocketConnect(context);
+
+    verify(client).sendRequest(eq("PUT"), eq("/v1/address"), any(), any());
+    verify(provisioningManager, never()).removeListener(any());
+  }
+
+  @Test
+  void onWebSocketConnectSubscribeFailed() {
+    when(provisioningManager.addListener(any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+    when(client.isOpen()).thenReturn(true);
+
+    provisioningConnectListener.onWebSocketConnect(context);
+
+    verify(client).close(eq(1011), anyString());
+    verify(client, never()).sendRequest(anyString(), anyString(), any(), any());
+  }
+
+  @Test
+  void onWebSocketConnectClosedBeforeSubscribed() {
+    final CompletableFuture<Void> subscribeFuture = new CompletableFuture<>();
+    final ArgumentCaptor<ProvisioningAddress> addressCaptor = ArgumentCaptor.forClass(ProvisioningAddress.class);
+
+    when(provisioningManager.addListener(addressCaptor.capture(), any())).thenReturn(subscribeFuture);
+
+    provisioningConnectListener.onWebSocketConnect(context);
+
+    when(client.isOpen()).thenReturn(false);
+    subscribeFuture.complete(null);
+
+    verify(client, never()).sendRequest(anyString(), anyString(), any(), any());
+    verify(client, never()).close(anyInt(), anyString());
+    verify(provisioningManager).removeListener(addressCaptor.getValue());
+  }
+}
@@ -5,8 +5,10 @@
 
 package org.whispersystems.textsecuregcm.websocket;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyBoolean;
@@ -61,6 +63,7 @@ import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
+import org.whispersystems.textsecuregcm.storage.StoredEnvelope;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.websocket.WebSocketClient;
 import org.whispersystems.websocket.auth.WebSocketAuthenticator.AuthenticationResult;
@@ -184,7 +187,7 @@ class WebSocketConnectionTest {
     String userAgent = HttpHeaders.USER_AGENT;
 
     when(messagesManager.getMessagesForDeviceReactive(account.getUuid(), device.getId(), false))
-        .thenReturn(Flux.fromIterable(outgoingMessages));
+        .thenReturn(Flux.fromIterable(outgoingMessages).map(StoredEnvelope::new));
 
     final List<CompletableFuture<WebSocketResponseMessage>> futures = new LinkedList<>();
     final WebSocketClient client = mock(WebSocketClient.class);
@@ -237,8 +240,8 @@ class WebSocketConnectionTest {
 
     when(messagesManager.getMessagesForDeviceReactive(eq(accountUuid), eq(1L), anyBoolean()))
         .thenReturn(Flux.empty())
-        .thenReturn(Flux.just(createMessage(UUID.randomUUID(), UUID.randomUUID(), 1111, "first")))
-        .thenReturn(Flux.just(createMessage(UUID.randomUUID(), UUID.randomUUID(), 2222, "second")))
+        .thenReturn(Flux.just(new StoredEnvelope(createMessage(UUID.randomUUID(), UUID.randomUUID(), 1111, "first"))))
+        .thenReturn(Flux.just(new StoredEnvelope(createMessage(UUID.randomUUID(), UUID.randomUUID(), 2222, "second"))))
         .thenReturn(Flux.empty());
 
     final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
@@ -332,7 +335,7 @@ class WebSocketConnectionTest {
     String userAgent = HttpHeaders.USER_AGENT;
 
     when(messagesManager.getMessagesForDeviceReactive(account.getUuid(), device.getId(), false))
-        .thenReturn(Flux.fromIterable(pendingMessages));
+        .thenReturn(Flux.fromIterable(pendingMessages).map(StoredEnvelope::new));
 
     final List<CompletableFuture<WebSocketResponseMessage>> futures = new LinkedList<>();
     final WebSocketClient client = mock(WebSocketClient.class);
@@ -451,7 +454,8 @@ class WebSocketConnectionTest {
         List.of(createMessage(UUID.randomUUID(), UUID.randomUUID(), 3333, "third"));
 
     when(messagesManager.getMessagesForDeviceReactive(eq(accountUuid), eq(1L), eq(false)))
-        .thenReturn(Flux.fromStream(Stream.concat(firstPageMessages.stream(), secondPageMessages.stream())));
+        .thenReturn(Flux.fromStream(Stream.concat(firstPageMessages.stream(), secondPageMessages.stream()))
+            .map(StoredEnvelope::new));
 
     when(messagesManager.delete(eq(accountUuid), eq(1L), any(), any()))
         .thenReturn(CompletableFuture.completedFuture(null));
@@ -500,7 +504,7 @@ class WebSocketConnectionTest {
         createMessage(senderUuid, UUID.randomUUID(), 1111L, "message the first"));
 
     when(messagesManager.getMessagesForDeviceReactive(account.getUuid(), 1L, false))
-        .thenReturn(Flux.fromIterable(messages))
+        .thenReturn(Flux.fromIterable(messages).map(StoredEnvelope::new))
         .thenReturn(Flux.empty());
 
     when(messagesManager.delete(eq(accountUuid), eq(1L), any(UUID.class), any()))
@@ -545,6 +549,57 @@ class WebSocketConnectionTest {
     verify(client).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), any(List.class), eq(Optional.empty()));
   }
 
+  @Test
+  void testProcessStoredMessagesSendsStoredBytes() {
+    final WebSocketClient client = mock(WebSocketClient.class);
+    final WebSocketConnection connection = new WebSocketConnection(receiptSender, messagesManager, auth, device, client,
+        retrySchedulingExecutor, Schedulers.immediate(), clientReleaseManager);
+
+    final UUID accountUuid = UUID.randomUUID();
+    when(account.getUuid()).thenReturn(accountUuid);
+    when(device.getId()).thenReturn(1L);
+    when(client.isOpen()).thenReturn(true);
+
+    final Envelope message = createMessage(UUID.randomUUID(), accountUuid, 1111L, "message the first");
+    final Envelope ephemeralMessage = createMessage(UUID.randomUUID(), accountUuid, 2222L, "message the second")
+        .toBuilder()
+        .setEphemeral(true)
+        .build();
+
+    final byte[] storedMessageBytes = message.toByteArray();
+
+    when(messagesManager.getMessagesForDeviceReactive(accountUuid, 1L, false))
+        .thenReturn(Flux.just(new StoredEnvelope(message, storedMessageBytes),
+            new StoredEnvelope(ephemeralMessage, ephemeralMessage.toByteArray())))
+        .thenReturn(Flux.empty());
+
+    when(messagesManager.delete(eq(accountUuid), eq(1L), any(UUID.class), any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
+    when(successResponse.getStatus()).thenReturn(200);
+
+    final List<byte[]> sentBodies = new LinkedList<>();
+
+    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(List.class), any(Optional.class))).thenAnswer(
+        invocation -> {
+          final Optional<byte[]> body = invocation.getArgument(3);
+          sentBodies.add(body.orElseThrow());
+
+          return CompletableFuture.completedFuture(successResponse);
+        });
+
+    when(client.sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), any(List.class), eq(Optional.empty())))
+        .thenReturn(CompletableFuture.completedFuture(successResponse));
+
+    connection.processStoredMessages();
+
+    assertEquals(2, sentBodies.size());
+    // Envelopes without an ephemeral field are sent exactly as stored; others are re-serialized without it
+    assertSame(storedMessageBytes, sentBodies.get(0));
+    assertArrayEquals(ephemeralMessage.toBuilder().clearEphemeral().build().toByteArray(), sentBodies.get(1));
+  }
+
   @Test
   void testProcessStoredMessagesSingleEmptyCall() {
     final WebSocketClient client = mock(WebSocketClient.class);
@@ -594,8 +649,8 @@ class WebSocketConnectionTest {
         List.of(createMessage(UUID.randomUUID(), UUID.randomUUID(), 3333, "third"));
 
     when(messagesManager.getMessagesForDeviceReactive(eq(accountUuid), eq(1L), anyBoolean()))
-        .thenReturn(Flux.fromIterable(firstPageMessages))
-        .thenReturn(Flux.fromIterable(secondPageMessages))
+        .thenReturn(Flux.fromIterable(firstPageMessages).map(StoredEnvelope::new))
+        .thenReturn(Flux.fromIterable(secondPageMessages).map(StoredEnvelope::new))
         .thenReturn(Flux.empty());
 
     when(messagesManager.delete(eq(accountUuid), eq(1L), any(), any()))
@@ -757,7 +812,7 @@ class WebSocketConnectionTest {
     final int totalMessages = 1000;
 
     final TestPublisher<Envelope> testPublisher = TestPublisher.createCold();
-    final Flux<Envelope> flux = Flux.from(testPublisher);
+    final Flux<StoredEnvelope> flux = Flux.from(testPublisher).map(StoredEnvelope::new);
 
     when(messagesManager.getMessagesForDeviceReactive(eq(accountUuid), eq(deviceId), anyBoolean()))
         .thenReturn(flux);
@@ -806,7 +861,7 @@ class WebSocketConnectionTest {
 
     final AtomicBoolean canceled = new AtomicBoolean();
 
-    final Flux<Envelope> flux = Flux.create(s -> {
+    final Flux<StoredEnvelope> flux = Flux.<Envelope>create(s -> {
       s.onRequest(n -> {
         // the subscriber should request more than 1 message, but we will only send one, so that
         // we are sure the subscriber is waiting for more when we stop the connection
@@ -815,7 +870,7 @@ class WebSocketConnectionTest {
       });
 
       s.onCancel(() -> canceled.set(true));
-    });
+    }).map(StoredEnvelope::new);
     when(messagesManager.getMessagesForDeviceReactive(eq(accountUuid), eq(deviceId), anyBoolean()))
         .thenReturn(flux);
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.whispersystems.websocket;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A growable, unsynchronized output stream for response bodies written by Jersey. Buffers are drawn from a small,
+ * shared pool so that serving a response doesn't require allocating (and then discarding) a buffer for its body; the
+ * contents of a buffer may be framed directly via {@link #getBuffer()} and {@link #size()}.
+ */
+class ResponseBodyBuffer extends OutputStream {
+
+  private byte[] buffer;
+  private int size;
+
+  @VisibleForTesting
+  static final int INITIAL_CAPACITY = 4096;
+
+  // Buffers that grew past this size to hold an unusually large response aren't worth keeping around
+  @VisibleForTesting
+  static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+  private static final BlockingQueue<ResponseBodyBuffer> POOL = new ArrayBlockingQueue<>(64);
+
+  @VisibleForTesting
+  ResponseBodyBuffer() {
+    this.buffer = new byte[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Returns an empty buffer, reusing a pooled buffer if one is available. Callers must {@link #release()} the buffer
+   * when they're finished with it.
+   */
+  static ResponseBodyBuffer acquire() {
+    final ResponseBodyBuffer pooledBuffer = POOL.poll();
+    return pooledBuffer != null ? pooledBuffer : new ResponseBodyBuffer();
+  }
+
+  /**
+   * Returns this buffer to the pool. Callers must not use the buffer, or any array returned by {@link #getBuffer()},
+   * after releasing it.
+   */
+  void release() {
+    if (buffer.length <= MAX_RETAINED_CAPACITY) {
+      size = 0;
+      POOL.offer(this);
+    }
+  }
+
+  @Override
+  public void write(final int b) {
+    ensureCapacity(size + 1);
+    buffer[size++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) {
+    if (offset < 0 || length < 0 || length > bytes.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    ensureCapacity(size + length);
+    System.arraycopy(bytes, offset, buffer, size, length);
+    size += length;
+  }
+
+  /**
+   * Returns the array backing this buffer; only the first {@link #size()} bytes are meaningful.
+   */
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void ensureCapacity(final int minCapacity) {
+    if (minCapacity < 0) {
+      throw new OutOfMemoryError("Response body too large");
+    }
+
+    if (minCapacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(minCapacity, buffer.length << 1));
+    }
+  }
+}
@@ -52,7 +52,10 @@ public class WebSocketClient {
 
     pendingRequestMapper.put(requestId, future);
 
-    WebSocketMessage requestMessage = messageFactory.createRequest(Optional.of(requestId), verb, path, headers, body);
+    // The request is serialized before this method returns, so the message can refer to the body instead of copying it
+    final WebSocketMessage requestMessage = body
+        .map(bytes -> messageFactory.createRequest(Optional.of(requestId), verb, path, headers, bytes, 0, bytes.length))
+        .orElseGet(() -> messageFactory.createRequest(Optional.of(requestId), verb, path, headers, Optional.empty()));
 
     try {
       remoteEndpoint.sendBytes(ByteBuffer.wrap(requestMessage.toByteArray()), new WriteCallback() {
@@ -5,10 +5,12 @@
 package org.whispersystems.websocket;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.UninitializedMessageException;
 import org.eclipse.jetty.websocket.api.MessageTooLargeException;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 import org.glassfish.jersey.internal.MapPropertiesDelegate;
 import org.glassfish.jersey.server.ApplicationHandler;
@@ -28,8 +30,6 @@ import org.whispersystems.websocket.setup.WebSocketConnectListener;
 
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
@@ -42,6 +42,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -58,13 +60,28 @@ public class WebSocketResourceProvider<T extends Principal> implements WebSocket
   private final WebsocketRequestLog                requestLog;
   private final long                               idleTimeoutMillis;
   private final String                             remoteAddress;
+  // Dispatches this connection's requests one at a time, in order, on the shared request executor
+  private final Executor                           requestExecutor;
+  private final int                                maxConcurrentRequests;
 
   private Session                 session;
   private RemoteEndpoint          remoteEndpoint;
   private WebSocketSessionContext context;
 
+  // The session's upgrade request headers that should be passed along with each request, filtered once per session
+  private Map<String, List<String>> upgradeRequestHeaders;
+
+  // Guards the count of in-flight requests and the read suspension state for this connection
+  private final Object inFlightRequestLock = new Object();
+  private int inFlightRequests = 0;
+  private boolean readsSuspended = false;
+  private SuspendToken suspendToken;
+
   private static final Set<String> EXCLUDED_UPGRADE_REQUEST_HEADERS = Set.of("connection", "upgrade");
 
+  @VisibleForTesting
+  static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+
   public WebSocketResourceProvider(String                             remoteAddress,
                                    ApplicationHandler                 jerseyHandler,
                                    WebsocketRequestLog                requestLog,
@@ -73,13 +90,38 @@ public class WebSocketResourceProvider<T extends Principal> implements WebSocket
                                    Optional<WebSocketConnectListener> connectListener,
                                    long                               idleTimeoutMillis)
   {
-    this.remoteAddress     = remoteAddress;
-    this.jerseyHandler     = jerseyHandler;
-    this.requestLog        = requestLog;
-    this.authenticated     = authenticated;
-    this.messageFactory    = messageFactory;
-    this.connectListener   = connectListener;
-    this.idleTimeoutMillis = idleTimeoutMillis;
+    this(remoteAddress, jerseyHandler, requestLog, authenticated, messageFactory, connectListener, idleTimeoutMillis,
+        Runnable::run, DEFAULT_MAX_CONCURRENT_REQUESTS);
+  }
+
+  /**
+   * @param requestExecutor the executor on which requests are dispatched to Jersey; requests are never dispatched on
+   *                        the thread that read them from the connection unless this executor runs tasks inline.
+   *                        Requests from a single connection are dispatched one at a time and in the order in which
+   *                        they were read, even if this executor is shared by many threads and connections
+   * @param maxConcurrentRequests the maximum number of requests from this connection that may be in flight at any
+   *                              time; once this limit is reached, no further frames are read from the connection
+   *                              until an in-flight request completes
+   */
+  public WebSocketResourceProvider(String                             remoteAddress,
+                                   ApplicationHandler                 jerseyHandler,
+                                   WebsocketRequestLog                requestLog,
+                                   T                                  authenticated,
+                                   WebSocketMessageFactory            messageFactory,
+                                   Optional<WebSocketConnectListener> connectListener,
+                                   long                               idleTimeoutMillis,
+                                   Executor                           requestExecutor,
+                                   int                                maxConcurrentRequests)
+  {
+    this.remoteAddress         = remoteAddress;
+    this.jerseyHandler         = jerseyHandler;
+    this.requestLog            = requestLog;
+    this.authenticated         = authenticated;
+    this.messageFactory        = messageFactory;
+    this.connectListener       = connectListener;
+    this.idleTimeoutMillis     = idleTimeoutMillis;
+    this.requestExecutor       = MoreExecutors.newSequentialExecutor(requestExecutor);
+    this.maxConcurrentRequests = maxConcurrentRequests;
   }
 
   @Override
@@ -89,6 +131,7 @@ public class WebSocketResourceProvider<T extends Principal> implements WebSocket
     this.context        = new WebSocketSessionContext(new WebSocketClient(session, remoteEndpoint, messageFactory, requestMap));
     this.context.setAuthenticated(authenticated);
     this.session.setIdleTimeout(idleTimeoutMillis);
+    this.upgradeRequestHeaders = filterUpgradeRequestHeaders(session.getUpgradeRequest().getHeaders());
 
     connectListener.ifPresent(listener -> listener.onWebSocketConnect(this.context));
   }
@@ -153,34 +196,100 @@ public class WebSocketResourceProvider<T extends Principal> implements WebSocket
   }
 
   private void handleRequest(WebSocketRequestMessage requestMessage) {
-    ContainerRequest containerRequest = new ContainerRequest(null, URI.create(requestMessage.getPath()), requestMessage.getVerb(), new WebSocketSecurityContext(new ContextPrincipal(context)), new MapPropertiesDelegate(new HashMap<>()), jerseyHandler.getConfiguration());
-    containerRequest.headers(getCombinedHeaders(session.getUpgradeRequest().getHeaders(), requestMessage.getHeaders()));
+    onRequestStarted();
+
+    try {
+      requestExecutor.execute(() -> {
+        try {
+          dispatchRequest(requestMessage).whenComplete((ignored, throwable) -> onRequestCompleted());
+        } catch (final RuntimeException e) {
+          logger.warn("Websocket Error: " + requestMessage.getVerb() + " " + requestMessage.getPath(), e);
+          sendErrorResponse(requestMessage, Response.status(500).build());
+          onRequestCompleted();
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      logger.debug("Request executor rejected request", e);
+      sendErrorResponse(requestMessage, Response.status(503).build());
+      onRequestCompleted();
+    }
+  }
+
+  /**
+   * Counts a newly-received request against this connection's limit, suspending reads from the connection if the
+   * limit has been reached. Must only be called from the thread that reads from the connection.
+   */
+  private void onRequestStarted() {
+    synchronized (inFlightRequestLock) {
+      inFlightRequests++;
+
+      if (inFlightRequests >= maxConcurrentRequests && !readsSuspended) {
+        readsSuspended = true;
+        suspendToken = session.suspend();
+      }
+    }
+  }
+
+  private void onRequestCompleted() {
+    synchronized (inFlightRequestLock) {
+      inFlightRequests--;
 
-    if (requestMessage.getBody().isPresent()) {
-      containerRequest.setEntityStream(new ByteArrayInputStream(requestMessage.getBody().get()));
+      if (readsSuspended && inFlightRequests < maxConcurrentRequests) {
+        readsSuspended = false;
+
+        if (suspendToken != null) {
+          suspendToken.resume();
+          suspendToken = null;
+        }
+      }
     }
+  }
+
+  private CompletableFuture<Void> dispatchRequest(WebSocketRequestMessage requestMessage) {
+    ContainerRequest containerRequest = new ContainerRequest(null, URI.create(requestMessage.getPath()), requestMessage.getVerb(), new WebSocketSecurityContext(new ContextPrincipal(context)), new MapPropertiesDelegate(new HashMap<>()), jerseyHandler.getConfiguration());
+    containerRequest.headers(combineHeaders(upgradeRequestHeaders, requestMessage.getHeaders()));
 
-    ByteArrayOutputStream                responseBody     = new ByteArrayOutputStream();
-    CompletableFuture<ContainerResponse> responseFuture   = (CompletableFuture<ContainerResponse>) jerseyHandler.apply(containerRequest, responseBody);
+    requestMessage.getBodyAsStream().ifPresent(containerRequest::setEntityStream);
 
-    responseFuture.thenAccept(response -> {
+    ResponseBodyBuffer                   responseBody     = ResponseBodyBuffer.acquire();
+    CompletableFuture<ContainerResponse> responseFuture;
+
+    try {
+      responseFuture = (CompletableFuture<ContainerResponse>) jerseyHandler.apply(containerRequest, responseBody);
+    } catch (final RuntimeException e) {
+      responseBody.release();
+      throw e;
+    }
+
+    return responseFuture.thenAccept(response -> {
       sendResponse(requestMessage, response, responseBody);
       requestLog.log(remoteAddress, containerRequest, response);
     }).exceptionally(exception -> {
-      logger.warn("Websocket Error: " + requestMessage.getVerb() + " " + requestMessage.getPath() + "\n" + requestMessage.getBody(), exception);
+      logger.warn("Websocket Error: " + requestMessage.getVerb() + " " + requestMessage.getPath(), exception);
       sendErrorResponse(requestMessage, Response.status(500).build());
       requestLog.log(remoteAddress, containerRequest, new ContainerResponse(containerRequest, Response.status(500).build()));
       return null;
-    });
+    }).whenComplete((ignored, throwable) -> responseBody.release());
   }
 
   @VisibleForTesting
   static Map<String, List<String>> getCombinedHeaders(final Map<String, List<String>> upgradeRequestHeaders, final Map<String, String> requestMessageHeaders) {
-    final Map<String, List<String>> combinedHeaders = new HashMap<>();
+    return combineHeaders(filterUpgradeRequestHeaders(upgradeRequestHeaders), requestMessageHeaders);
+  }
+
+  @VisibleForTesting
+  static Map<String, List<String>> filterUpgradeRequestHeaders(final Map<String, List<String>> upgradeRequestHeaders) {
+    final Map<String, List<String>> filteredHeaders = new HashMap<>();
 
     upgradeRequestHeaders.entrySet().stream()
         .filter(entry -> shouldIncludeUpgradeRequestHeader(entry.getKey()))
-        .forEach(entry -> combinedHeaders.put(entry.getKey(), entry.getValue()));
+        .forEach(entry -> filteredHeaders.put(entry.getKey(), entry.getValue()));
+
+    return filteredHeaders;
+  }
+
+  private static Map<String, List<String>> combineHeaders(final Map<String, List<String>> filteredUpgradeRequestHeaders, final Map<String, String> requestMessageHeaders) {
+    final Map<String, List<String>> combinedHeaders = new HashMap<>(filteredUpgradeRequestHeaders);
 
     requestMessageHeaders.entrySet().stream()
         .filter(entry -> shouldIncludeRequestMessageHeader(entry.getKey()))
@@ -211,22 +320,19 @@ public class WebSocketResourceProvider<T extends Principal> implements WebSocket
     session.close(status, message);
   }
 
-  private void sendResponse(WebSocketRequestMessage requestMessage, ContainerResponse response, ByteArrayOutputStream responseBody) {
+  private void sendResponse(WebSocketRequestMessage requestMessage, ContainerResponse response, ResponseBodyBuffer responseBody) {
     if (requestMessage.hasRequestId()) {
-      byte[] body = responseBody.toByteArray();
-
-      if (body.length <= 0) {
-        body = null;
-      }
+      final String       reasonPhrase = response.getStatusInfo().getReasonPhrase();
+      final List<String> headers      = getHeaderList(response.getStringHeaders());
 
-      byte[] responseBytes = messageFactory.createResponse(requestMessage.getRequestId(),
-                                                           response.getStatus(),
-                                                           response.getStatusInfo().getReasonPhrase(),
-                                                           getHeaderList(response.getStringHeaders()),
-                                                           Optional.ofNullable(body))
-                                           .toByteArray();
+      // Frame the body straight from the response buffer; serializing the message is the only copy we make
+      final WebSocketMessage responseMessage = responseBody.size() > 0
+          ? messageFactory.createResponse(requestMessage.getRequestId(), response.getStatus(), reasonPhrase, headers,
+              responseBody.getBuffer(), 0, responseBody.size())
+          : messageFactory.createResponse(requestMessage.getRequestId(), response.getStatus(), reasonPhrase, headers,
+              Optional.empty());
 
-      remoteEndpoint.sendBytesByFuture(ByteBuffer.wrap(responseBytes));
+      remoteEndpoint.sendBytesByFuture(ByteBuffer.wrap(responseMessage.toByteArray()));
     }
   }
 
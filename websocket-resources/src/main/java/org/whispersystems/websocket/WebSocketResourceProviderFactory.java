@@ -71,7 +71,9 @@ public class WebSocketResourceProviderFactory<T extends Principal> extends WebSo
           authenticated,
           this.environment.getMessageFactory(),
           ofNullable(this.environment.getConnectListener()),
-          this.environment.getIdleTimeoutMillis());
+          this.environment.getIdleTimeoutMillis(),
+          this.environment.getRequestExecutor(),
+          this.configuration.getMaxConcurrentRequestsPerConnection());
     } catch (AuthenticationException | IOException e) {
       logger.warn("Authentication failure", e);
       try {
@@ -28,6 +28,29 @@ public class WebSocketConfiguration {
   @JsonProperty
   private int maxTextMessageSize = 512 * 1024;
 
+  /**
+   * The maximum number of requests from a single connection that may be in flight at once; once a connection reaches
+   * this limit, the server stops reading from it until one of its requests completes
+   */
+  @Min(1)
+  @JsonProperty
+  private int maxConcurrentRequestsPerConnection = 16;
+
+  /**
+   * The number of threads available to dispatch websocket requests to resources
+   */
+  @Min(1)
+  @JsonProperty
+  private int requestDispatchThreads = 64;
+
+  /**
+   * The maximum number of websocket requests that may wait for a dispatch thread; requests beyond this limit are
+   * rejected with a 503 response
+   */
+  @Min(1)
+  @JsonProperty
+  private int requestDispatchQueueSize = 10_000;
+
   public WebsocketRequestLoggerFactory getRequestLog() {
     return requestLog;
   }
@@ -39,4 +62,16 @@ public class WebSocketConfiguration {
   public int getMaxTextMessageSize() {
     return maxTextMessageSize;
   }
+
+  public int getMaxConcurrentRequestsPerConnection() {
+    return maxConcurrentRequestsPerConnection;
+  }
+
+  public int getRequestDispatchThreads() {
+    return requestDispatchThreads;
+  }
+
+  public int getRequestDispatchQueueSize() {
+    return requestDispatchQueueSize;
+  }
 }
@@ -19,8 +19,27 @@ public interface WebSocketMessageFactory {
                                         List<String> headers,
                                         Optional<byte[]> body);
 
+  /**
+   * Creates a request message whose body is the given region of the given array. Implementations may refer to the
+   * array rather than copying it, so callers must not modify the region until they have serialized the returned
+   * message.
+   */
+  public WebSocketMessage createRequest(Optional<Long> requestId,
+                                        String verb, String path,
+                                        List<String> headers,
+                                        byte[] body, int offset, int length);
+
   public WebSocketMessage createResponse(long requestId, int status, String message,
                                          List<String> headers,
                                          Optional<byte[]> body);
 
+  /**
+   * Creates a response message whose body is the given region of the given array. Implementations may refer to the
+   * array rather than copying it, so callers must not modify the region until they have serialized the returned
+   * message.
+   */
+  public WebSocketMessage createResponse(long requestId, int status, String message,
+                                         List<String> headers,
+                                         byte[] body, int offset, int length);
+
 }
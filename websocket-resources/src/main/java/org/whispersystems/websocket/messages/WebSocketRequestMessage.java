@@ -4,6 +4,7 @@
  */
 package org.whispersystems.websocket.messages;
 
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Optional;
 
@@ -13,6 +14,7 @@ public interface WebSocketRequestMessage {
   public String             getPath();
   public Map<String,String> getHeaders();
   public Optional<byte[]> getBody();
+  public Optional<InputStream> getBodyAsStream();
   public long               getRequestId();
   public boolean            hasRequestId();
 
@@ -4,7 +4,6 @@
  */
 package org.whispersystems.websocket.messages.protobuf;
 
-import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.whispersystems.websocket.messages.InvalidMessageException;
 import org.whispersystems.websocket.messages.WebSocketMessage;
@@ -17,7 +16,7 @@ public class ProtobufWebSocketMessage implements WebSocketMessage {
 
   ProtobufWebSocketMessage(byte[] buffer, int offset, int length) throws InvalidMessageException {
     try {
-      this.message = SubProtocol.WebSocketMessage.parseFrom(ByteString.copyFrom(buffer, offset, length));
+      this.message = SubProtocol.WebSocketMessage.parser().parseFrom(buffer, offset, length);
 
       if (getType() == Type.REQUEST_MESSAGE) {
         if (!message.getRequest().hasVerb() || !message.getRequest().hasPath()) {
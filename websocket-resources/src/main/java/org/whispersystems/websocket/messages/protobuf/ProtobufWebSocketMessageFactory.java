@@ -5,6 +5,7 @@
 package org.whispersystems.websocket.messages.protobuf;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import org.whispersystems.websocket.messages.InvalidMessageException;
 import org.whispersystems.websocket.messages.WebSocketMessage;
 import org.whispersystems.websocket.messages.WebSocketMessageFactory;
@@ -32,14 +33,34 @@ public class ProtobufWebSocketMessageFactory implements WebSocketMessageFactory
                                            .setVerb(verb)
                                            .setPath(path);
 
-    if (requestId.isPresent()) {
-      requestMessage.setId(requestId.get());
-    }
-
     if (body.isPresent()) {
       requestMessage.setBody(ByteString.copyFrom(body.get()));
     }
 
+    return createRequest(requestId, requestMessage, headers);
+  }
+
+  @Override
+  public WebSocketMessage createRequest(Optional<Long> requestId, String verb, String path, List<String> headers,
+      byte[] body, int offset, int length) {
+
+    SubProtocol.WebSocketRequestMessage.Builder requestMessage =
+        SubProtocol.WebSocketRequestMessage.newBuilder()
+                                           .setVerb(verb)
+                                           .setPath(path)
+                                           .setBody(UnsafeByteOperations.unsafeWrap(body, offset, length));
+
+    return createRequest(requestId, requestMessage, headers);
+  }
+
+  private WebSocketMessage createRequest(Optional<Long> requestId,
+      SubProtocol.WebSocketRequestMessage.Builder requestMessage,
+      List<String> headers) {
+
+    if (requestId.isPresent()) {
+      requestMessage.setId(requestId.get());
+    }
+
     if (headers != null) {
       requestMessage.addAllHeaders(headers);
     }
@@ -65,6 +86,26 @@ public class ProtobufWebSocketMessageFactory implements WebSocketMessageFactory
       responseMessage.setBody(ByteString.copyFrom(body.get()));
     }
 
+    return createResponse(responseMessage, headers);
+  }
+
+  @Override
+  public WebSocketMessage createResponse(long requestId, int status, String messageString, List<String> headers,
+      byte[] body, int offset, int length) {
+
+    SubProtocol.WebSocketResponseMessage.Builder responseMessage =
+        SubProtocol.WebSocketResponseMessage.newBuilder()
+                                            .setId(requestId)
+                                            .setStatus(status)
+                                            .setMessage(messageString)
+                                            .setBody(UnsafeByteOperations.unsafeWrap(body, offset, length));
+
+    return createResponse(responseMessage, headers);
+  }
+
+  private WebSocketMessage createResponse(SubProtocol.WebSocketResponseMessage.Builder responseMessage,
+      List<String> headers) {
+
     if (headers != null) {
       responseMessage.addAllHeaders(headers);
     }
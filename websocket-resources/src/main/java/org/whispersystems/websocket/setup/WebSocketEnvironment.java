@@ -16,6 +16,7 @@ import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFa
 
 import javax.validation.Validator;
 import java.security.Principal;
+import java.util.concurrent.Executor;
 
 public class WebSocketEnvironment<T extends Principal> {
 
@@ -28,6 +29,7 @@ public class WebSocketEnvironment<T extends Principal> {
   private WebSocketAuthenticator<T> authenticator;
   private WebSocketMessageFactory   messageFactory;
   private WebSocketConnectListener  connectListener;
+  private Executor                  requestExecutor;
 
   public WebSocketEnvironment(Environment environment, WebSocketConfiguration configuration) {
     this(environment, configuration, 60000);
@@ -44,6 +46,7 @@ public class WebSocketEnvironment<T extends Principal> {
     this.requestLog               = requestLog;
     this.messageFactory           = new ProtobufWebSocketMessageFactory();
     this.idleTimeoutMillis        = idleTimeoutMillis;
+    this.requestExecutor          = Runnable::run;
   }
 
   public ResourceConfig jersey() {
@@ -89,4 +92,16 @@ public class WebSocketEnvironment<T extends Principal> {
   public void setConnectListener(WebSocketConnectListener connectListener) {
     this.connectListener = connectListener;
   }
+
+  public Executor getRequestExecutor() {
+    return requestExecutor;
+  }
+
+  /**
+   * Sets the executor on which websocket requests are dispatched to resources. By default, requests are dispatched on
+   * the thread that read them from the connection.
+   */
+  public void setRequestExecutor(Executor requestExecutor) {
+    this.requestExecutor = requestExecutor;
+  }
 }
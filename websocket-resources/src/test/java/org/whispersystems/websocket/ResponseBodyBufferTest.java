@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.whispersystems.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ResponseBodyBufferTest {
+
+  @Test
+  void testWrite() {
+    final ResponseBodyBuffer responseBodyBuffer = new ResponseBodyBuffer();
+    final byte[] contents = new byte[ResponseBodyBuffer.INITIAL_CAPACITY * 3 + 17];
+    new Random().nextBytes(contents);
+
+    responseBodyBuffer.write(contents[0]);
+    responseBodyBuffer.write(contents, 1, contents.length - 1);
+
+    assertThat(responseBodyBuffer.size()).isEqualTo(contents.length);
+    assertThat(Arrays.copyOf(responseBodyBuffer.getBuffer(), responseBodyBuffer.size())).isEqualTo(contents);
+  }
+
+  @Test
+  void testWriteOutOfBounds() {
+    final ResponseBodyBuffer responseBodyBuffer = new ResponseBodyBuffer();
+
+    assertThrows(IndexOutOfBoundsException.class, () -> responseBodyBuffer.write(new byte[4], 2, 3));
+    assertThat(responseBodyBuffer.size()).isZero();
+  }
+
+  @Test
+  void testRelease() {
+    final ResponseBodyBuffer responseBodyBuffer = ResponseBodyBuffer.acquire();
+    responseBodyBuffer.write(new byte[16], 0, 16);
+    responseBodyBuffer.release();
+
+    // Other tests may share the pool, so we can't assume we'll get the same buffer back, but any pooled buffer must be
+    // empty
+    assertThat(ResponseBodyBuffer.acquire().size()).isZero();
+  }
+
+  @Test
+  void testReleaseOversized() {
+    final ResponseBodyBuffer responseBodyBuffer = new ResponseBodyBuffer();
+    final int oversizedLength = ResponseBodyBuffer.MAX_RETAINED_CAPACITY + 1;
+    responseBodyBuffer.write(new byte[oversizedLength], 0, oversizedLength);
+    responseBodyBuffer.release();
+
+    // An oversized buffer isn't returned to the pool, so it keeps its contents
+    assertThat(responseBodyBuffer.size()).isEqualTo(oversizedLength);
+  }
+}
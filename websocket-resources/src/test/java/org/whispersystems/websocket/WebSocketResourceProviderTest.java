@@ -11,6 +11,7 @@ import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,7 +32,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.RejectedExecutionException;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
@@ -50,6 +59,7 @@ import javax.ws.rs.ext.Provider;
 import org.eclipse.jetty.websocket.api.CloseStatus;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.SuspendToken;
 import org.eclipse.jetty.websocket.api.UpgradeRequest;
 import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.glassfish.jersey.server.ApplicationHandler;
@@ -224,6 +234,163 @@ class WebSocketResourceProviderTest {
     assertThat(responseMessageContainer.getResponse().hasBody()).isFalse();
   }
 
+  @Test
+  void testDispatchOnExecutorWithBackpressure() throws Exception {
+    ApplicationHandler applicationHandler = mock(ApplicationHandler.class);
+    WebsocketRequestLog requestLog = mock(WebsocketRequestLog.class);
+    List<Runnable> dispatchedRequests = new ArrayList<>();
+
+    WebSocketResourceProvider<TestPrincipal> provider = new WebSocketResourceProvider<>("127.0.0.1", applicationHandler,
+        requestLog, new TestPrincipal("foo"), new ProtobufWebSocketMessageFactory(), Optional.empty(), 30000,
+        dispatchedRequests::add, 2);
+
+    Session session = mock(Session.class);
+    RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class);
+    UpgradeRequest request = mock(UpgradeRequest.class);
+    SuspendToken suspendToken = mock(SuspendToken.class);
+
+    when(session.getUpgradeRequest()).thenReturn(request);
+    when(session.getRemote()).thenReturn(remoteEndpoint);
+    when(session.suspend()).thenReturn(suspendToken);
+
+    List<CompletableFuture<ContainerResponse>> responseFutures = new ArrayList<>();
+
+    when(applicationHandler.apply(any(ContainerRequest.class), any(OutputStream.class))).thenAnswer(invocation -> {
+      CompletableFuture<ContainerResponse> responseFuture = new CompletableFuture<>();
+      responseFutures.add(responseFuture);
+
+      return responseFuture;
+    });
+
+    provider.onWebSocketConnect(session);
+
+    byte[] message = new ProtobufWebSocketMessageFactory().createRequest(Optional.of(111L), "GET", "/bar",
+        new LinkedList<>(), Optional.empty()).toByteArray();
+
+    provider.onWebSocketBinary(message, 0, message.length);
+
+    // Requests must not be dispatched on the thread that read them
+    verify(applicationHandler, never()).apply(any(ContainerRequest.class), any(OutputStream.class));
+    verify(session, never()).suspend();
+
+    provider.onWebSocketBinary(message, 0, message.length);
+
+    // The connection has reached its limit of in-flight requests, so we should stop reading from it
+    verify(session).suspend();
+
+    dispatchedRequests.forEach(Runnable::run);
+    verify(applicationHandler, times(2)).apply(any(ContainerRequest.class), any(OutputStream.class));
+    verify(suspendToken, never()).resume();
+
+    responseFutures.get(0).completeExceptionally(new IllegalStateException());
+    verify(suspendToken).resume();
+
+    responseFutures.get(1).completeExceptionally(new IllegalStateException());
+    verify(suspendToken).resume();
+    verify(session).suspend();
+  }
+
+  @Test
+  void testDispatchPreservesRequestOrder() throws Exception {
+    ApplicationHandler applicationHandler = mock(ApplicationHandler.class);
+    WebsocketRequestLog requestLog = mock(WebsocketRequestLog.class);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      WebSocketResourceProvider<TestPrincipal> provider = new WebSocketResourceProvider<>("127.0.0.1",
+          applicationHandler, requestLog, new TestPrincipal("foo"), new ProtobufWebSocketMessageFactory(),
+          Optional.empty(), 30000, executor, 32);
+
+      Session session = mock(Session.class);
+      RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class);
+      UpgradeRequest request = mock(UpgradeRequest.class);
+
+      when(session.getUpgradeRequest()).thenReturn(request);
+      when(session.getRemote()).thenReturn(remoteEndpoint);
+
+      final int requestCount = 16;
+      final List<String> dispatchedPaths = Collections.synchronizedList(new ArrayList<>());
+      final AtomicInteger concurrentDispatches = new AtomicInteger();
+      final AtomicInteger maxConcurrentDispatches = new AtomicInteger();
+      final CountDownLatch dispatchLatch = new CountDownLatch(requestCount);
+
+      when(applicationHandler.apply(any(ContainerRequest.class), any(OutputStream.class))).thenAnswer(invocation -> {
+        maxConcurrentDispatches.accumulateAndGet(concurrentDispatches.incrementAndGet(), Math::max);
+
+        try {
+          // Give later requests a chance to overtake this one if dispatch were not serialized
+          Thread.sleep(5);
+          dispatchedPaths.add(invocation.getArgument(0, ContainerRequest.class).getRequestUri().getPath());
+        } finally {
+          concurrentDispatches.decrementAndGet();
+          dispatchLatch.countDown();
+        }
+
+        return CompletableFuture.failedFuture(new IllegalStateException());
+      });
+
+      provider.onWebSocketConnect(session);
+
+      final List<String> expectedPaths = new ArrayList<>();
+
+      for (int i = 0; i < requestCount; i++) {
+        final String path = "/bar/" + i;
+        final byte[] message = new ProtobufWebSocketMessageFactory().createRequest(Optional.of((long) i), "GET", path,
+            new LinkedList<>(), Optional.empty()).toByteArray();
+
+        expectedPaths.add(path);
+        provider.onWebSocketBinary(message, 0, message.length);
+      }
+
+      assertThat(dispatchLatch.await(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(dispatchedPaths).containsExactlyElementsOf(expectedPaths);
+      assertThat(maxConcurrentDispatches.get()).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void testDispatchRejected() throws Exception {
+    ApplicationHandler applicationHandler = mock(ApplicationHandler.class);
+    WebsocketRequestLog requestLog = mock(WebsocketRequestLog.class);
+
+    WebSocketResourceProvider<TestPrincipal> provider = new WebSocketResourceProvider<>("127.0.0.1", applicationHandler,
+        requestLog, new TestPrincipal("foo"), new ProtobufWebSocketMessageFactory(), Optional.empty(), 30000,
+        command -> {
+          throw new RejectedExecutionException();
+        }, 1);
+
+    Session session = mock(Session.class);
+    RemoteEndpoint remoteEndpoint = mock(RemoteEndpoint.class);
+    UpgradeRequest request = mock(UpgradeRequest.class);
+    SuspendToken suspendToken = mock(SuspendToken.class);
+
+    when(session.getUpgradeRequest()).thenReturn(request);
+    when(session.getRemote()).thenReturn(remoteEndpoint);
+    when(session.suspend()).thenReturn(suspendToken);
+
+    provider.onWebSocketConnect(session);
+
+    byte[] message = new ProtobufWebSocketMessageFactory().createRequest(Optional.of(111L), "GET", "/bar",
+        new LinkedList<>(), Optional.empty()).toByteArray();
+
+    provider.onWebSocketBinary(message, 0, message.length);
+
+    verify(applicationHandler, never()).apply(any(ContainerRequest.class), any(OutputStream.class));
+
+    // A rejected request no longer counts against the connection's limit
+    verify(suspendToken).resume();
+
+    ArgumentCaptor<ByteBuffer> responseCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+    verify(remoteEndpoint).sendBytesByFuture(responseCaptor.capture());
+
+    SubProtocol.WebSocketMessage responseMessageContainer = SubProtocol.WebSocketMessage.parseFrom(
+        responseCaptor.getValue().array());
+    assertThat(responseMessageContainer.getResponse().getId()).isEqualTo(111L);
+    assertThat(responseMessageContainer.getResponse().getStatus()).isEqualTo(503);
+  }
+
   @Test
   void testActualRouteMessageSuccess() throws InvalidProtocolBufferException {
     ResourceConfig resourceConfig = new DropwizardResourceConfig();